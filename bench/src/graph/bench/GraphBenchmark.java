@@ -0,0 +1,215 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package graph.bench;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import graph.ConcreteEdgesGraph;
+import graph.ConcreteVerticesGraph;
+import graph.ConcurrentGraph;
+import graph.Graph;
+import graph.PersistentGraph;
+
+/**
+ * Benchmarks of the Graph operations on the mutable Graph implementations.
+ *
+ * <p>Each trial builds a random graph with the given number of vertices and DEGREE times as
+ * many edges, whose endpoints are drawn uniformly or from a Zipfian distribution (so that a
+ * few vertices have very high degree, as words do in a corpus), and then measures one
+ * operation on randomly chosen vertices and edges of it. Operations that change the graph
+ * undo their change within the same measured call, so the graph is the same for every call.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-da")
+public class GraphBenchmark {
+    
+    /** Average out-degree of the generated graphs. */
+    private static final int DEGREE = 8;
+    
+    /** Number of precomputed random choices; a power of two. */
+    private static final int CHOICES = 1 << 16;
+    
+    @Param({"vertices", "edges", "concurrent", "persistent"})
+    public String implementation;
+    
+    @Param({"1000", "100000"})
+    public int size;
+    
+    @Param({"uniform", "zipfian"})
+    public String distribution;
+    
+    private Graph<String> graph;
+    private String[] labels;
+    private int[] edgeSources;
+    private int[] edgeTargets;
+    private int[] randomVertices;
+    private int[] randomEdges;
+    private int next = 0;
+    
+    @Setup(Level.Trial)
+    public void setUp(){
+        final Random random = new Random(6005);
+        final Sampler sampler = distribution.equals("zipfian") ? new ZipfSampler(size, random) : () -> random.nextInt(size);
+        
+        graph = newGraph(implementation);
+        labels = new String[size];
+        for(int i = 0; i < size; i++){
+            labels[i] = "word" + i;
+            graph.add(labels[i]);
+        }
+        
+        edgeSources = new int[size * DEGREE];
+        edgeTargets = new int[size * DEGREE];
+        for(int e = 0; e < edgeSources.length; e++){
+            edgeSources[e] = sampler.next();
+            edgeTargets[e] = sampler.next();
+            graph.set(labels[edgeSources[e]], labels[edgeTargets[e]], 1 + random.nextInt(3));
+        }
+        
+        randomVertices = new int[CHOICES];
+        randomEdges = new int[CHOICES];
+        for(int i = 0; i < CHOICES; i++){
+            randomVertices[i] = sampler.next();
+            randomEdges[i] = random.nextInt(edgeSources.length);
+        }
+    }
+    
+    //Effects: returns an empty graph of the implementation with the given name
+    static Graph<String> newGraph(String implementation){
+        switch(implementation){
+        case "vertices": return new ConcreteVerticesGraph<>();
+        case "edges": return new ConcreteEdgesGraph<>();
+        case "concurrent": return new ConcurrentGraph<>();
+        case "persistent": return new PersistentGraph<>();
+        default: throw new IllegalArgumentException("unknown implementation: " + implementation);
+        }
+    }
+    
+    //Effects: returns the index of the next random choice
+    private int nextChoice(){
+        next = (next + 1) & (CHOICES - 1);
+        return next;
+    }
+    
+    /** add() of a vertex that is already in the graph. */
+    @Benchmark
+    public boolean addExisting(){
+        return graph.add(labels[randomVertices[nextChoice()]]);
+    }
+    
+    /** add() of a new vertex, then remove() of it. */
+    @Benchmark
+    public boolean addNewThenRemove(){
+        graph.add("new");
+        return graph.remove("new");
+    }
+    
+    /** set() of an existing edge to a new positive weight. */
+    @Benchmark
+    public int setExisting(){
+        final int e = randomEdges[nextChoice()];
+        return graph.set(labels[edgeSources[e]], labels[edgeTargets[e]], 1 + (e & 3));
+    }
+    
+    /** set() of a new edge between existing vertices, then set() of its weight to zero. */
+    @Benchmark
+    public int setNewThenClear(){
+        final String source = labels[randomVertices[nextChoice()]];
+        graph.set(source, "new", 1);
+        final int weight = graph.set(source, "new", 0);
+        graph.remove("new");
+        return weight;
+    }
+    
+    /** remove() of a vertex with edges, then restoring the vertex and its edges. */
+    @Benchmark
+    public boolean removeThenRestore(){
+        final String vertex = labels[randomVertices[nextChoice()]];
+        final Map<String, Integer> sources = graph.sources(vertex);
+        final Map<String, Integer> targets = graph.targets(vertex);
+        
+        final boolean removed = graph.remove(vertex);
+        graph.add(vertex);
+        for(Map.Entry<String, Integer> e : sources.entrySet()){
+            graph.set(e.getKey(), vertex, e.getValue());
+        }
+        for(Map.Entry<String, Integer> e : targets.entrySet()){
+            graph.set(vertex, e.getKey(), e.getValue());
+        }
+        return removed;
+    }
+    
+    /** sources() of a vertex. */
+    @Benchmark
+    public Map<String, Integer> sources(){
+        return graph.sources(labels[randomVertices[nextChoice()]]);
+    }
+    
+    /** targets() of a vertex. */
+    @Benchmark
+    public Map<String, Integer> targets(){
+        return graph.targets(labels[randomVertices[nextChoice()]]);
+    }
+    
+    /** vertices() of the whole graph. */
+    @Benchmark
+    public void vertices(Blackhole blackhole){
+        blackhole.consume(graph.vertices());
+    }
+    
+    /*
+     * A source of random vertex indices.
+     */
+    private interface Sampler {
+        int next();
+    }
+    
+    /*
+     * Samples indices in [0, n) with probability proportional to 1 / (index + 1), by binary
+     * search on the cumulative distribution.
+     */
+    private static class ZipfSampler implements Sampler {
+        
+        private final double[] cumulative;
+        private final Random random;
+        
+        ZipfSampler(int n, Random random){
+            this.cumulative = new double[n];
+            this.random = random;
+            
+            double sum = 0;
+            for(int i = 0; i < n; i++){
+                sum += 1.0 / (i + 1);
+                cumulative[i] = sum;
+            }
+        }
+        
+        @Override public int next(){
+            final double u = random.nextDouble() * cumulative[cumulative.length - 1];
+            final int k = Arrays.binarySearch(cumulative, u);
+            return Math.min(k < 0 ? -k - 1 : k, cumulative.length - 1);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package poet.bench;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Scanner;
+
+/**
+ * Corpora for the GraphPoet benchmarks.
+ *
+ * <p>A corpus is named by a benchmark parameter: "mugar" is src/poet/mugar-omni-theater.txt,
+ * "zipfian" is synthetic text whose words follow a Zipfian distribution over a vocabulary of
+ * VOCABULARY words, and any other name is the path of a text file, relative to the project
+ * directory. One in eight synthetic tokens is upper case, so that ingestion has case to fold.
+ * Real corpora are scaled to the requested number of tokens by repeating them.
+ */
+final class Corpora {
+    
+    /** Number of distinct words in the synthetic corpus. */
+    static final int VOCABULARY = 50000;
+    
+    private Corpora(){
+        throw new AssertionError("not instantiable");
+    }
+    
+    /**
+     * @param corpus the name of a corpus, as described above
+     * @param count the number of tokens to return, positive
+     * @param random source of randomness for the synthetic corpus
+     * @return the first count tokens of corpus, in their original case
+     * @throws IOException if corpus names a file that cannot be read or has no tokens
+     */
+    static List<String> tokens(String corpus, int count, Random random) throws IOException {
+        final List<String> tokens = new ArrayList<>(count);
+        
+        if(corpus.equals("zipfian")){
+            final double[] cumulative = new double[VOCABULARY];
+            double sum = 0;
+            for(int i = 0; i < VOCABULARY; i++){
+                sum += 1.0 / (i + 1);
+                cumulative[i] = sum;
+            }
+            while(tokens.size() < count){
+                final String word = Integer.toString(sample(cumulative, random), Character.MAX_RADIX);
+                tokens.add(random.nextInt(8) == 0 ? word.toUpperCase() : word);
+            }
+            return tokens;
+        }
+        
+        final List<String> text = new ArrayList<>();
+        try(Scanner sc = new Scanner(new File(corpus.equals("mugar") ? "src/poet/mugar-omni-theater.txt" : corpus))){
+            while(sc.hasNext()) text.add(sc.next());
+        }
+        if(text.isEmpty()) throw new IOException("corpus has no tokens: " + corpus);
+        
+        while(tokens.size() < count){
+            tokens.add(text.get(tokens.size() % text.size()));
+        }
+        return tokens;
+    }
+    
+    /**
+     * Write tokens to a new temporary file, separated by spaces and newlines.
+     *
+     * @param tokens the tokens to write
+     * @return the file, which is deleted when the JVM exits
+     * @throws IOException if the file cannot be written
+     */
+    static File write(List<String> tokens) throws IOException {
+        final File file = File.createTempFile("corpus", ".txt");
+        file.deleteOnExit();
+        
+        try(BufferedWriter out = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)){
+            for(int i = 0; i < tokens.size(); i++){
+                out.write(tokens.get(i));
+                out.write(i % 12 == 11 ? '\n' : ' ');
+            }
+        }
+        return file;
+    }
+    
+    //Effects: returns an index i with probability proportional to cumulative[i] - cumulative[i-1]
+    private static int sample(double[] cumulative, Random random){
+        final double u = random.nextDouble() * cumulative[cumulative.length - 1];
+        int low = 0;
+        int high = cumulative.length - 1;
+        while(low < high){
+            final int mid = (low + high) >>> 1;
+            if(cumulative[mid] < u) low = mid + 1;
+            else high = mid;
+        }
+        return low;
+    }
+}
@@ -0,0 +1,92 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package poet.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import poet.GraphPoet;
+
+/**
+ * Benchmarks of building a GraphPoet from a corpus file.
+ *
+ * <p>Besides poets built per second, each result reports a "tokens" secondary result, the
+ * ingestion throughput in corpus tokens per second. Every benchmark is run once with
+ * assertions disabled and once with them enabled, since the rep invariant checks of the graph
+ * package run during ingestion.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-da")
+public class IngestionBenchmark {
+    
+    /** Corpus name, as described in Corpora. */
+    @Param({"mugar", "zipfian"})
+    public String corpus;
+    
+    @Param({"10000", "1000000"})
+    public int tokens;
+    
+    private File file;
+    
+    /*
+     * Counts the corpus tokens ingested; JMH reports it as a rate.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Counters {
+        
+        public long tokens;
+        
+        @Setup(Level.Iteration)
+        public void reset(){
+            tokens = 0;
+        }
+    }
+    
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        file = Corpora.write(Corpora.tokens(corpus, tokens, new Random(6005)));
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown(){
+        file.delete();
+    }
+    
+    /** Build a poet from the corpus, with assertions disabled. */
+    @Benchmark
+    public GraphPoet ingest(Counters counters) throws IOException {
+        final GraphPoet poet = new GraphPoet(file);
+        counters.tokens += tokens;
+        return poet;
+    }
+    
+    /** Build a poet from the corpus, with assertions enabled. */
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = "-ea")
+    public GraphPoet ingestWithAssertions(Counters counters) throws IOException {
+        return ingest(counters);
+    }
+}
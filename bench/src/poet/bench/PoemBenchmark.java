@@ -0,0 +1,92 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package poet.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import poet.GraphPoet;
+
+/**
+ * Benchmarks of GraphPoet.poem() latency.
+ *
+ * <p>Latency is sampled, so each result reports percentiles (p0.50 to p1.00) as well as the
+ * mean. Inputs are taken from the corpus: each is a run of consecutive corpus tokens with every
+ * other token dropped, so that most adjacent pairs of input words have a bridge word. Every
+ * benchmark is run once with assertions disabled and once with them enabled.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-da")
+public class PoemBenchmark {
+    
+    /** Number of distinct inputs per trial; a power of two. */
+    private static final int INPUTS = 1 << 10;
+    
+    /** Corpus name, as described in Corpora. */
+    @Param({"mugar", "zipfian"})
+    public String corpus;
+    
+    @Param({"1000000"})
+    public int tokens;
+    
+    /** Number of words in each input. */
+    @Param({"4", "256"})
+    public int words;
+    
+    private GraphPoet poet;
+    private final String[] inputs = new String[INPUTS];
+    private int next = 0;
+    
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        final Random random = new Random(6005);
+        final List<String> text = Corpora.tokens(corpus, tokens, random);
+        final File file = Corpora.write(text);
+        poet = new GraphPoet(file);
+        file.delete();
+        
+        for(int i = 0; i < INPUTS; i++){
+            final int start = random.nextInt(text.size() - 2 * words);
+            final StringBuilder input = new StringBuilder(text.get(start));
+            for(int w = 1; w < words; w++){
+                input.append(' ').append(text.get(start + 2 * w));
+            }
+            inputs[i] = input.toString();
+        }
+    }
+    
+    /** poem() of an input, with assertions disabled. */
+    @Benchmark
+    public String poem(){
+        next = (next + 1) & (INPUTS - 1);
+        return poet.poem(inputs[next]);
+    }
+    
+    /** poem() of an input, with assertions enabled. */
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = "-ea")
+    public String poemWithAssertions(){
+        return poem();
+    }
+}
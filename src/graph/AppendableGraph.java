@@ -0,0 +1,489 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An immutable IndexedGraph that can be extended without copying it.
+ *
+ * <p>The graph is a FrozenGraph base with more vertices and edge weight layered over it.
+ * {@link #appender()} returns an Appender that adds to a private copy of the layers, and whose
+ * build() returns the extended graph. Vertices of the base keep their ids, and new vertices are
+ * numbered from there in the order they are added. A vertex whose edges have changed since the
+ * base has a row of its own: its neighbour ids, in increasing order, interleaved with their
+ * weights. Rows are grouped into chunks of CHUNK consecutive ids, and an appender copies a
+ * chunk or a row only the first time it changes it, sharing the others with the graph it
+ * started from. So extending a graph takes time proportional to the edges added and the rows
+ * they touch, plus V/CHUNK to copy the chunk directories, however large the graph is, and the
+ * graph it started from is unaffected.
+ *
+ * <p>The mutators add(), set() and remove() throw UnsupportedOperationException.
+ *
+ * @param <L> type of vertex labels in this graph, must be immutable
+ */
+public class AppendableGraph<L> implements IndexedGraph<L> {
+    
+    private static final int CHUNK_BITS = 6;
+    private static final int CHUNK = 1 << CHUNK_BITS;
+    private static final int MIN_ROW_CAPACITY = 2;
+    
+    private final FrozenGraph<L> base;
+    private final int vertexCount;
+    private final PersistentMap<L, Integer> newIds;
+    private final Object[][] newLabels;
+    private final int[][][] targetRows;
+    private final int[][][] sourceRows;
+    
+    // Abstraction function:
+    //   represents the graph with vertices 0..vertexCount-1, where vertex i is base.labelOf(i) if
+    //   i < base.vertexCount(), and otherwise newLabels[j >>> CHUNK_BITS][j % CHUNK] for
+    //   j = i - base.vertexCount(); the targets of vertex i are those of row(targetRows, i) if it
+    //   is not null, else those of i in base if i < base.vertexCount(), else none; where row r
+    //   lists neighbour r[1 + 2k] with weight r[2 + 2k] for k < r[0], and
+    //   row(rows, i) = rows[i >>> CHUNK_BITS][i % CHUNK], or null if that chunk is null.
+    //   sourceRows and newIds are lookup aids only and carry no abstract state.
+    // Representation invariant:
+    //   vertexCount >= base.vertexCount(); newIds maps the label of each vertex i >= base.vertexCount()
+    //     to i, and has no other entries; labels are distinct
+    //   newLabels, targetRows and sourceRows have a chunk slot for every vertex
+    //   in every row, 0 <= r[0] and 1 + 2*r[0] <= r.length; neighbours are vertex ids in strictly
+    //     increasing order, and weights are > 0
+    //   the sources of each vertex, read the same way from sourceRows and base, are the transpose
+    //     of its targets
+    //   Checking the rows takes O(V+E) time, which would defeat the purpose of sharing them, so
+    //   an appender checks only the rows it changes.
+    // Safety from rep exposure:
+    //   All fields are private and final. The chunks and rows a graph points to are never changed
+    //   after it is built: an appender copies any chunk or row before changing it, unless it
+    //   created that copy itself since it last built a graph. base, newIds and labels are immutable.
+    //   vertices(), sources() and targets() return freshly constructed HashSet/HashMap objects.
+    
+    /**
+     * Create a graph with the same vertices, ids and edges as base, in O(V/CHUNK) time.
+     *
+     * @param base the graph to extend
+     */
+    public AppendableGraph(FrozenGraph<L> base){
+        this(base, base.vertexCount(), PersistentMap.<L, Integer>empty(), new Object[0][],
+                new int[chunkCount(base.vertexCount())][][], new int[chunkCount(base.vertexCount())][][]);
+    }
+    
+    //Requires: the arguments satisfy the rep invariant, and are not changed afterwards
+    //Effects: creates a graph with the given rep
+    private AppendableGraph(FrozenGraph<L> base, int vertexCount, PersistentMap<L, Integer> newIds,
+            Object[][] newLabels, int[][][] targetRows, int[][][] sourceRows){
+        this.base = base;
+        this.vertexCount = vertexCount;
+        this.newIds = newIds;
+        this.newLabels = newLabels;
+        this.targetRows = targetRows;
+        this.sourceRows = sourceRows;
+        checkRep();
+    }
+    
+    //Effects: returns the number of chunks needed for n ids
+    private static int chunkCount(int n){
+        return (n + CHUNK - 1) >>> CHUNK_BITS;
+    }
+    
+    // asserts the parts of the rep invariant that take O(1) time
+    private void checkRep(){
+        assert vertexCount >= base.vertexCount();
+        assert newIds.size() == vertexCount - base.vertexCount();
+        assert chunkCount(vertexCount - base.vertexCount()) <= newLabels.length;
+        assert chunkCount(vertexCount) <= targetRows.length && chunkCount(vertexCount) <= sourceRows.length;
+    }
+    
+    /**
+     * @return a new appender whose vertices and edges are initially those of this graph
+     */
+    public Appender<L> appender(){
+        return new Appender<>(this);
+    }
+    
+    //Effects: returns the row of vertex id in rows, or null if it has none
+    private static int[] row(int[][][] rows, int id){
+        final int[][] chunk = rows[id >>> CHUNK_BITS];
+        return chunk == null ? null : chunk[id & (CHUNK - 1)];
+    }
+    
+    //Effects: returns the index k of neighbour id in row, or -(insertion point) - 1 if it has none
+    private static int search(int[] row, int id){
+        int low = 0;
+        int high = row[0] - 1;
+        
+        while(low <= high){
+            final int mid = (low + high) >>> 1;
+            final int midId = row[1 + 2 * mid];
+            
+            if(midId < id){
+                low = mid + 1;
+            }else if(midId > id){
+                high = mid - 1;
+            }else{
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+    
+    /**
+     * Unsupported: this graph is immutable.
+     *
+     * @throws UnsupportedOperationException always
+     */
+    @Override public boolean add(L vertex) {
+        throw new UnsupportedOperationException("AppendableGraph is immutable");
+    }
+    
+    /**
+     * Unsupported: this graph is immutable.
+     *
+     * @throws UnsupportedOperationException always
+     */
+    @Override public int set(L source, L target, int weight) {
+        throw new UnsupportedOperationException("AppendableGraph is immutable");
+    }
+    
+    /**
+     * Unsupported: this graph is immutable.
+     *
+     * @throws UnsupportedOperationException always
+     */
+    @Override public boolean remove(L vertex) {
+        throw new UnsupportedOperationException("AppendableGraph is immutable");
+    }
+    
+    @Override public Set<L> vertices() {
+        final Set<L> vertices = new HashSet<>();
+        
+        for(int i = 0; i < vertexCount; i++){
+            vertices.add(labelOf(i));
+        }
+        
+        return vertices;
+    }
+    
+    @Override public Map<L, Integer> sources(L target) {
+        final Map<L, Integer> map = new HashMap<>();
+        final int id = idOf(target);
+        
+        if(id >= 0){
+            for(int k = 0; k < inDegree(id); k++){
+                map.put(labelOf(source(id, k)), sourceWeight(id, k));
+            }
+        }
+        
+        return map;
+    }
+    
+    @Override public Map<L, Integer> targets(L source) {
+        final Map<L, Integer> map = new HashMap<>();
+        final int id = idOf(source);
+        
+        if(id >= 0){
+            for(int k = 0; k < outDegree(id); k++){
+                map.put(labelOf(target(id, k)), targetWeight(id, k));
+            }
+        }
+        
+        return map;
+    }
+    
+    @Override public int vertexCount() {
+        return vertexCount;
+    }
+    
+    @Override public int idOf(L vertex) {
+        final int id = base.idOf(vertex);
+        if(id >= 0) return id;
+        
+        final Integer newId = newIds.get(vertex);
+        return newId == null ? -1 : newId;
+    }
+    
+    @SuppressWarnings("unchecked")
+    @Override public L labelOf(int id) {
+        if(id < base.vertexCount()) return base.labelOf(id);
+        if(id >= vertexCount) throw new IndexOutOfBoundsException("no vertex with id " + id);
+        
+        final int j = id - base.vertexCount();
+        return (L) newLabels[j >>> CHUNK_BITS][j & (CHUNK - 1)];
+    }
+    
+    @Override public int outDegree(int id) {
+        final int[] row = row(targetRows, id);
+        if(row != null) return row[0];
+        return id < base.vertexCount() ? base.outDegree(id) : 0;
+    }
+    
+    @Override public int target(int id, int k) {
+        final int[] row = row(targetRows, id);
+        return row != null ? row[1 + 2 * k] : base.target(id, k);
+    }
+    
+    @Override public int targetWeight(int id, int k) {
+        final int[] row = row(targetRows, id);
+        return row != null ? row[2 + 2 * k] : base.targetWeight(id, k);
+    }
+    
+    @Override public int inDegree(int id) {
+        final int[] row = row(sourceRows, id);
+        if(row != null) return row[0];
+        return id < base.vertexCount() ? base.inDegree(id) : 0;
+    }
+    
+    @Override public int source(int id, int k) {
+        final int[] row = row(sourceRows, id);
+        return row != null ? row[1 + 2 * k] : base.source(id, k);
+    }
+    
+    @Override public int sourceWeight(int id, int k) {
+        final int[] row = row(sourceRows, id);
+        return row != null ? row[2 + 2 * k] : base.sourceWeight(id, k);
+    }
+    
+    @Override public int weight(int source, int target) {
+        final int[] row = row(targetRows, source);
+        if(row == null) return source < base.vertexCount() && target < base.vertexCount() ? base.weight(source, target) : 0;
+        
+        final int k = search(row, target);
+        return k < 0 ? 0 : row[2 + 2 * k];
+    }
+    
+    /**
+     * Returns a string representation of this Graph, in the same form as FrozenGraph.toString(),
+     * with vertices and edges in id order.
+     *
+     * @return a string representation of this graph
+     */
+    @Override public String toString() {
+        final List<String> vertexList = new ArrayList<>();
+        final List<String> edgeList = new ArrayList<>();
+        
+        for(int i = 0; i < vertexCount; i++){
+            vertexList.add(String.valueOf(labelOf(i)));
+            
+            for(int k = 0; k < outDegree(i); k++){
+                edgeList.add(String.format("(%s, %s, %s)", labelOf(i), labelOf(target(i, k)), targetWeight(i, k)));
+            }
+        }
+        
+        return "({" + String.join(", ", vertexList) + "}, {" + String.join(", ", edgeList) + "})";
+    }
+    
+    /**
+     * A mutable extension of an AppendableGraph, which adds vertices and edge weight to a copy of
+     * it and builds the result as a new AppendableGraph. Building takes O(V/CHUNK) time, and the
+     * appender can go on adding to the graph it built, which is unaffected by later changes.
+     *
+     * @param <L> type of vertex labels, must be immutable
+     */
+    public static class Appender<L> {
+        
+        private final FrozenGraph<L> base;
+        private int vertexCount;
+        private PersistentMap<L, Integer> newIds;
+        private Object[][] newLabels;
+        private int[][][] targetRows;
+        private int[][][] sourceRows;
+        private boolean directoriesOwned = false;
+        private final BitSet ownedLabelChunks = new BitSet();
+        private final BitSet ownedTargetChunks = new BitSet();
+        private final BitSet ownedSourceChunks = new BitSet();
+        private final BitSet ownedTargetRows = new BitSet();
+        private final BitSet ownedSourceRows = new BitSet();
+        
+        // Abstraction function:
+        //   represents the graph that an AppendableGraph with these fields would represent
+        // Representation invariant:
+        //   the fields satisfy the rep invariant of AppendableGraph, except that directories may
+        //     have more chunk slots than vertices need
+        //   newLabels, targetRows and sourceRows are shared with no graph if directoriesOwned; a
+        //     chunk of newLabels, targetRows or sourceRows is shared with no graph if its bit is set
+        //     in ownedLabelChunks, ownedTargetChunks or ownedSourceChunks, and so is the target or
+        //     source row of vertex i if bit i is set in ownedTargetRows or ownedSourceRows; a set
+        //     bit for a row implies a set bit for its chunk
+        // Safety from rep exposure:
+        //   All fields are private. build() hands its arrays to the new graph, and clears every
+        //   ownership flag so that they are copied before they are next changed.
+        
+        //Effects: creates an appender whose graph is initially graph
+        private Appender(AppendableGraph<L> graph){
+            this.base = graph.base;
+            this.vertexCount = graph.vertexCount;
+            this.newIds = graph.newIds;
+            this.newLabels = graph.newLabels;
+            this.targetRows = graph.targetRows;
+            this.sourceRows = graph.sourceRows;
+        }
+        
+        /**
+         * @return the number of vertices added so far, including those of the graph this appender
+         *         started from; ids range over [0, vertexCount())
+         */
+        public int vertexCount(){
+            return vertexCount;
+        }
+        
+        /**
+         * Add a vertex, if it is not already in the graph.
+         *
+         * @param vertex label of the vertex
+         * @return the id of the vertex, for use with addById()
+         */
+        public int add(L vertex){
+            final int baseId = base.idOf(vertex);
+            if(baseId >= 0) return baseId;
+            final Integer newId = newIds.get(vertex);
+            if(newId != null) return newId;
+            
+            ownDirectories();
+            final int id = vertexCount++;
+            final int j = id - base.vertexCount();
+            final int c = j >>> CHUNK_BITS;
+            
+            if(c == newLabels.length) newLabels = Arrays.copyOf(newLabels, Math.max(4, 2 * c));
+            if(!ownedLabelChunks.get(c)){
+                newLabels[c] = newLabels[c] == null ? new Object[CHUNK] : newLabels[c].clone();
+                ownedLabelChunks.set(c);
+            }
+            newLabels[c][j & (CHUNK - 1)] = vertex;
+            newIds = newIds.with(vertex, id);
+            
+            final int rowChunks = chunkCount(vertexCount);
+            if(rowChunks > targetRows.length){
+                targetRows = Arrays.copyOf(targetRows, Math.max(rowChunks, 2 * targetRows.length));
+                sourceRows = Arrays.copyOf(sourceRows, targetRows.length);
+            }
+            return id;
+        }
+        
+        /**
+         * Add to the weight of an edge between vertices that are already in the graph.
+         *
+         * @param source id of the source vertex, as returned by add()
+         * @param target id of the target vertex, as returned by add()
+         * @param delta positive amount to add to the weight of the edge
+         * @throws IllegalArgumentException if delta is not positive
+         * @throws IndexOutOfBoundsException if source or target is not the id of a vertex
+         * @throws ArithmeticException if the weight of the edge overflows an int
+         */
+        public void addById(int source, int target, int delta){
+            if(delta <= 0){
+                throw new IllegalArgumentException("delta must be positive: " + delta);
+            }
+            checkId(source);
+            checkId(target);
+            ownDirectories();
+            
+            final int[] targetRow = ownRow(targetRows, ownedTargetChunks, ownedTargetRows, source, true);
+            final int[] sourceRow = ownRow(sourceRows, ownedSourceChunks, ownedSourceRows, target, false);
+            setRow(targetRows, source, increment(targetRow, target, delta));
+            setRow(sourceRows, target, increment(sourceRow, source, delta));
+        }
+        
+        //Effects: throws IndexOutOfBoundsException if id is not the id of a vertex
+        private void checkId(int id){
+            if(id < 0 || id >= vertexCount){
+                throw new IndexOutOfBoundsException("no vertex with id " + id);
+            }
+        }
+        
+        //Effects: copies the directories, if they may be shared with a graph
+        private void ownDirectories(){
+            if(directoriesOwned) return;
+            
+            newLabels = newLabels.clone();
+            targetRows = targetRows.clone();
+            sourceRows = sourceRows.clone();
+            directoriesOwned = true;
+        }
+        
+        //Requires: directoriesOwned
+        //Effects: returns the row of vertex id in rows, first copying its chunk and the row (or the
+        //         slice of base it stands for) if they may be shared with a graph
+        private int[] ownRow(int[][][] rows, BitSet ownedChunks, BitSet ownedRows, int id, boolean targets){
+            final int c = id >>> CHUNK_BITS;
+            if(!ownedChunks.get(c)){
+                rows[c] = rows[c] == null ? new int[CHUNK][] : rows[c].clone();
+                ownedChunks.set(c);
+            }
+            
+            final int[][] chunk = rows[c];
+            final int i = id & (CHUNK - 1);
+            if(!ownedRows.get(id)){
+                chunk[i] = copyRow(chunk[i], id, targets);
+                ownedRows.set(id);
+            }
+            return chunk[i];
+        }
+        
+        //Effects: returns a new row with room for one more neighbour, holding the neighbours of row,
+        //         or if row is null, the targets (or sources) of vertex id in base, if any
+        private int[] copyRow(int[] row, int id, boolean targets){
+            if(row != null) return Arrays.copyOf(row, 1 + 2 * (row[0] + 1));
+            
+            final int degree = id >= base.vertexCount() ? 0 : targets ? base.outDegree(id) : base.inDegree(id);
+            final int[] copy = new int[1 + 2 * Math.max(MIN_ROW_CAPACITY, degree + 1)];
+            copy[0] = degree;
+            for(int k = 0; k < degree; k++){
+                copy[1 + 2 * k] = targets ? base.target(id, k) : base.source(id, k);
+                copy[2 + 2 * k] = targets ? base.targetWeight(id, k) : base.sourceWeight(id, k);
+            }
+            return copy;
+        }
+        
+        //Effects: stores row as the row of vertex id in rows, whose chunk is owned
+        private static void setRow(int[][][] rows, int id, int[] row){
+            rows[id >>> CHUNK_BITS][id & (CHUNK - 1)] = row;
+        }
+        
+        //Effects: adds delta to the weight of neighbour id in row, inserting it in order if it is
+        //         new; returns row, or a larger copy of it if it was full
+        private static int[] increment(int[] row, int id, int delta){
+            final int k = search(row, id);
+            if(k >= 0){
+                row[2 + 2 * k] = Math.addExact(row[2 + 2 * k], delta);
+                return row;
+            }
+            
+            final int at = -(k + 1);
+            final int degree = row[0];
+            final int[] result = 1 + 2 * (degree + 1) <= row.length ? row : Arrays.copyOf(row, 1 + 4 * (degree + 1));
+            System.arraycopy(result, 1 + 2 * at, result, 3 + 2 * at, 2 * (degree - at));
+            result[1 + 2 * at] = id;
+            result[2 + 2 * at] = delta;
+            result[0] = degree + 1;
+            
+            assert at == 0 || result[2 * at - 1] < id;
+            assert at == degree || result[3 + 2 * at] > id;
+            return result;
+        }
+        
+        /**
+         * @return a graph with the vertices and edges added so far, in O(V/CHUNK) time
+         */
+        public AppendableGraph<L> build(){
+            final AppendableGraph<L> graph = new AppendableGraph<>(base, vertexCount, newIds, newLabels,
+                    targetRows, sourceRows);
+            
+            directoriesOwned = false;
+            ownedLabelChunks.clear();
+            ownedTargetChunks.clear();
+            ownedSourceChunks.clear();
+            ownedTargetRows.clear();
+            ownedSourceRows.clear();
+            return graph;
+        }
+    }
+}
@@ -0,0 +1,385 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package graph;
+
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.stream.IntStream;
+
+/**
+ * An immutable index of the best bridge vertex between every pair of vertices of an
+ * IndexedGraph that are joined by a two-edge path. The best bridge from s to t is the vertex b
+ * maximizing weight(s --> b) + weight(b --> t), the one with the smallest id among ties.
+ *
+ * <p>The index is a hash table keyed by (s, t) packed into a long, so a lookup is a single
+ * probe sequence with no boxing. It can be capped in size: sources are then indexed in
+ * decreasing order of total out-weight, i.e. most frequent first, while their pairs fit, and
+ * lookups from any other source answer NOT_INDEXED so that the caller can fall back to
+ * computing the bridge directly. Each source is indexed with all of its pairs or none of them,
+ * so a lookup from an indexed source that finds no entry has no bridge.
+ *
+ * <p>Building visits every two-edge path from the indexed sources once, which takes
+ * O(sum over bridges b of inDegree(b) * outDegree(b)) time in the worst case, and is done in
+ * parallel on the common fork-join pool, with O(V) scratch space for each task running at once
+ * and 8 bytes for each pair found, all released when building ends. Sources that cannot fit in
+ * what is left of the budget, judging by the largest out-degree of their targets, are not
+ * visited at all, so a small index is cheap to build even from a large graph. An index answers for ids of the graph it was built
+ * from, so it must be rebuilt if that graph changes.
+ */
+public class BridgeIndex {
+    
+    /** Returned by bridge() if there is no two-edge path from the source to the target. */
+    public static final int NO_BRIDGE = -1;
+    
+    /** Returned by bridge() if the source was not indexed. */
+    public static final int NOT_INDEXED = -2;
+    
+    private static final int SEGMENT_BITS = 6;
+    private static final int SEGMENTS = 1 << SEGMENT_BITS;
+    private static final long EMPTY = -1L;
+    private static final long GOLDEN = 0x9E3779B97F4A7C15L;
+    
+    /** Bytes taken by each indexed pair: a long key and an int bridge, in a table at most half full. */
+    private static final int BYTES_PER_PAIR = 2 * (Long.BYTES + Integer.BYTES);
+    
+    /** Largest number of pairs in one segment, so that its table fits in an array. */
+    private static final int MAX_SEGMENT_PAIRS = 1 << 29;
+    
+    /** Largest number of sources whose pairs are found in one parallel batch while choosing sources. */
+    private static final int BATCH = 1 << 12;
+    
+    private final long[] indexed;
+    private final long[][] keys;
+    private final int[][] bridges;
+    private final int indexedSourceCount;
+    private final boolean complete;
+    private final long pairCount;
+    
+    // Abstraction function:
+    //   represents the index whose indexed sources are the s with bit s of indexed set, and whose
+    //   best bridge from indexed source s to target t is bridges[k][i] if keys[k][i] == (s << 32 | t)
+    //   for k == s mod SEGMENTS, or NO_BRIDGE if there is no such i
+    // Representation invariant:
+    //   keys and bridges are empty, or have SEGMENTS elements with keys[k].length == bridges[k].length > 0
+    //   every key in keys[k] is EMPTY or packs (s, t) with s indexed and s mod SEGMENTS == k, and is
+    //     found by linear probing from slot(key, keys[k].length); each key is in keys[k] at most once
+    //   the number of keys that are not EMPTY in all segments is pairCount, and each table is at
+    //     most half full
+    //   indexedSourceCount is the number of bits set in indexed
+    // Safety from rep exposure:
+    //   All fields are private and final, and the arrays are created by build() and never passed in
+    //   or returned.
+    
+    //Effects: creates an index with the given rep
+    private BridgeIndex(long[] indexed, long[][] keys, int[][] bridges, int indexedSourceCount,
+            boolean complete, long pairCount){
+        this.indexed = indexed;
+        this.keys = keys;
+        this.bridges = bridges;
+        this.indexedSourceCount = indexedSourceCount;
+        this.complete = complete;
+        this.pairCount = pairCount;
+        checkRep();
+    }
+    
+    /**
+     * @return an index with no indexed sources, taking no memory
+     */
+    public static BridgeIndex empty(){
+        return new BridgeIndex(new long[0], new long[0][], new int[0][], 0, false, 0);
+    }
+    
+    /**
+     * Build the index of a graph, retaining as many sources as fit in a memory budget.
+     *
+     * @param graph the graph to index
+     * @param maxBytes the most memory the index may take, as reported by bytes()
+     * @return an index of the best bridges of graph, of at most maxBytes bytes; it is complete
+     *         if maxBytes is enough for every source of graph
+     * @throws IllegalArgumentException if maxBytes is negative
+     */
+    public static BridgeIndex build(IndexedGraph<?> graph, long maxBytes){
+        if(maxBytes < 0){
+            throw new IllegalArgumentException("maxBytes must not be negative: " + maxBytes);
+        }
+        
+        final int n = graph.vertexCount();
+        final long fixedBytes = (long) Long.BYTES * ((n + 63) / 64) + (long) SEGMENTS * BYTES_PER_PAIR / 2;
+        if(n == 0) return new BridgeIndex(new long[0], new long[0][], new int[0][], 0, true, 0);
+        if(fixedBytes > maxBytes) return empty();
+        
+        final Queue<Paths> spare = new ConcurrentLinkedQueue<>();
+        final int[] order = byOutWeight(graph);
+        final int[][] sources = new int[SEGMENTS][16];
+        final long[][][] found = new long[SEGMENTS][16][];
+        final int[] sourceCounts = new int[SEGMENTS];
+        final int[] pairCounts = new int[SEGMENTS];
+        final long[] indexed = new long[(n + 63) / 64];
+        long budget = (maxBytes - fixedBytes) / BYTES_PER_PAIR;
+        long pairCount = 0;
+        int chosen = 0;
+        
+        int from = 0;
+        int to;
+        choosing:
+        while((to = batchEnd(graph, order, from, budget)) > from){
+            final long[][] batch = IntStream.range(from, to).parallel()
+                    .mapToObj(i -> {
+                        final Paths paths = take(spare, n);
+                        final long[] pairs = paths.visit(graph, order[i]);
+                        spare.offer(paths);
+                        return pairs;
+                    }).toArray(long[][]::new);
+            
+            for(int i = from; i < to; i++){
+                final int source = order[i];
+                final int count = batch[i - from].length;
+                final int k = source & (SEGMENTS - 1);
+                
+                if(count > budget || count > MAX_SEGMENT_PAIRS - pairCounts[k]) break choosing;
+                
+                if(sourceCounts[k] == sources[k].length){
+                    sources[k] = Arrays.copyOf(sources[k], 2 * sourceCounts[k]);
+                    found[k] = Arrays.copyOf(found[k], 2 * sourceCounts[k]);
+                }
+                found[k][sourceCounts[k]] = batch[i - from];
+                sources[k][sourceCounts[k]++] = source;
+                pairCounts[k] += count;
+                indexed[source >>> 6] |= 1L << source;
+                budget -= count;
+                pairCount += count;
+                chosen++;
+            }
+            from = to;
+        }
+        
+        final long[][] keys = new long[SEGMENTS][];
+        final int[][] bridges = new int[SEGMENTS][];
+        IntStream.range(0, SEGMENTS).parallel().forEach(k -> {
+            keys[k] = new long[Math.max(1, 2 * pairCounts[k])];
+            bridges[k] = new int[keys[k].length];
+            Arrays.fill(keys[k], EMPTY);
+            
+            for(int i = 0; i < sourceCounts[k]; i++){
+                insert(sources[k][i], found[k][i], keys[k], bridges[k]);
+                found[k][i] = null;
+            }
+        });
+        
+        return new BridgeIndex(indexed, keys, bridges, chosen, chosen == n, pairCount);
+    }
+    
+    //Effects: removes and returns a Paths from spare, or returns a new one for n vertices if spare
+    //         is empty
+    private static Paths take(Queue<Paths> spare, int n){
+        final Paths paths = spare.poll();
+        return paths != null ? paths : new Paths(n);
+    }
+    
+    //Effects: returns the end of the batch of sources order[from..to-1] to visit next: the largest
+    //         to <= min(order.length, from + BATCH) such that those sources might fit in budget
+    //         pairs together. A source has at least as many pairs as the out-degree of each of its
+    //         targets, so any later source cannot be chosen.
+    private static int batchEnd(IndexedGraph<?> graph, int[] order, int from, long budget){
+        final int end = Math.min(order.length, from + BATCH);
+        long least = 0;
+        
+        for(int i = from; i < end; i++){
+            int pairs = 0;
+            for(int k = 0; k < graph.outDegree(order[i]); k++){
+                pairs = Math.max(pairs, graph.outDegree(graph.target(order[i], k)));
+            }
+            least += pairs;
+            if(least > budget) return i;
+        }
+        return end;
+    }
+    
+    //Requires: table to have room for every pair in found
+    //Effects: inserts the pairs from source found by Paths.visit() into the hash table keys, bridges
+    private static void insert(int source, long[] found, long[] keys, int[] bridges){
+        for(long pair : found){
+            final long key = pack(source, (int) (pair >>> 32));
+            int slot = slot(key, keys.length);
+            
+            while(keys[slot] != EMPTY){
+                if(++slot == keys.length) slot = 0;
+            }
+            keys[slot] = key;
+            bridges[slot] = (int) pair;
+        }
+    }
+    
+    //Effects: returns the vertex ids of graph in decreasing order of total out-weight, ties in
+    //         increasing id order
+    private static int[] byOutWeight(IndexedGraph<?> graph){
+        final int n = graph.vertexCount();
+        final long[] keyed = new long[n];
+        
+        for(int id = 0; id < n; id++){
+            long outWeight = 0;
+            for(int k = 0; k < graph.outDegree(id); k++){
+                outWeight += graph.targetWeight(id, k);
+            }
+            keyed[id] = (Math.min(outWeight, Integer.MAX_VALUE) << 32) | (Integer.MAX_VALUE - id);
+        }
+        Arrays.sort(keyed);
+        
+        final int[] order = new int[n];
+        for(int i = 0; i < n; i++){
+            order[i] = Integer.MAX_VALUE - (int) keyed[n - 1 - i];
+        }
+        return order;
+    }
+    
+    /*
+     * Scratch space for finding the best bridges from one source at a time, in O(number of
+     * two-edge paths from the source) time. Each task of build() takes one from a queue local to
+     * that call and puts it back when done, so no more are created than there are tasks running
+     * at once, and all of them can be collected once build() returns.
+     */
+    private static class Paths {
+        
+        private final long[] bestWeight;
+        private final int[] bestBridge;
+        private final int[] reached;
+        private int reachedCount = 0;
+        
+        // Representation invariant:
+        //   between calls, bestWeight is all zero
+        //   during a visit, reached[0..reachedCount-1] are the distinct targets t with bestWeight[t] > 0,
+        //   and bestBridge[t] is the bridge that achieves it
+        
+        Paths(int vertexCount){
+            bestWeight = new long[vertexCount];
+            bestBridge = new int[vertexCount];
+            reached = new int[vertexCount];
+        }
+        
+        //Effects: returns, for each target reachable from source by a two-edge path in graph,
+        //         the target and its best bridge from source packed as (target << 32 | bridge)
+        long[] visit(IndexedGraph<?> graph, int source){
+            walk(graph, source);
+            final long[] found = new long[reachedCount];
+            for(int i = 0; i < reachedCount; i++){
+                found[i] = pack(reached[i], bestBridge[reached[i]]);
+            }
+            clear();
+            return found;
+        }
+        
+        //Effects: fills reached, bestWeight and bestBridge for the two-edge paths from source.
+        //         Bridges are visited in increasing id order and only a strictly heavier path
+        //         replaces the best one, so ties go to the smallest bridge.
+        private void walk(IndexedGraph<?> graph, int source){
+            for(int i = 0; i < graph.outDegree(source); i++){
+                final int bridge = graph.target(source, i);
+                final int firstWeight = graph.targetWeight(source, i);
+                
+                for(int j = 0; j < graph.outDegree(bridge); j++){
+                    final int target = graph.target(bridge, j);
+                    final long weight = (long) firstWeight + graph.targetWeight(bridge, j);
+                    
+                    if(bestWeight[target] == 0) reached[reachedCount++] = target;
+                    if(weight > bestWeight[target]){
+                        bestWeight[target] = weight;
+                        bestBridge[target] = bridge;
+                    }
+                }
+            }
+        }
+        
+        //Effects: resets bestWeight and reached for the next source
+        private void clear(){
+            for(int i = 0; i < reachedCount; i++){
+                bestWeight[reached[i]] = 0;
+            }
+            reachedCount = 0;
+        }
+    }
+    
+    //Effects: returns the key of the pair (source, target), or any two ints packed the same way
+    private static long pack(int source, int target){
+        return ((long) source << 32) | target;
+    }
+    
+    //Effects: returns the first slot to probe for key in a table of the given length
+    private static int slot(long key, int length){
+        return (int) ((((key * GOLDEN) >>> 32) * length) >>> 32);
+    }
+    
+    private void checkRep(){
+        assert keys.length == bridges.length;
+        assert keys.length == 0 || keys.length == SEGMENTS;
+        assert pairCount >= 0;
+        
+        int bits = 0;
+        for(long word : indexed){
+            bits += Long.bitCount(word);
+        }
+        assert bits == indexedSourceCount;
+    }
+    
+    /**
+     * Look up the best bridge between two vertices.
+     *
+     * @param source id of a vertex of the indexed graph
+     * @param target id of a vertex of the indexed graph
+     * @return NOT_INDEXED if source is not indexed; else the id of the best bridge from source to
+     *         target, or NO_BRIDGE if there is no two-edge path from source to target
+     */
+    public int bridge(int source, int target){
+        if(source < 0 || (source >>> 6) >= indexed.length || (indexed[source >>> 6] & (1L << source)) == 0){
+            return NOT_INDEXED;
+        }
+        
+        final long[] segmentKeys = keys[source & (SEGMENTS - 1)];
+        final long key = pack(source, target);
+        int slot = slot(key, segmentKeys.length);
+        
+        while(segmentKeys[slot] != EMPTY){
+            if(segmentKeys[slot] == key) return bridges[source & (SEGMENTS - 1)][slot];
+            if(++slot == segmentKeys.length) slot = 0;
+        }
+        return NO_BRIDGE;
+    }
+    
+    /**
+     * @return true iff. every vertex of the indexed graph is indexed as a source, so bridge()
+     *         never returns NOT_INDEXED for a vertex id
+     */
+    public boolean isComplete(){
+        return complete;
+    }
+    
+    /**
+     * @return the number of vertices indexed as sources
+     */
+    public int indexedSourceCount(){
+        return indexedSourceCount;
+    }
+    
+    /**
+     * @return the number of (source, target) pairs with a bridge stored in this index
+     */
+    public long pairCount(){
+        return pairCount;
+    }
+    
+    /**
+     * @return the number of bytes taken by the arrays of this index
+     */
+    public long bytes(){
+        long bytes = (long) Long.BYTES * indexed.length;
+        for(int k = 0; k < keys.length; k++){
+            bytes += (long) (Long.BYTES + Integer.BYTES) * keys[k].length;
+        }
+        return bytes;
+    }
+    
+    @Override public String toString() {
+        return "BridgeIndex(" + indexedSourceCount + " sources, " + pairCount + " pairs, " + bytes() + " bytes)";
+    }
+}
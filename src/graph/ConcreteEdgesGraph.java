@@ -4,9 +4,9 @@
 package graph;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -16,20 +16,26 @@ import java.util.Set;
  * 
  * <p>PS2 instructions: you MUST use the provided rep.
  */
-public class ConcreteEdgesGraph<L> implements Graph<L> {
+public class ConcreteEdgesGraph<L> implements IncrementableGraph<L> {
     
     private final Set<L> vertices = new HashSet<>();
-    private final List<Edge<L>> edges = new ArrayList<>();
+    private final Set<Edge<L>> edges = new HashSet<>();
+    private final Map<L, Map<L, Edge<L>>> outgoing = new HashMap<>();
+    private final Map<L, Map<L, Edge<L>>> incoming = new HashMap<>();
     
     // Abstraction function:
     //   represents graph with vertex set equal to vertices and
-    //   edge set equal to the set containing every edge found in edges
+    //   edge set equal to the set containing every edge found in edges.
+    //   outgoing and incoming are lookup aids only and carry no abstract state.
+    //   Edge does not override equals, so edges holds Edge objects by identity.
     // Representation invariant:
     //   vertices must contain every vertex incident to an Edge in edges
     //   For any vertices h , t, only one Edge in edges can have h as head and t as tail
+    //   e is in edges iff. outgoing.get(e.tail()).get(e.head()) == e iff. incoming.get(e.head()).get(e.tail()) == e
+    //   outgoing and incoming have no empty inner maps
     // Safety from rep exposure:
-    //   All fields are private. String and Edge objects contained in Set and List objects pointed to by the fields are immutable.
-    //   The Set and List objects themselves are mutable but they are never passed in by any operation, as all operations eigher have
+    //   All fields are private. String and Edge objects contained in Set and Map objects pointed to by the fields are immutable.
+    //   The Set and Map objects themselves are mutable but they are never passed in by any operation, as all operations eigher have
     //   immutable parameters or none at all. The rep is never returned either as vertices() returns a fresh defensive copy. The mutable Map
     //   objects returned do not have access to vertices and edges in their rep, as they are newly constructed HashMaps.
     
@@ -39,7 +45,7 @@ public class ConcreteEdgesGraph<L> implements Graph<L> {
     
     private void checkRep(){
         assertEdgeVertexCompatibility();
-        assertNoDuplicateEdges();
+        assertIndexesMatchEdges();
     }
     
     private void assertEdgeVertexCompatibility(){
@@ -49,15 +55,26 @@ public class ConcreteEdgesGraph<L> implements Graph<L> {
         }
     }
     
-    private void assertNoDuplicateEdges(){
-        Map<L,Set<L>> targets = new HashMap<>();
+    // asserts that outgoing and incoming index exactly the edges in edges; since each (tail, head) key
+    // holds a single Edge, this also asserts that there are no duplicate edges
+    private void assertIndexesMatchEdges(){
+        int outgoingCount = 0;
+        int incomingCount = 0;
+        
+        for(Map<L, Edge<L>> heads : outgoing.values()){
+            assert !heads.isEmpty();
+            outgoingCount += heads.size();
+        }
+        for(Map<L, Edge<L>> tails : incoming.values()){
+            assert !tails.isEmpty();
+            incomingCount += tails.size();
+        }
+        
+        assert outgoingCount == edges.size() && incomingCount == edges.size();
         
         for(Edge<L> e : edges){
-            Set<L> adjacentHeads = targets.getOrDefault(e.tail(), new HashSet<L>());
-            
-            assert !adjacentHeads.contains(e.head());
-            adjacentHeads.add(e.head());
-            targets.put(e.tail(), adjacentHeads);
+            assert edgeFrom(e.tail(), e.head()) == e;
+            assert incoming.get(e.head()).get(e.tail()) == e;
         }
     }
     
@@ -68,18 +85,16 @@ public class ConcreteEdgesGraph<L> implements Graph<L> {
     }
     
     @Override public int set(L source, L target, int weight) {
+        final Edge<L> previous = edgeFrom(source, target);
         int prevWeight = 0;
-        for(Edge<L> e : edges){
-            if(e.tail().equals(source) && 
-                    e.head().equals(target)){
-                prevWeight = e.weigt();
-                edges.remove(e);
-                break;
-            }
+        
+        if(previous != null){
+            prevWeight = previous.weigt();
+            unlink(previous);
         }
         
         if(weight > 0){
-            edges.add(new Edge<L>(source, target, weight));
+            link(new Edge<L>(source, target, weight));
             vertices.add(source);
             vertices.add(target);
         }
@@ -88,15 +103,38 @@ public class ConcreteEdgesGraph<L> implements Graph<L> {
         return prevWeight;
     }
     
+    @Override public int increment(L source, L target, int delta) {
+        final Edge<L> previous = edgeFrom(source, target);
+        final int weight = Math.addExact(previous == null ? 0 : previous.weigt(), delta);
+        
+        if(weight < 0){
+            throw new IllegalArgumentException("edge weight would become negative: " + weight);
+        }
+        
+        if(previous != null){
+            unlink(previous);
+        }
+        
+        if(weight > 0){
+            link(new Edge<L>(source, target, weight));
+            vertices.add(source);
+            vertices.add(target);
+        }
+        
+        checkRep();
+        return weight;
+    }
+    
     @Override public boolean remove(L vertex) {
-        Iterator<Edge<L>> listItr = edges.iterator();
-        
-        while(listItr.hasNext()){
-            Edge<L> e = listItr.next();
-            
-            if(e.tail().equals(vertex) || 
-                    e.head().equals(vertex)){
-                listItr.remove();
+        final List<Edge<L>> incident = new ArrayList<>();
+        
+        incident.addAll(outgoing.getOrDefault(vertex, Collections.<L, Edge<L>>emptyMap()).values());
+        incident.addAll(incoming.getOrDefault(vertex, Collections.<L, Edge<L>>emptyMap()).values());
+        
+        for(Edge<L> e : incident){
+            // a reflexive edge appears in both adjacency maps of vertex
+            if(edges.contains(e)){
+                unlink(e);
             }
         }
         
@@ -112,10 +150,8 @@ public class ConcreteEdgesGraph<L> implements Graph<L> {
     @Override public Map<L, Integer> sources(L target) {
         final Map<L, Integer> sources = new HashMap<>();
         
-        for(Edge<L> e : edges){
-            if(e.head().equals(target)){
-                sources.put(e.tail(), e.weigt());
-            }
+        for(Edge<L> e : incoming.getOrDefault(target, Collections.<L, Edge<L>>emptyMap()).values()){
+            sources.put(e.tail(), e.weigt());
         }
         
         checkRep();
@@ -125,16 +161,44 @@ public class ConcreteEdgesGraph<L> implements Graph<L> {
     @Override public Map<L, Integer> targets(L source) {
         final Map<L, Integer> targets = new HashMap<>();
         
-        for(Edge<L> e : edges){
-            if(e.tail().equals(source)){
-                targets.put(e.head(), e.weigt());
-            }
+        for(Edge<L> e : outgoing.getOrDefault(source, Collections.<L, Edge<L>>emptyMap()).values()){
+            targets.put(e.head(), e.weigt());
         }
         
         checkRep();
         return targets;
     }
     
+    //Effects: returns the Edge in edges with the given tail and head, if there is any;
+    //  else, returns null.
+    private Edge<L> edgeFrom(L tail, L head){
+        final Map<L, Edge<L>> heads = outgoing.get(tail);
+        return heads == null ? null : heads.get(head);
+    }
+    
+    //Requires: edges has no Edge with the same tail and head as e
+    //Effects: adds e to edges and to both adjacency indexes
+    private void link(Edge<L> e){
+        edges.add(e);
+        outgoing.computeIfAbsent(e.tail(), k -> new HashMap<>()).put(e.head(), e);
+        incoming.computeIfAbsent(e.head(), k -> new HashMap<>()).put(e.tail(), e);
+    }
+    
+    //Requires: e is in edges
+    //Effects: removes e from edges and from both adjacency indexes, dropping
+    //  adjacency maps that become empty
+    private void unlink(Edge<L> e){
+        edges.remove(e);
+        
+        final Map<L, Edge<L>> heads = outgoing.get(e.tail());
+        heads.remove(e.head());
+        if(heads.isEmpty()) outgoing.remove(e.tail());
+        
+        final Map<L, Edge<L>> tails = incoming.get(e.head());
+        tails.remove(e.tail());
+        if(tails.isEmpty()) incoming.remove(e.head());
+    }
+    
     /**
      * Returns a string representation of this Graph. The representation is of form:
      * "(V,E)" where V is a list of vertex labels of this graph ,in their string form, appearing exactly once in unspecified order and enclosed by "{}",
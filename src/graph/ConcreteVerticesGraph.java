@@ -3,9 +3,13 @@
  */
 package graph;
 
+import java.util.AbstractMap;
+import java.util.AbstractSet;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -16,38 +20,44 @@ import java.util.Set;
  * 
  * <p>PS2 instructions: you MUST use the provided rep.
  */
-public class ConcreteVerticesGraph<L> implements Graph<L> {
+public class ConcreteVerticesGraph<L> implements ViewableGraph<L>, IncrementableGraph<L> {
     
     private final List<Vertex<L>> vertices = new ArrayList<>();
+    private final Map<L, Integer> indices = new HashMap<>();
     
     // Abstraction function:
     //   Represents a graph with vertex set determined by set of labels of elements found in vertices
     //   and edge set determined by every pair of labels whose their corresponding elements in vertices have an edge between them.
     //   The weight of those edges is determined by the weight of the edges between the corresponding elements of vertices.
+    //   indices is a lookup aid only and carries no abstract state.
     // Representation invariant:
     //   Each element of vertices has a distinct label from the rest.
     //   Any element in vertices can only have an edge between it and an element in vertices
+    //   indices maps the label of every element of vertices to the position of that element in vertices,
+    //   and contains no other keys.
     // Safety from rep exposure:
     //   vertices is a private field, pointing to a mutable list with mutable elements. All parameters of public methods are
     //   immutable. Mutable objects returned by vertices(), sources(), and targets(), are fresh HashMap/HashSet constructions with 
-    //   immutable parameters.
+    //   immutable parameters. indices is private and never returned; its keys are immutable labels.
+    //   vertexView(), sourcesView() and targetsView() return unmodifiable wrappers, so clients can read but
+    //   not modify the rep through them, and the Vertex objects they wrap never escape as keys or values.
     
     public ConcreteVerticesGraph(){
         checkRep();
     }
     
     private void checkRep(){
-        checkDistinctLabels();
+        checkIndices();
         checkEdgeInvariant();
     }
     
-    //asserts that every element in vertices has a label distinct from other labels
-    private void checkDistinctLabels(){
-        Set<L> labelSet = new HashSet<>();
+    // asserts that indices maps every label to the position of its vertex; since indices has exactly
+    // one key per element of vertices, this also asserts that every label is distinct from other labels
+    private void checkIndices(){
+        assert indices.size() == vertices.size();
         
-        for(Vertex<L> vertex : vertices){
-            assert !labelSet.contains(vertex.label());
-            labelSet.add(vertex.label());
+        for(int i = 0; i < vertices.size(); i++){
+            assert indices.get(vertices.get(i).label()) == i;
         }
     }
     
@@ -55,7 +65,7 @@ public class ConcreteVerticesGraph<L> implements Graph<L> {
     private void checkEdgeInvariant(){
         for(Vertex<L> vertex : vertices){
             for(Vertex<L> target : vertex.targets().keySet()){
-                assert vertices.contains(target);
+                assert vertexOf(target.label()) == target;
             }
         }
     }
@@ -65,7 +75,7 @@ public class ConcreteVerticesGraph<L> implements Graph<L> {
             return false;
         }
         
-        vertices.add(new Vertex<L>(vertex));
+        append(new Vertex<L>(vertex));
         checkRep();
         return true;
     }
@@ -85,14 +95,14 @@ public class ConcreteVerticesGraph<L> implements Graph<L> {
                     return prevWeight;
                 }else{
                     Vertex<L> trg = new Vertex<L>(target);
-                    vertices.add(trg);
+                    append(trg);
                     int prevWeight = src.setTarget(trg, weight);
                     checkRep();
                     return prevWeight;
                 }
             }else{
                 Vertex<L> src = new Vertex<L>(source);
-                vertices.add(src);
+                append(src);
                 final int indexOfTarget = indexOf(target);
                 
                 if(indexOfTarget >= 0){
@@ -102,7 +112,7 @@ public class ConcreteVerticesGraph<L> implements Graph<L> {
                     return prevWeight;
                 }else{
                     Vertex<L> trg = new Vertex<L>(target);
-                    vertices.add(trg);
+                    append(trg);
                     int prevWeight = src.setTarget(trg, weight);
                     checkRep();
                     return prevWeight;
@@ -126,6 +136,34 @@ public class ConcreteVerticesGraph<L> implements Graph<L> {
 
     }
     
+    @Override public int increment(L source, L target, int delta) {
+        Vertex<L> src = vertexOf(source);
+        Vertex<L> trg = vertexOf(target);
+        final int prevWeight = src == null || trg == null ? 0 : src.weightTo(trg);
+        final int weight = Math.addExact(prevWeight, delta);
+        
+        if(weight < 0){
+            throw new IllegalArgumentException("edge weight would become negative: " + weight);
+        }
+        
+        if(weight > 0){
+            if(src == null){
+                src = new Vertex<L>(source);
+                append(src);
+            }
+            if(trg == null){
+                trg = source.equals(target) ? src : new Vertex<L>(target);
+                if(trg != src) append(trg);
+            }
+            src.setTarget(trg, weight);
+        }else if(prevWeight > 0){
+            src.setTarget(trg, 0);
+        }
+        
+        checkRep();
+        return weight;
+    }
+    
     @Override public boolean remove(L vertex) {
         final int indexOfVertex = indexOf(vertex);
         
@@ -144,7 +182,14 @@ public class ConcreteVerticesGraph<L> implements Graph<L> {
             source.setTarget(v, 0);
         }
         
-        vertices.remove(indexOfVertex);
+        // move the last vertex into the vacated slot so that removal does not shift the list
+        final Vertex<L> last = vertices.remove(vertices.size() - 1);
+        indices.remove(vertex);
+        
+        if(last != v){
+            vertices.set(indexOfVertex, last);
+            indices.put(last.label(), indexOfVertex);
+        }
         
         checkRep();
         return true;
@@ -196,6 +241,24 @@ public class ConcreteVerticesGraph<L> implements Graph<L> {
         
     }
     
+    @Override public Set<L> vertexView() {
+        return Collections.unmodifiableSet(indices.keySet());
+    }
+    
+    @Override public Map<L, Integer> sourcesView(L target) {
+        final Vertex<L> trg = vertexOf(target);
+        
+        if(trg == null) return Collections.emptyMap();
+        return new AdjacencyView(trg.sourcesView());
+    }
+    
+    @Override public Map<L, Integer> targetsView(L source) {
+        final Vertex<L> src = vertexOf(source);
+        
+        if(src == null) return Collections.emptyMap();
+        return new AdjacencyView(src.targetsView());
+    }
+    
     /**
      * Returns a string representation of this Graph. The representation is of form:
      * "(V,E)" where V is a list of vertex labels of this graph ,in their string form, appearing exactly once in unspecified order and enclosed by "{}",
@@ -237,12 +300,71 @@ public class ConcreteVerticesGraph<L> implements Graph<L> {
     //Effects: returns index i of an element in vertices with label equal to
     //  vertex, if there is any; else, returns -1.
     private int indexOf(L vertex){
-        for(int i = 0; i < vertices.size(); i++){
-            if(vertices.get(i).label().equals(vertex)){
-                return i;
-            }
+        final Integer index = indices.get(vertex);
+        return index == null ? -1 : index;
+    }
+    
+    //Effects: returns the element of vertices with label equal to vertex, if
+    //  there is any; else, returns null.
+    private Vertex<L> vertexOf(L vertex){
+        final int index = indexOf(vertex);
+        return index < 0 ? null : vertices.get(index);
+    }
+    
+    //Requires: no element of vertices has the same label as vertex
+    //Effects: adds vertex to the end of vertices and records its index
+    private void append(Vertex<L> vertex){
+        indices.put(vertex.label(), vertices.size());
+        vertices.add(vertex);
+    }
+    
+    // A live, unmodifiable, label-keyed view of the sources or targets of one element of vertices.
+    // Lookups by label go through indices, so they cost no more than a lookup in the wrapped map.
+    private class AdjacencyView extends AbstractMap<L, Integer> {
+        
+        private final Map<Vertex<L>, Integer> adjacent;
+        
+        AdjacencyView(Map<Vertex<L>, Integer> adjacent){
+            this.adjacent = adjacent;
+        }
+        
+        @Override public int size() {
+            return adjacent.size();
+        }
+        
+        @Override public boolean containsKey(Object key) {
+            return get(key) != null;
+        }
+        
+        @Override public Integer get(Object key) {
+            final Integer index = indices.get(key);
+            return index == null ? null : adjacent.get(vertices.get(index));
+        }
+        
+        @Override public Set<Entry<L, Integer>> entrySet() {
+            return new AbstractSet<Entry<L, Integer>>() {
+                
+                @Override public int size() {
+                    return adjacent.size();
+                }
+                
+                @Override public Iterator<Entry<L, Integer>> iterator() {
+                    final Iterator<Entry<Vertex<L>, Integer>> entries = adjacent.entrySet().iterator();
+                    
+                    return new Iterator<Entry<L, Integer>>() {
+                        
+                        @Override public boolean hasNext() {
+                            return entries.hasNext();
+                        }
+                        
+                        @Override public Entry<L, Integer> next() {
+                            final Entry<Vertex<L>, Integer> e = entries.next();
+                            return new SimpleImmutableEntry<>(e.getKey().label(), e.getValue());
+                        }
+                    };
+                }
+            };
         }
-        return -1;
     }
 }
 
@@ -272,7 +394,8 @@ class Vertex<L> {
     //   the values of the map entries are non-negative integers
     // Safety from rep exposure:
     //   All fields are private. this.lable is immutable. this.targets and this.sources are mutable maps, but 
-    //   these maps are never directly passed in and on every return of data of type map a defensive copy is made before the return.
+    //   these maps are never directly passed in and on every return of data of type map a defensive copy is made before the return,
+    //   except for sourcesView() and targetsView() which return unmodifiable wrappers.
     //   The only threat remaining is the key parameters of these maps are mutable and exposed to the client; but,
     //   although Vertices are mutable, they inherit the Object Equal() and hashCode() methods which remain unchanged with mutation, and 
     //   hence their exposer to clients does not those not threaten the rep invariant of the collections that contain them. Also, rep invariant of this
@@ -341,6 +464,14 @@ class Vertex<L> {
         return prevWeight;
     }
 
+    /**
+     * @param v a vertex
+     * @return weight of edge this --> v, or 0 if there is no such edge
+     */
+    public int weightTo(Vertex<L> v){
+        return targets.getOrDefault(v, 0);
+    }
+    
     /**
      * Get all the Vertices with an edge to this.
      * @return
@@ -365,6 +496,24 @@ class Vertex<L> {
         return targets;
     }
     
+    /**
+     * Get a live, unmodifiable view of the Vertices with an edge to this.
+     * @return
+     * An unmodifiable Map with the same contents as sources(), reflecting later changes to the edges of this.
+     */
+    public Map<Vertex<L>,Integer> sourcesView(){
+        return Collections.unmodifiableMap(sources);
+    }
+    
+    /**
+     * Get a live, unmodifiable view of the Vertices with an edge from this.
+     * @return
+     * An unmodifiable Map with the same contents as targets(), reflecting later changes to the edges of this.
+     */
+    public Map<Vertex<L>,Integer> targetsView(){
+        return Collections.unmodifiableMap(targets);
+    }
+    
     /**
      * @return the label associated with this vertex
      */
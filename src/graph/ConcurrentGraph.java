@@ -0,0 +1,310 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package graph;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A thread-safe implementation of Graph.
+ *
+ * <p>Adjacency is kept in concurrent maps, so sources(), targets() and vertices() never block.
+ * Mutations lock only the stripes of the vertices they touch: set() and increment() lock the
+ * stripes of their source and target, add() the stripe of its vertex, and remove() the stripes
+ * of the vertex and all its neighbours. Writers on disjoint vertices therefore proceed in
+ * parallel, and the out-edge and in-edge records of an edge always change together.
+ *
+ * <p>Each mutator is atomic. The copies returned by the observers are each taken from a single
+ * map without locking, so they may reflect some but not all of the mutations that run
+ * concurrently with them.
+ *
+ * @param <L> type of vertex labels in this graph, must be immutable
+ */
+public class ConcurrentGraph<L> implements IncrementableGraph<L> {
+    
+    private final ConcurrentHashMap<L, Map<L, Integer>> targets = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<L, Map<L, Integer>> sources = new ConcurrentHashMap<>();
+    private final ReentrantLock[] stripes;
+    
+    // Abstraction function:
+    //   represents the graph whose vertex set is the key set of targets, with an edge s --> t
+    //   of weight w for every s, t, w such that targets.get(s).get(t) == w
+    //   sources is a lookup aid only and carries no abstract state.
+    // Representation invariant:
+    //   targets and sources have the same key set, and every inner map is a ConcurrentHashMap
+    //   every key of an inner map is a key of targets, and every weight is > 0
+    //   targets.get(s).get(t) == w iff. sources.get(t).get(s) == w
+    //   stripes.length is a power of two
+    //   All of the above may only be temporarily false for vertices whose stripes are held
+    //   by the thread changing them; each mutator checks the part of the rep it touched before
+    //   releasing its locks, since checking the whole rep would need every stripe.
+    // Safety from rep exposure:
+    //   All fields are private and final. Labels are immutable. vertices(), sources() and
+    //   targets() return freshly constructed HashSet/HashMap objects.
+    // Thread safety argument:
+    //   targets, sources and their inner maps are thread-safe ConcurrentHashMaps.
+    //   Every mutation of the edges or vertices incident to a vertex v holds stripeOf(v), so for
+    //   an edge s --> t, changes to targets.get(s) and sources.get(t) for that edge happen under
+    //   both stripeOf(s) and stripeOf(t) and cannot interleave with another mutation of it.
+    //   Multiple stripes are always acquired in increasing index order, so there is no deadlock.
+    
+    /**
+     * Create an empty graph with a number of lock stripes suited to the available processors.
+     */
+    public ConcurrentGraph(){
+        this(4 * Runtime.getRuntime().availableProcessors());
+    }
+    
+    /**
+     * Create an empty graph.
+     *
+     * @param concurrencyLevel positive estimate of the number of threads mutating the graph
+     *        at once; it is rounded up to a power of two to give the number of lock stripes
+     */
+    public ConcurrentGraph(int concurrencyLevel){
+        if(concurrencyLevel <= 0){
+            throw new IllegalArgumentException("concurrencyLevel must be positive: " + concurrencyLevel);
+        }
+        
+        int stripeCount = 1;
+        while(stripeCount < concurrencyLevel){
+            stripeCount <<= 1;
+        }
+        
+        this.stripes = new ReentrantLock[stripeCount];
+        for(int i = 0; i < stripes.length; i++){
+            stripes[i] = new ReentrantLock();
+        }
+    }
+    
+    // asserts that vertex is, or is not, a vertex of this graph in both adjacency maps; the caller must
+    // hold the stripe of vertex
+    private void checkVertex(L vertex, boolean present){
+        assert targets.containsKey(vertex) == present && sources.containsKey(vertex) == present;
+    }
+    
+    // asserts the rep invariant for the edge source --> target; the caller must hold both stripes
+    private void checkEdge(L source, L target){
+        final Map<L, Integer> out = targets.get(source);
+        final Map<L, Integer> in = sources.get(target);
+        final Integer weight = out == null ? null : out.get(target);
+        
+        assert weight == null || weight > 0;
+        assert weight == null ? in == null || !in.containsKey(source) : weight.equals(in.get(source));
+    }
+    
+    //Effects: returns the index of the lock stripe guarding vertex
+    private int stripeOf(L vertex){
+        final int h = vertex.hashCode() * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & (stripes.length - 1);
+    }
+    
+    //Effects: acquires the stripes of a and b, in increasing index order
+    private void lock(L a, L b){
+        final int i = stripeOf(a);
+        final int j = stripeOf(b);
+        
+        stripes[Math.min(i, j)].lock();
+        if(i != j) stripes[Math.max(i, j)].lock();
+    }
+    
+    //Effects: releases the stripes of a and b
+    private void unlock(L a, L b){
+        final int i = stripeOf(a);
+        final int j = stripeOf(b);
+        
+        if(i != j) stripes[j].unlock();
+        stripes[i].unlock();
+    }
+    
+    //Requires: the caller holds the stripe of vertex
+    //Effects: adds vertex with no edges if it is not already a vertex
+    //         sources is filled in first, so a vertex in targets is always in sources too
+    private void ensureVertex(L vertex){
+        if(!targets.containsKey(vertex)){
+            sources.put(vertex, new ConcurrentHashMap<>());
+            targets.put(vertex, new ConcurrentHashMap<>());
+        }
+    }
+    
+    @Override public boolean add(L vertex) {
+        final ReentrantLock stripe = stripes[stripeOf(vertex)];
+        
+        stripe.lock();
+        try{
+            final boolean added = !targets.containsKey(vertex);
+            ensureVertex(vertex);
+            checkVertex(vertex, true);
+            return added;
+        }finally{
+            stripe.unlock();
+        }
+    }
+    
+    @Override public int set(L source, L target, int weight) {
+        lock(source, target);
+        try{
+            final int prevWeight = put(source, target, weight);
+            checkEdge(source, target);
+            return prevWeight;
+        }finally{
+            unlock(source, target);
+        }
+    }
+    
+    @Override public int increment(L source, L target, int delta) {
+        lock(source, target);
+        try{
+            final Map<L, Integer> out = targets.get(source);
+            final int prevWeight = out == null ? 0 : out.getOrDefault(target, 0);
+            final int weight = Math.addExact(prevWeight, delta);
+            
+            if(weight < 0){
+                throw new IllegalArgumentException("edge weight would become negative: " + weight);
+            }
+            
+            put(source, target, weight);
+            checkEdge(source, target);
+            return weight;
+        }finally{
+            unlock(source, target);
+        }
+    }
+    
+    //Requires: the caller holds the stripes of source and target
+    //Effects: sets the weight of source --> target as specified by set(), returning the previous weight
+    private int put(L source, L target, int weight){
+        if(weight > 0){
+            ensureVertex(source);
+            ensureVertex(target);
+            sources.get(target).put(source, weight);
+            final Integer prevWeight = targets.get(source).put(target, weight);
+            return prevWeight == null ? 0 : prevWeight;
+        }
+        
+        final Map<L, Integer> out = targets.get(source);
+        final Map<L, Integer> in = sources.get(target);
+        if(out == null || in == null) return 0;
+        
+        in.remove(source);
+        final Integer prevWeight = out.remove(target);
+        return prevWeight == null ? 0 : prevWeight;
+    }
+    
+    @Override public boolean remove(L vertex) {
+        while(true){
+            final Map<L, Integer> out = targets.get(vertex);
+            final Map<L, Integer> in = sources.get(vertex);
+            if(out == null || in == null){
+                // not a vertex, or being added concurrently; either way it is not one yet
+                final ReentrantLock stripe = stripes[stripeOf(vertex)];
+                stripe.lock();
+                try{
+                    if(!targets.containsKey(vertex)) return false;
+                }finally{
+                    stripe.unlock();
+                }
+                continue;
+            }
+            
+            final int[] held = stripesOf(vertex, out.keySet(), in.keySet());
+            for(int i : held){
+                stripes[i].lock();
+            }
+            try{
+                // holding the stripe of vertex freezes its adjacency; retry if a neighbour was added
+                // between reading the adjacency and acquiring the stripes
+                if(targets.get(vertex) != out || !covers(held, out.keySet()) || !covers(held, in.keySet())){
+                    continue;
+                }
+                
+                for(L target : out.keySet()){
+                    sources.get(target).remove(vertex);
+                }
+                for(L source : in.keySet()){
+                    targets.get(source).remove(vertex);
+                }
+                targets.remove(vertex);
+                sources.remove(vertex);
+                
+                checkVertex(vertex, false);
+                for(L neighbour : out.keySet()) checkEdge(vertex, neighbour);
+                for(L neighbour : in.keySet()) checkEdge(neighbour, vertex);
+                return true;
+            }finally{
+                for(int k = held.length - 1; k >= 0; k--){
+                    stripes[held[k]].unlock();
+                }
+            }
+        }
+    }
+    
+    //Effects: returns the distinct stripe indices of vertex and of the given neighbours, in increasing order
+    private int[] stripesOf(L vertex, Set<L> targetSet, Set<L> sourceSet){
+        final boolean[] needed = new boolean[stripes.length];
+        int count = 0;
+        
+        needed[stripeOf(vertex)] = true;
+        for(L neighbour : targetSet) needed[stripeOf(neighbour)] = true;
+        for(L neighbour : sourceSet) needed[stripeOf(neighbour)] = true;
+        
+        final int[] indices = new int[stripes.length];
+        for(int i = 0; i < stripes.length; i++){
+            if(needed[i]) indices[count++] = i;
+        }
+        return Arrays.copyOf(indices, count);
+    }
+    
+    //Effects: returns true iff. the stripe of every vertex in neighbours is among the sorted indices held
+    private boolean covers(int[] held, Set<L> neighbours){
+        for(L neighbour : neighbours){
+            if(Arrays.binarySearch(held, stripeOf(neighbour)) < 0) return false;
+        }
+        return true;
+    }
+    
+    @Override public Set<L> vertices() {
+        return new HashSet<>(targets.keySet());
+    }
+    
+    @Override public Map<L, Integer> sources(L target) {
+        final Map<L, Integer> in = sources.get(target);
+        return in == null ? new HashMap<>() : new HashMap<>(in);
+    }
+    
+    @Override public Map<L, Integer> targets(L source) {
+        final Map<L, Integer> out = targets.get(source);
+        return out == null ? new HashMap<>() : new HashMap<>(out);
+    }
+    
+    /**
+     * Returns a string representation of this Graph. The representation is of form:
+     * "(V,E)" where V is a list of vertex labels of this graph ,in their string form, appearing exactly once in unspecified order and enclosed by "{}",
+     * and E is a list of all edges with same form and constraints. Each edge in E is of form "(tail, head, weight)".
+     * If the graph is mutated concurrently, the result may reflect only some of those mutations.
+     *
+     *  @return a string representation of this graph
+     */
+    @Override public String toString() {
+        final StringBuilder vertexList = new StringBuilder();
+        final StringBuilder edgeList = new StringBuilder();
+        
+        for(Map.Entry<L, Map<L, Integer>> vertex : targets.entrySet()){
+            if(vertexList.length() > 0) vertexList.append(", ");
+            vertexList.append(vertex.getKey());
+            
+            for(Map.Entry<L, Integer> e : vertex.getValue().entrySet()){
+                if(edgeList.length() > 0) edgeList.append(", ");
+                edgeList.append(String.format("(%s, %s, %s)", vertex.getKey(), e.getKey(), e.getValue()));
+            }
+        }
+        
+        return "({" + vertexList + "}, {" + edgeList + "})";
+    }
+}
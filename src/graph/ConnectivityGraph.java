@@ -0,0 +1,175 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package graph;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A Graph that keeps track of its weakly connected components, by wrapping another Graph.
+ *
+ * <p>Components are kept in a union-find structure over the vertices, which adding vertices and
+ * edges updates in near O(1) time. Removing an edge or a vertex can split a component, which a
+ * union-find cannot undo, so it only marks the components stale; they are rebuilt from the
+ * wrapped graph in O(V+E) time by the next query, however many removals came before it.
+ *
+ * <p>All changes must go through this ConnectivityGraph: the wrapped graph must not be changed
+ * directly once it has been wrapped.
+ *
+ * @param <L> type of vertex labels in this graph, must be immutable
+ */
+public class ConnectivityGraph<L> implements Graph<L> {
+    
+    private final Graph<L> graph;
+    private LabelTable<L> ids = new LabelTable<>();
+    private DisjointSets components = new DisjointSets();
+    private boolean stale;
+    
+    // Abstraction function:
+    //   represents graph
+    //   ids and components carry no abstract state; if !stale, they number the vertices of graph and
+    //   partition them into its weakly connected components.
+    // Representation invariant:
+    //   if !stale: ids.size() == components.size() == the number of vertices of graph, every vertex of
+    //     graph is in ids, and two vertices are in the same set of components iff. they are joined by a
+    //     path in graph when edge directions are ignored
+    //   Checking more than the sizes takes O(V+E) time, so checkRep() checks only them.
+    // Safety from rep exposure:
+    //   All fields are private. graph is passed in by the client, who must not change it afterwards,
+    //   as the spec requires. ids and components are never passed out. vertices(), sources() and
+    //   targets() return the results of graph's methods, which are fresh copies by the Graph spec.
+    
+    /**
+     * Wrap a graph.
+     *
+     * @param graph the graph to wrap; it must not be changed afterwards except through this
+     */
+    public ConnectivityGraph(Graph<L> graph){
+        this.graph = graph;
+        this.stale = true;
+        checkRep();
+    }
+    
+    private void checkRep(){
+        assert stale || ids.size() == components.size();
+    }
+    
+    //Effects: rebuilds ids and components from graph if they are stale
+    private void refresh(){
+        if(!stale) return;
+        
+        final Set<L> vertices = graph.vertices();
+        ids = new LabelTable<>(vertices.size());
+        components = new DisjointSets();
+        
+        for(L vertex : vertices){
+            ids.intern(vertex);
+            components.add();
+        }
+        for(L vertex : vertices){
+            final int source = ids.idOf(vertex);
+            for(L target : graph.targets(vertex).keySet()){
+                components.union(source, ids.idOf(target));
+            }
+        }
+        stale = false;
+        checkRep();
+    }
+    
+    //Requires: !stale
+    //Effects: returns the id of vertex, numbering it in a component of its own if it is new
+    private int idOf(L vertex){
+        final int id = ids.intern(vertex);
+        if(id == components.size()) components.add();
+        return id;
+    }
+    
+    @Override public boolean add(L vertex) {
+        final boolean added = graph.add(vertex);
+        
+        if(added && !stale) idOf(vertex);
+        checkRep();
+        return added;
+    }
+    
+    @Override public int set(L source, L target, int weight) {
+        final int prevWeight = graph.set(source, target, weight);
+        
+        if(weight > 0 && !stale){
+            components.union(idOf(source), idOf(target));
+        }else if(weight == 0 && prevWeight > 0){
+            stale = true;
+        }
+        checkRep();
+        return prevWeight;
+    }
+    
+    @Override public boolean remove(L vertex) {
+        final boolean removed = graph.remove(vertex);
+        
+        if(removed) stale = true;
+        checkRep();
+        return removed;
+    }
+    
+    @Override public Set<L> vertices() {
+        return graph.vertices();
+    }
+    
+    @Override public Map<L, Integer> sources(L target) {
+        return graph.sources(target);
+    }
+    
+    @Override public Map<L, Integer> targets(L source) {
+        return graph.targets(source);
+    }
+    
+    /**
+     * @return the number of weakly connected components of this graph; zero iff. it has no vertices
+     */
+    public int componentCount(){
+        refresh();
+        return components.setCount();
+    }
+    
+    /**
+     * @return true iff. this graph is weakly connected, i.e. it has at most one weakly connected component
+     */
+    public boolean isWeaklyConnected(){
+        return componentCount() <= 1;
+    }
+    
+    /**
+     * Get a representative of the weakly connected component containing a vertex. Two vertices are
+     * in the same component iff. they have the same representative, as long as this graph is not
+     * changed in between.
+     *
+     * @param vertex a label
+     * @return a vertex in the same weakly connected component as vertex, or null if vertex is not
+     *         in this graph
+     */
+    public L componentOf(L vertex){
+        refresh();
+        
+        final int id = ids.idOf(vertex);
+        return id < 0 ? null : ids.label(components.find(id));
+    }
+    
+    /**
+     * @param a a label
+     * @param b a label
+     * @return true iff. a and b are both vertices of this graph, in the same weakly connected component
+     */
+    public boolean connected(L a, L b){
+        refresh();
+        
+        final int idA = ids.idOf(a);
+        final int idB = ids.idOf(b);
+        return idA >= 0 && idB >= 0 && components.connected(idA, idB);
+    }
+    
+    @Override public String toString() {
+        return graph.toString();
+    }
+}
@@ -0,0 +1,130 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package graph;
+
+import java.util.Arrays;
+
+/**
+ * A mutable partition of the elements 0..size()-1 into disjoint sets (a union-find structure).
+ * Elements are added one at a time as singleton sets, and sets can be merged but never split.
+ *
+ * <p>Sets are kept as trees of int parent pointers, merged by size and compressed by path
+ * halving, so any sequence of m operations on n elements costs O(m &alpha;(n)) time in total.
+ */
+public class DisjointSets {
+    
+    private static final int MIN_CAPACITY = 16;
+    
+    private int[] parent = new int[MIN_CAPACITY];
+    private int[] setSize = new int[MIN_CAPACITY];
+    private int size = 0;
+    private int setCount = 0;
+    
+    // Abstraction function:
+    //   represents the partition of 0..size-1 in which x and y are in the same set iff. following
+    //   parent pointers from x and from y reaches the same root, a root being an r with parent[r] == r
+    // Representation invariant:
+    //   parent.length == setSize.length >= size
+    //   for x < size, parent[x] < size, and following parent pointers from x reaches a root
+    //   for a root r, setSize[r] is the number of elements whose root is r
+    //   setCount is the number of roots among 0..size-1
+    // Safety from rep exposure:
+    //   All fields are private, and the arrays are never passed in or returned.
+    
+    /**
+     * Create a partition with no elements.
+     */
+    public DisjointSets(){
+    }
+    
+    /**
+     * Add a new element in a set of its own.
+     *
+     * @return the new element, which is the value of size() before the call
+     */
+    public int add(){
+        if(size == parent.length){
+            parent = Arrays.copyOf(parent, 2 * size);
+            setSize = Arrays.copyOf(setSize, 2 * size);
+        }
+        
+        parent[size] = size;
+        setSize[size] = 1;
+        setCount++;
+        return size++;
+    }
+    
+    /**
+     * @return the number of elements
+     */
+    public int size(){
+        return size;
+    }
+    
+    /**
+     * @return the number of disjoint sets the elements are partitioned into
+     */
+    public int setCount(){
+        return setCount;
+    }
+    
+    /**
+     * Find the representative of the set containing an element. Two elements are in the same
+     * set iff. they have the same representative, as long as no union() happens in between.
+     *
+     * @param x an element
+     * @return the representative element of the set containing x
+     * @throws IndexOutOfBoundsException if x is not an element
+     */
+    public int find(int x){
+        checkElement(x);
+        
+        while(parent[x] != x){
+            parent[x] = parent[parent[x]];
+            x = parent[x];
+        }
+        return x;
+    }
+    
+    /**
+     * Merge the sets containing two elements.
+     *
+     * @param x an element
+     * @param y an element
+     * @return true iff. x and y were in different sets before the call
+     * @throws IndexOutOfBoundsException if x or y is not an element
+     */
+    public boolean union(int x, int y){
+        int rootX = find(x);
+        int rootY = find(y);
+        if(rootX == rootY) return false;
+        
+        if(setSize[rootX] < setSize[rootY]){
+            final int swap = rootX;
+            rootX = rootY;
+            rootY = swap;
+        }
+        parent[rootY] = rootX;
+        setSize[rootX] += setSize[rootY];
+        setCount--;
+        return true;
+    }
+    
+    /**
+     * @param x an element
+     * @param y an element
+     * @return true iff. x and y are in the same set
+     * @throws IndexOutOfBoundsException if x or y is not an element
+     */
+    public boolean connected(int x, int y){
+        return find(x) == find(y);
+    }
+    
+    //Effects: throws IndexOutOfBoundsException if x is not an element
+    private void checkElement(int x){
+        if(x < 0 || x >= size){
+            throw new IndexOutOfBoundsException("no element " + x);
+        }
+    }
+}
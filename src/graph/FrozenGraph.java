@@ -0,0 +1,493 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package graph;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * An immutable implementation of Graph, built by freezing a snapshot of another graph.
+ *
+ * <p>Vertices are numbered densely from zero and the edges are kept in compressed sparse row
+ * form: for each vertex, the ids and weights of its targets (and, separately, of its sources)
+ * occupy one contiguous, id-ordered slice of a primitive array. This takes a fraction of the
+ * memory of the map-based implementations and suits graphs that are only read once built.
+ * Ids are assigned by a {@link LabelTable}, or read from the file for a graph opened by
+ * {@link GraphFile}, and exposed through the {@link IndexedGraph} queries.
+ * Since the graph never changes, the {@link ViewableGraph} views read the arrays directly
+ * and never copy them.
+ *
+ * <p>The arrays are either ordinary heap buffers or, for a graph created by
+ * {@link #offHeap(Graph)} or built off heap by a {@link GraphBuilder}, direct buffers outside
+ * the Java heap, split into segments of 1 GiB. An off-heap graph keeps only its label table on
+ * the heap, so the garbage collector neither scans nor copies its adjacency, however many edges
+ * it has. Any graph can have up to 2^31 - 1 edges; an off-heap graph of m edges takes 24m bytes
+ * of direct memory, which the JVM limits by -XX:MaxDirectMemorySize.
+ *
+ * <p>The mutators add(), set() and remove() throw UnsupportedOperationException.
+ *
+ * @param <L> type of vertex labels in this graph, must be immutable
+ */
+public class FrozenGraph<L> implements IndexedGraph<L>, ViewableGraph<L> {
+    
+    private final LabelIndex<L> labels;
+    private final IntSegments targetOffsets;
+    private final IntSegments targetIds;
+    private final IntSegments targetWeights;
+    private final IntSegments sourceOffsets;
+    private final IntSegments sourceIds;
+    private final IntSegments sourceWeights;
+    
+    // Abstraction function:
+    //   represents the graph with vertex set equal to the labels in labels, where the vertex with id i
+    //   is labels.label(i), and with an edge labels.label(i) --> labels.label(targetIds[k]) of weight targetWeights[k]
+    //   for every k with targetOffsets[i] <= k < targetOffsets[i+1], where b[k] means b.get(k).
+    //   sourceOffsets, sourceIds and sourceWeights are lookup aids only and carry no abstract state.
+    // Representation invariant:
+    //   the six arrays are either all direct or all non-direct
+    //   targetOffsets and sourceOffsets have length labels.size() + 1, start at 0, are non-decreasing
+    //     and end at targetIds.length == targetWeights.length == sourceIds.length == sourceWeights.length
+    //   every id in targetIds and sourceIds is in [0, labels.size()), and every weight is > 0
+    //   within each vertex's slice, ids are strictly increasing
+    //   the source slices are the transpose of the target slices: j --> i has weight w in the target
+    //     slices iff. i has source j with weight w in the source slices
+    // Safety from rep exposure:
+    //   All fields are private and final, and the arrays and label table they point to are created by the
+    //   constructor, or passed in by a caller that never changes them afterwards, and are never passed out.
+    //   This class only reads the arrays, so they are never changed after construction. Labels are immutable. vertices(), sources() and targets() return
+    //   freshly constructed HashSet/HashMap objects. vertexView(), sourcesView() and targetsView() return
+    //   unmodifiable objects that read the rep but expose no way to write to it.
+    
+    /**
+     * Create an immutable copy of a graph.
+     *
+     * @param graph the graph to copy; later changes to graph are not reflected in this
+     */
+    public FrozenGraph(Graph<L> graph){
+        final Set<L> vertices = graph.vertices();
+        final LabelTable<L> table = new LabelTable<>(vertices.size());
+        
+        for(L vertex : vertices){
+            table.intern(vertex);
+        }
+        this.labels = table;
+        
+        final int n = labels.size();
+        final long[][] rows = new long[n][];
+        int edgeCount = 0;
+        
+        for(int i = 0; i < n; i++){
+            rows[i] = sortedRow(graph.targets(labels.label(i)));
+            edgeCount += rows[i].length;
+        }
+        
+        this.targetOffsets = IntSegments.allocate(n + 1, false);
+        this.targetIds = IntSegments.allocate(edgeCount, false);
+        this.targetWeights = IntSegments.allocate(edgeCount, false);
+        
+        int k = 0;
+        for(int i = 0; i < n; i++){
+            targetOffsets.put(i, k);
+            for(long packed : rows[i]){
+                targetIds.put(k, (int) (packed >>> 32));
+                targetWeights.put(k, (int) packed);
+                k++;
+            }
+        }
+        targetOffsets.put(n, k);
+        
+        this.sourceOffsets = IntSegments.allocate(n + 1, false);
+        this.sourceIds = IntSegments.allocate(edgeCount, false);
+        this.sourceWeights = IntSegments.allocate(edgeCount, false);
+        transpose(targetOffsets, targetIds, targetWeights, sourceOffsets, sourceIds, sourceWeights);
+        
+        checkRep();
+    }
+    
+    /**
+     * Create an immutable copy of a graph whose adjacency is stored off the Java heap.
+     *
+     * @param graph the graph to copy; later changes to graph are not reflected in the result
+     * @return a graph with the same vertices and edges as graph, whose arrays are direct
+     */
+    public static <L> FrozenGraph<L> offHeap(Graph<L> graph){
+        return GraphBuilder.<L>offHeap().addAll(graph).build();
+    }
+    
+    //Requires: the arguments satisfy the rep invariant for labels and the target slices, and are
+    //          not changed afterwards
+    //Effects: creates a graph with the given labels and target slices, whose source slices are
+    //         direct iff. the target slices are
+    FrozenGraph(LabelIndex<L> labels, IntSegments targetOffsets, IntSegments targetIds, IntSegments targetWeights){
+        final boolean direct = targetOffsets.isDirect();
+        
+        this.labels = labels;
+        this.targetOffsets = targetOffsets;
+        this.targetIds = targetIds;
+        this.targetWeights = targetWeights;
+        this.sourceOffsets = IntSegments.allocate(targetOffsets.length(), direct);
+        this.sourceIds = IntSegments.allocate(targetIds.length(), direct);
+        this.sourceWeights = IntSegments.allocate(targetIds.length(), direct);
+        transpose(targetOffsets, targetIds, targetWeights, sourceOffsets, sourceIds, sourceWeights);
+        
+        checkRep();
+    }
+    
+    //Requires: the arguments satisfy the rep invariant and are not changed afterwards
+    //Effects: creates a graph with the given labels and slices in O(1) time; only the sizes of the
+    //         arrays are checked, since checking their contents would read all of them
+    FrozenGraph(LabelIndex<L> labels, IntSegments targetOffsets, IntSegments targetIds, IntSegments targetWeights,
+            IntSegments sourceOffsets, IntSegments sourceIds, IntSegments sourceWeights){
+        this.labels = labels;
+        this.targetOffsets = targetOffsets;
+        this.targetIds = targetIds;
+        this.targetWeights = targetWeights;
+        this.sourceOffsets = sourceOffsets;
+        this.sourceIds = sourceIds;
+        this.sourceWeights = sourceWeights;
+        
+        checkShape();
+    }
+    
+    //Requires: sourceOffsets to be zero-filled, with the same length as targetOffsets, and sourceIds and
+    //          sourceWeights to have the same length as targetIds
+    //Effects: fills the source arrays with the transpose of the target slices, by counting sort on target
+    //         id; visiting sources in increasing id order leaves every source slice sorted
+    private static void transpose(IntSegments targetOffsets, IntSegments targetIds, IntSegments targetWeights,
+            IntSegments sourceOffsets, IntSegments sourceIds, IntSegments sourceWeights){
+        final int n = targetOffsets.length() - 1;
+        final int edgeCount = targetIds.length();
+        
+        for(int e = 0; e < edgeCount; e++){
+            final int slot = targetIds.get(e) + 1;
+            sourceOffsets.put(slot, sourceOffsets.get(slot) + 1);
+        }
+        for(int i = 0; i < n; i++){
+            sourceOffsets.put(i + 1, sourceOffsets.get(i + 1) + sourceOffsets.get(i));
+        }
+        
+        final int[] next = new int[n];
+        for(int i = 0; i < n; i++){
+            next[i] = sourceOffsets.get(i);
+        }
+        for(int i = 0; i < n; i++){
+            for(int e = targetOffsets.get(i); e < targetOffsets.get(i + 1); e++){
+                final int slot = next[targetIds.get(e)]++;
+                sourceIds.put(slot, i);
+                sourceWeights.put(slot, targetWeights.get(e));
+            }
+        }
+    }
+    
+    //Effects: returns the k in [from, to) with ids.get(k) == id, or -1 if there is none;
+    //         ids.get(from..to-1) must be strictly increasing
+    private static int search(IntSegments ids, int from, int to, int id){
+        int low = from;
+        int high = to - 1;
+        
+        while(low <= high){
+            final int mid = (low + high) >>> 1;
+            final int midId = ids.get(mid);
+            
+            if(midId < id){
+                low = mid + 1;
+            }else if(midId > id){
+                high = mid - 1;
+            }else{
+                return mid;
+            }
+        }
+        return -1;
+    }
+    
+    //Effects: returns the entries of targets as (id << 32 | weight) values sorted by id
+    private long[] sortedRow(Map<L, Integer> targets){
+        final long[] row = new long[targets.size()];
+        int k = 0;
+        
+        for(Entry<L, Integer> e : targets.entrySet()){
+            row[k++] = ((long) labels.idOf(e.getKey()) << 32) | e.getValue();
+        }
+        
+        Arrays.sort(row);
+        return row;
+    }
+    
+    private void checkRep(){
+        checkShape();
+        
+        for(int i = 0; i < labels.size(); i++){
+            assertSortedSlice(targetOffsets, targetIds, targetWeights, i);
+            assertSortedSlice(sourceOffsets, sourceIds, sourceWeights, i);
+        }
+    }
+    
+    // asserts the parts of the rep invariant that concern only the sizes of the arrays
+    private void checkShape(){
+        final int n = labels.size();
+        final int edgeCount = targetIds.length();
+        
+        assert targetOffsets.length() == n + 1 && sourceOffsets.length() == n + 1;
+        assert targetWeights.length() == edgeCount && sourceIds.length() == edgeCount && sourceWeights.length() == edgeCount;
+        assert targetOffsets.get(0) == 0 && targetOffsets.get(n) == edgeCount;
+        assert sourceOffsets.get(0) == 0 && sourceOffsets.get(n) == edgeCount;
+        assert targetOffsets.isDirect() == sourceWeights.isDirect();
+    }
+    
+    // asserts that the slice of vertex i is strictly increasing in id and has positive weights
+    private void assertSortedSlice(IntSegments offsets, IntSegments neighbours, IntSegments weights, int i){
+        assert offsets.get(i) <= offsets.get(i + 1);
+        
+        for(int k = offsets.get(i); k < offsets.get(i + 1); k++){
+            assert neighbours.get(k) >= 0 && neighbours.get(k) < labels.size();
+            assert weights.get(k) > 0;
+            assert k == offsets.get(i) || neighbours.get(k - 1) < neighbours.get(k);
+        }
+    }
+    
+    /**
+     * @return true iff. the adjacency of this graph is stored off the Java heap
+     */
+    public boolean isOffHeap(){
+        return targetOffsets.isDirect();
+    }
+    
+    /**
+     * Unsupported: this graph is immutable.
+     *
+     * @throws UnsupportedOperationException always
+     */
+    @Override public boolean add(L vertex) {
+        throw new UnsupportedOperationException("FrozenGraph is immutable");
+    }
+    
+    /**
+     * Unsupported: this graph is immutable.
+     *
+     * @throws UnsupportedOperationException always
+     */
+    @Override public int set(L source, L target, int weight) {
+        throw new UnsupportedOperationException("FrozenGraph is immutable");
+    }
+    
+    /**
+     * Unsupported: this graph is immutable.
+     *
+     * @throws UnsupportedOperationException always
+     */
+    @Override public boolean remove(L vertex) {
+        throw new UnsupportedOperationException("FrozenGraph is immutable");
+    }
+    
+    @Override public Set<L> vertices() {
+        final Set<L> vertices = new HashSet<>();
+        
+        for(int i = 0; i < labels.size(); i++){
+            vertices.add(labels.label(i));
+        }
+        
+        return vertices;
+    }
+    
+    @Override public Map<L, Integer> sources(L target) {
+        return slice(sourceOffsets, sourceIds, sourceWeights, target);
+    }
+    
+    @Override public Map<L, Integer> targets(L source) {
+        return slice(targetOffsets, targetIds, targetWeights, source);
+    }
+    
+    //Effects: returns a fresh map from label to weight of the slice belonging to vertex,
+    //  or an empty map if vertex is not in this graph
+    private Map<L, Integer> slice(IntSegments offsets, IntSegments neighbours, IntSegments weights, L vertex){
+        final Map<L, Integer> map = new HashMap<>();
+        final int id = labels.idOf(vertex);
+        
+        if(id >= 0){
+            for(int k = offsets.get(id); k < offsets.get(id + 1); k++){
+                map.put(labels.label(neighbours.get(k)), weights.get(k));
+            }
+        }
+        
+        return map;
+    }
+    
+    @Override public Set<L> vertexView() {
+        return new AbstractSet<L>() {
+            
+            @Override public int size() {
+                return labels.size();
+            }
+            
+            @SuppressWarnings("unchecked")
+            @Override public boolean contains(Object o) {
+                return labels.idOf((L) o) >= 0;
+            }
+            
+            @Override public Iterator<L> iterator() {
+                return new Iterator<L>() {
+                    private int next = 0;
+                    
+                    @Override public boolean hasNext() {
+                        return next < labels.size();
+                    }
+                    
+                    @Override public L next() {
+                        if(!hasNext()) throw new NoSuchElementException();
+                        return labels.label(next++);
+                    }
+                };
+            }
+        };
+    }
+    
+    @Override public Map<L, Integer> sourcesView(L target) {
+        final int id = labels.idOf(target);
+        
+        if(id < 0) return Collections.emptyMap();
+        return new SliceView(sourceIds, sourceWeights, sourceOffsets.get(id), sourceOffsets.get(id + 1));
+    }
+    
+    @Override public Map<L, Integer> targetsView(L source) {
+        final int id = labels.idOf(source);
+        
+        if(id < 0) return Collections.emptyMap();
+        return new SliceView(targetIds, targetWeights, targetOffsets.get(id), targetOffsets.get(id + 1));
+    }
+    
+    // An unmodifiable label-keyed map over the slice [from, to) of a neighbour array and its weights.
+    // Since slices are sorted by id, get() is a binary search and needs no hashing beyond the key's id.
+    private class SliceView extends AbstractMap<L, Integer> {
+        
+        private final IntSegments neighbours;
+        private final IntSegments weights;
+        private final int from;
+        private final int to;
+        
+        SliceView(IntSegments neighbours, IntSegments weights, int from, int to){
+            this.neighbours = neighbours;
+            this.weights = weights;
+            this.from = from;
+            this.to = to;
+        }
+        
+        @Override public int size() {
+            return to - from;
+        }
+        
+        @Override public boolean containsKey(Object key) {
+            return get(key) != null;
+        }
+        
+        @SuppressWarnings("unchecked")
+        @Override public Integer get(Object key) {
+            final int id = labels.idOf((L) key);
+            if(id < 0) return null;
+            
+            final int k = search(neighbours, from, to, id);
+            return k < 0 ? null : weights.get(k);
+        }
+        
+        @Override public Set<Entry<L, Integer>> entrySet() {
+            return new AbstractSet<Entry<L, Integer>>() {
+                
+                @Override public int size() {
+                    return to - from;
+                }
+                
+                @Override public Iterator<Entry<L, Integer>> iterator() {
+                    return new Iterator<Entry<L, Integer>>() {
+                        private int next = from;
+                        
+                        @Override public boolean hasNext() {
+                            return next < to;
+                        }
+                        
+                        @Override public Entry<L, Integer> next() {
+                            if(!hasNext()) throw new NoSuchElementException();
+                            final Entry<L, Integer> e = new SimpleImmutableEntry<>(labels.label(neighbours.get(next)), weights.get(next));
+                            next++;
+                            return e;
+                        }
+                    };
+                }
+            };
+        }
+    }
+    
+    @Override public int vertexCount() {
+        return labels.size();
+    }
+    
+    @Override public int idOf(L vertex) {
+        return labels.idOf(vertex);
+    }
+    
+    @Override public L labelOf(int id) {
+        return labels.label(id);
+    }
+    
+    @Override public int outDegree(int id) {
+        return targetOffsets.get(id + 1) - targetOffsets.get(id);
+    }
+    
+    @Override public int target(int id, int k) {
+        return targetIds.get(targetOffsets.get(id) + k);
+    }
+    
+    @Override public int targetWeight(int id, int k) {
+        return targetWeights.get(targetOffsets.get(id) + k);
+    }
+    
+    @Override public int inDegree(int id) {
+        return sourceOffsets.get(id + 1) - sourceOffsets.get(id);
+    }
+    
+    @Override public int source(int id, int k) {
+        return sourceIds.get(sourceOffsets.get(id) + k);
+    }
+    
+    @Override public int sourceWeight(int id, int k) {
+        return sourceWeights.get(sourceOffsets.get(id) + k);
+    }
+    
+    @Override public int weight(int source, int target) {
+        final int k = search(targetIds, targetOffsets.get(source), targetOffsets.get(source + 1), target);
+        return k < 0 ? 0 : targetWeights.get(k);
+    }
+    
+    /**
+     * Returns a string representation of this Graph. The representation is of form:
+     * "(V,E)" where V is a list of vertex labels of this graph ,in their string form, appearing exactly once in unspecified order and enclosed by "{}",
+     * and E is a list of all edges with same form and constraints. Each edge in E is of form "(tail, head, weight)".
+     *
+     *  @return a string representation of this graph
+     */
+    @Override public String toString() {
+        final List<String> vertexList = new ArrayList<>();
+        final List<String> edgeList = new ArrayList<>();
+        
+        for(int i = 0; i < labels.size(); i++){
+            vertexList.add(String.valueOf(labels.label(i)));
+            
+            for(int k = targetOffsets.get(i); k < targetOffsets.get(i + 1); k++){
+                edgeList.add(String.format("(%s, %s, %s)", labels.label(i),
+                        labels.label(targetIds.get(k)), targetWeights.get(k)));
+            }
+        }
+        
+        return "({" + String.join(", ", vertexList) + "}, {" + String.join(", ", edgeList) + "})";
+    }
+}
@@ -0,0 +1,468 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map.Entry;
+
+/**
+ * A mutable accumulator of weighted edges that builds a FrozenGraph in one pass.
+ *
+ * <p>Edges are added as (source, target, delta) triples; the weight of an edge in the built
+ * graph is the sum of the deltas added for it. Triples are staged in primitive arrays and
+ * periodically sorted and merged, so adding N triples costs O(N log N) time in total and
+ * memory proportional to the number of distinct edges, with no per-edge objects and no
+ * invariant checks until build().
+ *
+ * <p>Vertices are numbered densely from zero in the order they are first added; the id
+ * returned by {@link #add(Object)} can be passed to {@link #addById(int, int, int)} to avoid
+ * hashing labels repeatedly.
+ *
+ * <p>A builder made by {@link #offHeap()} keeps its heap use independent of the number of
+ * edges, for graphs too large for the heap. It stages at most 2^20 edges on the heap; when they
+ * are full and do not compact to half, it moves them, sorted and merged, to a run of direct
+ * buffers. Runs are merged whenever one is at least half as long as the run before it, so there
+ * are O(log E) of them, holding at most about twice the distinct edges. build() merges the runs
+ * into one, whose arrays become the adjacency of the graph without another copy. The heap then
+ * holds only the labels, the staging arrays and O(V) scratch space.
+ *
+ * @param <L> type of vertex labels, must be immutable
+ */
+public class GraphBuilder<L> {
+
+    private static final int MIN_CAPACITY = 16;
+    private static final int RADIX_BITS = 16;
+    private static final int SMALL_RADIX_BITS = 8;
+    private static final int MIN_COMPACT_CAPACITY = 1 << 12;
+    private static final int MAX_STAGED_OFF_HEAP = 1 << 20;
+
+    private final LabelTable<L> labels = new LabelTable<>();
+    private final int maxStaged;
+    private final List<Run> runs;
+    private long[] edges = new long[MIN_CAPACITY];
+    private int[] deltas = new int[MIN_CAPACITY];
+    private int size = 0;
+
+    // Abstraction function:
+    //   represents the graph whose vertices are the labels in labels, and where the weight of the edge
+    //   labels.label(s) --> labels.label(t) is the sum of deltas[i] over all i < size with
+    //   edges[i] == (s << 32 | t), plus the delta of (s, t) in each run of runs, or no edge if there
+    //   is no such i or run; the graph is built off heap iff. runs is not null
+    // Representation invariant:
+    //   edges.length == deltas.length >= size, and edges.length <= maxStaged
+    //   for i < size, both ids packed in edges[i] are < labels.size(), and deltas[i] > 0
+    //   runs is null iff. maxStaged == Integer.MAX_VALUE
+    //   each run is off heap, its keys are strictly increasing and its deltas positive, and its
+    //     length is less than half the length of the run before it in runs
+    // Safety from rep exposure:
+    //   All fields are private and never returned. build() hands newly allocated arrays, or the
+    //   arrays of a run, which is never changed once made, and a copy of the label table to the
+    //   FrozenGraph it creates.
+
+    /**
+     * Create a builder with no vertices and no edges, which stages its edges on the heap.
+     */
+    public GraphBuilder(){
+        this(Integer.MAX_VALUE);
+    }
+
+    //Requires: maxStaged > 0
+    //Effects: creates a builder with no vertices and no edges that stages at most maxStaged edges
+    //         on the heap, and builds off heap, or an ordinary builder if maxStaged == Integer.MAX_VALUE
+    GraphBuilder(int maxStaged){
+        this.maxStaged = maxStaged;
+        this.runs = maxStaged == Integer.MAX_VALUE ? null : new ArrayList<>();
+    }
+
+    /**
+     * Create a builder whose heap use does not grow with the number of edges, which builds
+     * graphs off heap.
+     *
+     * @return a builder with no vertices and no edges, whose build() returns graphs for which
+     *         isOffHeap() is true
+     */
+    public static <L> GraphBuilder<L> offHeap(){
+        return new GraphBuilder<>(MAX_STAGED_OFF_HEAP);
+    }
+
+    /**
+     * Add a vertex, if it has not already been added.
+     *
+     * @param vertex label of the vertex
+     * @return the id of the vertex, for use with addById()
+     */
+    public int add(L vertex){
+        return labels.intern(vertex);
+    }
+
+    /**
+     * Add to the weight of an edge, adding its vertices if they have not already been added.
+     *
+     * @param source label of the source vertex
+     * @param target label of the target vertex
+     * @param delta positive amount to add to the weight of the edge
+     * @return this builder
+     * @throws IllegalArgumentException if delta is not positive
+     */
+    public GraphBuilder<L> add(L source, L target, int delta){
+        final int sourceId = labels.intern(source);
+        addById(sourceId, labels.intern(target), delta);
+        return this;
+    }
+
+    /**
+     * Add to the weight of an edge between vertices that have already been added.
+     *
+     * @param source id of the source vertex, as returned by add()
+     * @param target id of the target vertex, as returned by add()
+     * @param delta positive amount to add to the weight of the edge
+     * @throws IllegalArgumentException if delta is not positive
+     * @throws IndexOutOfBoundsException if source or target is not the id of a vertex
+     * @throws ArithmeticException if the accumulated weight of some edge overflows an int; the
+     *         builder then represents the same graph as before the call
+     * @throws IllegalArgumentException if an off-heap builder would hold 2^31 or more distinct edges
+     */
+    public void addById(int source, int target, int delta){
+        if(delta <= 0){
+            throw new IllegalArgumentException("delta must be positive: " + delta);
+        }
+        checkId(source);
+        checkId(target);
+
+        if(size == edges.length){
+            if(edges.length >= Math.min(MIN_COMPACT_CAPACITY, maxStaged)) compact();
+            if(2 * size > edges.length){
+                if(edges.length < maxStaged){
+                    edges = Arrays.copyOf(edges, (int) Math.min(2L * edges.length, maxStaged));
+                    deltas = Arrays.copyOf(deltas, edges.length);
+                }else{
+                    spill();
+                }
+            }
+        }
+
+        edges[size] = ((long) source << 32) | target;
+        deltas[size] = delta;
+        size++;
+    }
+
+    //Effects: throws IndexOutOfBoundsException if id is not the id of a vertex
+    private void checkId(int id){
+        if(id < 0 || id >= labels.size()){
+            throw new IndexOutOfBoundsException("no vertex with id " + id);
+        }
+    }
+    
+    /**
+     * Add every vertex and edge of a graph to this builder.
+     *
+     * @param graph the graph to add; the weight of each of its edges is added as a delta
+     * @return this builder
+     */
+    public GraphBuilder<L> addAll(Graph<L> graph){
+        for(L vertex : graph.vertices()){
+            add(vertex);
+        }
+        for(L vertex : graph.vertices()){
+            final int source = labels.idOf(vertex);
+
+            for(Entry<L, Integer> e : graph.targets(vertex).entrySet()){
+                addById(source, labels.idOf(e.getKey()), e.getValue());
+            }
+        }
+        return this;
+    }
+
+    /**
+     * @return the number of distinct vertices added so far
+     */
+    public int vertexCount(){
+        return labels.size();
+    }
+
+    /**
+     * @return true iff. this builder was made by offHeap(), so its heap use does not grow with
+     *         the number of edges and build() returns graphs off heap
+     */
+    public boolean isOffHeap(){
+        return runs != null;
+    }
+
+    /**
+     * Build a graph from the vertices and edges added so far. The builder can continue to be
+     * used afterwards; later additions do not affect graphs already built.
+     *
+     * @return an immutable graph with every vertex added to this builder, and an edge for every
+     *         (source, target) pair added, weighted by the sum of its deltas; it is off heap iff.
+     *         this builder was made by offHeap()
+     * @throws ArithmeticException if the weight of some edge overflows an int
+     */
+    public FrozenGraph<L> build(){
+        if(runs != null) return buildFromRuns();
+        return build(false);
+    }
+
+    /**
+     * Build a graph as by build(), whose adjacency is stored off the Java heap. Unless this
+     * builder was made by offHeap(), its edges are staged on the heap until then.
+     *
+     * @return an immutable graph as returned by build(), for which isOffHeap() is true
+     * @throws ArithmeticException if the weight of some edge overflows an int
+     */
+    public FrozenGraph<L> buildOffHeap(){
+        if(runs != null) return buildFromRuns();
+        return build(true);
+    }
+
+    //Requires: runs == null
+    //Effects: builds a graph as specified by build(), in direct arrays iff. direct
+    private FrozenGraph<L> build(boolean direct){
+        compact();
+
+        final int n = labels.size();
+        final IntSegments targetIds = IntSegments.allocate(size, direct);
+        final IntSegments targetWeights = IntSegments.allocate(size, direct);
+        final int[] outDegrees = new int[n];
+
+        for(int i = 0; i < size; i++){
+            outDegrees[(int) (edges[i] >>> 32)]++;
+            targetIds.put(i, (int) edges[i]);
+            targetWeights.put(i, deltas[i]);
+        }
+        return new FrozenGraph<>(frozenLabels(), offsets(outDegrees, direct), targetIds, targetWeights);
+    }
+
+    //Requires: runs != null
+    //Effects: moves the staged edges into runs and merges every run into one with no spare room,
+    //         whose arrays the returned graph shares; returns a graph as specified by build(), off heap
+    private FrozenGraph<L> buildFromRuns(){
+        compact();
+        if(size > 0) spill();
+        if(runs.isEmpty()) runs.add(new Run(0));
+        final Run run = (runs.size() > 1 ? Run.merge(runs) : runs.get(0)).trimmed();
+        runs.clear();
+        runs.add(run);
+
+        final int[] outDegrees = new int[labels.size()];
+        for(int i = 0; i < run.length(); i++){
+            outDegrees[run.sources.get(i)]++;
+        }
+        return new FrozenGraph<>(frozenLabels(), offsets(outDegrees, true), run.targets, run.deltas);
+    }
+
+    //Effects: returns a copy of the label table
+    private LabelTable<L> frozenLabels(){
+        final LabelTable<L> frozenLabels = new LabelTable<>(labels.size());
+        for(int i = 0; i < labels.size(); i++){
+            frozenLabels.intern(labels.label(i));
+        }
+        return frozenLabels;
+    }
+
+    //Effects: returns the offsets of the slices of vertices with the given degrees, in a direct
+    //         array iff. direct
+    private static IntSegments offsets(int[] degrees, boolean direct){
+        final IntSegments offsets = IntSegments.allocate(degrees.length + 1, direct);
+        for(int i = 0; i < degrees.length; i++){
+            offsets.put(i + 1, offsets.get(i) + degrees[i]);
+        }
+        return offsets;
+    }
+
+    //Requires: runs != null, and the staged edges are compacted
+    //Effects: moves the staged edges into a new run at the end of runs, and merges the last two
+    //         runs while the last is at least half as long as the one before it
+    //Throws: ArithmeticException if a merged delta overflows an int, IllegalArgumentException if a
+    //        merged run would have 2^31 or more entries; either is thrown before runs changes, so the
+    //        builder still represents the same graph
+    private void spill(){
+        final Run run = new Run(size);
+        for(int i = 0; i < size; i++){
+            run.append(edges[i], deltas[i]);
+        }
+        runs.add(run);
+        size = 0;
+
+        while(runs.size() > 1 && 2L * runs.get(runs.size() - 1).length() >= runs.get(runs.size() - 2).length()){
+            final Run merged = Run.merge(runs.subList(runs.size() - 2, runs.size()));
+            runs.remove(runs.size() - 1);
+            runs.set(runs.size() - 1, merged);
+        }
+    }
+
+    //Effects: sorts edges[0..size-1] (carrying deltas along) and merges entries with equal
+    //         edges by summing their deltas, leaving the staged entries sorted and distinct
+    //Throws: ArithmeticException if a merged delta overflows an int, after checking every sum
+    //        and before merging any, so that the staged edges still represent the same graph
+    private void compact(){
+        sort();
+
+        long sum = 0;
+        for(int i = 0; i < size; i++){
+            sum = i > 0 && edges[i - 1] == edges[i] ? sum + deltas[i] : deltas[i];
+            if(sum > Integer.MAX_VALUE){
+                throw new ArithmeticException("weight of an edge overflows an int");
+            }
+        }
+
+        int distinct = 0;
+        for(int i = 0; i < size; i++){
+            if(distinct > 0 && edges[distinct - 1] == edges[i]){
+                deltas[distinct - 1] += deltas[i];
+            }else{
+                edges[distinct] = edges[i];
+                deltas[distinct] = deltas[i];
+                distinct++;
+            }
+        }
+        size = distinct;
+    }
+
+    //Effects: sorts edges[0..size-1] in increasing order, applying the same permutation to
+    //         deltas[0..size-1], by a least-significant-digit radix sort that skips digits
+    //         on which all entries agree. Digits are narrower when there are fewer entries than
+    //         wide buckets, so that compacting a small builder does not cost O(2^RADIX_BITS).
+    private void sort(){
+        final int bits = size < (1 << RADIX_BITS) ? SMALL_RADIX_BITS : RADIX_BITS;
+        final int buckets = 1 << bits;
+        long[] keys = edges;
+        int[] values = deltas;
+        long[] keysOut = new long[size];
+        int[] valuesOut = new int[size];
+        int[] counts = new int[buckets + 1];
+
+        for(int shift = 0; shift < Long.SIZE; shift += bits){
+            Arrays.fill(counts, 0);
+            for(int i = 0; i < size; i++){
+                counts[digit(keys[i], shift, bits) + 1]++;
+            }
+            if(size == 0 || counts[digit(keys[0], shift, bits) + 1] == size){
+                continue;
+            }
+            for(int b = 0; b < buckets; b++){
+                counts[b + 1] += counts[b];
+            }
+            for(int i = 0; i < size; i++){
+                final int slot = counts[digit(keys[i], shift, bits)]++;
+                keysOut[slot] = keys[i];
+                valuesOut[slot] = values[i];
+            }
+
+            final long[] swapKeys = keys;
+            final int[] swapValues = values;
+            keys = keysOut;
+            values = valuesOut;
+            keysOut = swapKeys;
+            valuesOut = swapValues;
+        }
+
+        if(keys != edges){
+            System.arraycopy(keys, 0, edges, 0, size);
+            System.arraycopy(values, 0, deltas, 0, size);
+        }
+    }
+
+    //Effects: returns the digit of key that is bits wide and starts at bit shift
+    private static int digit(long key, int shift, int bits){
+        return (int) (key >>> shift) & ((1 << bits) - 1);
+    }
+
+    /*
+     * A sorted run of distinct edges and their deltas, in direct arrays that may have room for
+     * more entries than the run holds. A run is filled by append() when it is made and never
+     * changed afterwards, so a graph can share its arrays.
+     */
+    private static class Run {
+
+        private final IntSegments sources;
+        private final IntSegments targets;
+        private final IntSegments deltas;
+        private int length = 0;
+
+        //Effects: creates an empty run with room for capacity entries
+        Run(int capacity){
+            this.sources = IntSegments.allocate(capacity, true);
+            this.targets = IntSegments.allocate(capacity, true);
+            this.deltas = IntSegments.allocate(capacity, true);
+        }
+
+        //Requires: runs is not empty
+        //Effects: returns a new run with every edge of runs, whose delta is the sum of its deltas
+        //         in runs, in one pass over runs, which are not changed
+        //Throws: ArithmeticException if a merged delta overflows an int, IllegalArgumentException
+        //        if there are 2^31 or more merged entries
+        static Run merge(List<Run> runs){
+            final int k = runs.size();
+            final int[] next = new int[k];
+            final long[] heads = new long[k];
+            long capacity = 0;
+            for(int r = 0; r < k; r++){
+                heads[r] = runs.get(r).head(0);
+                capacity += runs.get(r).length;
+            }
+
+            final Run merged = new Run((int) Math.min(capacity, Integer.MAX_VALUE));
+            while(true){
+                long key = Long.MAX_VALUE;
+                for(int r = 0; r < k; r++){
+                    key = Math.min(key, heads[r]);
+                }
+                if(key == Long.MAX_VALUE) return merged;
+
+                long sum = 0;
+                for(int r = 0; r < k; r++){
+                    if(heads[r] == key){
+                        sum += runs.get(r).deltas.get(next[r]++);
+                        heads[r] = runs.get(r).head(next[r]);
+                    }
+                }
+                if(sum > Integer.MAX_VALUE){
+                    throw new ArithmeticException("weight of an edge overflows an int");
+                }
+                if(merged.length == merged.capacity()){
+                    throw new IllegalArgumentException("too many distinct edges");
+                }
+                merged.append(key, (int) sum);
+            }
+        }
+
+        //Effects: returns this run if it has no spare room, otherwise a copy of it that has none
+        Run trimmed(){
+            if(length == capacity()) return this;
+
+            final Run trimmed = new Run(length);
+            for(int i = 0; i < length; i++){
+                trimmed.append(head(i), deltas.get(i));
+            }
+            return trimmed;
+        }
+
+        //Effects: returns the number of entries of this run
+        int length(){
+            return length;
+        }
+
+        //Effects: returns the number of entries this run has room for
+        int capacity(){
+            return deltas.length();
+        }
+
+        //Effects: returns entry i of this run packed as (source << 32 | target), or Long.MAX_VALUE,
+        //         which is greater than every packed entry, if i == length()
+        long head(int i){
+            return i < length ? ((long) sources.get(i) << 32) | targets.get(i) : Long.MAX_VALUE;
+        }
+
+        //Requires: length() < capacity(), and key is greater than every entry of this run
+        //Effects: adds the edge packed in key, with the given delta, to the end of this run
+        void append(long key, int delta){
+            sources.put(length, (int) (key >>> 32));
+            targets.put(length, (int) key);
+            deltas.put(length, delta);
+            length++;
+        }
+    }
+}
@@ -0,0 +1,355 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package graph;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A graph with String labels stored in a binary file, opened by memory-mapping the file.
+ *
+ * <p>Opening a graph file reads only its header: the adjacency and the label dictionary are
+ * used in place through {@link FileChannel#map}, so a graph of any size opens in O(1) time, its
+ * pages are loaded on demand, and all processes on a host that open the same file share one
+ * copy of it in the page cache.
+ *
+ * <p>File format, version 1. All integers are 32-bit, big-endian. The file consists of the
+ * following sections, with no padding between them; n is the number of vertices, m the number
+ * of edges, and vertex ids range over [0, n).
+ * <ol>
+ * <li> header: magic number 0x50574746 ("PWGF"), version, n, m, s (number of hash slots),
+ *      b (number of bytes of label data), k (number of metadata integers)
+ * <li> metadata: k integers, stored for the application and not interpreted
+ * <li> targetOffsets: n + 1 integers; the targets of vertex i are entries
+ *      targetOffsets[i] to targetOffsets[i + 1] - 1 of the next two sections
+ * <li> targetIds, targetWeights: m integers each; each vertex's targets in increasing id order
+ * <li> sourceOffsets, sourceIds, sourceWeights: likewise for the sources of each vertex
+ * <li> labelHashes: n integers, the hash of each label (see below)
+ * <li> labelSlots: s integers, s a power of two more than 2n; an open-addressing hash table in
+ *      which each slot holds 0 for empty or id + 1, and the label with id i is found by linear
+ *      probing from slot labelHashes[i] &amp; (s - 1)
+ * <li> labelOffsets: n + 1 integers; the label of vertex i is bytes labelOffsets[i] to
+ *      labelOffsets[i + 1] - 1 of the next section, encoded in UTF-8
+ * <li> labelData: b bytes
+ * </ol>
+ * The hash of a label whose String.hashCode() is h is (h * 0x9E3779B9) ^ ((h * 0x9E3779B9) &gt;&gt;&gt; 16),
+ * as computed by LabelTable, so it does not depend on the JVM. Each section must be at most
+ * 2^31 - 1 bytes.
+ */
+public class GraphFile {
+    
+    /** The version of the file format written by this class. */
+    public static final int VERSION = 1;
+    
+    private static final int MAGIC = 0x50574746;
+    private static final int HEADER_INTS = 7;
+    
+    private final FrozenGraph<String> graph;
+    private final int[] metadata;
+    
+    // Abstraction function:
+    //   represents the graph file whose graph is graph and whose metadata is metadata
+    // Representation invariant:
+    //   true
+    // Safety from rep exposure:
+    //   All fields are private and final. graph is immutable. metadata is created by open() and
+    //   metadata() returns a copy of it.
+    
+    private GraphFile(FrozenGraph<String> graph, int[] metadata){
+        this.graph = graph;
+        this.metadata = metadata;
+    }
+    
+    /**
+     * Write a graph to a file with no metadata. See {@link #write(IndexedGraph, int[], File)}.
+     *
+     * @param graph the graph to write
+     * @param file the file to create or replace
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(IndexedGraph<String> graph, File file) throws IOException {
+        write(graph, new int[0], file);
+    }
+    
+    /**
+     * Write a graph to a file. The file is written under a temporary name in the same directory
+     * and then renamed, so processes that have the old file open keep seeing it intact.
+     *
+     * @param graph the graph to write
+     * @param metadata integers to store along with the graph, returned by metadata() on open
+     * @param file the file to create or replace
+     * @throws IOException if the file cannot be written
+     * @throws IllegalArgumentException if some section of the file would exceed 2^31 - 1 bytes
+     */
+    public static void write(IndexedGraph<String> graph, int[] metadata, File file) throws IOException {
+        final int n = graph.vertexCount();
+        final byte[][] labels = new byte[n][];
+        long labelBytes = 0;
+        int edgeCount = 0;
+        
+        for(int i = 0; i < n; i++){
+            labels[i] = graph.labelOf(i).getBytes(StandardCharsets.UTF_8);
+            labelBytes += labels[i].length;
+            edgeCount = Math.addExact(edgeCount, graph.outDegree(i));
+        }
+        if(labelBytes > Integer.MAX_VALUE || edgeCount > Integer.MAX_VALUE / Integer.BYTES
+                || LabelTable.capacityFor(n) > Integer.MAX_VALUE / Integer.BYTES){
+            throw new IllegalArgumentException("graph too large for a graph file");
+        }
+        
+        final int[] hashes = new int[n];
+        final int[] slots = new int[LabelTable.capacityFor(n)];
+        for(int i = 0; i < n; i++){
+            hashes[i] = LabelTable.mix(graph.labelOf(i));
+            
+            int slot = hashes[i] & (slots.length - 1);
+            while(slots[slot] != 0){
+                slot = (slot + 1) & (slots.length - 1);
+            }
+            slots[slot] = i + 1;
+        }
+        
+        final Path temp = Files.createTempFile(file.getAbsoluteFile().getParentFile().toPath(), "." + file.getName() + ".pwgf", ".tmp");
+        try{
+            try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16))){
+                writeInts(out, MAGIC, VERSION, n, edgeCount, slots.length, (int) labelBytes, metadata.length);
+                writeInts(out, metadata);
+                writeSlices(out, graph, true);
+                writeSlices(out, graph, false);
+                writeInts(out, hashes);
+                writeInts(out, slots);
+                
+                int offset = 0;
+                out.writeInt(offset);
+                for(byte[] label : labels){
+                    offset += label.length;
+                    out.writeInt(offset);
+                }
+                for(byte[] label : labels){
+                    out.write(label);
+                }
+            }
+            Files.move(temp, file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }finally{
+            Files.deleteIfExists(temp);
+        }
+    }
+    
+    //Effects: writes the values to out
+    private static void writeInts(DataOutputStream out, int... values) throws IOException {
+        for(int value : values){
+            out.writeInt(value);
+        }
+    }
+    
+    //Effects: writes the offsets, ids and weights sections of the targets of every vertex of graph
+    //         if targets, otherwise of the sources
+    private static void writeSlices(DataOutputStream out, IndexedGraph<String> graph, boolean targets) throws IOException {
+        final int n = graph.vertexCount();
+        
+        int offset = 0;
+        out.writeInt(offset);
+        for(int i = 0; i < n; i++){
+            offset += targets ? graph.outDegree(i) : graph.inDegree(i);
+            out.writeInt(offset);
+        }
+        for(int i = 0; i < n; i++){
+            final int degree = targets ? graph.outDegree(i) : graph.inDegree(i);
+            for(int k = 0; k < degree; k++){
+                out.writeInt(targets ? graph.target(i, k) : graph.source(i, k));
+            }
+        }
+        for(int i = 0; i < n; i++){
+            final int degree = targets ? graph.outDegree(i) : graph.inDegree(i);
+            for(int k = 0; k < degree; k++){
+                out.writeInt(targets ? graph.targetWeight(i, k) : graph.sourceWeight(i, k));
+            }
+        }
+    }
+    
+    /**
+     * Open a graph file by mapping it into memory. Only the header and metadata are read; the
+     * rest of the file is trusted to be as written by write(), and must not be changed while the
+     * graph is in use (replacing it with write() is safe).
+     *
+     * @param file a graph file
+     * @return the graph file, whose graph is backed by the mapped file
+     * @throws IOException if the file cannot be read, or is not a graph file of a supported version
+     */
+    public static GraphFile open(File file) throws IOException {
+        try(FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)){
+            final ByteBuffer header = ByteBuffer.allocate(HEADER_INTS * Integer.BYTES);
+            while(header.hasRemaining()){
+                if(channel.read(header, header.position()) < 0) throw new IOException("truncated graph file: " + file);
+            }
+            header.flip();
+            
+            if(header.getInt() != MAGIC) throw new IOException("not a graph file: " + file);
+            final int version = header.getInt();
+            if(version != VERSION) throw new IOException("unsupported graph file version " + version + ": " + file);
+            
+            final int n = header.getInt();
+            final int m = header.getInt();
+            final int slotCount = header.getInt();
+            final int labelBytes = header.getInt();
+            final int metadataLength = header.getInt();
+            if(n < 0 || m < 0 || labelBytes < 0 || metadataLength < 0 || slotCount <= 2 * n
+                    || Integer.bitCount(slotCount) != 1){
+                throw new IOException("corrupt graph file header: " + file);
+            }
+            
+            final long expectedSize = (long) Integer.BYTES * (HEADER_INTS + metadataLength + 2L * (n + 1) + 4L * m
+                    + n + slotCount + (n + 1)) + labelBytes;
+            if(channel.size() != expectedSize){
+                throw new IOException("graph file has " + channel.size() + " bytes, expected " + expectedSize + ": " + file);
+            }
+            
+            final Sections sections = new Sections(channel, HEADER_INTS * Integer.BYTES);
+            final IntBuffer metadata = sections.ints(metadataLength);
+            final IntBuffer targetOffsets = sections.ints(n + 1);
+            final IntBuffer targetIds = sections.ints(m);
+            final IntBuffer targetWeights = sections.ints(m);
+            final IntBuffer sourceOffsets = sections.ints(n + 1);
+            final IntBuffer sourceIds = sections.ints(m);
+            final IntBuffer sourceWeights = sections.ints(m);
+            final IntBuffer labelHashes = sections.ints(n);
+            final IntBuffer labelSlots = sections.ints(slotCount);
+            final IntBuffer labelOffsets = sections.ints(n + 1);
+            final ByteBuffer labelData = sections.bytes(labelBytes);
+            
+            final int[] metadataCopy = new int[metadataLength];
+            metadata.get(metadataCopy);
+            
+            final MappedLabels labels = new MappedLabels(labelHashes, labelSlots, labelOffsets, labelData);
+            return new GraphFile(new FrozenGraph<>(labels, IntSegments.wrap(targetOffsets), IntSegments.wrap(targetIds),
+                    IntSegments.wrap(targetWeights), IntSegments.wrap(sourceOffsets), IntSegments.wrap(sourceIds),
+                    IntSegments.wrap(sourceWeights)), metadataCopy);
+        }
+    }
+    
+    /**
+     * @return the graph stored in this file; it is immutable and off-heap
+     */
+    public FrozenGraph<String> graph(){
+        return graph;
+    }
+    
+    /**
+     * @return a copy of the metadata stored in this file
+     */
+    public int[] metadata(){
+        return metadata.clone();
+    }
+    
+    /*
+     * Maps consecutive sections of a file, starting at a given position.
+     */
+    private static class Sections {
+        
+        private final FileChannel channel;
+        private long position;
+        
+        Sections(FileChannel channel, long position){
+            this.channel = channel;
+            this.position = position;
+        }
+        
+        //Effects: maps the next length bytes of the file read-only, and moves past them
+        ByteBuffer bytes(int length) throws IOException {
+            final ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+            position += length;
+            return buffer;
+        }
+        
+        //Effects: maps the next length integers of the file read-only, and moves past them
+        IntBuffer ints(int length) throws IOException {
+            if(length > Integer.MAX_VALUE / Integer.BYTES){
+                throw new IOException("graph file section too large to map: " + length + " integers");
+            }
+            return bytes(length * Integer.BYTES).asIntBuffer();
+        }
+    }
+}
+
+/**
+ * MappedLabels is an immutable LabelIndex of Strings read in place from the label sections of a
+ * graph file, so that no label is decoded until it is asked for.
+ * This class is internal to the rep of FrozenGraph objects opened by GraphFile.
+ */
+class MappedLabels implements LabelIndex<String> {
+    
+    private final IntBuffer hashes;
+    private final IntBuffer slots;
+    private final IntBuffer offsets;
+    private final ByteBuffer data;
+    
+    // Abstraction function:
+    //   represents the numbering in which id i is the UTF-8 decoding of bytes
+    //   offsets[i] to offsets[i + 1] - 1 of data, for 0 <= i < hashes.capacity()
+    // Representation invariant:
+    //   as for the labelHashes, labelSlots, labelOffsets and labelData sections of a graph file
+    // Safety from rep exposure:
+    //   All fields are private and final; the buffers are read-only and only read with absolute get()
+    //   or through duplicates, so even their positions never change.
+    
+    MappedLabels(IntBuffer hashes, IntBuffer slots, IntBuffer offsets, ByteBuffer data){
+        this.hashes = hashes;
+        this.slots = slots;
+        this.offsets = offsets;
+        this.data = data;
+    }
+    
+    @Override public int size() {
+        return hashes.capacity();
+    }
+    
+    @Override public int idOf(String label) {
+        if(label == null) return -1;
+        
+        final int hash = LabelTable.mix(label);
+        final int mask = slots.capacity() - 1;
+        byte[] encoded = null;
+        
+        for(int i = hash & mask; slots.get(i) != 0; i = (i + 1) & mask){
+            final int id = slots.get(i) - 1;
+            if(hashes.get(id) != hash) continue;
+            
+            if(encoded == null) encoded = label.getBytes(StandardCharsets.UTF_8);
+            if(bytesEqual(id, encoded)) return id;
+        }
+        return -1;
+    }
+    
+    //Effects: returns true iff. the encoded label with the given id equals encoded
+    private boolean bytesEqual(int id, byte[] encoded){
+        final int from = offsets.get(id);
+        if(offsets.get(id + 1) - from != encoded.length) return false;
+        
+        for(int k = 0; k < encoded.length; k++){
+            if(data.get(from + k) != encoded[k]) return false;
+        }
+        return true;
+    }
+    
+    @Override public String label(int id) {
+        if(id < 0 || id >= size()){
+            throw new IndexOutOfBoundsException("no label with id " + id);
+        }
+        
+        final ByteBuffer bytes = data.duplicate();
+        bytes.position(offsets.get(id));
+        bytes.limit(offsets.get(id + 1));
+        return StandardCharsets.UTF_8.decode(bytes).toString();
+    }
+}
@@ -0,0 +1,33 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package graph;
+
+/**
+ * A Graph that can adjust the weight of an edge relative to its current weight in a
+ * single operation, instead of a targets() lookup followed by a set().
+ *
+ * @param <L> type of vertex labels in this graph, must be immutable
+ */
+public interface IncrementableGraph<L> extends Graph<L> {
+    
+    /**
+     * Add delta to the weight of a directed edge in this graph, treating a missing edge
+     * as an edge of weight zero.
+     * If the new weight is nonzero, the edge is added or updated, and vertices with the
+     * given labels are added to the graph if they do not already exist.
+     * If the new weight is zero, the edge is removed if it exists (the graph is not
+     * otherwise modified).
+     *
+     * @param source label of the source vertex
+     * @param target label of the target vertex
+     * @param delta amount to add to the weight of the edge; may be negative
+     * @return the new weight of the edge, or zero if there is no longer such an edge
+     * @throws IllegalArgumentException if the new weight would be negative (the graph is
+     *         not modified)
+     * @throws ArithmeticException if the new weight overflows an int (the graph is not
+     *         modified)
+     */
+    public int increment(L source, L target, int delta);
+
+}
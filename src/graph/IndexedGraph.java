@@ -0,0 +1,88 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package graph;
+
+/**
+ * A Graph whose vertices are also numbered densely from zero, with queries that work
+ * on those int ids directly. Hot loops can translate their labels to ids once, walk
+ * the graph without hashing or boxing, and translate back only for output.
+ *
+ * <p>Neighbours of a vertex are indexed from zero in increasing id order, so the
+ * neighbour lists of two vertices can be intersected with a single merge pass.
+ * Ids are only meaningful until the graph is next mutated.
+ *
+ * @param <L> type of vertex labels in this graph, must be immutable
+ */
+public interface IndexedGraph<L> extends Graph<L> {
+    
+    /**
+     * @return the number of vertices in this graph; ids range over [0, vertexCount())
+     */
+    public int vertexCount();
+    
+    /**
+     * Get the id of a vertex.
+     *
+     * @param vertex a label
+     * @return the id of the vertex with that label, or -1 if this graph has no such vertex
+     */
+    public int idOf(L vertex);
+    
+    /**
+     * Get the label of a vertex.
+     *
+     * @param id a vertex id
+     * @return the label of the vertex with that id
+     * @throws IndexOutOfBoundsException if id is not a vertex id of this graph
+     */
+    public L labelOf(int id);
+    
+    /**
+     * @param id a vertex id
+     * @return the number of edges from the vertex
+     */
+    public int outDegree(int id);
+    
+    /**
+     * @param id a vertex id
+     * @param k index of an edge from the vertex, 0 <= k < outDegree(id)
+     * @return id of the target of the k-th edge from the vertex, in increasing order of target id
+     */
+    public int target(int id, int k);
+    
+    /**
+     * @param id a vertex id
+     * @param k index of an edge from the vertex, 0 <= k < outDegree(id)
+     * @return (positive) weight of the k-th edge from the vertex
+     */
+    public int targetWeight(int id, int k);
+    
+    /**
+     * @param id a vertex id
+     * @return the number of edges to the vertex
+     */
+    public int inDegree(int id);
+    
+    /**
+     * @param id a vertex id
+     * @param k index of an edge to the vertex, 0 <= k < inDegree(id)
+     * @return id of the source of the k-th edge to the vertex, in increasing order of source id
+     */
+    public int source(int id, int k);
+    
+    /**
+     * @param id a vertex id
+     * @param k index of an edge to the vertex, 0 <= k < inDegree(id)
+     * @return (positive) weight of the k-th edge to the vertex
+     */
+    public int sourceWeight(int id, int k);
+    
+    /**
+     * @param source a vertex id
+     * @param target a vertex id
+     * @return the weight of the edge from source to target, or zero if there is no such edge
+     */
+    public int weight(int source, int target);
+
+}
@@ -0,0 +1,135 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package graph;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+
+/**
+ * A fixed-length, zero-initialized array of ints stored in IntBuffers, either one heap buffer or
+ * direct buffers outside the Java heap. A direct buffer holds at most Integer.MAX_VALUE bytes,
+ * so a direct array is split into segments of 2^28 ints (1 GiB) each, and can have up to
+ * Integer.MAX_VALUE entries like a heap array. Entries are read and written by index only, so
+ * several threads can read an array concurrently after it has been filled.
+ */
+class IntSegments {
+    
+    /** log2 of the number of ints in each segment of a direct array. */
+    static final int SEGMENT_BITS = 28;
+    
+    private final IntBuffer[] segments;
+    private final int shift;
+    private final int mask;
+    private final int length;
+    private final boolean direct;
+    
+    // Abstraction function:
+    //   represents the array a of length length with a[i] == segments[i >>> shift].get(i & mask),
+    //   stored off the Java heap iff. direct
+    // Representation invariant:
+    //   0 < shift <= 31 and mask == (1 << shift) - 1
+    //   every segment has position 0 and limit equal to its capacity
+    //   every segment but the last has capacity 1 << shift, and the capacities add up to length
+    //   every segment is direct iff. direct
+    // Safety from rep exposure:
+    //   All fields are private and final. The segments are created by allocate(), or passed to
+    //   wrap() by a caller that does not use them otherwise, and are never returned. They are only
+    //   accessed with absolute get() and put(), so even their positions never change.
+    
+    private IntSegments(IntBuffer[] segments, int shift, int length, boolean direct){
+        this.segments = segments;
+        this.shift = shift;
+        this.mask = (int) ((1L << shift) - 1);
+        this.length = length;
+        this.direct = direct;
+        checkRep();
+    }
+    
+    /**
+     * Allocate an array of zeros.
+     *
+     * @param length non-negative number of entries
+     * @param direct whether to store the array off the Java heap, in native byte order
+     * @return a new array of length zeros
+     */
+    static IntSegments allocate(int length, boolean direct){
+        return allocate(length, direct, SEGMENT_BITS);
+    }
+    
+    /**
+     * Allocate an array of zeros, with segments of a given size if it is direct.
+     *
+     * @param length non-negative number of entries
+     * @param direct whether to store the array off the Java heap, in native byte order
+     * @param segmentBits log2 of the number of ints in each segment of a direct array, in
+     *        [1, SEGMENT_BITS]
+     * @return a new array of length zeros
+     */
+    static IntSegments allocate(int length, boolean direct, int segmentBits){
+        if(!direct) return new IntSegments(new IntBuffer[] { IntBuffer.allocate(length) }, Integer.SIZE - 1, length, false);
+        
+        final int segmentLength = 1 << segmentBits;
+        final IntBuffer[] segments = new IntBuffer[(int) ((length + (long) segmentLength - 1) >>> segmentBits)];
+        for(int s = 0; s < segments.length; s++){
+            final int ints = (int) Math.min(segmentLength, length - (long) s * segmentLength);
+            segments[s] = ByteBuffer.allocateDirect(ints * Integer.BYTES).order(ByteOrder.nativeOrder()).asIntBuffer();
+        }
+        return new IntSegments(segments, segmentBits, length, true);
+    }
+    
+    /**
+     * @param buffer buffer with position 0 and limit equal to its capacity, not used by the
+     *        caller afterwards
+     * @return an array backed by buffer, direct iff. buffer is
+     */
+    static IntSegments wrap(IntBuffer buffer){
+        return new IntSegments(new IntBuffer[] { buffer }, Integer.SIZE - 1, buffer.capacity(), buffer.isDirect());
+    }
+    
+    private void checkRep(){
+        assert shift > 0 && shift <= Integer.SIZE - 1;
+        
+        long capacity = 0;
+        for(int s = 0; s < segments.length; s++){
+            assert segments[s].position() == 0 && segments[s].limit() == segments[s].capacity();
+            assert s == segments.length - 1 || segments[s].capacity() == 1 << shift;
+            assert segments[s].isDirect() == direct;
+            capacity += segments[s].capacity();
+        }
+        assert capacity == length;
+    }
+    
+    /**
+     * @return the number of entries of this array
+     */
+    int length(){
+        return length;
+    }
+    
+    /**
+     * @return true iff. this array is stored off the Java heap
+     */
+    boolean isDirect(){
+        return direct;
+    }
+    
+    /**
+     * @param index index in [0, length())
+     * @return the entry at index
+     */
+    int get(int index){
+        return segments[index >>> shift].get(index & mask);
+    }
+    
+    /**
+     * Set an entry.
+     *
+     * @param index index in [0, length())
+     * @param value the new value of the entry at index
+     */
+    void put(int index, int value){
+        segments[index >>> shift].put(index & mask, value);
+    }
+}
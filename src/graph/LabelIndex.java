@@ -0,0 +1,36 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package graph;
+
+/**
+ * A read-only numbering of distinct labels densely from zero, as used by FrozenGraph to
+ * translate between vertex labels and ids.
+ *
+ * @param <L> type of labels, must be immutable
+ */
+interface LabelIndex<L> {
+    
+    /**
+     * @return the number of labels; ids range over [0, size())
+     */
+    public int size();
+    
+    /**
+     * Get the id of a label.
+     *
+     * @param label a label
+     * @return the id of label, or -1 if label is null or not numbered
+     */
+    public int idOf(L label);
+    
+    /**
+     * Get the label with a given id.
+     *
+     * @param id an id, 0 <= id < size()
+     * @return the label with that id
+     * @throws IndexOutOfBoundsException if id is out of range
+     */
+    public L label(int id);
+
+}
@@ -0,0 +1,179 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package graph;
+
+import java.util.Arrays;
+
+/**
+ * A mutable symbol table that numbers distinct labels densely from zero, in the order
+ * they are first interned. Labels are compared using the {@link Object#equals(Object) equals}
+ * method and are never removed, so an id stays valid for the lifetime of the table.
+ *
+ * <p>Lookups use an open-addressing hash table of ints rather than boxed map entries, so
+ * translating between labels and ids costs one hashCode() and, usually, one equals().
+ *
+ * @param <L> type of labels in this table, must be immutable
+ */
+public class LabelTable<L> implements LabelIndex<L> {
+    
+    private static final int MIN_CAPACITY = 16;
+    
+    private Object[] labels;
+    private int[] hashes;
+    private int[] slots;
+    private int size = 0;
+    
+    // Abstraction function:
+    //   represents the sequence labels[0..size-1], where the id of labels[i] is i
+    // Representation invariant:
+    //   labels[0..size-1] are non-null and distinct; hashes[i] == mix(labels[i].hashCode()) for i < size
+    //   slots.length is a power of two, at least MIN_CAPACITY and more than twice size
+    //   each slot holds 0 (empty) or id + 1 for some id < size; every id < size appears in exactly one slot,
+    //   reachable by linear probing from mix(hash) & (slots.length - 1) without crossing an empty slot
+    // Safety from rep exposure:
+    //   All fields are private and the arrays are never passed in or returned. Labels are immutable.
+    
+    /**
+     * Create an empty table.
+     */
+    public LabelTable(){
+        this(0);
+    }
+    
+    /**
+     * Create an empty table sized to hold expectedSize labels without resizing.
+     *
+     * @param expectedSize non-negative number of labels the table is expected to hold
+     */
+    public LabelTable(int expectedSize){
+        final int capacity = capacityFor(expectedSize);
+        this.labels = new Object[Math.max(expectedSize, MIN_CAPACITY / 2)];
+        this.hashes = new int[labels.length];
+        this.slots = new int[capacity];
+        checkRep();
+    }
+    
+    private void checkRep(){
+        assert Integer.bitCount(slots.length) == 1 && slots.length > 2 * size;
+        
+        int occupied = 0;
+        for(int slot : slots){
+            if(slot != 0){
+                assert slot - 1 < size;
+                occupied++;
+            }
+        }
+        assert occupied == size;
+    }
+    
+    //Effects: returns the smallest power of two, at least MIN_CAPACITY, that is more than twice size
+    static int capacityFor(int size){
+        int capacity = MIN_CAPACITY;
+        while(capacity <= 2 * size){
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+    
+    //Effects: returns a well-spread hash derived from label's hashCode(); GraphFile relies on this
+    //         function, so changing it changes the graph file format
+    static int mix(Object label){
+        final int h = label.hashCode() * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+    
+    /**
+     * Get the id of a label, adding the label to this table if it is not already present.
+     *
+     * @param label a non-null label
+     * @return the id of label; a label not previously in this table gets id size()
+     */
+    public int intern(L label){
+        final int hash = mix(label);
+        final int mask = slots.length - 1;
+        int i = hash & mask;
+        
+        while(slots[i] != 0){
+            final int id = slots[i] - 1;
+            if(hashes[id] == hash && labels[id].equals(label)){
+                return id;
+            }
+            i = (i + 1) & mask;
+        }
+        
+        final int id = size;
+        if(id == labels.length){
+            labels = Arrays.copyOf(labels, 2 * labels.length);
+            hashes = Arrays.copyOf(hashes, labels.length);
+        }
+        labels[id] = label;
+        hashes[id] = hash;
+        slots[i] = id + 1;
+        size++;
+        
+        if(2 * size >= slots.length){
+            rehash(slots.length << 1);
+        }
+        return id;
+    }
+    
+    //Effects: rebuilds slots with the given capacity
+    private void rehash(int capacity){
+        final int mask = capacity - 1;
+        slots = new int[capacity];
+        
+        for(int id = 0; id < size; id++){
+            int i = hashes[id] & mask;
+            while(slots[i] != 0){
+                i = (i + 1) & mask;
+            }
+            slots[i] = id + 1;
+        }
+    }
+    
+    /**
+     * Get the id of a label.
+     *
+     * @param label a label
+     * @return the id of label, or -1 if label is not in this table
+     */
+    public int idOf(L label){
+        if(label == null) return -1;
+        
+        final int hash = mix(label);
+        final int mask = slots.length - 1;
+        int i = hash & mask;
+        
+        while(slots[i] != 0){
+            final int id = slots[i] - 1;
+            if(hashes[id] == hash && labels[id].equals(label)){
+                return id;
+            }
+            i = (i + 1) & mask;
+        }
+        return -1;
+    }
+    
+    /**
+     * Get the label with a given id.
+     *
+     * @param id an id, 0 <= id < size()
+     * @return the label with that id
+     * @throws IndexOutOfBoundsException if id is out of range
+     */
+    @SuppressWarnings("unchecked")
+    public L label(int id){
+        if(id < 0 || id >= size){
+            throw new IndexOutOfBoundsException("no label with id " + id);
+        }
+        return (L) labels[id];
+    }
+    
+    /**
+     * @return the number of labels in this table
+     */
+    public int size(){
+        return size;
+    }
+}
@@ -0,0 +1,363 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package graph;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * A graph with String labels in a compact, portable stream format.
+ *
+ * <p>The format is meant for storing and shipping graphs, not for using them in place (see
+ * {@link GraphFile} for that): labels are sorted and front-coded, only the out-edges are
+ * stored, and neighbour ids are delta-encoded as variable-length integers, so a word affinity
+ * graph typically takes a few bytes per edge. Both write() and read() stream, holding only
+ * the graph itself and one block of encoded data in memory, and read() decodes whole blocks
+ * from byte arrays so that it is not limited by per-byte calls on the underlying stream.
+ *
+ * <p>Stream format, version 1. Fixed-size integers are 32-bit big-endian, as written by
+ * DataOutput.writeInt; a varint is an unsigned LEB128 integer: 7 bits per byte, least
+ * significant group first, with the high bit of each byte set iff. more bytes follow.
+ * <ol>
+ * <li> header: magic number 0x50574743 ("PWGC"), version, n (number of vertices),
+ *      m (number of edges), k (number of metadata integers), then the k metadata integers
+ * <li> blocks, each a 32-bit byte count followed by that many bytes. The concatenated
+ *      blocks hold n labels and then n rows, and no label or row spans two blocks.
+ * </ol>
+ * Vertex i is the i-th label in increasing String.compareTo() order. Label i is encoded as
+ * varint p, varint s and then s bytes, where the UTF-8 encoding of label i is the first p bytes
+ * of the UTF-8 encoding of label i - 1 followed by the s bytes. Row i lists the targets of
+ * vertex i: varint d (the number of targets), then d varints giving the target ids in
+ * increasing order, the first as is and each other as its difference from the previous one,
+ * then d varints giving the weights of the edges in the same order.
+ */
+public class PackedGraph {
+    
+    /** The version of the stream format written by this class. */
+    public static final int VERSION = 1;
+    
+    private static final int MAGIC = 0x50574743;
+    private static final int BLOCK_SIZE = 1 << 16;
+    
+    private final FrozenGraph<String> graph;
+    private final int[] metadata;
+    
+    // Abstraction function:
+    //   represents the packed graph whose graph is graph and whose metadata is metadata
+    // Representation invariant:
+    //   true
+    // Safety from rep exposure:
+    //   All fields are private and final. graph is immutable. metadata is created by read() and
+    //   metadata() returns a copy of it.
+    
+    private PackedGraph(FrozenGraph<String> graph, int[] metadata){
+        this.graph = graph;
+        this.metadata = metadata;
+    }
+    
+    /**
+     * Write a graph with no metadata. See {@link #write(Graph, int[], DataOutput)}.
+     *
+     * @param graph the graph to write
+     * @param out the stream to write to
+     * @throws IOException if out cannot be written
+     */
+    public static void write(Graph<String> graph, DataOutput out) throws IOException {
+        write(graph, new int[0], out);
+    }
+    
+    /**
+     * Write a graph to a stream. Nothing is written to out after the graph, and out is
+     * neither flushed nor closed.
+     *
+     * @param graph the graph to write; if it is not an IndexedGraph, it is copied into one first
+     * @param metadata integers to store along with the graph, returned by metadata() on read
+     * @param out the stream to write to
+     * @throws IOException if out cannot be written
+     */
+    public static void write(Graph<String> graph, int[] metadata, DataOutput out) throws IOException {
+        @SuppressWarnings("unchecked")
+        final IndexedGraph<String> indexed = graph instanceof IndexedGraph
+                ? (IndexedGraph<String>) graph : new FrozenGraph<>(graph);
+        final int n = indexed.vertexCount();
+        final int[] order = sortedIds(indexed);
+        final int[] rank = new int[n];
+        int edgeCount = 0;
+        
+        for(int i = 0; i < n; i++){
+            rank[order[i]] = i;
+            edgeCount += indexed.outDegree(i);
+        }
+        
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(n);
+        out.writeInt(edgeCount);
+        out.writeInt(metadata.length);
+        for(int value : metadata){
+            out.writeInt(value);
+        }
+        
+        final BlockWriter blocks = new BlockWriter(out);
+        byte[] previous = new byte[0];
+        for(int i = 0; i < n; i++){
+            final byte[] label = indexed.labelOf(order[i]).getBytes(StandardCharsets.UTF_8);
+            final int prefix = commonPrefix(previous, label);
+            
+            blocks.writeVarint(prefix);
+            blocks.writeVarint(label.length - prefix);
+            blocks.writeBytes(label, prefix, label.length - prefix);
+            blocks.endItem();
+            previous = label;
+        }
+        
+        for(int i = 0; i < n; i++){
+            final long[] row = sortedRow(indexed, order[i], rank);
+            
+            blocks.writeVarint(row.length);
+            int prevTarget = 0;
+            for(long packed : row){
+                final int target = (int) (packed >>> 32);
+                blocks.writeVarint(target - prevTarget);
+                prevTarget = target;
+            }
+            for(long packed : row){
+                blocks.writeVarint((int) packed);
+            }
+            blocks.endItem();
+        }
+        blocks.flush();
+    }
+    
+    //Effects: returns the ids of graph sorted by label
+    private static int[] sortedIds(IndexedGraph<String> graph){
+        final Integer[] ids = new Integer[graph.vertexCount()];
+        for(int i = 0; i < ids.length; i++){
+            ids[i] = i;
+        }
+        Arrays.sort(ids, (a, b) -> graph.labelOf(a).compareTo(graph.labelOf(b)));
+        
+        final int[] sorted = new int[ids.length];
+        for(int i = 0; i < ids.length; i++){
+            sorted[i] = ids[i];
+        }
+        return sorted;
+    }
+    
+    //Effects: returns the length of the longest common prefix of a and b
+    private static int commonPrefix(byte[] a, byte[] b){
+        final int length = Math.min(a.length, b.length);
+        int k = 0;
+        while(k < length && a[k] == b[k]){
+            k++;
+        }
+        return k;
+    }
+    
+    //Effects: returns the targets of vertex id of graph as (rank[target] << 32 | weight) values sorted by rank
+    private static long[] sortedRow(IndexedGraph<String> graph, int id, int[] rank){
+        final long[] row = new long[graph.outDegree(id)];
+        for(int k = 0; k < row.length; k++){
+            row[k] = ((long) rank[graph.target(id, k)] << 32) | graph.targetWeight(id, k);
+        }
+        Arrays.sort(row);
+        return row;
+    }
+    
+    /**
+     * Read a graph written by write(). Exactly the bytes written by write() are consumed from in.
+     *
+     * @param in the stream to read from
+     * @return the packed graph, whose graph is an immutable graph on the heap
+     * @throws IOException if in cannot be read, or does not hold a packed graph of a supported version
+     */
+    public static PackedGraph read(DataInput in) throws IOException {
+        if(in.readInt() != MAGIC) throw new IOException("not a packed graph");
+        final int version = in.readInt();
+        if(version != VERSION) throw new IOException("unsupported packed graph version " + version);
+        
+        final int n = in.readInt();
+        final int m = in.readInt();
+        final int metadataLength = in.readInt();
+        if(n < 0 || m < 0 || metadataLength < 0) throw new IOException("corrupt packed graph header");
+        
+        final int[] metadata = new int[metadataLength];
+        for(int i = 0; i < metadataLength; i++){
+            metadata[i] = in.readInt();
+        }
+        
+        final BlockReader blocks = new BlockReader(in);
+        final LabelTable<String> labels = new LabelTable<>(n);
+        byte[] previous = new byte[0];
+        for(int i = 0; i < n; i++){
+            final int prefix = blocks.readVarint();
+            final int suffix = blocks.readVarint();
+            if(prefix > previous.length) throw new IOException("corrupt packed graph label " + i);
+            
+            final byte[] label = Arrays.copyOf(previous, prefix + suffix);
+            blocks.readBytes(label, prefix, suffix);
+            if(labels.intern(new String(label, StandardCharsets.UTF_8)) != i){
+                throw new IOException("duplicate label in packed graph: " + i);
+            }
+            previous = label;
+        }
+        
+        final IntSegments targetOffsets = IntSegments.allocate(n + 1, false);
+        final IntSegments targetIds = IntSegments.allocate(m, false);
+        final IntSegments targetWeights = IntSegments.allocate(m, false);
+        int e = 0;
+        for(int i = 0; i < n; i++){
+            final int degree = blocks.readVarint();
+            if(degree > m - e) throw new IOException("corrupt packed graph row " + i);
+            
+            int target = -1;
+            for(int k = 0; k < degree; k++){
+                final int gap = blocks.readVarint();
+                final long next = k == 0 ? gap : (long) target + gap;
+                if((k > 0 && gap == 0) || next >= n){
+                    throw new IOException("corrupt packed graph row " + i);
+                }
+                target = (int) next;
+                targetIds.put(e + k, target);
+            }
+            for(int k = 0; k < degree; k++){
+                final int weight = blocks.readVarint();
+                if(weight <= 0) throw new IOException("corrupt packed graph row " + i);
+                targetWeights.put(e + k, weight);
+            }
+            e += degree;
+            targetOffsets.put(i + 1, e);
+        }
+        if(e != m || !blocks.atEnd()) throw new IOException("corrupt packed graph: wrong edge count");
+        
+        return new PackedGraph(new FrozenGraph<>(labels, targetOffsets, targetIds, targetWeights), metadata);
+    }
+    
+    /**
+     * @return the graph read from the stream
+     */
+    public FrozenGraph<String> graph(){
+        return graph;
+    }
+    
+    /**
+     * @return a copy of the metadata stored with the graph
+     */
+    public int[] metadata(){
+        return metadata.clone();
+    }
+    
+    /*
+     * Encodes items into blocks of about BLOCK_SIZE bytes on a DataOutput.
+     */
+    private static class BlockWriter {
+        
+        private final DataOutput out;
+        private byte[] block = new byte[2 * BLOCK_SIZE];
+        private int size = 0;
+        
+        BlockWriter(DataOutput out){
+            this.out = out;
+        }
+        
+        //Effects: appends the varint encoding of the non-negative value to the current item
+        void writeVarint(int value){
+            ensureSpace(5);
+            while((value & ~0x7F) != 0){
+                block[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            block[size++] = (byte) value;
+        }
+        
+        //Effects: appends bytes[from..from+length-1] to the current item
+        void writeBytes(byte[] bytes, int from, int length){
+            ensureSpace(length);
+            System.arraycopy(bytes, from, block, size, length);
+            size += length;
+        }
+        
+        //Effects: ends the current item, writing out the block if it is full
+        void endItem() throws IOException {
+            if(size >= BLOCK_SIZE) flush();
+        }
+        
+        //Effects: writes out the block, if it holds any items
+        void flush() throws IOException {
+            if(size == 0) return;
+            
+            out.writeInt(size);
+            out.write(block, 0, size);
+            size = 0;
+        }
+        
+        //Effects: grows the block, if needed, to hold length more bytes
+        private void ensureSpace(int length){
+            if(size + length > block.length){
+                block = Arrays.copyOf(block, Math.max(2 * block.length, size + length));
+            }
+        }
+    }
+    
+    /*
+     * Decodes items from the blocks written by a BlockWriter, one block at a time.
+     */
+    private static class BlockReader {
+        
+        private final DataInput in;
+        private byte[] block = new byte[0];
+        private int position = 0;
+        private int limit = 0;
+        
+        BlockReader(DataInput in){
+            this.in = in;
+        }
+        
+        //Effects: reads the next block if the current one is used up
+        private void fill() throws IOException {
+            if(position < limit) return;
+            
+            final int length = in.readInt();
+            if(length <= 0) throw new IOException("corrupt packed graph block");
+            if(length > block.length) block = new byte[length];
+            in.readFully(block, 0, length);
+            position = 0;
+            limit = length;
+        }
+        
+        //Effects: returns the next varint, which must encode a non-negative int
+        int readVarint() throws IOException {
+            fill();
+            int value = 0;
+            for(int shift = 0; shift < 32; shift += 7){
+                if(position == limit) throw new IOException("corrupt packed graph: varint spans blocks");
+                
+                final byte b = block[position++];
+                if(shift == 28 && (b & 0x70) != 0) throw new IOException("corrupt packed graph: varint out of range");
+                value |= (b & 0x7F) << shift;
+                if(b >= 0){
+                    if(value < 0) throw new IOException("corrupt packed graph: varint out of range");
+                    return value;
+                }
+            }
+            throw new IOException("corrupt packed graph: varint too long");
+        }
+        
+        //Effects: reads the next length bytes into bytes[from..from+length-1]
+        void readBytes(byte[] bytes, int from, int length) throws IOException {
+            if(length > limit - position) throw new IOException("corrupt packed graph: label spans blocks");
+            
+            System.arraycopy(block, position, bytes, from, length);
+            position += length;
+        }
+        
+        //Effects: returns true iff. the current block is used up
+        boolean atEnd(){
+            return position == limit;
+        }
+    }
+}
@@ -0,0 +1,236 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package graph;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An implementation of Graph with O(1) snapshots.
+ *
+ * <p>The adjacency maps are persistent hash array mapped tries: a mutation never changes
+ * existing trie nodes, but copies only the nodes on the path to the entries it changes and
+ * shares the rest. {@link #snapshot()} therefore just hands out the current roots, and the
+ * snapshot and this graph can be read and changed independently afterwards.
+ *
+ * <p>Mutators must not be called concurrently on the same PersistentGraph, but snapshot() and
+ * the observers may be called from any thread, even while another thread mutates the graph;
+ * they always see the graph as it was between two mutations.
+ *
+ * @param <L> type of vertex labels in this graph, must be immutable
+ */
+public class PersistentGraph<L> implements IncrementableGraph<L> {
+    
+    private volatile Root<L> root;
+    
+    // Abstraction function:
+    //   represents the graph whose vertex set is the key set of root.targets, with an edge s --> t
+    //   of weight w for every s, t, w such that root.targets.get(s).get(t) == w
+    //   root.sources is a lookup aid only and carries no abstract state.
+    // Representation invariant:
+    //   root.targets and root.sources have the same key set
+    //   every key of an inner map is a key of root.targets, and every weight is > 0
+    //   root.targets.get(s).get(t) == w iff. root.sources.get(t).get(s) == w
+    //   Checking this takes O(V+E) time, which would defeat the purpose of path copying, so each
+    //   mutator checks only the edges it touched.
+    // Safety from rep exposure:
+    //   root is private. Root and PersistentMap objects are immutable and labels are immutable, so
+    //   sharing them with a snapshot cannot expose either graph to changes made through the other.
+    //   vertices(), sources() and targets() return freshly constructed HashSet/HashMap objects.
+    // Thread safety argument:
+    //   root is volatile and points to an immutable Root, and each mutator publishes its result
+    //   with a single write to root, so a reader that reads root once sees a consistent graph.
+    
+    /**
+     * Create an empty graph.
+     */
+    public PersistentGraph(){
+        this(new Root<L>(PersistentMap.<L, PersistentMap<L, Integer>>empty(),
+                PersistentMap.<L, PersistentMap<L, Integer>>empty()));
+    }
+    
+    private PersistentGraph(Root<L> root){
+        this.root = root;
+    }
+    
+    // asserts the rep invariant for the edge source --> target of r
+    private static <L> void checkEdge(Root<L> r, L source, L target){
+        final PersistentMap<L, Integer> out = r.targets.get(source);
+        final PersistentMap<L, Integer> in = r.sources.get(target);
+        final Integer weight = out == null ? null : out.get(target);
+        
+        assert (out == null) == (r.sources.get(source) == null);
+        assert (in == null) == (r.targets.get(target) == null);
+        assert weight == null || weight > 0;
+        assert weight == null ? in == null || in.get(source) == null : weight.equals(in.get(source));
+    }
+    
+    /**
+     * Get a snapshot of this graph in O(1) time. Later changes to this graph do not affect the
+     * snapshot, and changes to the snapshot do not affect this graph.
+     *
+     * @return a new PersistentGraph with the same vertices and edges as this graph
+     */
+    public PersistentGraph<L> snapshot(){
+        return new PersistentGraph<>(root);
+    }
+    
+    @Override public boolean add(L vertex) {
+        final Root<L> r = root;
+        if(r.targets.get(vertex) != null) return false;
+        
+        root = r.withVertex(vertex);
+        return true;
+    }
+    
+    @Override public int set(L source, L target, int weight) {
+        final Root<L> r = root;
+        final int prevWeight = r.weight(source, target);
+        
+        if(weight > 0 || prevWeight > 0){
+            root = r.withEdge(source, target, weight);
+            checkEdge(root, source, target);
+        }
+        return prevWeight;
+    }
+    
+    @Override public int increment(L source, L target, int delta) {
+        final Root<L> r = root;
+        final int weight = Math.addExact(r.weight(source, target), delta);
+        
+        if(weight < 0){
+            throw new IllegalArgumentException("edge weight would become negative: " + weight);
+        }
+        
+        set(source, target, weight);
+        return weight;
+    }
+    
+    @Override public boolean remove(L vertex) {
+        final Root<L> r = root;
+        final PersistentMap<L, Integer> out = r.targets.get(vertex);
+        final PersistentMap<L, Integer> in = r.sources.get(vertex);
+        if(out == null) return false;
+        
+        final Maps<L> maps = new Maps<>(r);
+        out.forEach((target, weight) -> {
+            maps.sources = maps.sources.with(target, maps.sources.get(target).without(vertex));
+        });
+        in.forEach((source, weight) -> {
+            maps.targets = maps.targets.with(source, maps.targets.get(source).without(vertex));
+        });
+        
+        root = new Root<>(maps.targets.without(vertex), maps.sources.without(vertex));
+        out.forEach((target, weight) -> checkEdge(root, vertex, target));
+        in.forEach((source, weight) -> checkEdge(root, source, vertex));
+        return true;
+    }
+    
+    @Override public Set<L> vertices() {
+        final Set<L> vertices = new HashSet<>();
+        root.targets.forEach((vertex, out) -> vertices.add(vertex));
+        return vertices;
+    }
+    
+    @Override public Map<L, Integer> sources(L target) {
+        return copy(root.sources.get(target));
+    }
+    
+    @Override public Map<L, Integer> targets(L source) {
+        return copy(root.targets.get(source));
+    }
+    
+    //Effects: returns a fresh HashMap with the entries of adjacent, or an empty one if adjacent is null
+    private static <L> Map<L, Integer> copy(PersistentMap<L, Integer> adjacent){
+        final Map<L, Integer> map = new HashMap<>();
+        if(adjacent != null) adjacent.forEach(map::put);
+        return map;
+    }
+    
+    /**
+     * Returns a string representation of this Graph. The representation is of form:
+     * "(V,E)" where V is a list of vertex labels of this graph ,in their string form, appearing exactly once in unspecified order and enclosed by "{}",
+     * and E is a list of all edges with same form and constraints. Each edge in E is of form "(tail, head, weight)".
+     *
+     *  @return a string representation of this graph
+     */
+    @Override public String toString() {
+        final StringBuilder vertexList = new StringBuilder();
+        final StringBuilder edgeList = new StringBuilder();
+        
+        root.targets.forEach((vertex, out) -> {
+            if(vertexList.length() > 0) vertexList.append(", ");
+            vertexList.append(vertex);
+            
+            out.forEach((target, weight) -> {
+                if(edgeList.length() > 0) edgeList.append(", ");
+                edgeList.append(String.format("(%s, %s, %s)", vertex, target, weight));
+            });
+        });
+        
+        return "({" + vertexList + "}, {" + edgeList + "})";
+    }
+    
+    /*
+     * An immutable pair of the out-edge and in-edge maps of a PersistentGraph, so that both can be
+     * replaced by one volatile write.
+     */
+    private static class Root<L> {
+        
+        private final PersistentMap<L, PersistentMap<L, Integer>> targets;
+        private final PersistentMap<L, PersistentMap<L, Integer>> sources;
+        
+        Root(PersistentMap<L, PersistentMap<L, Integer>> targets, PersistentMap<L, PersistentMap<L, Integer>> sources){
+            this.targets = targets;
+            this.sources = sources;
+        }
+        
+        //Effects: returns the weight of source --> target, or 0 if there is no such edge
+        int weight(L source, L target){
+            final PersistentMap<L, Integer> out = targets.get(source);
+            final Integer weight = out == null ? null : out.get(target);
+            return weight == null ? 0 : weight;
+        }
+        
+        //Requires: vertex is not a vertex of this
+        //Effects: returns this with vertex added
+        Root<L> withVertex(L vertex){
+            return new Root<>(targets.with(vertex, PersistentMap.<L, Integer>empty()),
+                    sources.with(vertex, PersistentMap.<L, Integer>empty()));
+        }
+        
+        //Effects: returns this with the weight of source --> target changed as specified by Graph.set()
+        Root<L> withEdge(L source, L target, int weight){
+            Root<L> r = this;
+            if(weight > 0){
+                if(r.targets.get(source) == null) r = r.withVertex(source);
+                if(r.targets.get(target) == null) r = r.withVertex(target);
+            }else if(r.targets.get(source) == null || r.targets.get(target) == null){
+                return r;
+            }
+            
+            final PersistentMap<L, Integer> out = r.targets.get(source);
+            final PersistentMap<L, Integer> in = r.sources.get(target);
+            return new Root<>(
+                    r.targets.with(source, weight > 0 ? out.with(target, weight) : out.without(target)),
+                    r.sources.with(target, weight > 0 ? in.with(source, weight) : in.without(source)));
+        }
+    }
+    
+    /*
+     * The adjacency maps of a Root while remove() rebuilds them, reassignable from its lambdas.
+     */
+    private static class Maps<L> {
+        
+        private PersistentMap<L, PersistentMap<L, Integer>> targets;
+        private PersistentMap<L, PersistentMap<L, Integer>> sources;
+        
+        Maps(Root<L> root){
+            this.targets = root.targets;
+            this.sources = root.sources;
+        }
+    }
+}
@@ -0,0 +1,310 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package graph;
+
+import java.util.Arrays;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * An immutable map from keys to values, implemented as a hash array mapped trie.
+ * with() and without() return a new map that shares all trie nodes with this one except those
+ * on the path to the changed entry, so they cost O(log32 n) time and space.
+ * Keys must be immutable and non-null; values must be non-null.
+ * Being immutable, a map can be shared freely between threads and between the reps of the
+ * graphs that use it, such as PersistentGraph and AppendableGraph.
+ */
+class PersistentMap<K, V> {
+    
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+    
+    private static final PersistentMap<Object, Object> EMPTY = new PersistentMap<>(null, 0);
+    
+    private final Node root;
+    private final int size;
+    
+    // Abstraction function:
+    //   represents the map containing the key/value pair of every Leaf reachable from root,
+    //   or the empty map if root is null
+    // Representation invariant:
+    //   size is the number of Leaf objects reachable from root
+    //   no two reachable Leaf objects have equal keys
+    //   a Leaf with hash h that is a child of a BitmapNode at depth d sits in the slot for
+    //   bits [BITS*d, BITS*d + BITS) of h; all Leaf objects in a CollisionNode have the same hash
+    // Safety from rep exposure:
+    //   All fields of all classes are private or package-private and final, and never reassigned
+    //   after construction; arrays are copied, never changed, when a node is updated.
+    
+    private PersistentMap(Node root, int size){
+        this.root = root;
+        this.size = size;
+    }
+    
+    /**
+     * @return the empty map
+     */
+    @SuppressWarnings("unchecked")
+    static <K, V> PersistentMap<K, V> empty(){
+        return (PersistentMap<K, V>) EMPTY;
+    }
+    
+    //Effects: returns a well-spread hash of key
+    private static int hash(Object key){
+        final int h = key.hashCode() * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+    
+    /**
+     * @return the number of entries in this map
+     */
+    int size(){
+        return size;
+    }
+    
+    /**
+     * @param key a key
+     * @return the value for key, or null if this map has no entry for key
+     */
+    @SuppressWarnings("unchecked")
+    V get(Object key){
+        if(root == null) return null;
+        
+        final Leaf leaf = root.find(key, hash(key), 0);
+        return leaf == null ? null : (V) leaf.value;
+    }
+    
+    /**
+     * @param key a key
+     * @param value a value
+     * @return a map with the entries of this map, except that key maps to value
+     */
+    PersistentMap<K, V> with(K key, V value){
+        final Leaf leaf = new Leaf(key, hash(key), value);
+        
+        if(root == null) return new PersistentMap<>(new BitmapNode(0, new Object[0]).with(leaf, 0), 1);
+        
+        final Node newRoot = root.with(leaf, 0);
+        if(newRoot == root) return this;
+        return new PersistentMap<>(newRoot, get(key) == null ? size + 1 : size);
+    }
+    
+    /**
+     * @param key a key
+     * @return a map with the entries of this map, except for any entry for key
+     */
+    PersistentMap<K, V> without(Object key){
+        if(root == null || get(key) == null) return this;
+        
+        final Node newRoot = root.without(key, hash(key), 0);
+        return newRoot == null ? empty() : new PersistentMap<>(newRoot, size - 1);
+    }
+    
+    /**
+     * Call action on every entry of this map, in unspecified order.
+     *
+     * @param action the action to call with each key and its value
+     */
+    @SuppressWarnings("unchecked")
+    void forEach(BiConsumer<? super K, ? super V> action){
+        if(root == null) return;
+        
+        root.forEach(leaf -> action.accept((K) leaf.key, (V) leaf.value));
+    }
+    
+    /*
+     * A key/value entry together with the spread hash of its key.
+     */
+    private static class Leaf {
+        final Object key;
+        final int hash;
+        final Object value;
+        
+        Leaf(Object key, int hash, Object value){
+            this.key = key;
+            this.hash = hash;
+            this.value = value;
+        }
+    }
+    
+    /*
+     * An immutable trie node.
+     */
+    private static abstract class Node {
+        
+        //Effects: returns the Leaf with the given key below this node at the given shift, or null
+        abstract Leaf find(Object key, int hash, int shift);
+        
+        //Effects: returns a node like this one but with leaf replacing any Leaf with an equal key,
+        //         or this node itself if it already holds an identical entry
+        abstract Node with(Leaf leaf, int shift);
+        
+        //Requires: this node holds a Leaf with key
+        //Effects: returns a node like this one without that Leaf, or null if no entries remain
+        abstract Node without(Object key, int hash, int shift);
+        
+        //Effects: calls action on every Leaf below this node
+        abstract void forEach(Consumer<Leaf> action);
+        
+        //Effects: returns a node at the given shift holding a and b, which have unequal keys
+        static Node merge(Leaf a, Leaf b, int shift){
+            if(a.hash == b.hash) return new CollisionNode(a.hash, new Leaf[] { a, b });
+            
+            final int ia = (a.hash >>> shift) & MASK;
+            final int ib = (b.hash >>> shift) & MASK;
+            if(ia == ib) return new BitmapNode(1 << ia, new Object[] { merge(a, b, shift + BITS) });
+            
+            return new BitmapNode((1 << ia) | (1 << ib), ia < ib ? new Object[] { a, b } : new Object[] { b, a });
+        }
+    }
+    
+    /*
+     * A node with up to 32 children, each a Leaf or a Node, selected by BITS bits of the hash.
+     * Bit i of bitmap is set iff. there is a child for hash bits i, and children are in bit order.
+     */
+    private static class BitmapNode extends Node {
+        private final int bitmap;
+        private final Object[] children;
+        
+        BitmapNode(int bitmap, Object[] children){
+            this.bitmap = bitmap;
+            this.children = children;
+        }
+        
+        @Override Leaf find(Object key, int hash, int shift){
+            final int bit = 1 << ((hash >>> shift) & MASK);
+            if((bitmap & bit) == 0) return null;
+            
+            final Object child = children[Integer.bitCount(bitmap & (bit - 1))];
+            if(child instanceof Leaf){
+                final Leaf leaf = (Leaf) child;
+                return leaf.hash == hash && leaf.key.equals(key) ? leaf : null;
+            }
+            return ((Node) child).find(key, hash, shift + BITS);
+        }
+        
+        @Override Node with(Leaf leaf, int shift){
+            final int bit = 1 << ((leaf.hash >>> shift) & MASK);
+            final int index = Integer.bitCount(bitmap & (bit - 1));
+            
+            if((bitmap & bit) == 0){
+                final Object[] copy = new Object[children.length + 1];
+                System.arraycopy(children, 0, copy, 0, index);
+                copy[index] = leaf;
+                System.arraycopy(children, index, copy, index + 1, children.length - index);
+                return new BitmapNode(bitmap | bit, copy);
+            }
+            
+            final Object child = children[index];
+            final Object newChild;
+            if(child instanceof Leaf){
+                final Leaf old = (Leaf) child;
+                if(old.hash == leaf.hash && old.key.equals(leaf.key)){
+                    if(old.value == leaf.value) return this;
+                    newChild = leaf;
+                }else{
+                    newChild = merge(old, leaf, shift + BITS);
+                }
+            }else{
+                newChild = ((Node) child).with(leaf, shift + BITS);
+                if(newChild == child) return this;
+            }
+            
+            final Object[] copy = children.clone();
+            copy[index] = newChild;
+            return new BitmapNode(bitmap, copy);
+        }
+        
+        @Override Node without(Object key, int hash, int shift){
+            final int bit = 1 << ((hash >>> shift) & MASK);
+            final int index = Integer.bitCount(bitmap & (bit - 1));
+            final Object child = children[index];
+            final Object newChild = child instanceof Leaf ? null : ((Node) child).without(key, hash, shift + BITS);
+            
+            if(newChild == null){
+                if(children.length == 1) return null;
+                
+                final Object[] copy = new Object[children.length - 1];
+                System.arraycopy(children, 0, copy, 0, index);
+                System.arraycopy(children, index + 1, copy, index, children.length - index - 1);
+                return new BitmapNode(bitmap & ~bit, copy);
+            }
+            
+            final Object[] copy = children.clone();
+            copy[index] = newChild;
+            return new BitmapNode(bitmap, copy);
+        }
+        
+        @Override void forEach(Consumer<Leaf> action){
+            for(Object child : children){
+                if(child instanceof Leaf){
+                    action.accept((Leaf) child);
+                }else{
+                    ((Node) child).forEach(action);
+                }
+            }
+        }
+    }
+    
+    /*
+     * A node holding Leaf objects whose keys all have the same hash.
+     */
+    private static class CollisionNode extends Node {
+        private final int hash;
+        private final Leaf[] leaves;
+        
+        CollisionNode(int hash, Leaf[] leaves){
+            this.hash = hash;
+            this.leaves = leaves;
+        }
+        
+        @Override Leaf find(Object key, int hash, int shift){
+            if(hash != this.hash) return null;
+            
+            for(Leaf leaf : leaves){
+                if(leaf.key.equals(key)) return leaf;
+            }
+            return null;
+        }
+        
+        @Override Node with(Leaf leaf, int shift){
+            if(leaf.hash != hash){
+                // the new key only shares a prefix of the hash; push this node one level down
+                final BitmapNode parent = new BitmapNode(1 << ((hash >>> shift) & MASK), new Object[] { this });
+                return parent.with(leaf, shift);
+            }
+            
+            for(int i = 0; i < leaves.length; i++){
+                if(leaves[i].key.equals(leaf.key)){
+                    if(leaves[i].value == leaf.value) return this;
+                    
+                    final Leaf[] copy = leaves.clone();
+                    copy[i] = leaf;
+                    return new CollisionNode(hash, copy);
+                }
+            }
+            
+            final Leaf[] copy = Arrays.copyOf(leaves, leaves.length + 1);
+            copy[leaves.length] = leaf;
+            return new CollisionNode(hash, copy);
+        }
+        
+        @Override Node without(Object key, int hash, int shift){
+            if(leaves.length == 1) return null;
+            
+            final Leaf[] copy = new Leaf[leaves.length - 1];
+            int k = 0;
+            for(Leaf leaf : leaves){
+                if(!leaf.key.equals(key)) copy[k++] = leaf;
+            }
+            return new CollisionNode(hash, copy);
+        }
+        
+        @Override void forEach(Consumer<Leaf> action){
+            for(Leaf leaf : leaves){
+                action.accept(leaf);
+            }
+        }
+    }
+}
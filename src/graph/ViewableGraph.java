@@ -0,0 +1,52 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package graph;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A Graph that can also answer vertices(), sources() and targets() with unmodifiable
+ * views of its rep instead of fresh copies. The views cost O(1) to create regardless of
+ * vertex degree, which suits read-heavy callers that only inspect the result.
+ *
+ * <p>A view reflects later changes to the graph (for an immutable graph it is simply a
+ * snapshot that is never copied). Any attempt to modify a view throws
+ * UnsupportedOperationException. Callers that need to modify or keep the result across
+ * changes to the graph should use the copying methods of Graph.
+ *
+ * @param <L> type of vertex labels in this graph, must be immutable
+ */
+public interface ViewableGraph<L> extends Graph<L> {
+    
+    /**
+     * Get an unmodifiable view of the vertices in this graph.
+     *
+     * @return a live, unmodifiable view of the set of labels of vertices in this graph
+     */
+    public Set<L> vertexView();
+    
+    /**
+     * Get an unmodifiable view of the source vertices with directed edges to a target vertex
+     * and the weights of those edges.
+     *
+     * @param target a label
+     * @return an unmodifiable view with the same contents as sources(target); if target is in
+     *         this graph, the view is live for as long as target remains in this graph,
+     *         otherwise it is an empty map that does not reflect later changes
+     */
+    public Map<L, Integer> sourcesView(L target);
+    
+    /**
+     * Get an unmodifiable view of the target vertices with directed edges from a source vertex
+     * and the weights of those edges.
+     *
+     * @param source a label
+     * @return an unmodifiable view with the same contents as targets(source); if source is in
+     *         this graph, the view is live for as long as source remains in this graph,
+     *         otherwise it is an empty map that does not reflect later changes
+     */
+    public Map<L, Integer> targetsView(L source);
+
+}
@@ -0,0 +1,442 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package poet;
+
+import java.util.HashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BinaryOperator;
+
+/**
+ * A bounded, thread-safe cache of the bridge words of a GraphPoet, keyed by the pair of lower
+ * case input words. Pairs with no bridge word are cached too, as the empty string.
+ *
+ * <p>The cache is split into segments by the hash of the pair, each with its own lock, and
+ * evicts by one of two policies:
+ * <ul><li> LRU evicts the least recently used pair.
+ *     <li> TINY_LFU (W-TinyLFU) admits new pairs through a small LRU window, about 1% of the
+ *          capacity, into a main area split into probation and protected LRU queues. A pair
+ *          leaving the window displaces the oldest pair on probation only if it has been
+ *          requested more often recently, as estimated by a count-min sketch of 4-bit counters
+ *          that are halved periodically. This keeps frequent pairs cached through bursts of
+ *          pairs that are requested once, which is better suited to skewed traffic than LRU. </ul>
+ *
+ * <p>Every lookup names the graph it is for, and a segment that sees a different graph from
+ * the one its entries were computed from discards them, so a cache never returns a bridge word
+ * of a graph other than the one asked about.
+ */
+public class BridgeCache {
+    
+    /** Eviction policy of a cache. */
+    public enum Policy { LRU, TINY_LFU }
+    
+    private static final int MAX_SEGMENTS = 16;
+    private static final int MIN_SEGMENT_CAPACITY = 64;
+    
+    private final int capacity;
+    private final Policy policy;
+    private final Segment[] segments;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    
+    // Abstraction function:
+    //   represents a cache of at most capacity entries under policy, whose entries are those of all
+    //   segments, and which has answered hits, misses and made evictions so far
+    // Representation invariant:
+    //   capacity >= 0; segments.length is a power of two, and is 1 if capacity == 0
+    //   the capacities of the segments add up to at least capacity, and to less than capacity + segments.length
+    //   each key "w1 w2" is in the segment segments[segmentOf("w1 w2")]
+    // Safety from rep exposure:
+    //   All fields are private and final, and none is passed in or returned. Keys and values are
+    //   immutable strings.
+    // Thread safety argument:
+    //   capacity, policy and segments are final and never change after construction. hits, misses
+    //   and evictions are thread-safe LongAdders. Every access to a segment's state holds its lock.
+    
+    /**
+     * Create an empty cache.
+     *
+     * @param capacity the most pairs to keep; 0 disables caching, so that every lookup misses
+     * @param policy eviction policy
+     * @throws IllegalArgumentException if capacity is negative
+     */
+    public BridgeCache(int capacity, Policy policy){
+        if(capacity < 0){
+            throw new IllegalArgumentException("capacity must not be negative: " + capacity);
+        }
+        
+        int segmentCount = 1;
+        while(segmentCount < MAX_SEGMENTS && segmentCount * 2 * MIN_SEGMENT_CAPACITY <= capacity){
+            segmentCount <<= 1;
+        }
+        
+        this.capacity = capacity;
+        this.policy = policy;
+        this.segments = new Segment[segmentCount];
+        for(int i = 0; i < segmentCount; i++){
+            final int segmentCapacity = capacity / segmentCount + (i < capacity % segmentCount ? 1 : 0);
+            segments[i] = new Segment(segmentCapacity, policy);
+        }
+        checkRep();
+    }
+    
+    private void checkRep(){
+        assert capacity >= 0;
+        assert Integer.bitCount(segments.length) == 1;
+        assert capacity > 0 || segments.length == 1;
+    }
+    
+    //Effects: returns the index of the segment holding key
+    private int segmentOf(String key){
+        final int h = key.hashCode() * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & (segments.length - 1);
+    }
+    
+    /**
+     * Find the bridge word between two words, from the cache or else by computing and caching it.
+     *
+     * @param graph the graph the bridge word is for; entries cached for any other graph are discarded
+     * @param w1 first word, non-empty lower case without white space
+     * @param w2 second word, non-empty lower case without white space
+     * @param compute returns the bridge word between its arguments in graph, or "" if none
+     * @return compute.apply(w1, w2), possibly from an earlier call
+     */
+    String bridge(Object graph, String w1, String w2, BinaryOperator<String> compute){
+        if(capacity == 0){
+            misses.increment();
+            return compute.apply(w1, w2);
+        }
+        
+        final String key = w1 + ' ' + w2;
+        final Segment segment = segments[segmentOf(key)];
+        final String cached = segment.get(graph, key);
+        
+        if(cached != null){
+            hits.increment();
+            return cached;
+        }
+        misses.increment();
+        
+        final String bridge = compute.apply(w1, w2);
+        evictions.add(segment.put(graph, key, bridge));
+        return bridge;
+    }
+    
+    /**
+     * @return the most pairs this cache keeps
+     */
+    public int capacity(){
+        return capacity;
+    }
+    
+    /**
+     * @return the eviction policy of this cache
+     */
+    public Policy policy(){
+        return policy;
+    }
+    
+    /**
+     * @return the number of pairs cached now
+     */
+    public int size(){
+        int size = 0;
+        for(Segment segment : segments){
+            size += segment.size();
+        }
+        return size;
+    }
+    
+    /**
+     * @return the number of lookups answered from this cache so far
+     */
+    public long hitCount(){
+        return hits.sum();
+    }
+    
+    /**
+     * @return the number of lookups that had to compute their bridge word so far
+     */
+    public long missCount(){
+        return misses.sum();
+    }
+    
+    /**
+     * @return the number of pairs evicted to make room for others so far
+     */
+    public long evictionCount(){
+        return evictions.sum();
+    }
+    
+    /**
+     * @return hitCount() / (hitCount() + missCount()), or 0 if there have been no lookups
+     */
+    public double hitRate(){
+        final long hitCount = hitCount();
+        final long lookups = hitCount + missCount();
+        return lookups == 0 ? 0 : (double) hitCount / lookups;
+    }
+    
+    @Override public String toString() {
+        return "BridgeCache(" + policy + ", " + size() + "/" + capacity + " pairs, " + hitCount() + " hits, "
+                + missCount() + " misses, " + evictionCount() + " evictions)";
+    }
+    
+    /*
+     * One segment of a cache: a map from keys to nodes that are linked into a window queue and,
+     * under TINY_LFU, probation and protected queues. Each queue is a circular doubly-linked list
+     * through a sentinel, ordered from least to most recently used. Under LRU the window is the
+     * whole segment.
+     */
+    private static class Segment {
+        
+        private static final byte WINDOW = 0;
+        private static final byte PROBATION = 1;
+        private static final byte PROTECTED = 2;
+        
+        private final ReentrantLock lock = new ReentrantLock();
+        private final HashMap<String, Node> nodes = new HashMap<>();
+        private final Node[] queues = { new Node(), new Node(), new Node() };
+        private final int[] queueSizes = new int[3];
+        private final int windowCapacity;
+        private final int mainCapacity;
+        private final int protectedCapacity;
+        private final FrequencySketch sketch;
+        private Object graph;
+        
+        // Representation invariant:
+        //   the nodes linked into the three queues are exactly the values of nodes, each in the queue
+        //     named by its queue field, and queueSizes counts them
+        //   queueSizes[WINDOW] <= windowCapacity, queueSizes[PROTECTED] <= protectedCapacity,
+        //     queueSizes[PROBATION] + queueSizes[PROTECTED] <= mainCapacity
+        //   under LRU, mainCapacity == 0 and sketch == null
+        //   every entry was computed for graph
+        // Thread safety argument:
+        //   every field other than the final configuration is accessed only while holding lock
+        
+        Segment(int capacity, Policy policy){
+            if(policy == Policy.LRU){
+                windowCapacity = capacity;
+                mainCapacity = 0;
+                sketch = null;
+            }else{
+                windowCapacity = Math.max(1, capacity / 100);
+                mainCapacity = capacity - windowCapacity;
+                sketch = new FrequencySketch(capacity);
+            }
+            protectedCapacity = mainCapacity * 4 / 5;
+        }
+        
+        //Effects: returns the value cached for key in graph, or null if there is none, counting the
+        //         request in the frequency sketch
+        String get(Object graph, String key){
+            lock.lock();
+            try{
+                if(graph != this.graph){
+                    clear();
+                    this.graph = graph;
+                }
+                if(sketch != null) sketch.increment(key.hashCode());
+                
+                final Node node = nodes.get(key);
+                if(node == null) return null;
+                
+                touch(node);
+                return node.value;
+            }finally{
+                lock.unlock();
+            }
+        }
+        
+        //Effects: caches value for key if this segment still holds entries for graph, evicting as
+        //         needed; returns the number of entries evicted
+        int put(Object graph, String key, String value){
+            lock.lock();
+            try{
+                if(graph != this.graph || nodes.containsKey(key)) return 0;
+                
+                final Node node = new Node(key, value);
+                nodes.put(key, node);
+                link(node, WINDOW);
+                final int evicted = queueSizes[WINDOW] > windowCapacity ? admit(first(WINDOW)) : 0;
+                
+                checkRep();
+                return evicted;
+            }finally{
+                lock.unlock();
+            }
+        }
+        
+        //Effects: returns the number of entries
+        int size(){
+            lock.lock();
+            try{
+                return nodes.size();
+            }finally{
+                lock.unlock();
+            }
+        }
+        
+        private void checkRep(){
+            assert queueSizes[WINDOW] <= windowCapacity;
+            assert queueSizes[PROTECTED] <= protectedCapacity;
+            assert queueSizes[PROBATION] + queueSizes[PROTECTED] <= mainCapacity;
+            assert queueSizes[WINDOW] + queueSizes[PROBATION] + queueSizes[PROTECTED] == nodes.size();
+        }
+        
+        //Effects: moves node, which was just requested, to where its queue's policy puts it
+        private void touch(Node node){
+            unlink(node);
+            if(node.queue == PROBATION){
+                link(node, PROTECTED);
+                if(queueSizes[PROTECTED] > protectedCapacity){
+                    final Node demoted = first(PROTECTED);
+                    unlink(demoted);
+                    link(demoted, PROBATION);
+                }
+            }else{
+                link(node, node.queue);
+            }
+        }
+        
+        //Requires: candidate to be the least recently used node of the window, which is over capacity
+        //Effects: moves candidate to probation if the main area has room or candidate is requested
+        //         more often than the pair it would displace, evicting the loser; returns the number
+        //         of entries evicted
+        private int admit(Node candidate){
+            unlink(candidate);
+            if(mainCapacity == 0){
+                nodes.remove(candidate.key);
+                return 1;
+            }
+            
+            link(candidate, PROBATION);
+            if(queueSizes[PROBATION] + queueSizes[PROTECTED] <= mainCapacity) return 0;
+            
+            Node victim = first(PROBATION);
+            if(victim == candidate && queueSizes[PROTECTED] > 0) victim = first(PROTECTED);
+            
+            final Node evicted = sketch.frequency(candidate.key.hashCode()) > sketch.frequency(victim.key.hashCode())
+                    ? victim : candidate;
+            unlink(evicted);
+            nodes.remove(evicted.key);
+            return 1;
+        }
+        
+        //Effects: discards every entry
+        private void clear(){
+            nodes.clear();
+            for(int q = 0; q < queues.length; q++){
+                queues[q].prev = queues[q];
+                queues[q].next = queues[q];
+                queueSizes[q] = 0;
+            }
+        }
+        
+        //Effects: returns the least recently used node of a nonempty queue
+        private Node first(byte queue){
+            return queues[queue].next;
+        }
+        
+        //Effects: links node into queue as its most recently used node
+        private void link(Node node, byte queue){
+            final Node sentinel = queues[queue];
+            node.queue = queue;
+            node.prev = sentinel.prev;
+            node.next = sentinel;
+            sentinel.prev.next = node;
+            sentinel.prev = node;
+            queueSizes[queue]++;
+        }
+        
+        //Effects: unlinks node from its queue
+        private void unlink(Node node){
+            node.prev.next = node.next;
+            node.next.prev = node.prev;
+            queueSizes[node.queue]--;
+        }
+    }
+    
+    /*
+     * A cache entry, or the sentinel of a queue.
+     */
+    private static class Node {
+        
+        private final String key;
+        private final String value;
+        private byte queue;
+        private Node prev = this;
+        private Node next = this;
+        
+        Node(){
+            this(null, null);
+        }
+        
+        Node(String key, String value){
+            this.key = key;
+            this.value = value;
+        }
+    }
+    
+    /*
+     * A count-min sketch estimating how often each hash has been counted recently: four 4-bit
+     * counters per hash, packed sixteen to a long. Every 10 * capacity counts, every counter is
+     * halved, so that old popularity fades.
+     */
+    private static class FrequencySketch {
+        
+        private static final long[] SEEDS = {
+            0x97CB3127L, 0xC2B2AE3DL, 0x27D4EB2FL, 0x165667B1L
+        };
+        private static final long HALF_MASK = 0x7777777777777777L;
+        
+        private final long[] table;
+        private final int sampleSize;
+        private int additions = 0;
+        
+        FrequencySketch(int capacity){
+            int length = 1;
+            while(length < Math.max(1, capacity / 4)){
+                length <<= 1;
+            }
+            table = new long[length];
+            sampleSize = 10 * Math.max(1, capacity);
+        }
+        
+        //Effects: returns the index of the counter of hash in row, as a counter index into table
+        private int counter(int hash, int row){
+            long h = (hash + SEEDS[row]) * SEEDS[row];
+            h += h >>> 32;
+            return (int) (h & (16L * table.length - 1));
+        }
+        
+        //Effects: returns the estimated recent count of hash, 0 to 15
+        int frequency(int hash){
+            int frequency = 15;
+            for(int row = 0; row < SEEDS.length; row++){
+                final int c = counter(hash, row);
+                frequency = Math.min(frequency, (int) (table[c >>> 4] >>> ((c & 15) << 2)) & 15);
+            }
+            return frequency;
+        }
+        
+        //Effects: counts hash once, halving every counter if this is the sampleSize'th count
+        void increment(int hash){
+            for(int row = 0; row < SEEDS.length; row++){
+                final int c = counter(hash, row);
+                final int shift = (c & 15) << 2;
+                if(((table[c >>> 4] >>> shift) & 15) != 15){
+                    table[c >>> 4] += 1L << shift;
+                }
+            }
+            if(++additions == sampleSize){
+                for(int i = 0; i < table.length; i++){
+                    table[i] = (table[i] >>> 1) & HALF_MASK;
+                }
+                additions /= 2;
+            }
+        }
+    }
+}
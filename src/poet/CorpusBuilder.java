@@ -0,0 +1,172 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package poet;
+
+import graph.AppendableGraph;
+import graph.GraphBuilder;
+import graph.IndexedGraph;
+
+/**
+ * CorpusBuilder accumulates the word affinity graph of a corpus together with its
+ * CorpusInvariants, so that the graph and its summary can be built without another pass.
+ * GraphPoet and every ingestion path of this package build their corpora through it.
+ */
+class CorpusBuilder {
+    
+    private final GraphBuilder<String> graph;
+    private final AppendableGraph.Appender<String> appender;
+    private final CorpusInvariants invariants;
+    private int last;
+    private int documents;
+    private boolean documentEnded;
+    
+    // Abstraction function:
+    //   represents the graph staged in graph, or in appender if graph is null, of a corpus of
+    //   documents documents read so far, and the word with id last as the last word read, if
+    //   last >= 0, which the next word read follows unless documentEnded; invariants carries no
+    //   abstract state
+    // Representation invariant:
+    //   exactly one of graph and appender is null
+    //   invariants has exactly the vertices and edges of the staged graph, with the same ids
+    //   last == -1 or last < the number of vertices of the staged graph
+    //   documents >= 0
+    // Safety from rep exposure:
+    //   All fields are private. build() returns a new immutable graph. invariants() returns the
+    //   invariants, which the caller takes over, since the builder is not used afterwards.
+    
+    /**
+     * Create a builder with no vertices and no edges.
+     */
+    CorpusBuilder(){
+        this(new GraphBuilder<>());
+    }
+    
+    /**
+     * Create a builder with no vertices and no edges that stages its graph in a given builder.
+     * 
+     * @param graph builder with no vertices, not used by the caller afterwards; build() returns
+     *        what its build() returns, so an off-heap GraphBuilder gives an off-heap graph
+     */
+    CorpusBuilder(GraphBuilder<String> graph){
+        this.graph = graph;
+        this.appender = null;
+        this.invariants = new CorpusInvariants();
+        this.last = -1;
+        this.documents = 0;
+        this.documentEnded = false;
+    }
+    
+    /**
+     * Create a builder that extends an existing graph.
+     * 
+     * @param appender appender of the graph to extend
+     * @param invariants invariants to which exactly the vertices and edges of that graph have been added
+     * @param last id of the last word of the corpus of that graph, or -1 if it has no words
+     * @param documents number of documents in the corpus of that graph
+     */
+    CorpusBuilder(AppendableGraph.Appender<String> appender, CorpusInvariants invariants, int last, int documents){
+        this.graph = null;
+        this.appender = appender;
+        this.invariants = invariants;
+        this.last = last;
+        this.documents = documents;
+        this.documentEnded = false;
+    }
+    
+    /**
+     * Add a vertex if it is new.
+     * 
+     * @param vertex a word, in lower case
+     * @return the id of vertex
+     */
+    int addVertex(String vertex){
+        final int id = graph != null ? graph.add(vertex) : appender.add(vertex);
+        
+        if(id == invariants.vertexCount()) invariants.addVertex(vertex);
+        return id;
+    }
+    
+    /**
+     * Add to the weight of an edge.
+     * 
+     * @param source id of the source vertex, as returned by addVertex()
+     * @param target id of the target vertex, as returned by addVertex()
+     * @param weight positive amount to add to the weight of the edge
+     */
+    void addEdge(int source, int target, int weight){
+        if(graph != null) graph.addById(source, target, weight);
+        else appender.addById(source, target, weight);
+        invariants.addEdge(source, target, weight);
+    }
+    
+    /**
+     * Read the next word of the corpus: add the bigram from the last word read by follow(), if
+     * any, to it; or count a new document, if this is its first word.
+     * 
+     * @param id id of the word, as returned by addVertex()
+     */
+    void follow(int id){
+        if(last >= 0 && !documentEnded) addEdge(last, id, 1);
+        else documents++;
+        last = id;
+        documentEnded = false;
+    }
+    
+    /**
+     * Read a run of words whose bigrams have already been added: add the bigram from the last
+     * word read, if any, to the first word of the run, which makes the last word of the run the
+     * last word read.
+     * 
+     * @param first id of the first word of the run, as returned by addVertex()
+     * @param runLast id of the last word of the run, as returned by addVertex()
+     */
+    void followRun(int first, int runLast){
+        follow(first);
+        last = runLast;
+    }
+    
+    /**
+     * End the current document: the next word read, if any, starts a new one, and follows no word.
+     */
+    void endDocument(){
+        documentEnded = true;
+    }
+    
+    /**
+     * @return the id of the last word read, or -1 if none has been read
+     */
+    int last(){
+        return last;
+    }
+    
+    /**
+     * @return the graph with the vertices and edges added so far
+     */
+    IndexedGraph<String> build(){
+        return graph != null ? graph.build() : appender.build();
+    }
+    
+    /**
+     * @return true iff. this builder stages its graph in an off-heap GraphBuilder, so it should
+     *         be given words in small pieces whose counts take little heap
+     */
+    boolean isOffHeap(){
+        return graph != null && graph.isOffHeap();
+    }
+    
+    /**
+     * @return the summary of the graph with the vertices and edges added so far
+     */
+    CorpusSummary summary(){
+        return invariants.summary(documents);
+    }
+    
+    /**
+     * @return the invariants of the graph with the vertices and edges added so far; this builder
+     *         must not be used afterwards
+     */
+    CorpusInvariants invariants(){
+        return invariants;
+    }
+}
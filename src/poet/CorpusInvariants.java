@@ -0,0 +1,161 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package poet;
+
+import java.util.Arrays;
+
+import graph.DisjointSets;
+import graph.IndexedGraph;
+
+/**
+ * CorpusInvariants is a mutable summary of a growing word affinity graph, from which the
+ * invariants of GraphPoet can be read in O(1) time. Vertices are numbered densely from zero in
+ * the order they are added, and edges may be added in several parts whose weights add up.
+ * Adding a vertex costs O(length of its label) time, and adding an edge O(&alpha;(V)).
+ * 
+ * <p>The number of walks of the graph is the fewest walks that together traverse each edge
+ * exactly its weight times and visit every vertex. A weakly connected component needs as many
+ * walks as the sum over its vertices of their out-weight minus their in-weight, where that is
+ * positive, since a walk must start at each such unit; or one walk if that sum is zero, when its
+ * edges form a closed walk or it is a single vertex. A corpus of d documents, each read as one
+ * walk, has a graph with at most d walks, and the graph of a corpus of one document has one walk
+ * iff. it is weakly connected and has a weighted Eulerian path.
+ * GraphPoet also keeps one after construction, so that append() can update its summary.
+ */
+class CorpusInvariants {
+    
+    private final DisjointSets components = new DisjointSets();
+    private int[] netFlow = new int[16];
+    private int[] starts = new int[16];
+    private long walks = 0;
+    private boolean labelsValid = true;
+    
+    // Abstraction function:
+    //   represents the graph on vertices 0..components.size()-1 whose weakly connected components
+    //   are the sets of components, in which vertex v has in-weight minus out-weight netFlow[v],
+    //   and all of whose labels are valid GraphPoet words iff. labelsValid
+    // Representation invariant:
+    //   netFlow.length == starts.length >= components.size(), and netFlow[v] == 0 for v >= components.size()
+    //   for each root r of components, starts[r] is the sum of max(0, -netFlow[v]) over the vertices
+    //   v of its set
+    //   walks is the sum of max(1, starts[r]) over the roots r of components
+    // Safety from rep exposure:
+    //   All fields are private, and the arrays are never passed in or returned.
+    
+    /**
+     * Summarize an existing graph, in O(V+E) time.
+     * 
+     * @param graph a graph
+     * @return invariants to which every vertex and edge of graph has been added, in id order
+     */
+    static CorpusInvariants of(IndexedGraph<String> graph){
+        final CorpusInvariants invariants = new CorpusInvariants();
+        
+        for(int i = 0; i < graph.vertexCount(); i++){
+            invariants.addVertex(graph.labelOf(i));
+        }
+        for(int i = 0; i < graph.vertexCount(); i++){
+            for(int k = 0; k < graph.outDegree(i); k++){
+                invariants.addEdge(i, graph.target(i, k), graph.targetWeight(i, k));
+            }
+        }
+        return invariants;
+    }
+    
+    /**
+     * @return the number of vertices added
+     */
+    int vertexCount(){
+        return components.size();
+    }
+    
+    /**
+     * Add a vertex with no edges.
+     * 
+     * @param label label of the new vertex, whose id is vertexCount() before the call
+     */
+    void addVertex(String label){
+        if(components.size() == netFlow.length){
+            netFlow = Arrays.copyOf(netFlow, 2 * netFlow.length);
+            starts = Arrays.copyOf(starts, 2 * starts.length);
+        }
+        components.add();
+        walks++;
+        labelsValid = labelsValid && !label.isEmpty() && label.equals(label.toLowerCase()) && !containsWhitespace(label);
+    }
+    
+    //Effects: returns true iff. s contains a white space character
+    static boolean containsWhitespace(String s){
+        for(int i = 0; i < s.length(); i++){
+            if(Character.isWhitespace(s.charAt(i))) return true;
+        }
+        return false;
+    }
+    
+    /**
+     * Add to the weight of an edge.
+     * 
+     * @param source id of the source vertex
+     * @param target id of the target vertex
+     * @param weight positive amount to add to the weight of the edge
+     */
+    void addEdge(int source, int target, int weight){
+        union(source, target);
+        changeNetFlow(source, -weight);
+        changeNetFlow(target, +weight);
+    }
+    
+    //Effects: merges the components of u and v, keeping starts and walks up to date
+    private void union(int u, int v){
+        final int ru = components.find(u);
+        final int rv = components.find(v);
+        if(ru == rv) return;
+        
+        final int merged = starts[ru] + starts[rv];
+        walks -= walksOf(ru) + walksOf(rv);
+        components.union(ru, rv);
+        final int root = components.find(ru);
+        starts[root] = merged;
+        walks += walksOf(root);
+    }
+    
+    //Effects: adds delta to netFlow[vertex], keeping starts and walks up to date
+    private void changeNetFlow(int vertex, int delta){
+        final int before = Math.max(0, -netFlow[vertex]);
+        netFlow[vertex] += delta;
+        final int after = Math.max(0, -netFlow[vertex]);
+        if(after == before) return;
+        
+        final int root = components.find(vertex);
+        walks -= walksOf(root);
+        starts[root] += after - before;
+        walks += walksOf(root);
+    }
+    
+    //Effects: returns the number of walks the component with the given root needs
+    private int walksOf(int root){
+        return Math.max(1, starts[root]);
+    }
+    
+    /**
+     * @return a vertex at which a walk of the graph can end, if it has one: a vertex with more
+     *         in-weight than out-weight if there is one, which for a graph with a weighted Eulerian
+     *         path is the vertex with one more unit, else vertex 0, on which every walk of its
+     *         component ends if it is closed; or -1 if the graph has no vertices
+     */
+    int endVertex(){
+        for(int v = 0; v < vertexCount(); v++){
+            if(netFlow[v] > 0) return v;
+        }
+        return vertexCount() > 0 ? 0 : -1;
+    }
+    
+    /**
+     * @param documents number of documents in the corpus of the graph
+     * @return the summary of the graph as it is now, as the graph of a corpus of that many documents
+     */
+    CorpusSummary summary(int documents){
+        return new CorpusSummary(vertexCount(), labelsValid, walks, documents);
+    }
+}
@@ -0,0 +1,73 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package poet;
+
+import graph.IndexedGraph;
+
+/**
+ * CorpusSummary is an immutable record of whether a word affinity graph satisfies each of the
+ * invariants of GraphPoet, as computed by CorpusInvariants: whether its labels are valid words,
+ * and how many walks it needs (see CorpusInvariants) compared to the documents of its corpus.
+ * GraphPoet keeps one in its rep and writes it into the metadata of the graph files it saves.
+ */
+class CorpusSummary {
+    
+    private static final int LABELS_VALID = 1;
+    
+    private final int vertexCount;
+    private final boolean labelsValid;
+    private final long walks;
+    private final int documents;
+    
+    // Abstraction function:
+    //   represents the summary of a graph with vertexCount vertices, all of whose labels are valid
+    //   GraphPoet words iff. labelsValid, which needs walks walks, and whose corpus has documents
+    //   documents
+    // Representation invariant:
+    //   vertexCount >= 0, walks >= 0, documents >= 0
+    // Safety from rep exposure:
+    //   All fields are private, final and immutable.
+    
+    CorpusSummary(int vertexCount, boolean labelsValid, long walks, int documents){
+        this.vertexCount = vertexCount;
+        this.labelsValid = labelsValid;
+        this.walks = walks;
+        this.documents = documents;
+    }
+    
+    /**
+     * @param ints integers produced by toInts()
+     * @return the summary that produced ints, or null if ints is not the result of toInts()
+     */
+    static CorpusSummary fromInts(int[] ints){
+        if(ints.length != 4 || ints[0] < 0 || (ints[1] & ~LABELS_VALID) != 0 || ints[2] < 0 || ints[3] < 0){
+            return null;
+        }
+        return new CorpusSummary(ints[0], ints[1] == LABELS_VALID, ints[2], ints[3]);
+    }
+    
+    /**
+     * @return an encoding of this summary as integers, decoded by fromInts()
+     */
+    int[] toInts(){
+        return new int[] { vertexCount, labelsValid ? LABELS_VALID : 0, (int) Math.min(Integer.MAX_VALUE, walks), documents };
+    }
+    
+    /**
+     * @return the number of documents in the corpus of the graph
+     */
+    int documents(){
+        return documents;
+    }
+    
+    /**
+     * @param graph a graph
+     * @return true iff. this summary is of a graph of graph's size that satisfies every invariant
+     *         of GraphPoet: its labels are valid, and it needs no more walks than its corpus has
+     *         documents
+     */
+    boolean certifies(IndexedGraph<String> graph){
+        return vertexCount == graph.vertexCount() && labelsValid && walks <= documents;
+    }
+}
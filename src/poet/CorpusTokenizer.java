@@ -0,0 +1,354 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package poet;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+import java.util.function.ToIntFunction;
+
+/**
+ * Splits the bytes of a corpus into words, without decoding the text or creating a String per
+ * word.
+ *
+ * <p>Words are delimited by white space as Character.isWhitespace() defines it, like Scanner
+ * delimits them. ASCII white space is recognized byte by byte; a non-ASCII character is decoded
+ * only to check whether it is white space, and only in UTF-8, since ISO-8859-1 has no non-ASCII
+ * white space. Each word is copied into a scratch buffer with its ASCII letters lowercased on the
+ * way, and looked up by its bytes in a table of the words seen so far, which maps it to its
+ * vertex id. Only a word not seen before is decoded into a String, lowercased by
+ * String.toLowerCase() (which agrees with the byte folding for ASCII words) and interned into the
+ * graph; the table then remembers its bytes. Two spellings that differ in the case of non-ASCII
+ * letters are two table entries with the same id.
+ *
+ * <p>If String.toLowerCase() does not lowercase the ASCII letters as ASCII in the default locale,
+ * as in Turkish, no bytes are folded and the table is keyed by each spelling as it appears.
+ * This class is internal to the rep of GraphPoet.
+ */
+class CorpusTokenizer {
+    
+    /** Bytes mapped at a time, so that windows of huge files fit in a MappedByteBuffer. */
+    private static final long WINDOW_BYTES = 1L << 30;
+    
+    private static final int SCAN_BYTES = 1 << 12;
+    private static final int MIN_CAPACITY = 1 << 10;
+    private static final boolean ASCII_FOLDS = asciiFolds();
+    
+    private final Charset charset;
+    private final boolean utf8;
+    private final ToIntFunction<String> intern;
+    private final IntConsumer sink;
+    
+    private byte[] word = new byte[64];
+    private int wordLength = 0;
+    private int wordHash = 0;
+    private boolean wordAscii = true;
+    
+    private int[] slots = new int[2 * MIN_CAPACITY];
+    private int[] hashes = new int[MIN_CAPACITY];
+    private int[] offsets = new int[MIN_CAPACITY + 1];
+    private int[] ids = new int[MIN_CAPACITY];
+    private byte[] arena = new byte[16 * MIN_CAPACITY];
+    private int entryCount = 0;
+    
+    // Abstraction function:
+    //   represents a tokenizer that passes the id of each word it reads to sink, where the id of a
+    //   word w is intern(w.toLowerCase()), computed once per spelling of w; the bytes of entry e of
+    //   the table are arena[offsets[e]..offsets[e+1]-1], with their ASCII letters folded iff.
+    //   ASCII_FOLDS, and e maps them to ids[e]. word[0..wordLength-1] are the bytes of a word being
+    //   read, folded in the same way, whose hash is wordHash, and which is all ASCII iff. wordAscii.
+    // Representation invariant:
+    //   slots.length is a power of two >= 2 * entryCount; each entry e < entryCount is in exactly
+    //     one slot, as e + 1, found by linear probing from the slot of hashes[e]; other slots are 0
+    //   hashes[e] is the hash of the bytes of entry e; offsets is nondecreasing from offsets[0] == 0
+    //   hashes, ids and offsets have room for entryCount (+ 1) elements, and arena for offsets[entryCount]
+    // Safety from rep exposure:
+    //   All fields are private, and the arrays are never passed in or returned.
+    
+    /**
+     * Create a tokenizer.
+     *
+     * @param charset charset of the corpus, for which supports() is true
+     * @param intern returns the id of a word, given in lower case, numbering it if it is new
+     * @param sink accepts the id of each word, in order
+     */
+    CorpusTokenizer(Charset charset, ToIntFunction<String> intern, IntConsumer sink){
+        this.charset = charset;
+        this.utf8 = !charset.equals(StandardCharsets.ISO_8859_1);
+        this.intern = intern;
+        this.sink = sink;
+    }
+    
+    /**
+     * @param charset a charset
+     * @return true iff. a tokenizer can read text in charset: UTF-8, US-ASCII or ISO-8859-1, in
+     *         which a byte that encodes an ASCII white space character never occurs inside the
+     *         encoding of another character
+     */
+    static boolean supports(Charset charset){
+        return charset.equals(StandardCharsets.UTF_8) || charset.equals(StandardCharsets.US_ASCII)
+                || charset.equals(StandardCharsets.ISO_8859_1);
+    }
+    
+    /**
+     * @param b a byte
+     * @return true iff. b encodes an ASCII character that is white space by Character.isWhitespace()
+     */
+    static boolean isAsciiWhitespace(byte b){
+        return b == ' ' || (b >= 0x09 && b <= 0x0D) || (b >= 0x1C && b <= 0x1F);
+    }
+    
+    //Effects: returns true iff. String.toLowerCase() maps each ASCII letter to its ASCII lower case
+    private static boolean asciiFolds(){
+        final String upper = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz";
+        return upper.toLowerCase().equals("abcdefghijklmnopqrstuvwxyzabcdefghijklmnopqrstuvwxyz");
+    }
+    
+    /**
+     * Find the first white space byte of a file at or after a position.
+     *
+     * @param channel the file
+     * @param position a position in the file
+     * @param size the size of the file
+     * @return the position of the first byte at or after position that is ASCII white space, or
+     *         size if there is none
+     * @throws IOException if the file cannot be read
+     */
+    static long nextWhitespace(FileChannel channel, long position, long size) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate(SCAN_BYTES);
+        
+        while(position < size){
+            buffer.clear();
+            final int read = channel.read(buffer, position);
+            if(read <= 0) return size;
+            
+            for(int i = 0; i < read; i++){
+                if(isAsciiWhitespace(buffer.get(i))) return position + i;
+            }
+            position += read;
+        }
+        return size;
+    }
+    
+    /**
+     * Read the words of part of a file, by mapping it into memory.
+     *
+     * @param channel the file
+     * @param from position of the first byte to read, which is 0 or follows white space
+     * @param to position after the last byte to read, which is the size of the file or white space
+     * @throws IOException if the file cannot be read
+     */
+    void tokenize(FileChannel channel, long from, long to) throws IOException {
+        while(from < to){
+            final long end = from + WINDOW_BYTES >= to ? to : nextWhitespace(channel, from + WINDOW_BYTES, to);
+            final MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, from, end - from);
+            tokenize(window, 0, window.limit());
+            from = end;
+        }
+        finish();
+    }
+    
+    /**
+     * Read the words of the remaining bytes of a buffer, moving its position to its limit. The
+     * last word may continue in the next call; finish() passes it on if it does not.
+     *
+     * @param bytes bytes of the corpus, following those of the previous call, which do not end
+     *        inside the encoding of a character (see characterBoundary())
+     */
+    void tokenize(ByteBuffer bytes){
+        tokenize(bytes, bytes.position(), bytes.limit());
+        bytes.position(bytes.limit());
+    }
+    
+    /**
+     * Find where to end a block of bytes so that it does not end inside the UTF-8 encoding of a
+     * character, which tokenize() could not recognize as white space.
+     *
+     * @param bytes a buffer
+     * @param length number of bytes of bytes, from index 0, that have been read
+     * @return the largest n <= length such that bytes[0..n-1] does not end with an incomplete
+     *         UTF-8 sequence; at least length - 3
+     */
+    static int characterBoundary(ByteBuffer bytes, int length){
+        for(int k = 1; k <= 3 && k <= length; k++){
+            final int b = bytes.get(length - k) & 0xFF;
+            if((b & 0xC0) == 0x80) continue;
+            
+            final int sequenceLength = b < 0x80 ? 1 : (b & 0xE0) == 0xC0 ? 2 : (b & 0xF0) == 0xE0 ? 3 : 4;
+            return k < sequenceLength ? length - k : length;
+        }
+        return length;
+    }
+    
+    /**
+     * Find the first white space character in part of a buffer, as tokenize() would.
+     *
+     * @param bytes a buffer
+     * @param from index of the first byte to search
+     * @param to index after the last byte to search; bytes[from..to-1] does not end inside the
+     *        encoding of a character
+     * @return the index of the first byte of the first white space character in bytes[from..to-1],
+     *         or -1 if there is none
+     */
+    int nextWhitespace(ByteBuffer bytes, int from, int to){
+        for(int i = from; i < to; i++){
+            final byte b = bytes.get(i);
+            if(b >= 0 ? isAsciiWhitespace(b) : utf8 && isWhitespaceSequence(bytes, i, to)) return i;
+        }
+        return -1;
+    }
+    
+    //Effects: reads the words of bytes[from..to-1]; the last word may continue in the next call
+    private void tokenize(ByteBuffer bytes, int from, int to){
+        for(int i = from; i < to; i++){
+            final byte b = bytes.get(i);
+            
+            if(b >= 0){
+                if(isAsciiWhitespace(b)){
+                    if(wordLength > 0) emit();
+                }else{
+                    append(ASCII_FOLDS && b >= 'A' && b <= 'Z' ? (byte) (b + ('a' - 'A')) : b);
+                }
+            }else if(utf8 && isWhitespaceSequence(bytes, i, to)){
+                if(wordLength > 0) emit();
+                i += 2;
+            }else{
+                wordAscii = false;
+                append(b);
+            }
+        }
+    }
+    
+    //Effects: returns true iff. bytes[i..to-1] starts with the UTF-8 encoding of a non-ASCII white
+    //         space character; every such character is encoded in three bytes
+    private static boolean isWhitespaceSequence(ByteBuffer bytes, int i, int to){
+        if(i + 2 >= to) return false;
+        
+        final int b0 = bytes.get(i) & 0xFF;
+        final int b1 = bytes.get(i + 1) & 0xFF;
+        final int b2 = bytes.get(i + 2) & 0xFF;
+        if((b0 & 0xF0) != 0xE0 || (b1 & 0xC0) != 0x80 || (b2 & 0xC0) != 0x80) return false;
+        
+        final int codePoint = ((b0 & 0x0F) << 12) | ((b1 & 0x3F) << 6) | (b2 & 0x3F);
+        return codePoint >= 0x800 && Character.isWhitespace(codePoint);
+    }
+    
+    //Effects: appends b to the word being read
+    private void append(byte b){
+        if(wordLength == word.length) word = Arrays.copyOf(word, 2 * wordLength);
+        word[wordLength++] = b;
+        wordHash = 31 * wordHash + b;
+    }
+    
+    /**
+     * Pass on the last word read, if it has not been passed on yet.
+     */
+    void finish(){
+        if(wordLength > 0) emit();
+    }
+    
+    /**
+     * Take the last word read instead of passing it on, if it has not been passed on yet, so that
+     * it can be joined to the bytes that follow it and read again.
+     *
+     * @return the bytes of the word, with their ASCII letters lowercased if the tokenizer folds
+     *         them, which does not change the word it reads as; empty if there is none
+     */
+    byte[] takeWord(){
+        final byte[] taken = Arrays.copyOf(word, wordLength);
+        clearWord();
+        return taken;
+    }
+    
+    //Requires: wordLength > 0
+    //Effects: passes the id of the word being read to sink, and starts a new word
+    private void emit(){
+        final int hash = mix(wordHash);
+        final int mask = slots.length - 1;
+        int slot = hash & mask;
+        
+        while(slots[slot] != 0){
+            final int e = slots[slot] - 1;
+            if(hashes[e] == hash && matches(e)){
+                sink.accept(ids[e]);
+                clearWord();
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        
+        final String label = wordAscii && ASCII_FOLDS ? new String(word, 0, wordLength, StandardCharsets.ISO_8859_1)
+                : new String(word, 0, wordLength, charset).toLowerCase();
+        final int id = intern.applyAsInt(label);
+        
+        slots[slot] = addEntry(hash, id) + 1;
+        if(2 * entryCount > slots.length) rehash();
+        
+        sink.accept(id);
+        clearWord();
+    }
+    
+    //Effects: resets the word being read to empty
+    private void clearWord(){
+        wordLength = 0;
+        wordHash = 0;
+        wordAscii = true;
+    }
+    
+    //Effects: returns true iff. the bytes of entry e are the bytes of the word being read
+    private boolean matches(int e){
+        final int offset = offsets[e];
+        if(offsets[e + 1] - offset != wordLength) return false;
+        
+        for(int i = 0; i < wordLength; i++){
+            if(arena[offset + i] != word[i]) return false;
+        }
+        return true;
+    }
+    
+    //Effects: adds an entry for the word being read, with the given hash and id, to the entry
+    //         arrays but not to slots; returns its index
+    private int addEntry(int hash, int id){
+        if(entryCount == ids.length){
+            hashes = Arrays.copyOf(hashes, 2 * entryCount);
+            ids = Arrays.copyOf(ids, 2 * entryCount);
+            offsets = Arrays.copyOf(offsets, 2 * entryCount + 1);
+        }
+        final int offset = offsets[entryCount];
+        if(arena.length - offset < wordLength){
+            arena = Arrays.copyOf(arena, Math.max(2 * arena.length, offset + wordLength));
+        }
+        
+        System.arraycopy(word, 0, arena, offset, wordLength);
+        hashes[entryCount] = hash;
+        ids[entryCount] = id;
+        offsets[entryCount + 1] = offset + wordLength;
+        return entryCount++;
+    }
+    
+    //Effects: doubles slots and reinserts every entry
+    private void rehash(){
+        slots = new int[2 * slots.length];
+        final int mask = slots.length - 1;
+        
+        for(int e = 0; e < entryCount; e++){
+            int slot = hashes[e] & mask;
+            while(slots[slot] != 0){
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = e + 1;
+        }
+    }
+    
+    //Effects: returns h with its bits spread, so that its low bits depend on all of them
+    private static int mix(int h){
+        h *= 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -3,17 +3,42 @@
  */
 package poet;
 
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
-import java.util.ArrayDeque;
-import java.util.Collection;
-import java.util.HashSet;
-import java.util.Queue;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Scanner;
-import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BinaryOperator;
+import java.util.function.IntBinaryOperator;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
 
 
-import graph.Graph;
+import graph.AppendableGraph;
+import graph.BridgeIndex;
+import graph.FrozenGraph;
+import graph.GraphBuilder;
+import graph.GraphFile;
+import graph.IndexedGraph;
+import graph.PackedGraph;
 
 /**
  * A graph-based poetry generator.
@@ -59,18 +84,59 @@ import graph.Graph;
  */
 public class GraphPoet {
     
-    private final Graph<String> graph = Graph.empty();
+    /**
+     * How the files of a corpus of several files are joined.
+     */
+    public enum FileLinking {
+        /** The files are read as one text, in order: the first word of each follows the last word of the one before. */
+        CHAINED,
+        /** Each file is a document of its own: no bigram links the last word of one file to the first word of the next. */
+        SEPARATE
+    }
+    
+    private static final int LAST_UNKNOWN = -2;
+    
+    private final IndexedGraph<String> graph;
+    private final CorpusSummary summary;
+    private final int last;
+    private final AtomicReference<CorpusInvariants> invariants;
+    private final BridgeIndex bridges;
+    private final BridgeCache cache;
     
     // Abstraction function:
     //   this.graph represents its self
     // Representation invariant:
     //   All vertex labels must be lower case, non-empty, and contain no white space.
-    //   graph is weakly connected and there is a path
+    //   There are at most summary.documents() walks, one for each document of the corpus, which
+    //   together traverse each edge e of the graph exactly weight(e) times and visit every vertex;
+    //   for a corpus of one document, graph is weakly connected and there is a path
     //   traversing each edge e of the graph exactly weight(e) times.
+    //   summary is the CorpusSummary of graph, as computed by CorpusInvariants.
+    //   graph is a FrozenGraph, or an AppendableGraph made by append().
+    //   last is the id of a vertex at which one of those walks ends: the last word of the last
+    //   document of the corpus; or -1 if graph has no vertices; or LAST_UNKNOWN for a graph opened
+    //   from a graph file.
+    //   invariants holds null, or CorpusInvariants to which exactly the vertices and edges of graph
+    //   have been added, ready for append() to extend.
+    //   Checking the first three directly takes O(V+E) time, so they are tracked by a CorpusInvariants while
+    //   the graph is built, and checkRep() inspects only the O(1) summary it produces. For a graph opened from
+    //   a graph file, the summary is the one stored in the file when it was written.
+    //   bridges is a BridgeIndex built from graph, or empty.
+    //   cache carries no abstract state: it only remembers bridge words of graph.
     // Safety from rep exposure:
     //   The graph is a private field, and return values and method parameters are immutable strings, except for the constructor.
     //   The constructor takes in a file object is used to read from a file and create the rep, and after constructor returns there is
     //   no way for it to access or modify the rep through this file object.
+    //   graph is an immutable FrozenGraph, built by a GraphBuilder local to the constructor, read by PackedGraph
+    //   from a stream, or opened from a file that GraphFile maps read-only; or an immutable AppendableGraph
+    //   built by an appender local to append(). invariants is shared only by poets with the same graph,
+    //   and its CorpusInvariants is only ever used by the append() that atomically takes it out. summary and bridges are
+    //   immutable; bridgeIndex() returns bridges, which is safe for that reason. bridgeCache() returns cache,
+    //   whose public methods only report statistics; its entries can only be reached through this class.
+    // Thread safety argument:
+    //   graph, summary, last and bridges are final and immutable, so poem() only reads them. cache is
+    //   thread-safe, and so is the memo PoemBatch makes for a batch of poems(). invariants is only read and taken
+    //   through its AtomicReference, and its CorpusInvariants is then confined to the append() that took it.
     
     /**
      * Create a new poet with the graph from corpus (as described above).
@@ -79,28 +145,488 @@ public class GraphPoet {
      * @throws IOException if the corpus file cannot be found or read
      */
     public GraphPoet(File corpus) throws IOException {
-        final Scanner sc = new Scanner(corpus);
-        String current;
-        String prev;
+        this(read(corpus, new CorpusBuilder()), noCache());
+    }
+    
+    //Effects: reads the words of corpus in the default charset into builder, following the last
+    //         word builder has read; returns builder
+    private static CorpusBuilder read(File corpus, CorpusBuilder builder) throws IOException {
+        final Charset charset = Charset.defaultCharset();
         
-        if(!sc.hasNext()){
-            sc.close();
-            return;
+        if(CorpusTokenizer.supports(charset)){
+            try(FileChannel channel = FileChannel.open(corpus.toPath(), StandardOpenOption.READ)){
+                new CorpusTokenizer(charset, builder::addVertex, builder::follow).tokenize(channel, 0, channel.size());
+            }
+        }else{
+            try(Scanner sc = new Scanner(corpus)){
+                while(sc.hasNext()){
+                    builder.follow(builder.addVertex(sc.next().toLowerCase()));
+                }
+            }
         }
+        return builder;
+    }
+    
+    //Effects: creates a poet with the graph of builder, which is not used afterwards
+    private GraphPoet(CorpusBuilder builder, BridgeCache cache){
+        this(builder.build(), builder.summary(), builder.last(), new AtomicReference<>(builder.invariants()),
+                BridgeIndex.empty(), cache);
+    }
+    
+    //Requires: graph, summary, last, invariants and bridges to satisfy the rep invariant
+    //Effects: creates a poet with the given rep
+    private GraphPoet(IndexedGraph<String> graph, CorpusSummary summary, int last,
+            AtomicReference<CorpusInvariants> invariants, BridgeIndex bridges, BridgeCache cache){
+        this.graph = graph;
+        this.summary = summary;
+        this.last = last;
+        this.invariants = invariants;
+        this.bridges = bridges;
+        this.cache = cache;
+        checkRep();
+    }
+    
+    /**
+     * Create a new poet with the graph from corpus, reading the corpus in parallel on the common
+     * fork-join pool. See {@link #parallel(File, ForkJoinPool)}.
+     * 
+     * @param corpus text file from which to derive the poet's affinity graph
+     * @return a poet with the same graph as new GraphPoet(corpus)
+     * @throws IOException if the corpus file cannot be found or read
+     */
+    public static GraphPoet parallel(File corpus) throws IOException {
+        return parallel(corpus, ForkJoinPool.commonPool());
+    }
+    
+    /**
+     * Create a new poet with the graph from corpus, reading the corpus in parallel. The file is
+     * split at white space into chunks that are read and counted concurrently on pool, then
+     * merged; the poet is the same as new GraphPoet(corpus) would create. Corpora must be
+     * well-formed in the default charset, and if that charset is not UTF-8, US-ASCII or
+     * ISO-8859-1, the corpus is read on one thread as by the constructor.
+     * 
+     * @param corpus text file from which to derive the poet's affinity graph
+     * @param pool the pool on which to read the corpus
+     * @return a poet with the same graph as new GraphPoet(corpus)
+     * @throws IOException if the corpus file cannot be found or read
+     */
+    public static GraphPoet parallel(File corpus, ForkJoinPool pool) throws IOException {
+        final Charset charset = Charset.defaultCharset();
+        if(!CorpusTokenizer.supports(charset)) return new GraphPoet(corpus);
         
-        current = sc.next().toLowerCase();
-        graph.add(current);
+        final CorpusBuilder builder = new CorpusBuilder();
+        ParallelIngestion.ingest(corpus, charset, pool, builder);
+        
+        return new GraphPoet(builder, noCache());
+    }
+    
+    /**
+     * Create a new poet with the graph from corpus, stored off the Java heap, reading the corpus
+     * in parallel on the common fork-join pool. See {@link #offHeap(File, ForkJoinPool)}.
+     * 
+     * @param corpus text file from which to derive the poet's affinity graph
+     * @return a poet with the same graph as new GraphPoet(corpus)
+     * @throws IOException if the corpus file cannot be found or read
+     */
+    public static GraphPoet offHeap(File corpus) throws IOException {
+        return offHeap(corpus, ForkJoinPool.commonPool());
+    }
+    
+    /**
+     * Create a new poet with the graph from corpus, stored off the Java heap, for corpora whose
+     * graphs do not fit in the heap. The corpus is read in parallel as by
+     * {@link #parallel(File, ForkJoinPool)}, in chunks of the smallest size it uses, and merged
+     * into a {@link GraphBuilder#offHeap()} builder. The heap then holds only the words, O(V)
+     * bookkeeping, and a number of staged bigrams bounded by the parallelism of pool, however many
+     * distinct bigrams there are. The poet is the same as new GraphPoet(corpus) would create.
+     * 
+     * @param corpus text file from which to derive the poet's affinity graph
+     * @param pool the pool on which to read the corpus
+     * @return a poet with the same graph as new GraphPoet(corpus), whose graph is off heap
+     * @throws IOException if the corpus file cannot be found or read
+     */
+    public static GraphPoet offHeap(File corpus, ForkJoinPool pool) throws IOException {
+        final Charset charset = Charset.defaultCharset();
+        final CorpusBuilder builder = new CorpusBuilder(GraphBuilder.offHeap());
+        
+        if(CorpusTokenizer.supports(charset)) ParallelIngestion.ingest(corpus, charset, pool, builder);
+        else read(corpus, builder);
+        return new GraphPoet(builder, noCache());
+    }
+    
+    /**
+     * Create a new poet with the graph from corpus, reading the corpus in a pipeline of three
+     * stages. See {@link #pipelined(File, IngestionStats)}.
+     * 
+     * @param corpus text file from which to derive the poet's affinity graph
+     * @return a poet with the same graph as new GraphPoet(corpus)
+     * @throws IOException if the corpus file cannot be found or read
+     */
+    public static GraphPoet pipelined(File corpus) throws IOException {
+        return pipelined(corpus, new IngestionStats());
+    }
+    
+    /**
+     * Create a new poet with the graph from corpus, reading the corpus in a pipeline of three
+     * stages that run concurrently: one thread reads blocks of the file, another splits them into
+     * words, and the calling thread adds the words to the graph. The stages are connected by
+     * bounded queues, so a stage that gets ahead waits for the others, and ingestion takes about
+     * as long as its slowest stage rather than all three in turn. The poet is the same as new
+     * GraphPoet(corpus) would create. Corpora must be well-formed in the default charset, and if
+     * that charset is not UTF-8, US-ASCII or ISO-8859-1, the corpus is read on one thread as by
+     * the constructor, and stats are not updated.
+     * 
+     * @param corpus text file from which to derive the poet's affinity graph
+     * @param stats counters to which each stage adds the work it does, as it does it
+     * @return a poet with the same graph as new GraphPoet(corpus)
+     * @throws IOException if the corpus file cannot be found or read, or the calling thread is
+     *         interrupted
+     */
+    public static GraphPoet pipelined(File corpus, IngestionStats stats) throws IOException {
+        final Charset charset = Charset.defaultCharset();
+        if(!CorpusTokenizer.supports(charset)) return new GraphPoet(corpus);
+        
+        final CorpusBuilder builder = new CorpusBuilder();
+        PipelinedIngestion.ingest(corpus, charset, builder, stats);
+        
+        return new GraphPoet(builder, noCache());
+    }
+    
+    /**
+     * Create a new poet with the graph from a corpus of several files, reading them in parallel
+     * on the common fork-join pool. See {@link #fromFiles(List, FileLinking, ForkJoinPool)}.
+     * 
+     * @param corpora text files from which to derive the poet's affinity graph, in order
+     * @param linking how the files are joined
+     * @return a poet with the affinity graph of corpora
+     * @throws IOException if a corpus file cannot be found or read
+     */
+    public static GraphPoet fromFiles(List<Path> corpora, FileLinking linking) throws IOException {
+        return fromFiles(corpora, linking, ForkJoinPool.commonPool());
+    }
+    
+    /**
+     * Create a new poet with the graph from a corpus of several files. Each file is read and
+     * counted by a task of its own on pool, and the counts are merged in the order of corpora,
+     * so the poet does not depend on the order in which the tasks finish. With CHAINED linking the
+     * poet is the same as new GraphPoet() would create from the concatenation of the files with
+     * white space between them; with SEPARATE linking its edges are the bigrams within each file.
+     * A file is counted by a single task however large it is, so for a corpus of one large file,
+     * {@link #parallel(File, ForkJoinPool)} is faster. A file whose name ends in .gz is read as
+     * gzip-compressed text, decompressed as it is read. Corpora must be well-formed in the default
+     * charset, and if that charset is not UTF-8, US-ASCII or ISO-8859-1, the files are read one
+     * after another on the calling thread.
+     * 
+     * @param corpora text files from which to derive the poet's affinity graph, in order
+     * @param linking how the files are joined
+     * @param pool the pool on which to read the files
+     * @return a poet with the affinity graph of corpora
+     * @throws IOException if a corpus file cannot be found or read
+     */
+    public static GraphPoet fromFiles(List<Path> corpora, FileLinking linking, ForkJoinPool pool) throws IOException {
+        final Charset charset = Charset.defaultCharset();
+        final boolean separate = linking == FileLinking.SEPARATE;
+        final List<File> files = new ArrayList<>();
+        for(Path corpus : corpora){
+            files.add(corpus.toFile());
+        }
+        
+        final CorpusBuilder builder = new CorpusBuilder();
+        if(CorpusTokenizer.supports(charset)){
+            ParallelIngestion.ingest(files, separate, charset, pool, builder);
+        }else{
+            for(File file : files){
+                if(separate) builder.endDocument();
+                if(GzipIngestion.isGzipName(file)) readGzip(file, builder);
+                else read(file, builder);
+            }
+        }
+        return new GraphPoet(builder, noCache());
+    }
+    
+    /**
+     * Create a new poet with the graph from a corpus of all the regular files in a directory and
+     * its subdirectories, taken in order of their paths so that the poet is the same however the
+     * file system lists them. See {@link #fromFiles(List, FileLinking, ForkJoinPool)}.
+     * 
+     * @param directory directory holding the corpus files
+     * @param linking how the files are joined
+     * @param pool the pool on which to read the files
+     * @return a poet with the affinity graph of the files in directory
+     * @throws IOException if directory or a file in it cannot be found or read
+     */
+    public static GraphPoet fromDirectory(Path directory, FileLinking linking, ForkJoinPool pool) throws IOException {
+        final List<Path> corpora;
+        try(Stream<Path> paths = Files.walk(directory)){
+            corpora = paths.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+        }catch(UncheckedIOException e){
+            throw e.getCause();
+        }
+        return fromFiles(corpora, linking, pool);
+    }
+    
+    /**
+     * Create a new poet with the graph from a gzip-compressed corpus, reading it in parallel on the
+     * common fork-join pool. See {@link #fromGzip(File, ForkJoinPool)}.
+     * 
+     * @param corpus gzip-compressed text file from which to derive the poet's affinity graph
+     * @return a poet with the same graph as new GraphPoet() would create from the decompressed corpus
+     * @throws IOException if the corpus file cannot be found or read, is not in gzip format, or is
+     *         corrupt
+     */
+    public static GraphPoet fromGzip(File corpus) throws IOException {
+        return fromGzip(corpus, ForkJoinPool.commonPool());
+    }
+    
+    /**
+     * Create a new poet with the graph from a gzip-compressed corpus, decompressing it as it is
+     * read, so that its text is never written out or held in memory. A file of several gzip
+     * members, as written by pigz or bgzip or by concatenating gzip files, has its members
+     * decompressed and read concurrently on pool, even where a member ends inside a word; a file
+     * of one member is read on one thread. The corpus must be well-formed in the default charset,
+     * and if that charset is not UTF-8, US-ASCII or ISO-8859-1, it is read on one thread by a
+     * Scanner.
+     * 
+     * @param corpus gzip-compressed text file from which to derive the poet's affinity graph
+     * @param pool the pool on which to decompress and read the members of corpus
+     * @return a poet with the same graph as new GraphPoet() would create from the decompressed corpus
+     * @throws IOException if the corpus file cannot be found or read, is not in gzip format, or is
+     *         corrupt
+     */
+    public static GraphPoet fromGzip(File corpus, ForkJoinPool pool) throws IOException {
+        final Charset charset = Charset.defaultCharset();
+        final CorpusBuilder builder = new CorpusBuilder();
+        
+        if(CorpusTokenizer.supports(charset)) GzipIngestion.ingest(corpus, charset, pool, builder);
+        else readGzip(corpus, builder);
+        return new GraphPoet(builder, noCache());
+    }
+    
+    //Effects: reads the words of gzip-compressed corpus in the default charset into builder with a
+    //         Scanner, following the last word builder has read
+    private static void readGzip(File corpus, CorpusBuilder builder) throws IOException {
+        try(Scanner sc = new Scanner(new GZIPInputStream(new FileInputStream(corpus)))){
+            while(sc.hasNext()){
+                builder.follow(builder.addVertex(sc.next().toLowerCase()));
+            }
+            if(sc.ioException() != null) throw sc.ioException();
+        }
+    }
+    
+    //Effects: returns a new cache that caches nothing
+    private static BridgeCache noCache(){
+        return new BridgeCache(0, BridgeCache.Policy.LRU);
+    }
+    
+    /**
+     * Create a poet with the same affinity graph as this one, and an index of its bridge words
+     * (see {@link BridgeIndex}) with which poem() finds the bridge word between two input words
+     * by a single hash lookup. The index is built in parallel, and holds as many words as fit in
+     * maxBytes, most frequent first; bridge words after any other word are found as they are
+     * without the index. Poems are the same with or without the index.
+     * 
+     * @param maxBytes the most memory the index may take
+     * @return a poet with this poet's graph and a new bridge index
+     * @throws IllegalArgumentException if maxBytes is negative
+     */
+    public GraphPoet withBridgeIndex(long maxBytes){
+        return new GraphPoet(graph, summary, last, invariants, BridgeIndex.build(graph, maxBytes), cache);
+    }
+    
+    /**
+     * Create a poet with the same affinity graph and bridge index as this one, and a new cache of
+     * the bridge words between pairs of input words, which is shared by every call to its poem()
+     * and is safe for concurrent use. Pairs with no bridge word are cached too. Poems are the
+     * same with or without the cache.
+     * 
+     * @param capacity the most pairs of words to cache; 0 caches nothing
+     * @param policy how to choose the pairs to evict when the cache is full
+     * @return a poet with this poet's graph and a new, empty bridge word cache
+     * @throws IllegalArgumentException if capacity is negative
+     */
+    public GraphPoet withBridgeCache(int capacity, BridgeCache.Policy policy){
+        return new GraphPoet(graph, summary, last, invariants, bridges, new BridgeCache(capacity, policy));
+    }
+    
+    /**
+     * @return the bridge word cache of this poet, whose statistics count the lookups of its poem();
+     *         it has capacity 0 unless this poet was made by withBridgeCache()
+     */
+    public BridgeCache bridgeCache(){
+        return cache;
+    }
+    
+    /**
+     * @return the bridge index of this poet, which is empty unless it was made by withBridgeIndex();
+     *         its bytes() is the memory it takes
+     */
+    public BridgeIndex bridgeIndex(){
+        return bridges;
+    }
+    
+    /**
+     * Open a poet whose affinity graph was saved by {@link #writeGraphFile(File)}. The graph is
+     * memory-mapped rather than read, so the poet is ready in O(1) time however large the graph,
+     * and processes on one host that open the same file share its pages.
+     * 
+     * <p>To keep opening O(1), the corpus summary that writeGraphFile() stores with the graph is
+     * trusted: only the vertex count it records is checked against the graph, and the labels,
+     * edges and weights are not read. A file that was changed after it was written, or written
+     * with forged metadata, may give a poet whose graph breaks the invariants of GraphPoet. Use
+     * {@link #save(OutputStream)} and {@link #load(InputStream)}, which check the whole graph,
+     * for graphs from an untrusted source.
+     * A graph file written by {@link GraphFile#write(graph.IndexedGraph, File)} with no metadata
+     * can be opened too, at the cost of reading the whole graph to check it.
+     * 
+     * @param graphFile a graph file written by writeGraphFile(), or with no metadata
+     * @return a poet with the affinity graph stored in graphFile
+     * @throws IOException if graphFile cannot be read or is not a graph file, if its metadata is
+     *         not a corpus summary of a graph with its number of vertices, or if it has no
+     *         metadata and does not hold the affinity graph of some corpus
+     */
+    public static GraphPoet openGraphFile(File graphFile) throws IOException {
+        final GraphFile file = GraphFile.open(graphFile);
+        final FrozenGraph<String> graph = file.graph();
+        final int[] metadata = file.metadata();
+        final CorpusSummary summary = metadata.length == 0
+                ? CorpusInvariants.of(graph).summary(Math.min(1, graph.vertexCount()))
+                : CorpusSummary.fromInts(metadata);
+        
+        if(summary == null || !summary.certifies(graph)){
+            throw new IOException("not the affinity graph of a corpus: " + graphFile);
+        }
+        return new GraphPoet(graph, summary, LAST_UNKNOWN, new AtomicReference<>(), BridgeIndex.empty(), noCache());
+    }
+    
+    /**
+     * Save the affinity graph of this poet in a graph file, for {@link #openGraphFile(File)}.
+     * 
+     * @param graphFile the file to create or replace
+     * @throws IOException if graphFile cannot be written
+     */
+    public void writeGraphFile(File graphFile) throws IOException {
+        GraphFile.write(graph, summary.toInts(), graphFile);
+    }
+    
+    /**
+     * Save the affinity graph of this poet to a stream in a compact form, for {@link #load(InputStream)}.
+     * The graph is written in the {@link PackedGraph} format, which is typically several times
+     * smaller than the corpus, with the number of documents of the corpus as its metadata.
+     * out is flushed but not closed.
+     * 
+     * @param out the stream to write to
+     * @throws IOException if out cannot be written
+     */
+    public void save(OutputStream out) throws IOException {
+        final DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out, 1 << 16));
+        PackedGraph.write(graph, new int[] { summary.documents() }, data);
+        data.flush();
+    }
+    
+    /**
+     * Load a poet saved by {@link #save(OutputStream)}. Exactly the bytes written by save() are
+     * read from in, which is not closed. Since reading the graph takes O(V+E) time anyway, the
+     * graph is checked in the same pass rather than trusted. A packed graph with no metadata is
+     * loaded as the graph of a corpus of one document.
+     * 
+     * @param in the stream to read from
+     * @return a poet with the affinity graph read from in
+     * @throws IOException if in cannot be read, or does not hold the affinity graph of some corpus
+     */
+    public static GraphPoet load(InputStream in) throws IOException {
+        final PackedGraph packed = PackedGraph.read(new DataInputStream(in));
+        final int[] metadata = packed.metadata();
+        final int documents = metadata.length == 0 ? Math.min(1, packed.graph().vertexCount()) : metadata[0];
+        final CorpusInvariants invariants = CorpusInvariants.of(packed.graph());
+        final CorpusSummary summary = invariants.summary(documents);
+        
+        if(metadata.length > 1 || documents < 0 || !summary.certifies(packed.graph())){
+            throw new IOException("not the affinity graph of a corpus");
+        }
+        return new GraphPoet(packed.graph(), summary, invariants.endVertex(), new AtomicReference<>(invariants),
+                BridgeIndex.empty(), noCache());
+    }
+    
+    /**
+     * Create a poet whose corpus is the corpus of this poet followed by the text of a file: the
+     * first word of the file follows the last word of this poet's corpus, as if the two were one
+     * file. Takes time proportional to the new text rather than the whole corpus (see append(Stream)).
+     * 
+     * @param corpus text file, in the default charset, whose words to append
+     * @return a poet with the affinity graph of this poet's corpus followed by the text of corpus
+     * @throws IOException if the corpus file cannot be found or read
+     */
+    public GraphPoet append(Path corpus) throws IOException {
+        return appended(read(corpus.toFile(), appendBuilder()));
+    }
+    
+    /**
+     * Create a poet whose corpus is the corpus of this poet followed by the text read from a
+     * reader, which is read to its end but not closed. See append(Path).
+     * 
+     * @param text the text whose words to append
+     * @return a poet with the affinity graph of this poet's corpus followed by text
+     * @throws IOException if text cannot be read
+     */
+    public GraphPoet append(Reader text) throws IOException {
+        final CorpusBuilder builder = appendBuilder();
+        final Scanner sc = new Scanner(text);
         
         while(sc.hasNext()){
-            prev = current;
-            current = sc.next().toLowerCase();
-            int previousEdgeWeight = graph.targets(prev).getOrDefault(current, 0);
-            
-            graph.set(prev, current, previousEdgeWeight + 1);
+            builder.follow(builder.addVertex(sc.next().toLowerCase()));
         }
+        if(sc.ioException() != null) throw sc.ioException();
+        return appended(builder);
+    }
+    
+    /**
+     * Create a poet whose corpus is the corpus of this poet followed by more words, the first of
+     * which follows the last word of this poet's corpus.
+     * 
+     * <p>This poet is unchanged, and the new poet shares all of its affinity graph except the
+     * edges of the words appended, so appending takes time proportional to the new words and
+     * the numbers of distinct neighbours of those words, not to the size of the corpus. Appending
+     * again to the new poet is as cheap; appending a second time to the same poet first recounts
+     * the invariants of its graph in O(V+E) time, as does the first append to a poet opened by
+     * openGraphFile(). The new poet has no bridge index, and a new, empty bridge cache with the
+     * capacity and policy of this poet's. For a poet opened or loaded from a graph whose corpus
+     * began and ended with the same word, that word cannot be told apart from the others in its
+     * cycle, and the new words follow one of them; likewise, if its corpus had several documents
+     * (see {@link FileLinking#SEPARATE}), they follow the last word of one of them.
+     * 
+     * @param words words to append in order, each non-empty and without white space, in any case
+     * @return a poet with the affinity graph of this poet's corpus followed by words
+     * @throws IllegalArgumentException if a word is empty or contains white space
+     */
+    public GraphPoet append(Stream<String> words){
+        final CorpusBuilder builder = appendBuilder();
         
-        sc.close();
-        checkRep();
+        words.forEachOrdered(word -> {
+            if(word.isEmpty() || CorpusInvariants.containsWhitespace(word)){
+                throw new IllegalArgumentException("not a word: \"" + word + "\"");
+            }
+            builder.follow(builder.addVertex(word.toLowerCase()));
+        });
+        return appended(builder);
+    }
+    
+    //Effects: returns a builder that extends the graph of this poet, whose last word read is the
+    //         last word of this poet's corpus; takes the invariants of this poet, or recounts them
+    //         if another append() has taken them
+    private CorpusBuilder appendBuilder(){
+        CorpusInvariants taken = invariants.getAndSet(null);
+        if(taken == null) taken = CorpusInvariants.of(graph);
+        
+        final AppendableGraph<String> appendable = graph instanceof AppendableGraph
+                ? (AppendableGraph<String>) graph : new AppendableGraph<>((FrozenGraph<String>) graph);
+        return new CorpusBuilder(appendable.appender(), taken, last == LAST_UNKNOWN ? taken.endVertex() : last,
+                summary.documents());
+    }
+    
+    //Effects: returns a poet with the graph of builder, made by appendBuilder(), and a new cache
+    //         like the cache of this poet
+    private GraphPoet appended(CorpusBuilder builder){
+        return new GraphPoet(builder, new BridgeCache(cache.capacity(), cache.policy()));
     }
     
     /**
@@ -110,15 +636,83 @@ public class GraphPoet {
      * @return poem (as described above)
      */
     public String poem(String input) {
+        return poem(input, this::cachedBridgeWord);
+    }
+    
+    /**
+     * Generate a poem for each of a list of inputs, concurrently on the common fork-join pool.
+     * See {@link #poems(List, Executor)}.
+     * 
+     * @param inputs strings from which to create the poems
+     * @return the poems of inputs, in order
+     */
+    public List<String> poems(List<String> inputs){
+        return poems(inputs, ForkJoinPool.commonPool());
+    }
+    
+    /**
+     * Generate a poem for each of a list of inputs, concurrently on executor. The inputs are split
+     * into slices of consecutive inputs, each of which is a task run by executor, so any executor
+     * will do: a fork-join pool, a fixed thread pool, or one that starts a virtual thread per task
+     * where the platform has them. The graph is only read, so the tasks need no locks but those of
+     * the bridge cache. Bridge words are looked up through this poet's bridge cache, if it has one
+     * (see withBridgeCache()), and otherwise through a lock-free memo shared by the whole batch,
+     * which remembers the bridge of the last pair of words to hash to each of its slots, so a pair
+     * of words that occurs in many inputs is usually found in the graph once.
+     * 
+     * @param inputs strings from which to create the poems
+     * @param executor runs the tasks that create the poems
+     * @return the poems of inputs, in order: poems(inputs).get(i) is poem(inputs.get(i))
+     * @throws java.util.concurrent.RejectedExecutionException if executor does not accept a task
+     */
+    public List<String> poems(List<String> inputs, Executor executor){
+        return PoemBatch.poems(inputs, executor, batchPoem());
+    }
+    
+    /**
+     * Generate a poem for each of a stream of inputs, concurrently on executor. The inputs are
+     * read in blocks of many slices each, and the poems of each block are created as by
+     * poems(List, Executor) when the returned stream reaches it, so a stream of any length takes
+     * memory for one block at a time; the memo of a batch is shared by every block. Closing the
+     * returned stream closes inputs.
+     * 
+     * @param inputs strings from which to create the poems
+     * @param executor runs the tasks that create the poems
+     * @return a sequential stream of the poems of inputs, in order
+     */
+    public Stream<String> poems(Stream<String> inputs, Executor executor){
+        return PoemBatch.poems(inputs, executor, batchPoem());
+    }
+    
+    //Effects: returns how a batch of poems creates the poem of an input: looking up bridge words
+    //         through this poet's cache if it caches anything, or else through a new memo for the batch
+    private UnaryOperator<String> batchPoem(){
+        if(cache.capacity() > 0) return input -> poem(input, this::cachedBridgeWord);
+        
+        final IntBinaryOperator memo = PoemBatch.memo(this::getMaximalBridge);
+        final BinaryOperator<String> bridgeWord = (w1, w2) -> {
+            final int source = graph.idOf(w1);
+            final int target = graph.idOf(w2);
+            if(source < 0 || target < 0) return "";
+            
+            final int bridge = memo.applyAsInt(source, target);
+            return bridge < 0 ? "" : graph.labelOf(bridge);
+        };
+        return input -> poem(input, bridgeWord);
+    }
+    
+    //Effects: returns the poem of input (as described above), where bridgeWord returns the bridge
+    //         word between two lower case words, or "" if there is none
+    private String poem(String input, BinaryOperator<String> bridgeWord){
         final String[] words = input.trim().split("\\s+");
         final StringBuilder poemBuilder = new StringBuilder();
         
         if(words.length > 0) poemBuilder.append(words[0]);
         
         for(int i = 0; i+1 < words.length; i++){
-            String bridgeWord = getMaximalBridgeWord(words[i].toLowerCase(), words[i+1].toLowerCase());
-            if(!bridgeWord.isEmpty()){
-                poemBuilder.append(" " + bridgeWord);
+            String bridge = bridgeWord.apply(words[i].toLowerCase(), words[i+1].toLowerCase());
+            if(!bridge.isEmpty()){
+                poemBuilder.append(" " + bridge);
             }
             poemBuilder.append(" " + words[i+1]);
         }
@@ -146,107 +740,68 @@ public class GraphPoet {
     }
     
     private void checkRep(){
-        assert allVertexLabelsAreNonEmptyNonWhitesSpaceLowerCaseStrings();
-        assert isWeaklyConnected();
-        assert hasWeightedEulerianPath();
+        assert summary.certifies(graph);
     };
     
-    private boolean allVertexLabelsAreNonEmptyNonWhitesSpaceLowerCaseStrings(){
-        for(String vertex : graph.vertices()){
-            if(vertex.isEmpty()) return false;
-            if(vertex.length() > vertex.replaceAll("\\s+", "").length()) return false; //contains white space
-            if(!vertex.equals(vertex.toLowerCase())) return false; //its not lower case
-        }
-        return true;
-    }
-    
-    //Requires: this.graph must be weakly connected
-    //Effects: returns true iff. there is a path in this.graph for which
-    //         every edge e is traversed exactly weight(e) times.
-    private boolean hasWeightedEulerianPath(){
-        int numberOfVerticesWithPlusOneNetFlow = 0;
-        int numberOfVerticesWithNegativeOneNetFlow = 0;
-        int numberofVerticesWithZeroNetFlow = 0;
-        
-        for(String vertex : graph.vertices()){
-            int netFlow = sumIntCollection(graph.sources(vertex).values()) - 
-                    sumIntCollection(graph.targets(vertex).values());
-            if(netFlow == 1){
-                numberOfVerticesWithPlusOneNetFlow++;
-            }else if(netFlow == 0){
-                numberofVerticesWithZeroNetFlow++;
-            }else if(netFlow == -1){
-                numberOfVerticesWithNegativeOneNetFlow++;
-            }            
-        }
+    //Requires: w1 and w2 to be non empty lower case
+    //Effects: returns bridge word connecting w1 to w2 in this.graph as defined in the spec, if there is any; else, 
+    //         returns empty string
+    private String getMaximalBridgeWord(String w1, String w2){
+        final int source = graph.idOf(w1);
+        final int target = graph.idOf(w2);
         
-        //Check equivalent condition for Eulerian path of weakly connected graph.
-        return numberOfVerticesWithPlusOneNetFlow <= 1 &&
-                numberOfVerticesWithNegativeOneNetFlow <= 1 &&
-                numberOfVerticesWithPlusOneNetFlow + numberOfVerticesWithNegativeOneNetFlow + numberofVerticesWithZeroNetFlow ==
-                graph.vertices().size(); 
+        if(source < 0 || target < 0) return "";
         
+        final int bridge = getMaximalBridge(source, target);
+        return bridge < 0 ? "" : graph.labelOf(bridge);
     }
     
-    //Effects: returns sum of all integers found in c, if c not empty;
-    //         else, returns zero.
-    private static int sumIntCollection(Collection<Integer> c){
-        int sum = 0;
-        for(Integer i : c ){
-            sum += i;
-        }
-        return sum;
+    //Requires: w1 and w2 to be non empty lower case
+    //Effects: returns getMaximalBridgeWord(w1, w2), through this.cache
+    private String cachedBridgeWord(String w1, String w2){
+        return cache.bridge(graph, w1, w2, this::getMaximalBridgeWord);
     }
     
-    //Effects: returns true iff. this.graph is weakly connected.
-    private boolean isWeaklyConnected(){
-        final Set<String> unvisitedVertices = this.graph.vertices();
-        final Queue<String> queque = new ArrayDeque<>();
-        
-        if(unvisitedVertices.isEmpty()) return true;
-        
-        String source = unvisitedVertices.iterator().next(); //get any vertex in this.graph
-        unvisitedVertices.remove(source);
-        queque.add(source);
-        
-        while(!queque.isEmpty()){
-            String src = queque.remove();
-            Set<String> adjVertices = new HashSet<>();
-            adjVertices.addAll(graph.sources(src).keySet());
-            adjVertices.addAll(graph.targets(src).keySet());
-            
-            for(String adjVertex : adjVertices){
-                if(unvisitedVertices.contains(adjVertex)){
-                    queque.add(adjVertex);
-                    unvisitedVertices.remove(adjVertex);
-                }
-            }
-        }
-        
-        return unvisitedVertices.isEmpty();
+    //Requires: source and target to be vertex ids of this.graph
+    //Effects: returns the id of the bridge vertex b maximizing weight(source --> b --> target), if
+    //         there is any; else, returns -1; from this.bridges if it indexes source
+    private int getMaximalBridge(int source, int target){
+        final int indexed = bridges.bridge(source, target);
+        return indexed == BridgeIndex.NOT_INDEXED ? mergeMaximalBridge(source, target) : indexed;
     }
     
-    //Requires: w1 and w2 to be non empty lower case
-    //Effects: returns bridge word connecting w1 to w2 in this.graph as defined in the spec, if there is any; else, 
-    //         returns empty string
-    private String getMaximalBridgeWord(String w1, String w2){
-        String bridgeWord = "";
+    //Requires: source and target to be vertex ids of this.graph
+    //Effects: returns the id of the bridge vertex b maximizing weight(source --> b --> target), if
+    //         there is any; else, returns -1. The targets of source and the sources of target are
+    //         both in increasing id order, so the candidates are found by a single merge pass.
+    private int mergeMaximalBridge(int source, int target){
+        final int outDegree = graph.outDegree(source);
+        final int inDegree = graph.inDegree(target);
+        int bridge = -1;
         int maxPathWeight = 0;
+        int i = 0;
+        int j = 0;
         
-        Set<String> bridges = new HashSet<>(graph.targets(w1).keySet());
-        bridges.retainAll(graph.sources(w2).keySet());
-
-        for(String b : bridges){
-            final int pathWeight = 
-                    graph.sources(b).get(w1) + graph.targets(b).get(w2);
+        while(i < outDegree && j < inDegree){
+            final int after = graph.target(source, i);
+            final int before = graph.source(target, j);
             
-            if(pathWeight > maxPathWeight){
-                bridgeWord = b;
-                maxPathWeight = pathWeight;
+            if(after < before){
+                i++;
+            }else if(after > before){
+                j++;
+            }else{
+                final int pathWeight = graph.targetWeight(source, i) + graph.sourceWeight(target, j);
+                
+                if(pathWeight > maxPathWeight){
+                    bridge = after;
+                    maxPathWeight = pathWeight;
+                }
+                i++;
+                j++;
             }
-            
         }
         
-        return bridgeWord;
+        return bridge;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,427 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package poet;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * Reads the words of a gzip-compressed corpus file, for GraphPoet, without writing out or
+ * holding its decompressed text.
+ *
+ * <p>A gzip file is a sequence of members, each compressed on its own, as written by
+ * concatenating gzip files or by tools such as pigz and bgzip. Where a member ends is only known
+ * once it has been decompressed, so the file is first scanned for every position that starts
+ * like the header of a member, and each of these candidates is decompressed and tokenized by a
+ * task of its own on a fork-join pool, a block of output at a time, into a chunk of its words
+ * (see ParallelIngestion). The members are then followed from the start of the file, each
+ * starting where the trailer of the one before ends, and merged in order. A candidate that is
+ * not a member is at worst decompressed in vain, and its result is ignored. Only a window of
+ * candidates ahead of the one being merged is read at a time.
+ *
+ * <p>Members may end anywhere in the text, even inside a word or the encoding of a character, so
+ * the bytes of each member before its first white space and after its last are kept aside, and
+ * joined to those of its neighbours and read again when the members are merged. The CRC-32 and
+ * length of each member are checked, and bytes after the last member that do not start with the
+ * gzip magic number are ignored, as GZIPInputStream ignores them.
+ *
+ * <p>Members are tokenized by a CorpusTokenizer each, so this works for the charsets it supports.
+ * This class is internal to the rep of GraphPoet.
+ */
+class GzipIngestion {
+    
+    private static final int BUFFER_BYTES = 1 << 16;
+    private static final int SCAN_BYTES = 1 << 20;
+    
+    private static final int ID1 = 0x1f;
+    private static final int ID2 = 0x8b;
+    private static final int DEFLATE = 8;
+    private static final int FHCRC = 2;
+    private static final int FEXTRA = 4;
+    private static final int FNAME = 8;
+    private static final int FCOMMENT = 16;
+    private static final int RESERVED = 0xE0;
+    
+    private GzipIngestion(){
+        throw new AssertionError("not instantiable");
+    }
+    
+    /**
+     * @param file a file
+     * @return true iff. the name of file says it is gzip-compressed: it ends in .gz
+     */
+    static boolean isGzipName(File file){
+        return file.getName().endsWith(".gz");
+    }
+    
+    /**
+     * Read the words of a gzip-compressed file in one pass, decompressing it a block at a time.
+     * The last word is not passed on; the caller finishes the tokenizer.
+     *
+     * @param corpus gzip-compressed text file, of one or more members
+     * @param tokenizer tokenizer to read the decompressed text with
+     * @throws IOException if corpus cannot be read, or is not in gzip format
+     */
+    static void tokenize(File corpus, CorpusTokenizer tokenizer) throws IOException {
+        try(InputStream in = new GZIPInputStream(new FileInputStream(corpus), BUFFER_BYTES)){
+            final byte[] block = new byte[BUFFER_BYTES];
+            int length = 0;
+            int read;
+            
+            while((read = in.read(block, length, block.length - length)) >= 0){
+                length += read;
+                final int end = CorpusTokenizer.characterBoundary(ByteBuffer.wrap(block), length);
+                tokenizer.tokenize(ByteBuffer.wrap(block, 0, end));
+                System.arraycopy(block, end, block, 0, length - end);
+                length -= end;
+            }
+            tokenizer.tokenize(ByteBuffer.wrap(block, 0, length));
+        }
+    }
+    
+    /**
+     * Add the words of a gzip-compressed corpus, in lower case, and the bigrams between them to
+     * builder, exactly as reading the decompressed corpus with a Scanner in charset would; the
+     * first word of the corpus follows the last word builder has read, if any.
+     *
+     * @param corpus gzip-compressed text file, of one or more members; if its text is not
+     *        well-formed in charset, malformed input is replaced rather than ending the text as
+     *        Scanner would
+     * @param charset a charset for which CorpusTokenizer.supports() is true
+     * @param pool the pool on which to decompress and read members
+     * @param builder the builder to add the words of corpus to
+     * @throws IOException if corpus cannot be read, is not in gzip format, or a member of it is
+     *         corrupt
+     */
+    static void ingest(File corpus, Charset charset, ForkJoinPool pool, CorpusBuilder builder) throws IOException {
+        try(FileChannel channel = FileChannel.open(corpus.toPath(), StandardOpenOption.READ)){
+            final long[] candidates = candidates(channel);
+            if(candidates.length == 0 || candidates[0] != 0){
+                throw new ZipException("not in gzip format: " + corpus);
+            }
+            
+            final int window = 2 * pool.getParallelism();
+            final ArrayDeque<Future<Member>> pending = new ArrayDeque<>();
+            final Joiner joiner = new Joiner(charset, builder);
+            int submitted = 0;
+            long next = 0;
+            
+            try{
+                while(submitted < candidates.length || !pending.isEmpty()){
+                    while(submitted < candidates.length && pending.size() < window){
+                        final long start = candidates[submitted++];
+                        pending.add(pool.submit(() -> ParallelIngestion.unchecked(() -> Member.read(channel, start, charset))));
+                    }
+                    final long start = candidates[submitted - pending.size()];
+                    final Future<Member> future = pending.remove();
+                    
+                    if(start < next){
+                        future.cancel(false);
+                    }else if(start == next){
+                        final Member member = ParallelIngestion.join(future);
+                        joiner.add(member);
+                        next = member.end;
+                    }else{
+                        break;
+                    }
+                }
+            }finally{
+                for(Future<Member> future : pending){
+                    future.cancel(false);
+                }
+            }
+            joiner.finish();
+        }
+    }
+    
+    //Effects: returns the positions in channel, in increasing order, at which the header of a
+    //         member could start: its magic number, compression method and a flags byte with no
+    //         reserved bits set
+    private static long[] candidates(FileChannel channel) throws IOException {
+        final long size = channel.size();
+        final ByteBuffer buffer = ByteBuffer.allocate(SCAN_BYTES);
+        long[] found = new long[16];
+        int count = 0;
+        long position = 0;
+        
+        while(position + 3 < size){
+            buffer.clear();
+            final int read = channel.read(buffer, position);
+            if(read < 4) break;
+            
+            for(int i = 0; i + 3 < read; i++){
+                if((buffer.get(i) & 0xFF) == ID1 && (buffer.get(i + 1) & 0xFF) == ID2
+                        && buffer.get(i + 2) == DEFLATE && (buffer.get(i + 3) & RESERVED) == 0){
+                    if(count == found.length) found = Arrays.copyOf(found, 2 * count);
+                    found[count++] = position + i;
+                }
+            }
+            position += read - 3;
+        }
+        return Arrays.copyOf(found, count);
+    }
+    
+    /*
+     * Reads the bytes of a file in order from a position, a buffer at a time.
+     */
+    private static class Input {
+        
+        private final FileChannel channel;
+        private final byte[] buffer = new byte[BUFFER_BYTES];
+        private long next;
+        private int offset = 0;
+        private int limit = 0;
+        
+        // Abstraction function:
+        //   represents the bytes of channel from position next - (limit - offset) on, the first of
+        //   which are buffer[offset..limit-1]
+        // Representation invariant:
+        //   0 <= offset <= limit <= buffer.length
+        // Safety from rep exposure:
+        //   All fields are private; buffer is only passed to an Inflater local to Member.read().
+        
+        private Input(FileChannel channel, long start){
+            this.channel = channel;
+            this.next = start;
+        }
+        
+        //Effects: refills buffer from next, or throws EOFException at the end of the file
+        private void fill() throws IOException {
+            offset = 0;
+            limit = Math.max(0, channel.read(ByteBuffer.wrap(buffer), next));
+            if(limit == 0) throw new EOFException("unexpected end of gzip member");
+            next += limit;
+        }
+        
+        //Effects: returns the next byte, as an unsigned value
+        private int readByte() throws IOException {
+            if(offset == limit) fill();
+            return buffer[offset++] & 0xFF;
+        }
+        
+        //Effects: returns the next 4 bytes as a little-endian unsigned value
+        private long readInt() throws IOException {
+            return readByte() | readByte() << 8 | readByte() << 16 | (long) readByte() << 24;
+        }
+        
+        //Effects: skips the next count bytes
+        private void skip(int count) throws IOException {
+            for(int i = 0; i < count; i++){
+                readByte();
+            }
+        }
+        
+        //Effects: passes the bytes in the buffer, or the next buffer if it has none, to inflater
+        private void feed(Inflater inflater) throws IOException {
+            if(offset == limit) fill();
+            inflater.setInput(buffer, offset, limit - offset);
+            offset = limit;
+        }
+        
+        //Requires: count <= the number of bytes of the last buffer passed to an inflater
+        //Effects: moves back over the last count bytes, which the inflater did not use
+        private void unread(int count){
+            offset -= count;
+        }
+        
+        //Effects: returns the position in the file of the next byte
+        private long position(){
+            return next - (limit - offset);
+        }
+    }
+    
+    /*
+     * A member of a gzip file, as read by a task: the words and bigrams of its text, except for
+     * the bytes before its first white space and after its last.
+     */
+    private static class Member {
+        
+        private final long end;
+        private final byte[] head;
+        private final ParallelIngestion.Chunk chunk;
+        private final byte[] tail;
+        
+        // Abstraction function:
+        //   represents the member that ends before position end in its file, whose text is head if
+        //   chunk is null, and otherwise head, white space, the words of chunk separated by white
+        //   space, white space, and tail
+        // Representation invariant:
+        //   if chunk is null, tail is empty
+        // Safety from rep exposure:
+        //   All fields are private and final; the arrays are never passed in, and only Joiner
+        //   reads them.
+        
+        private Member(long end, byte[] head, ParallelIngestion.Chunk chunk, byte[] tail){
+            this.end = end;
+            this.head = head;
+            this.chunk = chunk;
+            this.tail = tail;
+        }
+        
+        //Effects: decompresses and reads the member that starts at position start of channel, or
+        //         throws ZipException if none does or it is corrupt
+        static Member read(FileChannel channel, long start, Charset charset) throws IOException {
+            final Input input = new Input(channel, start);
+            readHeader(input);
+            
+            final Splitter splitter = new Splitter(charset);
+            final Inflater inflater = new Inflater(true);
+            final CRC32 crc = new CRC32();
+            final byte[] out = new byte[BUFFER_BYTES];
+            int length = 0;
+            long size = 0;
+            
+            try{
+                while(!inflater.finished()){
+                    if(inflater.needsInput()) input.feed(inflater);
+                    else if(inflater.needsDictionary()) throw new ZipException("gzip member needs a dictionary");
+                    
+                    final int inflated = inflater.inflate(out, length, out.length - length);
+                    crc.update(out, length, inflated);
+                    size += inflated;
+                    length = splitter.split(out, length + inflated);
+                }
+                input.unread(inflater.getRemaining());
+            }catch(DataFormatException e){
+                throw (ZipException) new ZipException("corrupt gzip member: " + e.getMessage()).initCause(e);
+            }finally{
+                inflater.end();
+            }
+            
+            if(input.readInt() != crc.getValue() || input.readInt() != (size & 0xFFFFFFFFL)){
+                throw new ZipException("corrupt gzip member: wrong CRC-32 or length");
+            }
+            return splitter.member(input.position(), out, length);
+        }
+        
+        //Effects: reads the header of a member from input, or throws ZipException if it is not one
+        private static void readHeader(Input input) throws IOException {
+            if(input.readByte() != ID1 || input.readByte() != ID2 || input.readByte() != DEFLATE){
+                throw new ZipException("not in gzip format");
+            }
+            final int flags = input.readByte();
+            if((flags & RESERVED) != 0) throw new ZipException("not in gzip format");
+            
+            input.skip(6);
+            if((flags & FEXTRA) != 0) input.skip(input.readByte() | input.readByte() << 8);
+            if((flags & FNAME) != 0) while(input.readByte() != 0){}
+            if((flags & FCOMMENT) != 0) while(input.readByte() != 0){}
+            if((flags & FHCRC) != 0) input.skip(2);
+        }
+    }
+    
+    /*
+     * Splits the decompressed text of a member, a block at a time, into the bytes before its first
+     * white space, which it keeps, and the rest, which it tokenizes.
+     */
+    private static class Splitter {
+        
+        private final ParallelIngestion.Counter counter = new ParallelIngestion.Counter();
+        private final CorpusTokenizer tokenizer;
+        private final ByteArrayOutputStream head = new ByteArrayOutputStream();
+        private boolean delimited = false;
+        
+        // Abstraction function:
+        //   represents the text read so far, which is head if !delimited, and otherwise head
+        //   followed by the white space and words that tokenizer has read into counter, the last of
+        //   which it may not have passed on yet
+        // Representation invariant:
+        //   tokenizer passes the words it reads to counter; if !delimited, it has read nothing
+        // Safety from rep exposure:
+        //   All fields are private, and only Member uses a splitter.
+        
+        private Splitter(Charset charset){
+            this.tokenizer = counter.tokenizer(charset);
+        }
+        
+        //Effects: reads the text in bytes[0..length-1], except for an incomplete character at its
+        //         end, which it moves to the start of bytes; returns the length of that character
+        private int split(byte[] bytes, int length){
+            final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            final int end = CorpusTokenizer.characterBoundary(buffer, length);
+            int from = 0;
+            
+            if(!delimited){
+                final int whitespace = tokenizer.nextWhitespace(buffer, 0, end);
+                from = whitespace < 0 ? end : whitespace;
+                head.write(bytes, 0, from);
+                delimited = whitespace >= 0;
+            }
+            tokenizer.tokenize(ByteBuffer.wrap(bytes, from, end - from));
+            System.arraycopy(bytes, end, bytes, 0, length - end);
+            return length - end;
+        }
+        
+        //Effects: returns the member whose text is the text read so far followed by rest[0..length-1],
+        //         and which ends before position end
+        private Member member(long end, byte[] rest, int length){
+            if(!delimited){
+                head.write(rest, 0, length);
+                return new Member(end, head.toByteArray(), null, new byte[0]);
+            }
+            final byte[] word = tokenizer.takeWord();
+            final byte[] tail = Arrays.copyOf(word, word.length + length);
+            System.arraycopy(rest, 0, tail, word.length, length);
+            return new Member(end, head.toByteArray(), counter.chunk(), tail);
+        }
+    }
+    
+    /*
+     * Merges the members of a gzip file into a CorpusBuilder in order, joining the bytes at the
+     * end of each member to those at the start of the next.
+     */
+    private static class Joiner {
+        
+        private final CorpusBuilder builder;
+        private final CorpusTokenizer tokenizer;
+        private final ByteArrayOutputStream fragment = new ByteArrayOutputStream();
+        
+        // Abstraction function:
+        //   represents the text merged so far: the words builder has read, followed by fragment,
+        //   which is not delimited by white space at its end
+        // Representation invariant:
+        //   tokenizer passes the words it reads to builder
+        // Safety from rep exposure:
+        //   All fields are private, and only ingest() uses a joiner.
+        
+        private Joiner(Charset charset, CorpusBuilder builder){
+            this.builder = builder;
+            this.tokenizer = new CorpusTokenizer(charset, builder::addVertex, builder::follow);
+        }
+        
+        //Effects: merges member, the member after those merged so far
+        private void add(Member member){
+            fragment.write(member.head, 0, member.head.length);
+            if(member.chunk == null) return;
+            
+            finish();
+            member.chunk.mergeInto(builder, false);
+            fragment.write(member.tail, 0, member.tail.length);
+        }
+        
+        //Effects: reads the words of fragment into builder, and empties it
+        private void finish(){
+            tokenizer.tokenize(ByteBuffer.wrap(fragment.toByteArray()));
+            tokenizer.finish();
+            fragment.reset();
+        }
+    }
+}
@@ -0,0 +1,123 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package poet;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Thread-safe counters of the work done by each stage of a pipelined corpus ingestion (see
+ * {@link GraphPoet#pipelined(java.io.File, IngestionStats)}), which can be read while the ingestion runs.
+ *
+ * <p>Each stage counts the items it has processed, the time it spent processing them, and the
+ * time it spent blocked on the queues to its neighbours: waiting for input from the stage before
+ * it, or for the stage after it to make room. The throughput of a stage is its items per second
+ * of processing time, so the stage with the lowest throughput relative to its input is the one
+ * that the others wait for. Counters are updated once per block of the corpus, not per word.
+ */
+public class IngestionStats {
+    
+    /** A stage of the pipeline. */
+    public enum Stage {
+        /** Reads blocks of the corpus file; its items are bytes. */
+        READ,
+        /** Splits blocks into words and numbers them; its items are words. */
+        TOKENIZE,
+        /** Adds the words and their bigrams to the graph; its items are words. */
+        WRITE
+    }
+    
+    private static final int ITEMS = 0;
+    private static final int BUSY_NANOS = 1;
+    private static final int BLOCKED_NANOS = 2;
+    private static final int COUNTERS = 3;
+    
+    private final AtomicLongArray counters = new AtomicLongArray(COUNTERS * Stage.values().length);
+    
+    // Abstraction function:
+    //   represents the counters of a pipeline in which stage s has processed
+    //   counters[COUNTERS*s.ordinal() + ITEMS] items, been busy for counters[... + BUSY_NANOS] ns
+    //   and blocked for counters[... + BLOCKED_NANOS] ns
+    // Representation invariant:
+    //   every counter is >= 0
+    // Safety from rep exposure:
+    //   The only field is private and final, and is never passed in or returned.
+    // Thread safety argument:
+    //   counters is a thread-safe AtomicLongArray; each counter is read and added to atomically.
+    
+    /**
+     * Create counters that are all zero.
+     */
+    public IngestionStats(){
+    }
+    
+    /**
+     * Add to the counters of a stage.
+     *
+     * @param stage the stage
+     * @param items nonnegative number of items processed
+     * @param busyNanos nonnegative time spent processing them
+     * @param blockedNanos nonnegative time spent blocked on queues
+     */
+    void record(Stage stage, long items, long busyNanos, long blockedNanos){
+        final int base = COUNTERS * stage.ordinal();
+        counters.addAndGet(base + ITEMS, items);
+        counters.addAndGet(base + BUSY_NANOS, busyNanos);
+        counters.addAndGet(base + BLOCKED_NANOS, blockedNanos);
+    }
+    
+    /**
+     * @param stage a stage
+     * @return the number of items stage has processed so far
+     */
+    public long items(Stage stage){
+        return counters.get(COUNTERS * stage.ordinal() + ITEMS);
+    }
+    
+    /**
+     * @param stage a stage
+     * @return the time in nanoseconds stage has spent processing items so far
+     */
+    public long busyNanos(Stage stage){
+        return counters.get(COUNTERS * stage.ordinal() + BUSY_NANOS);
+    }
+    
+    /**
+     * @param stage a stage
+     * @return the time in nanoseconds stage has spent blocked on its queues so far
+     */
+    public long blockedNanos(Stage stage){
+        return counters.get(COUNTERS * stage.ordinal() + BLOCKED_NANOS);
+    }
+    
+    /**
+     * @param stage a stage
+     * @return items(stage) per second of busyNanos(stage), or 0 if stage has not been busy
+     */
+    public double throughput(Stage stage){
+        final long busy = busyNanos(stage);
+        return busy == 0 ? 0 : items(stage) * 1e9 / busy;
+    }
+    
+    /**
+     * @return the stage that has been busy longest so far, which the others have been waiting for
+     */
+    public Stage bottleneck(){
+        Stage slowest = Stage.READ;
+        for(Stage stage : Stage.values()){
+            if(busyNanos(stage) > busyNanos(slowest)) slowest = stage;
+        }
+        return slowest;
+    }
+    
+    @Override public String toString() {
+        final StringBuilder string = new StringBuilder("IngestionStats(");
+        for(Stage stage : Stage.values()){
+            if(stage != Stage.READ) string.append(", ");
+            string.append(stage).append(": ").append(items(stage)).append(" items, ")
+                    .append(busyNanos(stage) / 1000000).append(" ms busy, ")
+                    .append(blockedNanos(stage) / 1000000).append(" ms blocked");
+        }
+        return string.append(")").toString();
+    }
+}
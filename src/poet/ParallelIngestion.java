@@ -0,0 +1,274 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package poet;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.IntConsumer;
+
+import graph.FrozenGraph;
+import graph.GraphBuilder;
+
+/**
+ * Reads the words of a corpus file in parallel, for GraphPoet.
+ *
+ * <p>The file is split into chunks of about equal size, each starting at a white space byte so
+ * that no word spans two chunks. Each chunk is mapped, tokenized and counted on a fork-join pool
+ * into a GraphBuilder of its own, whose vertex ids are in order of first appearance in the
+ * chunk. The chunk graphs are then merged in file order, which numbers the words in order of
+ * first appearance in the whole file, and the bigram from the last word of each chunk to the
+ * first word of the next is added, so the result is the same as reading the file in one pass.
+ * Merging a chunk only waits for that chunk, so it overlaps with counting the later ones. Only
+ * a window of chunks ahead of the one being merged is read at a time, and if reading one fails,
+ * the chunks not yet started are cancelled before the file is closed.
+ *
+ * <p>A corpus of many files is read with one task per file instead, each counting its file as a
+ * single chunk, and the files are merged in the order given, so the result does not depend on
+ * which task finishes first. Only a window of files ahead of the one being merged is read at a
+ * time, so the counts waiting to be merged take bounded memory however many files there are.
+ *
+ * <p>Chunks are tokenized by a CorpusTokenizer each, so this works for the charsets it supports.
+ * This class is internal to the rep of GraphPoet.
+ */
+class ParallelIngestion {
+    
+    /** Smallest size of the chunks chosen by ingest(). */
+    private static final long MIN_CHUNK_BYTES = 1 << 20;
+    
+    /** Largest size of the chunks chosen by ingest(). */
+    private static final long MAX_CHUNK_BYTES = 1 << 24;
+    
+    private ParallelIngestion(){
+        throw new AssertionError("not instantiable");
+    }
+    
+    /**
+     * Add the words of a corpus to builder as ingest(File, Charset, ForkJoinPool, long, CorpusBuilder)
+     * does, in chunks of a size chosen for the corpus and pool: about four per thread of pool,
+     * from 1 MiB to 16 MiB each, or the smallest size if builder is off heap, since each chunk's
+     * counts are staged on the heap until they are merged.
+     *
+     * @param corpus text file; if it is not well-formed in charset, malformed input is replaced
+     *        rather than ending the text as Scanner would
+     * @param charset a charset for which CorpusTokenizer.supports() is true
+     * @param pool the pool on which to read chunks
+     * @param builder the builder to add the words of corpus to
+     * @throws IOException if corpus cannot be read
+     */
+    static void ingest(File corpus, Charset charset, ForkJoinPool pool, CorpusBuilder builder) throws IOException {
+        final long chunkBytes = builder.isOffHeap() ? MIN_CHUNK_BYTES
+                : Math.max(MIN_CHUNK_BYTES, Math.min(MAX_CHUNK_BYTES, corpus.length() / (4L * pool.getParallelism())));
+        ingest(corpus, charset, pool, chunkBytes, builder);
+    }
+    
+    /**
+     * Add the words of a corpus, in lower case, and the bigrams between them to builder, exactly as
+     * reading the corpus with a Scanner in charset would; the first word of the corpus follows the
+     * last word builder has read, if any.
+     *
+     * @param corpus text file; if it is not well-formed in charset, malformed input is replaced
+     *        rather than ending the text as Scanner would
+     * @param charset a charset for which CorpusTokenizer.supports() is true
+     * @param pool the pool on which to read chunks
+     * @param chunkBytes positive approximate size of each chunk
+     * @param builder the builder to add the words of corpus to
+     * @throws IOException if corpus cannot be read
+     */
+    static void ingest(File corpus, Charset charset, ForkJoinPool pool, long chunkBytes, CorpusBuilder builder)
+            throws IOException {
+        final int window = 2 * pool.getParallelism();
+        final ArrayDeque<Future<Chunk>> pending = new ArrayDeque<>();
+        
+        try(FileChannel channel = FileChannel.open(corpus.toPath(), StandardOpenOption.READ)){
+            final long size = channel.size();
+            long start = 0;
+            
+            try{
+                while(start < size || !pending.isEmpty()){
+                    while(start < size && pending.size() < window){
+                        final long from = start;
+                        final long end = CorpusTokenizer.nextWhitespace(channel, Math.max(from + 1, Math.min(size, from + chunkBytes)), size);
+                        pending.add(pool.submit(() -> unchecked(() -> Chunk.read(channel, from, end, charset))));
+                        start = end;
+                    }
+                    join(pending.remove()).mergeInto(builder, false);
+                }
+            }finally{
+                for(Future<Chunk> future : pending){
+                    future.cancel(false);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Add the words of several corpora, in lower case, and the bigrams between them to builder,
+     * in order, exactly as reading each corpus with a Scanner in charset would. If separate, each
+     * corpus that has words is a new document of builder, so no bigram links the last word of one
+     * corpus to the first word of the next; otherwise the corpora are read as one text, whose
+     * first word follows the last word builder has read, if any.
+     *
+     * @param corpora text files; if one is not well-formed in charset, malformed input is replaced
+     *        rather than ending the text as Scanner would
+     * @param separate whether each corpus is a document of its own
+     * @param charset a charset for which CorpusTokenizer.supports() is true
+     * @param pool the pool on which to read the corpora, one task per file
+     * @param builder the builder to add the words of corpora to
+     * @throws IOException if a corpus cannot be read
+     */
+    static void ingest(List<File> corpora, boolean separate, Charset charset, ForkJoinPool pool, CorpusBuilder builder)
+            throws IOException {
+        final int window = 2 * pool.getParallelism();
+        final ArrayDeque<Future<Chunk>> pending = new ArrayDeque<>();
+        int next = 0;
+        
+        try{
+            while(next < corpora.size() || !pending.isEmpty()){
+                while(next < corpora.size() && pending.size() < window){
+                    final File corpus = corpora.get(next++);
+                    pending.add(pool.submit(() -> unchecked(() -> Chunk.read(corpus, charset))));
+                }
+                join(pending.remove()).mergeInto(builder, separate);
+            }
+        }finally{
+            for(Future<Chunk> future : pending){
+                future.cancel(false);
+            }
+        }
+    }
+    
+    /*
+     * Reads part of a corpus.
+     */
+    interface Reading<T> {
+        T read() throws IOException;
+    }
+    
+    //Effects: returns what reading reads, wrapping an IOException it throws in an
+    //         UncheckedIOException, which join() unwraps; a fork-join pool would otherwise wrap it
+    //         in a plain RuntimeException
+    static <T> T unchecked(Reading<T> reading){
+        try{
+            return reading.read();
+        }catch(IOException e){
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    //Effects: waits for future and returns its result, rethrowing what it threw
+    static <T> T join(Future<T> future) throws IOException {
+        try{
+            return future.get();
+        }catch(InterruptedException e){
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while reading corpus", e);
+        }catch(ExecutionException e){
+            if(e.getCause() instanceof UncheckedIOException) throw ((UncheckedIOException) e.getCause()).getCause();
+            if(e.getCause() instanceof IOException) throw (IOException) e.getCause();
+            if(e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            if(e.getCause() instanceof Error) throw (Error) e.getCause();
+            throw new IOException(e.getCause());
+        }
+    }
+    
+    /*
+     * The words and bigrams of one chunk of a corpus.
+     */
+    static class Chunk {
+        
+        private final FrozenGraph<String> graph;
+        private final int first;
+        private final int last;
+        
+        // Abstraction function:
+        //   represents a chunk whose words in lower case are the vertices of graph, numbered in order
+        //   of first appearance, whose bigrams are the edges of graph, and whose first and last words
+        //   have ids first and last, or which has no words if first == -1
+        // Representation invariant:
+        //   first == -1 iff. last == -1 iff. graph has no vertices; otherwise both are ids of graph
+        // Safety from rep exposure:
+        //   All fields are private, final and immutable.
+        
+        private Chunk(FrozenGraph<String> graph, int first, int last){
+            this.graph = graph;
+            this.first = first;
+            this.last = last;
+        }
+        
+        //Effects: reads and counts the bytes of channel in [from, to)
+        static Chunk read(FileChannel channel, long from, long to, Charset charset) throws IOException {
+            final Counter counter = new Counter();
+            counter.tokenizer(charset).tokenize(channel, from, to);
+            return counter.chunk();
+        }
+        
+        //Effects: reads and counts the whole of corpus, decompressing it as it is read if its name
+        //         ends in .gz
+        static Chunk read(File corpus, Charset charset) throws IOException {
+            if(GzipIngestion.isGzipName(corpus)){
+                final Counter counter = new Counter();
+                final CorpusTokenizer tokenizer = counter.tokenizer(charset);
+                GzipIngestion.tokenize(corpus, tokenizer);
+                tokenizer.finish();
+                return counter.chunk();
+            }
+            try(FileChannel channel = FileChannel.open(corpus.toPath(), StandardOpenOption.READ)){
+                return read(channel, 0, channel.size(), charset);
+            }
+        }
+        
+        //Effects: adds the words and bigrams of this chunk to builder, and reads its words into
+        //         builder as a run, following the last word builder has read unless newDocument
+        void mergeInto(CorpusBuilder builder, boolean newDocument){
+            if(newDocument) builder.endDocument();
+            if(first < 0) return;
+            
+            final int[] ids = new int[graph.vertexCount()];
+            for(int id = 0; id < ids.length; id++){
+                ids[id] = builder.addVertex(graph.labelOf(id));
+            }
+            for(int source = 0; source < ids.length; source++){
+                for(int k = 0; k < graph.outDegree(source); k++){
+                    builder.addEdge(ids[source], ids[graph.target(source, k)], graph.targetWeight(source, k));
+                }
+            }
+            builder.followRun(ids[first], ids[last]);
+        }
+    }
+    
+    /*
+     * Counts the bigrams of a chunk into a GraphBuilder, given the ids of its words in order.
+     */
+    static class Counter implements IntConsumer {
+        
+        private final GraphBuilder<String> builder = new GraphBuilder<>();
+        private int first = -1;
+        private int prev = -1;
+        
+        @Override public void accept(int id) {
+            if(prev < 0) first = id;
+            else builder.addById(prev, id, 1);
+            prev = id;
+        }
+        
+        //Effects: returns a new tokenizer that passes the words it reads to this counter
+        CorpusTokenizer tokenizer(Charset charset){
+            return new CorpusTokenizer(charset, builder::add, this);
+        }
+        
+        //Effects: returns the chunk of the words counted so far
+        Chunk chunk(){
+            return new Chunk(builder.build(), first, prev);
+        }
+    }
+}
@@ -0,0 +1,317 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package poet;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.IntConsumer;
+import java.util.function.ToIntFunction;
+
+import poet.IngestionStats.Stage;
+
+/**
+ * Reads the words of a corpus file in a pipeline of three stages, for GraphPoet.
+ *
+ * <p>A reader thread reads the file into blocks, a tokenizer thread splits each block into
+ * words and numbers them in order of first appearance, and the calling thread adds the words
+ * and their bigrams to a CorpusBuilder. The stages are connected by bounded queues: the reader
+ * takes its blocks from a fixed pool of buffers that the tokenizer returns once it is done with
+ * them, so it reads the next blocks while the tokenizer works on an earlier one, and blocks when
+ * all buffers are in use; the tokenizer blocks when the writer has queueBlocks batches of words
+ * waiting. So ingestion runs at the speed of its slowest stage, in bounded memory.
+ *
+ * <p>Blocks are cut anywhere except inside the encoding of a character, and a word that spans
+ * two blocks is carried over by the tokenizer, so the result is the same as reading the file in
+ * one pass. This works for the charsets CorpusTokenizer supports.
+ * This class is internal to the rep of GraphPoet.
+ */
+class PipelinedIngestion {
+    
+    /** Size of each block read by ingest(). */
+    private static final int BLOCK_BYTES = 1 << 18;
+    
+    /** Number of blocks that may wait between two stages of ingest(). */
+    private static final int QUEUE_BLOCKS = 4;
+    
+    /** Marks the end of the blocks of a corpus. */
+    private static final ByteBuffer NO_MORE_BLOCKS = ByteBuffer.allocate(0);
+    
+    /** Marks the end of the batches of a corpus. */
+    private static final Batch NO_MORE_BATCHES = new Batch(0);
+    
+    private PipelinedIngestion(){
+        throw new AssertionError("not instantiable");
+    }
+    
+    /**
+     * Add the words of a corpus to builder as ingest(File, Charset, int, int, CorpusBuilder,
+     * IngestionStats) does, in blocks of 256 KiB with up to 4 waiting between two stages.
+     *
+     * @param corpus text file; if it is not well-formed in charset, malformed input is replaced
+     *        rather than ending the text as Scanner would
+     * @param charset a charset for which CorpusTokenizer.supports() is true
+     * @param builder the builder to add the words of corpus to
+     * @param stats counters to which each stage adds the work it does
+     * @throws IOException if corpus cannot be read or gets shorter while it is read, or the
+     *         calling thread is interrupted
+     */
+    static void ingest(File corpus, Charset charset, CorpusBuilder builder, IngestionStats stats) throws IOException {
+        ingest(corpus, charset, BLOCK_BYTES, QUEUE_BLOCKS, builder, stats);
+    }
+    
+    /**
+     * Add the words of a corpus, in lower case, and the bigrams between them to builder, exactly as
+     * reading the corpus with a Scanner in charset would; the first word of the corpus follows the
+     * last word builder has read, if any.
+     *
+     * @param corpus text file; if it is not well-formed in charset, malformed input is replaced
+     *        rather than ending the text as Scanner would
+     * @param charset a charset for which CorpusTokenizer.supports() is true
+     * @param blockBytes size of each block read, at least 4
+     * @param queueBlocks positive number of blocks that may wait between two stages
+     * @param builder the builder to add the words of corpus to
+     * @param stats counters to which each stage adds the work it does
+     * @throws IOException if corpus cannot be read or gets shorter while it is read, or the
+     *         calling thread is interrupted
+     */
+    static void ingest(File corpus, Charset charset, int blockBytes, int queueBlocks, CorpusBuilder builder,
+            IngestionStats stats) throws IOException {
+        final BlockingQueue<ByteBuffer> free = new ArrayBlockingQueue<>(queueBlocks + 2);
+        final BlockingQueue<ByteBuffer> blocks = new ArrayBlockingQueue<>(queueBlocks + 1);
+        final BlockingQueue<Batch> batches = new ArrayBlockingQueue<>(queueBlocks + 1);
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        for(int i = 0; i < queueBlocks + 2; i++){
+            free.add(ByteBuffer.allocate(blockBytes));
+        }
+        
+        try(FileChannel channel = FileChannel.open(corpus.toPath(), StandardOpenOption.READ)){
+            final Thread reader = start("corpus-reader", failure,
+                    () -> read(channel, free, blocks, stats), () -> blocks.put(NO_MORE_BLOCKS));
+            final Thread tokenizer = start("corpus-tokenizer", failure,
+                    () -> tokenize(charset, blockBytes, free, blocks, batches, stats), () -> batches.put(NO_MORE_BATCHES));
+            try{
+                write(batches, builder, stats);
+            }finally{
+                reader.interrupt();
+                tokenizer.interrupt();
+                join(reader);
+                join(tokenizer);
+            }
+        }
+        rethrow(failure.get());
+    }
+    
+    //Effects: reads channel into buffers taken from free, and puts them on blocks, each with its
+    //         position at 0 and its limit at the number of bytes read; throws EOFException if the
+    //         file ends before the size it had when reading began
+    private static void read(FileChannel channel, BlockingQueue<ByteBuffer> free, BlockingQueue<ByteBuffer> blocks,
+            IngestionStats stats) throws IOException, InterruptedException {
+        final long size = channel.size();
+        long position = 0;
+        
+        while(position < size){
+            final long waitStart = System.nanoTime();
+            final ByteBuffer buffer = free.take();
+            final long readStart = System.nanoTime();
+            
+            buffer.clear();
+            while(buffer.hasRemaining() && position + buffer.position() < size){
+                if(channel.read(buffer, position + buffer.position()) < 0){
+                    throw new EOFException("corpus ended at " + (position + buffer.position()) + " of " + size + " bytes");
+                }
+            }
+            final int length = buffer.position();
+            final int end = position + length < size ? CorpusTokenizer.characterBoundary(buffer, length) : length;
+            buffer.flip();
+            buffer.limit(end);
+            position += end;
+            
+            final long putStart = System.nanoTime();
+            blocks.put(buffer);
+            final long putEnd = System.nanoTime();
+            stats.record(Stage.READ, end, putStart - readStart, (readStart - waitStart) + (putEnd - putStart));
+        }
+    }
+    
+    //Effects: tokenizes the buffers on blocks in order, returning each to free when it is done,
+    //         and puts a batch of the words of each on batches
+    private static void tokenize(Charset charset, int blockBytes, BlockingQueue<ByteBuffer> free,
+            BlockingQueue<ByteBuffer> blocks, BlockingQueue<Batch> batches, IngestionStats stats)
+            throws InterruptedException {
+        final Numbering numbering = new Numbering();
+        final CorpusTokenizer tokenizer = new CorpusTokenizer(charset, numbering, numbering);
+        
+        while(true){
+            final long waitStart = System.nanoTime();
+            final ByteBuffer buffer = blocks.take();
+            final long tokenizeStart = System.nanoTime();
+            
+            numbering.batch = new Batch(blockBytes / 8);
+            if(buffer == NO_MORE_BLOCKS){
+                tokenizer.finish();
+            }else{
+                tokenizer.tokenize(buffer);
+                free.put(buffer);
+            }
+            
+            final long putStart = System.nanoTime();
+            if(numbering.batch.count > 0) batches.put(numbering.batch);
+            final long putEnd = System.nanoTime();
+            stats.record(Stage.TOKENIZE, numbering.batch.count, putStart - tokenizeStart,
+                    (tokenizeStart - waitStart) + (putEnd - putStart));
+            
+            if(buffer == NO_MORE_BLOCKS) return;
+        }
+    }
+    
+    //Effects: adds the words of the batches on batches to builder, until NO_MORE_BATCHES
+    private static void write(BlockingQueue<Batch> batches, CorpusBuilder builder, IngestionStats stats)
+            throws IOException {
+        int[] ids = new int[1 << 10];
+        int idCount = 0;
+        
+        while(true){
+            final long waitStart = System.nanoTime();
+            final Batch batch = take(batches);
+            final long writeStart = System.nanoTime();
+            if(batch == NO_MORE_BATCHES) return;
+            
+            for(String word : batch.newWords){
+                if(idCount == ids.length) ids = Arrays.copyOf(ids, 2 * idCount);
+                ids[idCount++] = builder.addVertex(word);
+            }
+            for(int i = 0; i < batch.count; i++){
+                builder.follow(ids[batch.ids[i]]);
+            }
+            stats.record(Stage.WRITE, batch.count, System.nanoTime() - writeStart, writeStart - waitStart);
+        }
+    }
+    
+    //Effects: waits for and removes the head of queue
+    private static Batch take(BlockingQueue<Batch> queue) throws IOException {
+        try{
+            return queue.take();
+        }catch(InterruptedException e){
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while reading corpus", e);
+        }
+    }
+    
+    /*
+     * The body of a stage, or what it does when it ends.
+     */
+    private interface Task {
+        void run() throws Exception;
+    }
+    
+    //Effects: starts a daemon thread that runs body and then end, recording in failure the first
+    //         exception either throws; the thread stops quietly if it is interrupted
+    private static Thread start(String name, AtomicReference<Throwable> failure, Task body, Task end){
+        final Thread thread = new Thread(() -> {
+            try{
+                body.run();
+            }catch(InterruptedException e){
+                return;
+            }catch(Throwable t){
+                failure.compareAndSet(null, t);
+            }
+            try{
+                end.run();
+            }catch(InterruptedException e){
+                return;
+            }catch(Throwable t){
+                failure.compareAndSet(null, t);
+            }
+        }, name);
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+    
+    //Effects: waits for thread to end, even if this thread is interrupted, which it then remains
+    private static void join(Thread thread){
+        boolean interrupted = false;
+        while(thread.isAlive()){
+            try{
+                thread.join();
+            }catch(InterruptedException e){
+                interrupted = true;
+            }
+        }
+        if(interrupted) Thread.currentThread().interrupt();
+    }
+    
+    //Effects: throws failure, or an IOException caused by it if it is a checked exception other than
+    //         an IOException; does nothing if failure is null
+    private static void rethrow(Throwable failure) throws IOException {
+        if(failure == null) return;
+        if(failure instanceof IOException) throw (IOException) failure;
+        if(failure instanceof RuntimeException) throw (RuntimeException) failure;
+        if(failure instanceof Error) throw (Error) failure;
+        throw new IOException(failure);
+    }
+    
+    /*
+     * The words of one block of a corpus, as numbered by the tokenizer stage.
+     */
+    private static class Batch {
+        
+        private final List<String> newWords = new ArrayList<>();
+        private int[] ids;
+        private int count = 0;
+        
+        // Abstraction function:
+        //   represents the words numbered ids[0..count-1] in order, where newWords are the words
+        //   first numbered in this batch, in order of their numbers
+        // Representation invariant:
+        //   count <= ids.length
+        // Safety from rep exposure:
+        //   All fields are private, and only PipelinedIngestion accesses them.
+        
+        private Batch(int capacity){
+            this.ids = new int[Math.max(capacity, 16)];
+        }
+        
+        //Effects: appends id to the words of this batch
+        private void add(int id){
+            if(count == ids.length) ids = Arrays.copyOf(ids, 2 * count);
+            ids[count++] = id;
+        }
+    }
+    
+    /*
+     * Numbers the words of a corpus densely in order of first appearance, for a CorpusTokenizer,
+     * and collects the numbers of the words of the current block into a batch.
+     */
+    private static class Numbering implements ToIntFunction<String>, IntConsumer {
+        
+        private final HashMap<String, Integer> numbers = new HashMap<>();
+        private Batch batch = new Batch(0);
+        
+        @Override public int applyAsInt(String word) {
+            final Integer number = numbers.get(word);
+            if(number != null) return number;
+            
+            numbers.put(word, numbers.size());
+            batch.newWords.add(word);
+            return numbers.size() - 1;
+        }
+        
+        @Override public void accept(int id) {
+            batch.add(id);
+        }
+    }
+}
@@ -0,0 +1,173 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package poet;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.IntBinaryOperator;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Creates the poems of a batch of inputs concurrently, for GraphPoet.
+ *
+ * <p>The inputs are split into slices of consecutive inputs, each of which is a task run by an
+ * executor, and each poem is stored at the index of its input, so the poems come out in order
+ * whichever task finishes first. A stream of inputs is read in blocks of many slices each, one
+ * block at a time. The tasks of a batch may share a lock-free memo of bridges made by memo().
+ * This class is internal to the rep of GraphPoet.
+ */
+class PoemBatch {
+    
+    /** Number of consecutive inputs whose poems one task creates. */
+    private static final int SLICE_INPUTS = 256;
+    
+    /** Number of inputs of a stream whose poems are created at once. */
+    private static final int STREAM_BLOCK_INPUTS = 1 << 14;
+    
+    /** log2 of the number of slots of a memo. */
+    private static final int MEMO_BITS = 16;
+    
+    private PoemBatch(){
+        throw new AssertionError("not instantiable");
+    }
+    
+    /**
+     * Create the poems of a list of inputs concurrently.
+     *
+     * @param inputs strings from which to create the poems
+     * @param executor runs the tasks that create the poems
+     * @param poem returns the poem of an input; called by several tasks at once
+     * @return the poems of inputs, in order: element i is poem.apply(inputs.get(i))
+     * @throws java.util.concurrent.RejectedExecutionException if executor does not accept a task
+     */
+    static List<String> poems(List<String> inputs, Executor executor, UnaryOperator<String> poem){
+        final String[] poems = new String[inputs.size()];
+        final List<CompletableFuture<Void>> slices = new ArrayList<>();
+        
+        for(int start = 0; start < poems.length; start += SLICE_INPUTS){
+            final int from = start;
+            final int to = Math.min(poems.length, start + SLICE_INPUTS);
+            slices.add(CompletableFuture.runAsync(() -> {
+                for(int i = from; i < to; i++){
+                    poems[i] = poem.apply(inputs.get(i));
+                }
+            }, executor));
+        }
+        try{
+            CompletableFuture.allOf(slices.toArray(new CompletableFuture<?>[0])).join();
+        }catch(CompletionException e){
+            if(e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            if(e.getCause() instanceof Error) throw (Error) e.getCause();
+            throw e;
+        }
+        return Arrays.asList(poems);
+    }
+    
+    /**
+     * Create the poems of a stream of inputs concurrently, a block of inputs at a time, as the
+     * returned stream reaches each block, so a stream of any length takes memory for one block.
+     *
+     * @param inputs strings from which to create the poems; closed when the returned stream is
+     * @param executor runs the tasks that create the poems
+     * @param poem returns the poem of an input; called by several tasks at once
+     * @return a sequential stream of the poems of inputs, in order
+     */
+    static Stream<String> poems(Stream<String> inputs, Executor executor, UnaryOperator<String> poem){
+        final Iterator<String> iterator = inputs.iterator();
+        final Iterator<List<String>> blocks = new Iterator<List<String>>(){
+            @Override public boolean hasNext() {
+                return iterator.hasNext();
+            }
+            
+            @Override public List<String> next() {
+                final List<String> block = new ArrayList<>();
+                while(iterator.hasNext() && block.size() < STREAM_BLOCK_INPUTS){
+                    block.add(iterator.next());
+                }
+                if(block.isEmpty()) throw new NoSuchElementException();
+                return poems(block, executor, poem);
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(blocks, Spliterator.ORDERED), false)
+                .flatMap(List::stream).onClose(inputs::close);
+    }
+    
+    /**
+     * Make a memo of the bridges between pairs of vertices, for the tasks of a batch to share.
+     * It remembers the bridge of the last pair to hash to each of its slots, so a pair that
+     * occurs in many inputs is usually computed once.
+     *
+     * @param compute returns the bridge from a source to a target; called by several tasks at once
+     * @return a thread-safe function equal to compute, that calls compute only for pairs not
+     *         remembered
+     */
+    static IntBinaryOperator memo(IntBinaryOperator compute){
+        final BridgeMemo memo = new BridgeMemo(MEMO_BITS);
+        return (source, target) -> memo.bridge(source, target, compute);
+    }
+    
+    /*
+     * A lock-free memo of the bridges between pairs of vertices, shared by the tasks of a batch of
+     * poems. Each pair hashes to one slot, which holds the last pair stored in it, so a pair whose
+     * slot has since been taken by another is computed again.
+     */
+    private static class BridgeMemo {
+        
+        private final Entry[] slots;
+        
+        // Abstraction function:
+        //   represents the memo that remembers, for each non-null slots[i], that the bridge from
+        //   slots[i].source to slots[i].target is slots[i].bridge
+        // Representation invariant:
+        //   slots.length is a power of two, and each entry is in the slot its pair hashes to
+        // Safety from rep exposure:
+        //   The only field is private and final, and is never passed in or returned.
+        // Thread safety argument:
+        //   Entries are immutable, with final fields, so a task that reads a slot sees either null or
+        //   a whole entry that some task stored, even without synchronization; a race between two
+        //   tasks storing into a slot only loses one of two correct entries.
+        
+        private BridgeMemo(int bits){
+            this.slots = new Entry[1 << bits];
+        }
+        
+        //Effects: returns compute.applyAsInt(source, target), possibly remembered from an earlier call
+        private int bridge(int source, int target, IntBinaryOperator compute){
+            final long h = (((long) source << 32) | (target & 0xFFFFFFFFL)) * 0x9E3779B97F4A7C15L;
+            final int slot = (int) (h >>> 32) & (slots.length - 1);
+            final Entry entry = slots[slot];
+            if(entry != null && entry.source == source && entry.target == target) return entry.bridge;
+            
+            final int bridge = compute.applyAsInt(source, target);
+            slots[slot] = new Entry(source, target, bridge);
+            return bridge;
+        }
+        
+        /*
+         * The bridge between a pair of vertices.
+         */
+        private static class Entry {
+            
+            private final int source;
+            private final int target;
+            private final int bridge;
+            
+            private Entry(int source, int target, int bridge){
+                this.source = source;
+                this.target = target;
+                this.bridge = bridge;
+            }
+        }
+    }
+}
@@ -0,0 +1,188 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package graph;
+
+import static org.junit.Assert.*;
+
+import java.util.Collections;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests for AppendableGraph.
+ *
+ * AppendableGraph is immutable, so it cannot run the GraphInstanceTest tests; instead
+ * each test compares it with a FrozenGraph built from the same vertices and edges.
+ */
+public class AppendableGraphTest {
+    
+    // Testing strategy
+    //   AppendableGraph(base): base empty, nonempty
+    //   Appender.add(): vertex of the base, vertex added by the appender, new vertex; enough new
+    //     vertices to fill several chunks
+    //   Appender.addById(): edge of the base, new edge; between base vertices, new vertices, both;
+    //     reflexive edge; delta <= 0, unknown id, weight overflow
+    //   build(): nothing added, appender used again after build(), two appenders from one graph
+    //   graph it started from: unchanged by later appends
+    //   IndexedGraph queries: agree with a FrozenGraph of the same edges, in the same id order;
+    //     labelOf() of an id out of range
+    //   add(), set(), remove(): always throw UnsupportedOperationException
+    
+    //Effects: asserts that graph has exactly the vertices, ids and edges of expected
+    private static <L> void assertSameGraph(IndexedGraph<L> expected, IndexedGraph<L> graph){
+        assertEquals(expected.vertexCount(), graph.vertexCount());
+        assertEquals(expected.vertices(), graph.vertices());
+        assertEquals(expected.toString(), graph.toString());
+        
+        for(int i = 0; i < expected.vertexCount(); i++){
+            final L label = expected.labelOf(i);
+            assertEquals(label, graph.labelOf(i));
+            assertEquals(i, graph.idOf(label));
+            assertEquals(expected.targets(label), graph.targets(label));
+            assertEquals(expected.sources(label), graph.sources(label));
+            
+            assertEquals(expected.outDegree(i), graph.outDegree(i));
+            for(int k = 0; k < expected.outDegree(i); k++){
+                assertEquals(expected.target(i, k), graph.target(i, k));
+                assertEquals(expected.targetWeight(i, k), graph.targetWeight(i, k));
+            }
+            assertEquals(expected.inDegree(i), graph.inDegree(i));
+            for(int k = 0; k < expected.inDegree(i); k++){
+                assertEquals(expected.source(i, k), graph.source(i, k));
+                assertEquals(expected.sourceWeight(i, k), graph.sourceWeight(i, k));
+            }
+            for(int j = 0; j < expected.vertexCount(); j++){
+                assertEquals(expected.weight(i, j), graph.weight(i, j));
+            }
+        }
+    }
+    
+    @Test
+    public void testEmptyBase(){
+        AppendableGraph<String> graph = new AppendableGraph<>(new GraphBuilder<String>().build());
+        
+        assertEquals(0, graph.vertexCount());
+        assertEquals(-1, graph.idOf("a"));
+        assertEquals(Collections.emptyMap(), graph.targets("a"));
+        assertEquals("({}, {})", graph.toString());
+        assertSameGraph(graph, graph.appender().build());
+    }
+    
+    @Test
+    public void testAppendToBase(){
+        GraphBuilder<String> builder = new GraphBuilder<String>().add("a", "b", 2).add("b", "c", 1);
+        AppendableGraph<String> graph = new AppendableGraph<>(builder.build());
+        AppendableGraph.Appender<String> appender = graph.appender();
+        
+        assertEquals(1, appender.add("b"));
+        assertEquals(3, appender.add("d"));
+        assertEquals(3, appender.add("d"));
+        appender.addById(0, 1, 1);
+        appender.addById(0, 3, 4);
+        appender.addById(3, 3, 1);
+        appender.addById(2, 0, 1);
+        AppendableGraph<String> appended = appender.build();
+        
+        builder.add("a", "b", 1).add("a", "d", 4).add("d", "d", 1).add("c", "a", 1);
+        assertSameGraph(builder.build(), appended);
+        assertSameGraph(new GraphBuilder<String>().add("a", "b", 2).add("b", "c", 1).build(), graph);
+    }
+    
+    @Test
+    public void testAppenderReusedAndBranched(){
+        AppendableGraph<String> graph = new AppendableGraph<>(new GraphBuilder<String>().add("a", "b", 1).build());
+        AppendableGraph.Appender<String> first = graph.appender();
+        AppendableGraph.Appender<String> second = graph.appender();
+        
+        first.addById(0, 1, 1);
+        AppendableGraph<String> once = first.build();
+        first.addById(first.add("c"), 0, 1);
+        first.addById(0, 1, 1);
+        AppendableGraph<String> twice = first.build();
+        second.addById(second.add("x"), 1, 5);
+        AppendableGraph<String> other = second.build();
+        
+        assertSameGraph(new GraphBuilder<String>().add("a", "b", 1).build(), graph);
+        assertSameGraph(new GraphBuilder<String>().add("a", "b", 2).build(), once);
+        assertSameGraph(new GraphBuilder<String>().add("a", "b", 3).add("c", "a", 1).build(), twice);
+        assertSameGraph(new GraphBuilder<String>().add("a", "b", 1).add("x", "b", 5).build(), other);
+    }
+    
+    @Test
+    public void testRandomAppends(){
+        final Random random = new Random(6005);
+        final GraphBuilder<String> expected = new GraphBuilder<>();
+        for(int i = 0; i < 100; i++){
+            expected.add("v" + random.nextInt(100), "v" + random.nextInt(100), 1 + random.nextInt(3));
+        }
+        AppendableGraph<String> graph = new AppendableGraph<>(expected.build());
+        
+        for(int round = 0; round < 5; round++){
+            final AppendableGraph<String> before = graph;
+            final String beforeString = before.toString();
+            final AppendableGraph.Appender<String> appender = graph.appender();
+            
+            for(int i = 0; i < 300; i++){
+                final String source = "v" + random.nextInt(100 + 100 * round);
+                final String target = "v" + random.nextInt(100 + 100 * round);
+                final int delta = 1 + random.nextInt(3);
+                assertEquals(expected.add(source), appender.add(source));
+                assertEquals(expected.add(target), appender.add(target));
+                appender.addById(appender.add(source), appender.add(target), delta);
+                expected.add(source, target, delta);
+            }
+            graph = appender.build();
+            
+            assertSameGraph(expected.build(), graph);
+            assertEquals(beforeString, before.toString());
+        }
+    }
+    
+    @Test(expected=IllegalArgumentException.class)
+    public void testAddByIdNonPositiveDelta(){
+        AppendableGraph<String> graph = new AppendableGraph<>(new GraphBuilder<String>().add("a", "b", 1).build());
+        graph.appender().addById(0, 1, 0);
+    }
+    
+    @Test(expected=IndexOutOfBoundsException.class)
+    public void testAddByIdUnknownId(){
+        AppendableGraph<String> graph = new AppendableGraph<>(new GraphBuilder<String>().add("a", "b", 1).build());
+        graph.appender().addById(0, 2, 1);
+    }
+    
+    @Test(expected=ArithmeticException.class)
+    public void testAddByIdOverflow(){
+        AppendableGraph<String> graph = new AppendableGraph<>(
+                new GraphBuilder<String>().add("a", "b", Integer.MAX_VALUE).build());
+        graph.appender().addById(0, 1, 1);
+    }
+    
+    @Test(expected=IndexOutOfBoundsException.class)
+    public void testLabelOfOutOfRange(){
+        AppendableGraph<String> graph = new AppendableGraph<>(new GraphBuilder<String>().add("a", "b", 1).build());
+        AppendableGraph.Appender<String> appender = graph.appender();
+        appender.add("c");
+        appender.build().labelOf(3);
+    }
+    
+    @Test
+    public void testMutatorsUnsupported(){
+        AppendableGraph<String> graph = new AppendableGraph<>(new GraphBuilder<String>().add("a", "b", 1).build());
+        
+        try{
+            graph.add("c");
+            fail("expected UnsupportedOperationException");
+        }catch(UnsupportedOperationException e){}
+        try{
+            graph.set("a", "b", 2);
+            fail("expected UnsupportedOperationException");
+        }catch(UnsupportedOperationException e){}
+        try{
+            graph.remove("a");
+            fail("expected UnsupportedOperationException");
+        }catch(UnsupportedOperationException e){}
+        assertEquals("({a, b}, {(a, b, 1)})", graph.toString());
+    }
+}
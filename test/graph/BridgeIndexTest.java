@@ -0,0 +1,131 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package graph;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests for BridgeIndex.
+ */
+public class BridgeIndexTest {
+    
+    // Testing strategy
+    //   graph: empty, small, random (compared against a direct search)
+    //   pair: one bridge, several bridges with different weights, tied weights, no bridge,
+    //     reflexive path (source, bridge or target equal)
+    //   maxBytes: 0, enough for some sources, enough for all; negative
+    //   empty()
+    
+    //Effects: returns the id of the best bridge from source to target in graph, by a search of
+    //         every vertex, or BridgeIndex.NO_BRIDGE if there is none
+    private static int search(IndexedGraph<?> graph, int source, int target){
+        int bridge = BridgeIndex.NO_BRIDGE;
+        long best = 0;
+        for(int b = 0; b < graph.vertexCount(); b++){
+            final int first = graph.weight(source, b);
+            final int second = graph.weight(b, target);
+            if(first > 0 && second > 0 && first + second > best){
+                best = first + second;
+                bridge = b;
+            }
+        }
+        return bridge;
+    }
+    
+    @Test
+    public void testEmpty(){
+        BridgeIndex index = BridgeIndex.empty();
+        
+        assertFalse(index.isComplete());
+        assertEquals(0, index.indexedSourceCount());
+        assertEquals(0, index.pairCount());
+        assertEquals(0, index.bytes());
+        assertEquals(BridgeIndex.NOT_INDEXED, index.bridge(0, 0));
+    }
+    
+    @Test
+    public void testEmptyGraph(){
+        BridgeIndex index = BridgeIndex.build(new GraphBuilder<String>().build(), Long.MAX_VALUE);
+        
+        assertTrue(index.isComplete());
+        assertEquals(0, index.pairCount());
+    }
+    
+    @Test
+    public void testSmallGraph(){
+        FrozenGraph<String> graph = new GraphBuilder<String>()
+                .add("a", "b", 1).add("b", "c", 2)
+                .add("a", "d", 2).add("d", "c", 2)
+                .add("c", "e", 1).add("c", "f", 2).add("e", "g", 2).add("f", "g", 1)
+                .add("g", "g", 1)
+                .build();
+        int a = graph.idOf("a"), c = graph.idOf("c"), d = graph.idOf("d"), e = graph.idOf("e"), g = graph.idOf("g");
+        
+        BridgeIndex index = BridgeIndex.build(graph, Long.MAX_VALUE);
+        
+        assertTrue(index.isComplete());
+        assertEquals(graph.vertexCount(), index.indexedSourceCount());
+        assertEquals(d, index.bridge(a, c));
+        assertEquals(e, index.bridge(c, g));
+        assertEquals(g, index.bridge(g, g));
+        assertEquals(BridgeIndex.NO_BRIDGE, index.bridge(a, g));
+        assertEquals(BridgeIndex.NO_BRIDGE, index.bridge(c, a));
+        assertTrue(index.bytes() > 0);
+    }
+    
+    @Test
+    public void testZeroBytes(){
+        FrozenGraph<String> graph = new GraphBuilder<String>().add("a", "b", 1).add("b", "c", 1).build();
+        
+        BridgeIndex index = BridgeIndex.build(graph, 0);
+        
+        assertFalse(index.isComplete());
+        assertEquals(0, index.indexedSourceCount());
+        assertEquals(0, index.bytes());
+        assertEquals(BridgeIndex.NOT_INDEXED, index.bridge(graph.idOf("a"), graph.idOf("c")));
+    }
+    
+    @Test(expected=IllegalArgumentException.class)
+    public void testNegativeBytes(){
+        BridgeIndex.build(new GraphBuilder<String>().build(), -1);
+    }
+    
+    @Test
+    public void testRandomGraphsMatchSearch(){
+        Random random = new Random(6005);
+        
+        for(int trial = 0; trial < 20; trial++){
+            GraphBuilder<Integer> builder = new GraphBuilder<>();
+            final int n = 1 + random.nextInt(150);
+            for(int v = 0; v < n; v++){
+                builder.add(v);
+            }
+            for(int e = random.nextInt(4 * n); e > 0; e--){
+                builder.add(random.nextInt(n), random.nextInt(n), 1 + random.nextInt(3));
+            }
+            FrozenGraph<Integer> graph = builder.build();
+            
+            BridgeIndex complete = BridgeIndex.build(graph, Long.MAX_VALUE);
+            long maxBytes = random.nextInt((int) Math.min(Integer.MAX_VALUE, complete.bytes() + 1));
+            BridgeIndex capped = BridgeIndex.build(graph, maxBytes);
+            
+            assertTrue(complete.isComplete());
+            assertTrue(capped.bytes() <= maxBytes);
+            assertTrue(capped.pairCount() <= complete.pairCount());
+            for(int s = 0; s < n; s++){
+                for(int t = 0; t < n; t++){
+                    final int expected = search(graph, s, t);
+                    assertEquals(expected, complete.bridge(s, t));
+                    
+                    final int bridge = capped.bridge(s, t);
+                    assertTrue(bridge == expected || bridge == BridgeIndex.NOT_INDEXED);
+                }
+            }
+        }
+    }
+}
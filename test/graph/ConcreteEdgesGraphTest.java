@@ -5,6 +5,10 @@ package graph;
 
 import static org.junit.Assert.*;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
 import org.junit.Test;
 
 /**
@@ -94,6 +98,69 @@ public class ConcreteEdgesGraphTest extends GraphInstanceTest {
                 graph.toString().equals("({b, a}, {(b, a, 2), (a, b, 1)})"));
     }
     
+    // Testing strategy for ConcreteEdgesGraph.increment()
+    //   edge exists, edge does not exist (neither, one or both vertices exist)
+    //   reflexive edge, proper edge
+    //   new weight > 0, new weight = 0, new weight < 0
+    
+    @Test
+    public void testIncrementAddsEdgeAndVertices(){
+        ConcreteEdgesGraph<String> graph = new ConcreteEdgesGraph<>();
+        
+        assertEquals(1, graph.increment("a", "b", 1));
+        assertEquals(3, graph.increment("a", "b", 2));
+        assertEquals(1, graph.increment("c", "c", 1));
+        
+        assertEquals(new HashSet<>(Arrays.asList("a", "b", "c")), graph.vertices());
+        assertEquals(Collections.singletonMap("b", 3), graph.targets("a"));
+        assertEquals(Collections.singletonMap("c", 1), graph.sources("c"));
+    }
+    
+    @Test
+    public void testIncrementToZeroRemovesEdge(){
+        ConcreteEdgesGraph<String> graph = new ConcreteEdgesGraph<>();
+        graph.set("a", "b", 2);
+        
+        assertEquals(0, graph.increment("a", "b", -2));
+        assertEquals(0, graph.increment("x", "y", 0));
+        
+        assertEquals(new HashSet<>(Arrays.asList("a", "b")), graph.vertices());
+        assertEquals(Collections.emptyMap(), graph.targets("a"));
+    }
+    
+    @Test
+    public void testIncrementBelowZeroLeavesGraphUnchanged(){
+        ConcreteEdgesGraph<String> graph = new ConcreteEdgesGraph<>();
+        graph.set("a", "b", 2);
+        
+        try{
+            graph.increment("a", "b", -3);
+            fail("expected IllegalArgumentException");
+        }catch(IllegalArgumentException e){
+            assertEquals(Collections.singletonMap("b", 2), graph.targets("a"));
+        }
+    }
+    
+    // a reflexive edge is indexed both as an out-edge and an in-edge of its
+    // vertex; removing the vertex must drop it exactly once
+    @Test
+    public void testRemoveVertexWithReflexiveAndProperEdges(){
+        Graph<String> graph = emptyInstance();
+        
+        graph.set("a", "a", 1);
+        graph.set("a", "b", 2);
+        graph.set("b", "a", 3);
+        assertEquals(2, graph.set("a", "b", 4));
+        
+        assertTrue(graph.remove("a"));
+        
+        assertEquals("({b}, {})", graph.toString());
+        assertEquals(0, graph.sources("b").size());
+        assertEquals(0, graph.targets("b").size());
+        assertEquals(0, graph.set("a", "a", 5));
+        assertEquals(5, graph.targets("a").get("a").intValue());
+    }
+    
     /*
      * Testing Edge...
      */
@@ -5,6 +5,12 @@ package graph;
 
 import static org.junit.Assert.*;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
 import org.junit.Test;
 
 /**
@@ -89,6 +95,126 @@ public class ConcreteVerticesGraphTest extends GraphInstanceTest {
                 graph.toString().equals("({b, a}, {(a, b, 1), (b, a, 2)})") ||
                 graph.toString().equals("({b, a}, {(b, a, 2), (a, b, 1)})"));
     }
+
+    // removing a vertex other than the most recently added one moves another
+    // vertex into its slot; that vertex must still be found afterwards
+    @Test
+    public void testRemoveFirstVertexKeepsOthersReachable(){
+        Graph<String> graph = emptyInstance();
+
+        graph.set("a", "b", 1);
+        graph.set("b", "c", 2);
+        graph.set("c", "a", 3);
+
+        assertTrue(graph.remove("a"));
+
+        assertEquals(Collections.singletonMap("c", 2), graph.targets("b"));
+        assertEquals(Collections.singletonMap("b", 2), graph.sources("c"));
+        assertEquals(0, graph.set("c", "d", 4));
+        assertEquals(4, graph.set("c", "d", 5));
+        assertTrue(graph.remove("c"));
+        assertEquals(Collections.emptyMap(), graph.targets("b"));
+        assertTrue(graph.vertices().equals(new HashSet<>(Arrays.asList("b", "d"))));
+    }
+
+    // Testing strategy for ConcreteVerticesGraph.increment()
+    //   edge exists, edge does not exist (neither, one or both vertices exist)
+    //   reflexive edge, proper edge
+    //   new weight > 0, new weight = 0, new weight < 0
+    
+    @Test
+    public void testIncrementAddsEdgeAndVertices(){
+        ConcreteVerticesGraph<String> graph = new ConcreteVerticesGraph<>();
+        
+        assertEquals(1, graph.increment("a", "b", 1));
+        assertEquals(3, graph.increment("a", "b", 2));
+        assertEquals(1, graph.increment("c", "c", 1));
+        
+        assertEquals(new HashSet<>(Arrays.asList("a", "b", "c")), graph.vertices());
+        assertEquals(Collections.singletonMap("b", 3), graph.targets("a"));
+        assertEquals(Collections.singletonMap("c", 1), graph.sources("c"));
+    }
+    
+    @Test
+    public void testIncrementToZeroRemovesEdge(){
+        ConcreteVerticesGraph<String> graph = new ConcreteVerticesGraph<>();
+        graph.set("a", "b", 2);
+        
+        assertEquals(0, graph.increment("a", "b", -2));
+        assertEquals(0, graph.increment("x", "y", 0));
+        
+        assertEquals(new HashSet<>(Arrays.asList("a", "b")), graph.vertices());
+        assertEquals(Collections.emptyMap(), graph.targets("a"));
+    }
+    
+    @Test
+    public void testIncrementBelowZeroLeavesGraphUnchanged(){
+        ConcreteVerticesGraph<String> graph = new ConcreteVerticesGraph<>();
+        graph.set("a", "b", 2);
+        
+        try{
+            graph.increment("a", "b", -3);
+            fail("expected IllegalArgumentException");
+        }catch(IllegalArgumentException e){
+            assertEquals(Collections.singletonMap("b", 2), graph.targets("a"));
+        }
+    }
+    
+    // Testing strategy for ConcreteVerticesGraph views
+    //   vertexView(), sourcesView(), targetsView():
+    //     vertex in graph, vertex not in graph
+    //     graph changed after the view is taken
+    //     client attempts to modify the view
+    
+    @Test
+    public void testViewsAreLive(){
+        ConcreteVerticesGraph<String> graph = new ConcreteVerticesGraph<>();
+        graph.add("a");
+        
+        Set<String> vertices = graph.vertexView();
+        Map<String, Integer> targets = graph.targetsView("a");
+        Map<String, Integer> sources = graph.sourcesView("b");
+        
+        graph.set("a", "b", 2);
+        graph.set("a", "a", 1);
+        
+        assertEquals(graph.vertices(), vertices);
+        assertEquals(graph.targets("a"), targets);
+        assertEquals(Integer.valueOf(2), targets.get("b"));
+        assertTrue(targets.containsKey("a"));
+        assertFalse(targets.containsKey("c"));
+        assertEquals(Collections.emptyMap(), sources);
+        assertEquals(graph.sources("b"), graph.sourcesView("b"));
+        
+        graph.remove("b");
+        
+        assertEquals(Collections.singletonMap("a", 1), targets);
+        assertFalse(vertices.contains("b"));
+    }
+    
+    @Test(expected=UnsupportedOperationException.class)
+    public void testTargetsViewIsUnmodifiable(){
+        ConcreteVerticesGraph<String> graph = new ConcreteVerticesGraph<>();
+        graph.set("a", "b", 1);
+        
+        graph.targetsView("a").put("c", 1);
+    }
+    
+    @Test(expected=UnsupportedOperationException.class)
+    public void testSourcesViewIsUnmodifiable(){
+        ConcreteVerticesGraph<String> graph = new ConcreteVerticesGraph<>();
+        graph.set("a", "b", 1);
+        
+        graph.sourcesView("b").keySet().clear();
+    }
+    
+    @Test(expected=UnsupportedOperationException.class)
+    public void testVertexViewIsUnmodifiable(){
+        ConcreteVerticesGraph<String> graph = new ConcreteVerticesGraph<>();
+        graph.add("a");
+        
+        graph.vertexView().remove("a");
+    }
     
     /*
      * Testing Vertex...
@@ -0,0 +1,157 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package graph;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * Tests for ConcurrentGraph.
+ * 
+ * This class runs the GraphInstanceTest tests against ConcurrentGraph, as
+ * well as stress tests that mutate one graph from many threads at once.
+ * 
+ * Tests against the Graph spec should be in GraphInstanceTest.
+ */
+public class ConcurrentGraphTest extends GraphInstanceTest {
+    
+    private static final int THREADS = 8;
+    private static final int VERTICES = 40;
+    private static final int OPERATIONS = 20000;
+    
+    /*
+     * Provide a ConcurrentGraph for tests in GraphInstanceTest.
+     */
+    @Override public Graph<String> emptyInstance() {
+        return new ConcurrentGraph<String>();
+    }
+    
+    @Test
+    public void testToStringTwoVerticesOneEdge(){
+        Graph<String> graph = emptyInstance();
+        
+        graph.set("a", "b", 1);
+        
+        assertTrue(graph.toString().equals("({a, b}, {(a, b, 1)})") ||
+                graph.toString().equals("({b, a}, {(a, b, 1)})"));
+    }
+    
+    // Testing strategy for concurrent use
+    //   many threads increment overlapping edges: no increment is lost
+    //   many threads set, increment and remove overlapping vertices and edges:
+    //     afterwards sources() and targets() mirror each other and only name vertices
+    //   few lock stripes (high contention), many lock stripes
+    
+    //Effects: runs task on THREADS threads released at the same moment, and rethrows
+    //         the first failure of any of them
+    private static void runConcurrently(final TaskWithSeed task) throws Exception {
+        final ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<Future<Void>> results = new ArrayList<>();
+        
+        try{
+            for(int t = 0; t < THREADS; t++){
+                final int seed = t;
+                results.add(pool.submit(new Callable<Void>() {
+                    @Override public Void call() throws Exception {
+                        start.await();
+                        task.run(new Random(seed));
+                        return null;
+                    }
+                }));
+            }
+            start.countDown();
+            for(Future<Void> result : results){
+                result.get(60, TimeUnit.SECONDS);
+            }
+        }finally{
+            pool.shutdownNow();
+        }
+    }
+    
+    private interface TaskWithSeed {
+        void run(Random random);
+    }
+    
+    //Effects: asserts that every edge reported by targets() is reported identically by
+    //         sources(), and vice versa, and that every neighbour is a vertex
+    private static void assertConsistent(Graph<Integer> graph){
+        for(Integer vertex : graph.vertices()){
+            for(Map.Entry<Integer, Integer> e : graph.targets(vertex).entrySet()){
+                assertTrue(graph.vertices().contains(e.getKey()));
+                assertEquals(e.getValue(), graph.sources(e.getKey()).get(vertex));
+            }
+            for(Map.Entry<Integer, Integer> e : graph.sources(vertex).entrySet()){
+                assertTrue(graph.vertices().contains(e.getKey()));
+                assertEquals(e.getValue(), graph.targets(e.getKey()).get(vertex));
+            }
+        }
+    }
+    
+    @Test
+    public void testConcurrentIncrementsAreNotLost() throws Exception {
+        final ConcurrentGraph<Integer> graph = new ConcurrentGraph<>(4);
+        
+        runConcurrently(new TaskWithSeed() {
+            @Override public void run(Random random) {
+                for(int i = 0; i < OPERATIONS; i++){
+                    graph.increment(random.nextInt(VERTICES), random.nextInt(VERTICES), 1);
+                }
+            }
+        });
+        
+        long total = 0;
+        for(Integer vertex : graph.vertices()){
+            for(int weight : graph.targets(vertex).values()){
+                total += weight;
+            }
+        }
+        assertEquals((long) THREADS * OPERATIONS, total);
+        assertConsistent(graph);
+    }
+    
+    @Test
+    public void testConcurrentMixedMutationsStayConsistent() throws Exception {
+        for(final int stripes : new int[] { 1, 64 }){
+            final ConcurrentGraph<Integer> graph = new ConcurrentGraph<>(stripes);
+            
+            runConcurrently(new TaskWithSeed() {
+                @Override public void run(Random random) {
+                    for(int i = 0; i < OPERATIONS; i++){
+                        final int source = random.nextInt(VERTICES);
+                        final int target = random.nextInt(VERTICES);
+                        
+                        switch(random.nextInt(5)){
+                        case 0: graph.remove(source); break;
+                        case 1: graph.add(source); break;
+                        case 2: graph.set(source, target, 0); break;
+                        case 3: graph.increment(source, target, 1); break;
+                        default: graph.set(source, target, 1 + random.nextInt(5)); break;
+                        }
+                        
+                        if(i % 1000 == 0){
+                            graph.targets(source);
+                            graph.sources(target);
+                            graph.vertices();
+                        }
+                    }
+                }
+            });
+            
+            assertConsistent(graph);
+        }
+    }
+}
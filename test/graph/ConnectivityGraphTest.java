@@ -0,0 +1,175 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package graph;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.Queue;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * Tests for ConnectivityGraph.
+ *
+ * This class runs the GraphInstanceTest tests against ConnectivityGraph, as
+ * well as tests for its connectivity queries.
+ *
+ * Tests against the Graph spec should be in GraphInstanceTest.
+ */
+public class ConnectivityGraphTest extends GraphInstanceTest {
+    
+    /*
+     * Provide a ConnectivityGraph for tests in GraphInstanceTest.
+     */
+    @Override public Graph<String> emptyInstance() {
+        return new ConnectivityGraph<String>(Graph.<String>empty());
+    }
+    
+    // Testing strategy for componentCount(), isWeaklyConnected(), componentOf(), connected()
+    //   wrapped graph: empty, nonempty when wrapped
+    //   changes since last query: none, add vertex, add edge (joining components, within one,
+    //     reflexive), change weight, remove edge (splitting, not splitting), remove vertex
+    //   vertices: in graph, not in graph
+    //   many random changes, compared against a breadth-first search
+    
+    @Test
+    public void testEmpty(){
+        ConnectivityGraph<String> graph = new ConnectivityGraph<>(Graph.<String>empty());
+        
+        assertEquals(0, graph.componentCount());
+        assertTrue(graph.isWeaklyConnected());
+        assertNull(graph.componentOf("a"));
+        assertFalse(graph.connected("a", "a"));
+    }
+    
+    @Test
+    public void testWrapNonemptyGraph(){
+        Graph<String> wrapped = Graph.empty();
+        wrapped.set("a", "b", 1);
+        wrapped.set("c", "b", 1);
+        wrapped.add("d");
+        
+        ConnectivityGraph<String> graph = new ConnectivityGraph<>(wrapped);
+        
+        assertEquals(2, graph.componentCount());
+        assertTrue(graph.connected("a", "c"));
+        assertFalse(graph.connected("a", "d"));
+        assertEquals(graph.componentOf("a"), graph.componentOf("c"));
+        assertEquals("d", graph.componentOf("d"));
+    }
+    
+    @Test
+    public void testAddVerticesAndEdges(){
+        ConnectivityGraph<String> graph = new ConnectivityGraph<>(Graph.<String>empty());
+        graph.add("a");
+        graph.add("b");
+        assertEquals(2, graph.componentCount());
+        
+        graph.set("a", "a", 1);
+        assertEquals(2, graph.componentCount());
+        
+        graph.set("b", "a", 2);
+        graph.set("b", "a", 3);
+        graph.set("c", "d", 1);
+        assertEquals(2, graph.componentCount());
+        assertTrue(graph.connected("a", "b"));
+        assertTrue(graph.connected("d", "c"));
+        assertFalse(graph.isWeaklyConnected());
+        
+        graph.set("d", "a", 1);
+        assertEquals(1, graph.componentCount());
+        assertTrue(graph.isWeaklyConnected());
+    }
+    
+    @Test
+    public void testRemoveEdge(){
+        ConnectivityGraph<String> graph = new ConnectivityGraph<>(Graph.<String>empty());
+        graph.set("a", "b", 1);
+        graph.set("b", "c", 1);
+        graph.set("c", "a", 1);
+        
+        graph.set("c", "a", 0);
+        assertEquals(1, graph.componentCount());
+        
+        graph.set("a", "b", 0);
+        assertEquals(2, graph.componentCount());
+        assertFalse(graph.connected("a", "b"));
+        assertTrue(graph.connected("b", "c"));
+    }
+    
+    @Test
+    public void testRemoveVertex(){
+        ConnectivityGraph<String> graph = new ConnectivityGraph<>(Graph.<String>empty());
+        graph.set("a", "b", 1);
+        graph.set("b", "c", 1);
+        assertEquals(1, graph.componentCount());
+        
+        graph.remove("b");
+        graph.set("d", "d", 1);
+        
+        assertEquals(3, graph.componentCount());
+        assertNull(graph.componentOf("b"));
+        assertFalse(graph.connected("a", "c"));
+    }
+    
+    //Effects: returns the set of vertices reachable from start in graph, ignoring edge directions
+    private static Set<Integer> reachable(Graph<Integer> graph, Integer start){
+        final Set<Integer> visited = new HashSet<>();
+        final Queue<Integer> queue = new ArrayDeque<>();
+        visited.add(start);
+        queue.add(start);
+        
+        while(!queue.isEmpty()){
+            final Integer vertex = queue.remove();
+            final Set<Integer> neighbours = new HashSet<>(graph.targets(vertex).keySet());
+            neighbours.addAll(graph.sources(vertex).keySet());
+            
+            for(Integer neighbour : neighbours){
+                if(visited.add(neighbour)) queue.add(neighbour);
+            }
+        }
+        return visited;
+    }
+    
+    @Test
+    public void testRandomChangesMatchSearch(){
+        ConnectivityGraph<Integer> graph = new ConnectivityGraph<>(Graph.<Integer>empty());
+        Random random = new Random(6005);
+        
+        for(int step = 0; step < 2000; step++){
+            final int source = random.nextInt(60);
+            final int target = random.nextInt(60);
+            final int choice = random.nextInt(10);
+            
+            if(choice < 6){
+                graph.set(source, target, 1);
+            }else if(choice < 8){
+                graph.set(source, target, 0);
+            }else if(choice < 9){
+                graph.remove(source);
+            }else{
+                graph.add(source);
+            }
+            
+            if(step % 50 == 0){
+                final Set<Integer> unvisited = graph.vertices();
+                int components = 0;
+                while(!unvisited.isEmpty()){
+                    final Integer start = unvisited.iterator().next();
+                    final Set<Integer> component = reachable(graph, start);
+                    components++;
+                    unvisited.removeAll(component);
+                    for(Integer vertex : component){
+                        assertEquals(graph.componentOf(start), graph.componentOf(vertex));
+                    }
+                }
+                assertEquals(components, graph.componentCount());
+            }
+        }
+    }
+}
@@ -0,0 +1,89 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package graph;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+/**
+ * Tests for DisjointSets.
+ */
+public class DisjointSetsTest {
+    
+    // Testing strategy
+    //   add(): first element, grows past initial capacity
+    //   union(): elements in different sets, in the same set, x == y; smaller set into larger and vice versa
+    //   find(), connected(): singleton, after unions, element out of range (< 0, >= size())
+    //   setCount(): 0, 1, >1
+    
+    @Test
+    public void testEmpty(){
+        DisjointSets sets = new DisjointSets();
+        
+        assertEquals(0, sets.size());
+        assertEquals(0, sets.setCount());
+    }
+    
+    @Test
+    public void testAddSingletons(){
+        DisjointSets sets = new DisjointSets();
+        
+        assertEquals(0, sets.add());
+        assertEquals(1, sets.add());
+        
+        assertEquals(2, sets.size());
+        assertEquals(2, sets.setCount());
+        assertEquals(0, sets.find(0));
+        assertEquals(1, sets.find(1));
+        assertFalse(sets.connected(0, 1));
+    }
+    
+    @Test
+    public void testUnion(){
+        DisjointSets sets = new DisjointSets();
+        for(int i = 0; i < 4; i++) sets.add();
+        
+        assertTrue(sets.union(0, 1));
+        assertTrue(sets.union(3, 2));
+        assertFalse(sets.union(1, 0));
+        assertFalse(sets.union(2, 2));
+        
+        assertEquals(2, sets.setCount());
+        assertTrue(sets.connected(0, 1));
+        assertTrue(sets.connected(2, 3));
+        assertFalse(sets.connected(1, 2));
+        
+        assertTrue(sets.union(1, 3));
+        assertEquals(1, sets.setCount());
+        assertEquals(sets.find(0), sets.find(2));
+    }
+    
+    @Test
+    public void testManyElementsChained(){
+        DisjointSets sets = new DisjointSets();
+        for(int i = 0; i < 1000; i++) sets.add();
+        
+        for(int i = 999; i > 0; i--){
+            assertTrue(sets.union(i, i - 1));
+        }
+        
+        assertEquals(1000, sets.size());
+        assertEquals(1, sets.setCount());
+        assertTrue(sets.connected(0, 999));
+    }
+    
+    @Test(expected=IndexOutOfBoundsException.class)
+    public void testFindNegative(){
+        new DisjointSets().find(-1);
+    }
+    
+    @Test(expected=IndexOutOfBoundsException.class)
+    public void testUnionOutOfRange(){
+        DisjointSets sets = new DisjointSets();
+        sets.add();
+        
+        sets.union(0, 1);
+    }
+}
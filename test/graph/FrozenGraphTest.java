@@ -0,0 +1,257 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package graph;
+
+import static org.junit.Assert.*;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+/**
+ * Tests for FrozenGraph.
+ *
+ * FrozenGraph is immutable, so it cannot run the GraphInstanceTest tests; instead
+ * each test freezes a graph built with Graph.empty() and compares the two.
+ */
+public class FrozenGraphTest {
+    
+    // Testing strategy
+    //   FrozenGraph(graph):
+    //     number of vertices in graph: 0, 1, >1
+    //     number of edges in graph: 0, 1, >1
+    //     graph has a reflexive edge, graph has an isolated vertex
+    //     graph is mutated after freezing
+    //   sources(), targets():
+    //     vertex in graph, vertex not in graph
+    //     number of neighbours: 0, 1, >1
+    //     returned map is mutated by the client
+    //   add(), set(), remove():
+    //     always throw UnsupportedOperationException
+    //   toString():
+    //     number of vertices: 0, 1, >1; number of edges: 0, 1, >1
+    //   IndexedGraph queries:
+    //     idOf() label in graph, label not in graph; labelOf() inverts idOf()
+    //     neighbours listed in increasing id order, weights agree with targets()/sources()
+    //     weight() edge exists, edge does not exist
+    //   vertexView(), sourcesView(), targetsView():
+    //     vertex in graph, vertex not in graph; client attempts to modify the view
+    //   offHeap():
+    //     graph empty, graph with isolated vertex and reflexive edge; isOffHeap() true, false
+    
+    //Effects: asserts that frozen has the same vertices and edges as graph
+    private static <L> void assertSameGraph(Graph<L> graph, Graph<L> frozen){
+        assertEquals(graph.vertices(), frozen.vertices());
+        
+        for(L vertex : graph.vertices()){
+            assertEquals(graph.sources(vertex), frozen.sources(vertex));
+            assertEquals(graph.targets(vertex), frozen.targets(vertex));
+        }
+    }
+    
+    @Test
+    public void testFreezeEmptyGraph(){
+        Graph<String> frozen = new FrozenGraph<>(Graph.<String>empty());
+        
+        assertEquals(Collections.emptySet(), frozen.vertices());
+        assertEquals(Collections.emptyMap(), frozen.targets("a"));
+        assertEquals(Collections.emptyMap(), frozen.sources("a"));
+        assertEquals("({}, {})", frozen.toString());
+    }
+    
+    @Test
+    public void testFreezeSingleVertexReflexiveEdge(){
+        Graph<String> graph = Graph.empty();
+        graph.set("a", "a", 3);
+        
+        Graph<String> frozen = new FrozenGraph<>(graph);
+        
+        assertSameGraph(graph, frozen);
+        assertEquals("({a}, {(a, a, 3)})", frozen.toString());
+    }
+    
+    @Test
+    public void testFreezeManyVerticesAndEdges(){
+        Graph<String> graph = Graph.empty();
+        graph.set("a", "b", 1);
+        graph.set("a", "c", 2);
+        graph.set("c", "a", 3);
+        graph.set("b", "b", 4);
+        graph.set("d", "a", 5);
+        graph.add("isolated");
+        
+        Graph<String> frozen = new FrozenGraph<>(graph);
+        
+        assertSameGraph(graph, frozen);
+        assertEquals(Collections.emptyMap(), frozen.targets("isolated"));
+        assertEquals(Collections.emptyMap(), frozen.sources("isolated"));
+        assertEquals(Collections.emptyMap(), frozen.targets("missing"));
+    }
+    
+    @Test
+    public void testFreezeIsACopy(){
+        Graph<Integer> graph = Graph.empty();
+        graph.set(1, 2, 3);
+        
+        Graph<Integer> frozen = new FrozenGraph<>(graph);
+        graph.set(1, 2, 0);
+        graph.set(2, 3, 1);
+        
+        assertEquals(2, frozen.vertices().size());
+        assertEquals(Collections.singletonMap(2, 3), frozen.targets(1));
+        assertEquals(Collections.emptyMap(), frozen.targets(2));
+    }
+    
+    @Test
+    public void testReturnedMapsAreFresh(){
+        Graph<String> graph = Graph.empty();
+        graph.set("a", "b", 1);
+        Graph<String> frozen = new FrozenGraph<>(graph);
+        
+        Map<String, Integer> targets = frozen.targets("a");
+        targets.put("c", 2);
+        frozen.vertices().add("c");
+        
+        Map<String, Integer> expected = new HashMap<>();
+        expected.put("b", 1);
+        assertEquals(expected, frozen.targets("a"));
+        assertFalse(frozen.vertices().contains("c"));
+    }
+    
+    @Test(expected=UnsupportedOperationException.class)
+    public void testAddThrows(){
+        new FrozenGraph<>(Graph.<String>empty()).add("a");
+    }
+    
+    @Test(expected=UnsupportedOperationException.class)
+    public void testSetThrows(){
+        new FrozenGraph<>(Graph.<String>empty()).set("a", "b", 1);
+    }
+    
+    @Test(expected=UnsupportedOperationException.class)
+    public void testRemoveThrows(){
+        new FrozenGraph<>(Graph.<String>empty()).remove("a");
+    }
+    
+    @Test
+    public void testToStringTwoVerticesTwoEdges(){
+        Graph<String> graph = Graph.empty();
+        graph.set("a", "b", 1);
+        graph.set("b", "a", 2);
+        
+        String s = new FrozenGraph<>(graph).toString();
+        
+        assertTrue(s.equals("({a, b}, {(a, b, 1), (b, a, 2)})") ||
+                s.equals("({b, a}, {(b, a, 2), (a, b, 1)})"));
+    }
+    
+    @Test
+    public void testIndexedQueriesAgreeWithMaps(){
+        Graph<String> graph = Graph.empty();
+        graph.set("a", "b", 1);
+        graph.set("a", "c", 2);
+        graph.set("a", "a", 3);
+        graph.set("c", "a", 4);
+        graph.add("d");
+        
+        FrozenGraph<String> frozen = new FrozenGraph<>(graph);
+        
+        assertEquals(4, frozen.vertexCount());
+        assertEquals(-1, frozen.idOf("missing"));
+        
+        for(String vertex : graph.vertices()){
+            final int id = frozen.idOf(vertex);
+            assertEquals(vertex, frozen.labelOf(id));
+            
+            Map<String, Integer> targets = new HashMap<>();
+            for(int k = 0; k < frozen.outDegree(id); k++){
+                assertTrue(k == 0 || frozen.target(id, k - 1) < frozen.target(id, k));
+                targets.put(frozen.labelOf(frozen.target(id, k)), frozen.targetWeight(id, k));
+            }
+            assertEquals(graph.targets(vertex), targets);
+            
+            Map<String, Integer> sources = new HashMap<>();
+            for(int k = 0; k < frozen.inDegree(id); k++){
+                assertTrue(k == 0 || frozen.source(id, k - 1) < frozen.source(id, k));
+                sources.put(frozen.labelOf(frozen.source(id, k)), frozen.sourceWeight(id, k));
+            }
+            assertEquals(graph.sources(vertex), sources);
+        }
+        
+        assertEquals(2, frozen.weight(frozen.idOf("a"), frozen.idOf("c")));
+        assertEquals(0, frozen.weight(frozen.idOf("b"), frozen.idOf("a")));
+        assertEquals(0, frozen.weight(frozen.idOf("d"), frozen.idOf("d")));
+    }
+    
+    @Test
+    public void testViewsMatchCopies(){
+        Graph<String> graph = Graph.empty();
+        graph.set("a", "b", 1);
+        graph.set("a", "c", 2);
+        graph.set("c", "a", 3);
+        graph.add("d");
+        
+        FrozenGraph<String> frozen = new FrozenGraph<>(graph);
+        
+        assertEquals(graph.vertices(), frozen.vertexView());
+        assertTrue(frozen.vertexView().contains("d"));
+        assertFalse(frozen.vertexView().contains("e"));
+        for(String vertex : graph.vertices()){
+            assertEquals(graph.targets(vertex), frozen.targetsView(vertex));
+            assertEquals(graph.sources(vertex), frozen.sourcesView(vertex));
+        }
+        assertEquals(Integer.valueOf(2), frozen.targetsView("a").get("c"));
+        assertNull(frozen.targetsView("a").get("d"));
+        assertNull(frozen.targetsView("a").get("missing"));
+        assertEquals(Collections.emptyMap(), frozen.sourcesView("missing"));
+    }
+    
+    @Test(expected=UnsupportedOperationException.class)
+    public void testTargetsViewIsUnmodifiable(){
+        Graph<String> graph = Graph.empty();
+        graph.set("a", "b", 1);
+        
+        new FrozenGraph<>(graph).targetsView("a").remove("b");
+    }
+    
+    @Test(expected=UnsupportedOperationException.class)
+    public void testVertexViewIsUnmodifiable(){
+        new FrozenGraph<>(Graph.<String>empty()).vertexView().add("a");
+    }
+    
+    @Test
+    public void testOffHeapEmptyGraph(){
+        FrozenGraph<String> frozen = FrozenGraph.offHeap(Graph.<String>empty());
+        
+        assertTrue(frozen.isOffHeap());
+        assertEquals(0, frozen.vertexCount());
+        assertEquals("({}, {})", frozen.toString());
+    }
+    
+    @Test
+    public void testOffHeapMatchesHeap(){
+        Graph<String> graph = Graph.empty();
+        graph.set("a", "b", 1);
+        graph.set("a", "c", 2);
+        graph.set("c", "a", 3);
+        graph.set("b", "b", 4);
+        graph.add("isolated");
+        
+        FrozenGraph<String> heap = new FrozenGraph<>(graph);
+        FrozenGraph<String> offHeap = FrozenGraph.offHeap(graph);
+        
+        assertFalse(heap.isOffHeap());
+        assertTrue(offHeap.isOffHeap());
+        assertSameGraph(graph, offHeap);
+        for(String vertex : graph.vertices()){
+            assertEquals(graph.targets(vertex), offHeap.targetsView(vertex));
+            assertEquals(graph.sources(vertex), offHeap.sourcesView(vertex));
+        }
+        assertEquals(2, offHeap.weight(offHeap.idOf("a"), offHeap.idOf("c")));
+        assertEquals(0, offHeap.weight(offHeap.idOf("c"), offHeap.idOf("b")));
+        assertEquals(4, offHeap.targetWeight(offHeap.idOf("b"), 0));
+    }
+}
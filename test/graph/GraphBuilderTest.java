@@ -0,0 +1,253 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package graph;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests for GraphBuilder.
+ */
+public class GraphBuilderTest {
+    
+    // Testing strategy
+    //   add(vertex): new vertex, vertex already added
+    //   add(source, target, delta), addById():
+    //     edge added once, edge added repeatedly; reflexive edge, proper edge
+    //     enough edges to force the staging buffer to be compacted and grown
+    //     many additions of few distinct edges, so that compaction never grows the buffer
+    //     delta <= 0, unknown id, accumulated weight overflows
+    //   addAll(): empty graph, graph with vertices and edges
+    //   build(): no vertices, isolated vertices, builder used again after build()
+    //   buildOffHeap(): same graph as build(), stored off heap
+    //   offHeap() builders: no edges; edges staged only, spilled to one run, to several runs that are
+    //     merged; built, then added to and built again; accumulated weight overflows in a merge
+    
+    //Effects: asserts that built has the same vertices and edges as expected
+    private static <L> void assertSameGraph(Graph<L> expected, Graph<L> built){
+        assertEquals(expected.vertices(), built.vertices());
+        
+        for(L vertex : expected.vertices()){
+            assertEquals(expected.targets(vertex), built.targets(vertex));
+            assertEquals(expected.sources(vertex), built.sources(vertex));
+        }
+    }
+    
+    @Test
+    public void testBuildEmpty(){
+        Graph<String> graph = new GraphBuilder<String>().build();
+        
+        assertEquals(Collections.emptySet(), graph.vertices());
+        assertEquals("({}, {})", graph.toString());
+    }
+    
+    @Test
+    public void testAddVertexReturnsStableIds(){
+        GraphBuilder<String> builder = new GraphBuilder<>();
+        
+        assertEquals(0, builder.add("a"));
+        assertEquals(1, builder.add("b"));
+        assertEquals(0, builder.add("a"));
+        assertEquals(2, builder.vertexCount());
+        
+        Graph<String> graph = builder.build();
+        assertEquals(new HashSet<>(Arrays.asList("a", "b")), graph.vertices());
+        assertEquals(Collections.emptyMap(), graph.targets("a"));
+    }
+    
+    @Test
+    public void testRepeatedEdgesAreSummed(){
+        GraphBuilder<String> builder = new GraphBuilder<>();
+        
+        builder.add("a", "b", 1).add("a", "b", 2).add("b", "b", 4);
+        builder.addById(builder.add("a"), builder.add("b"), 3);
+        
+        Graph<String> graph = builder.build();
+        assertEquals(Collections.singletonMap("b", 6), graph.targets("a"));
+        assertEquals(Collections.singletonMap("b", 4), graph.targets("b"));
+    }
+    
+    @Test
+    public void testManyEdgesMatchIncrementalGraph(){
+        GraphBuilder<Integer> builder = new GraphBuilder<>();
+        ConcreteVerticesGraph<Integer> expected = new ConcreteVerticesGraph<>();
+        Random random = new Random(6005);
+        
+        for(int i = 0; i < 5000; i++){
+            final int source = random.nextInt(60);
+            final int target = random.nextInt(60);
+            final int delta = 1 + random.nextInt(3);
+            
+            builder.add(source, target, delta);
+            expected.increment(source, target, delta);
+        }
+        
+        assertSameGraph(expected, builder.build());
+    }
+    
+    @Test(timeout=10000)
+    public void testManyAdditionsOfFewEdges(){
+        GraphBuilder<String> builder = new GraphBuilder<>();
+        final int a = builder.add("a");
+        final int b = builder.add("b");
+        
+        for(int i = 0; i < 1000000; i++){
+            builder.addById(a, b, 1);
+            builder.addById(b, a, 2);
+        }
+        Graph<String> built = builder.build();
+        
+        assertEquals(Collections.singletonMap("b", 1000000), built.targets("a"));
+        assertEquals(Collections.singletonMap("a", 2000000), built.targets("b"));
+    }
+    
+    @Test
+    public void testBuildOffHeapMatchesBuild(){
+        GraphBuilder<Integer> builder = new GraphBuilder<>();
+        Random random = new Random(6005);
+        
+        for(int i = 0; i < 2000; i++){
+            builder.add(random.nextInt(50), random.nextInt(50), 1 + random.nextInt(3));
+        }
+        builder.add(99);
+        
+        FrozenGraph<Integer> offHeap = builder.buildOffHeap();
+        
+        assertTrue(offHeap.isOffHeap());
+        assertFalse(builder.build().isOffHeap());
+        assertSameGraph(builder.build(), offHeap);
+    }
+    
+    @Test
+    public void testOffHeapBuilderEmpty(){
+        GraphBuilder<String> builder = GraphBuilder.offHeap();
+        FrozenGraph<String> graph = builder.build();
+        
+        assertTrue(builder.isOffHeap());
+        assertFalse(new GraphBuilder<String>().isOffHeap());
+        assertTrue(graph.isOffHeap());
+        assertEquals("({}, {})", graph.toString());
+    }
+    
+    @Test
+    public void testOffHeapBuilderMatchesIncrementalGraph(){
+        for(int maxStaged : new int[] { 1, 4, 64, 1 << 20 }){
+            GraphBuilder<Integer> builder = new GraphBuilder<>(maxStaged);
+            ConcreteVerticesGraph<Integer> expected = new ConcreteVerticesGraph<>();
+            Random random = new Random(6005);
+            
+            for(int i = 0; i < 3000; i++){
+                final int source = random.nextInt(i < 1500 ? 10 : 60);
+                final int target = random.nextInt(60);
+                final int delta = 1 + random.nextInt(3);
+                
+                builder.add(source, target, delta);
+                expected.increment(source, target, delta);
+            }
+            builder.add(99);
+            expected.add(99);
+            
+            FrozenGraph<Integer> built = builder.build();
+            assertTrue(built.isOffHeap());
+            assertSameGraph(expected, built);
+            assertSameGraph(expected, builder.buildOffHeap());
+        }
+    }
+    
+    @Test
+    public void testOffHeapBuilderUsedAgainAfterBuild(){
+        GraphBuilder<String> builder = new GraphBuilder<>(2);
+        builder.add("a", "b", 1).add("b", "c", 1).add("c", "a", 1);
+        Graph<String> first = builder.build();
+        
+        builder.add("a", "b", 1).add("a", "c", 1).add("d", "a", 1);
+        Graph<String> second = builder.build();
+        
+        assertEquals(Collections.singletonMap("b", 1), first.targets("a"));
+        assertFalse(first.vertices().contains("d"));
+        assertEquals(2, (int) second.targets("a").get("b"));
+        assertEquals(1, (int) second.targets("a").get("c"));
+        assertEquals(Collections.singletonMap("a", 1), second.targets("d"));
+    }
+    
+    @Test
+    public void testOffHeapOverflowLeavesBuilderUnchanged(){
+        GraphBuilder<String> builder = new GraphBuilder<>(2);
+        builder.add("a", "b", Integer.MAX_VALUE).add("c", "d", 1).add("a", "b", 1).add("c", "d", 1);
+        
+        for(int attempt = 0; attempt < 2; attempt++){
+            try{
+                builder.build();
+                fail("expected ArithmeticException");
+            }catch(ArithmeticException e){
+                // expected
+            }
+        }
+        assertEquals(4, builder.vertexCount());
+    }
+    
+    @Test
+    public void testAddAllCopiesGraph(){
+        Graph<String> graph = Graph.empty();
+        graph.set("a", "b", 2);
+        graph.set("b", "a", 3);
+        graph.add("c");
+        
+        GraphBuilder<String> builder = new GraphBuilder<String>().addAll(graph);
+        
+        assertSameGraph(graph, builder.build());
+    }
+    
+    @Test
+    public void testBuildDoesNotShareStateWithBuilder(){
+        GraphBuilder<String> builder = new GraphBuilder<>();
+        builder.add("a", "b", 1);
+        
+        Graph<String> first = builder.build();
+        builder.add("a", "b", 1);
+        builder.add("c", "a", 1);
+        Graph<String> second = builder.build();
+        
+        assertEquals(Collections.singletonMap("b", 1), first.targets("a"));
+        assertFalse(first.vertices().contains("c"));
+        assertEquals(Collections.singletonMap("b", 2), second.targets("a"));
+        assertEquals(Collections.singletonMap("c", 1), second.sources("a"));
+    }
+    
+    @Test(expected=IllegalArgumentException.class)
+    public void testNonPositiveDeltaThrows(){
+        new GraphBuilder<String>().add("a", "b", 0);
+    }
+    
+    @Test
+    public void testOverflowLeavesBuilderUnchanged(){
+        GraphBuilder<String> builder = new GraphBuilder<>();
+        builder.add("a", "a", 1).add("a", "a", 1).add("a", "b", 1).add("a", "b", 1);
+        builder.add("a", "c", Integer.MAX_VALUE).add("a", "c", 1);
+        
+        for(int attempt = 0; attempt < 2; attempt++){
+            try{
+                builder.build();
+                fail("expected ArithmeticException");
+            }catch(ArithmeticException e){
+                // expected
+            }
+        }
+        assertEquals(3, builder.vertexCount());
+    }
+    
+    @Test(expected=IndexOutOfBoundsException.class)
+    public void testUnknownIdThrows(){
+        GraphBuilder<String> builder = new GraphBuilder<>();
+        builder.add("a");
+        
+        builder.addById(0, 1, 1);
+    }
+}
@@ -0,0 +1,161 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package graph;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+
+/**
+ * Tests for GraphFile.
+ */
+public class GraphFileTest {
+    
+    // Testing strategy
+    //   write() then open():
+    //     graph: empty, isolated vertex, reflexive edge, many vertices and edges
+    //     labels: ASCII, non-ASCII, labels with equal hashCode()
+    //     metadata: none, some
+    //     file replaced by write() while an opened graph is in use
+    //     file name: long, one character
+    //   open():
+    //     file is not a graph file, file is truncated
+    //   opened graph:
+    //     idOf() label present, label absent; ids and labels as in the written graph; isOffHeap()
+    
+    //Effects: returns a new temporary file that is deleted when the JVM exits
+    private static File tempFile() throws IOException {
+        final File file = File.createTempFile("GraphFileTest", ".graph");
+        file.deleteOnExit();
+        return file;
+    }
+    
+    //Effects: asserts that actual has the same vertices, edges and ids as expected
+    private static void assertSameIndexedGraph(IndexedGraph<String> expected, IndexedGraph<String> actual){
+        assertEquals(expected.vertexCount(), actual.vertexCount());
+        assertEquals(expected.vertices(), actual.vertices());
+        
+        for(int i = 0; i < expected.vertexCount(); i++){
+            final String label = expected.labelOf(i);
+            assertEquals(label, actual.labelOf(i));
+            assertEquals(i, actual.idOf(label));
+            assertEquals(expected.targets(label), actual.targets(label));
+            assertEquals(expected.sources(label), actual.sources(label));
+        }
+    }
+    
+    @Test
+    public void testEmptyGraph() throws IOException {
+        File file = tempFile();
+        GraphFile.write(new GraphBuilder<String>().build(), file);
+        
+        GraphFile opened = GraphFile.open(file);
+        
+        assertEquals(0, opened.graph().vertexCount());
+        assertEquals("({}, {})", opened.graph().toString());
+        assertEquals(0, opened.metadata().length);
+    }
+    
+    @Test
+    public void testRoundTrip() throws IOException {
+        Graph<String> graph = Graph.empty();
+        graph.set("a", "b", 1);
+        graph.set("a", "a", 2);
+        graph.set("b", "\u00e9t\u00e9", 3);
+        graph.set("Aa", "BB", 4);
+        graph.set("BB", "a", 5);
+        graph.add("isolated");
+        FrozenGraph<String> frozen = new FrozenGraph<>(graph);
+        File file = tempFile();
+        
+        GraphFile.write(frozen, new int[] { 7, -1 }, file);
+        GraphFile opened = GraphFile.open(file);
+        
+        assertSameIndexedGraph(frozen, opened.graph());
+        assertTrue(opened.graph().isOffHeap());
+        assertEquals(-1, opened.graph().idOf("missing"));
+        assertEquals(-1, opened.graph().idOf(null));
+        assertEquals(Integer.valueOf(4), opened.graph().targetsView("Aa").get("BB"));
+        assertEquals(Collections.emptyMap(), opened.graph().targets("isolated"));
+        assertTrue(Arrays.equals(new int[] { 7, -1 }, opened.metadata()));
+    }
+    
+    @Test
+    public void testManyVerticesAndEdges() throws IOException {
+        GraphBuilder<String> builder = new GraphBuilder<>();
+        for(int i = 0; i < 3000; i++){
+            builder.add("w" + (i % 700), "w" + (i * 31 % 500), 1 + i % 3);
+        }
+        FrozenGraph<String> frozen = builder.build();
+        File file = tempFile();
+        
+        GraphFile.write(frozen, file);
+        
+        assertSameIndexedGraph(frozen, GraphFile.open(file).graph());
+    }
+    
+    @Test
+    public void testReplaceWhileOpen() throws IOException {
+        File file = tempFile();
+        Graph<String> first = Graph.empty();
+        first.set("a", "b", 1);
+        GraphFile.write(new FrozenGraph<>(first), file);
+        FrozenGraph<String> opened = GraphFile.open(file).graph();
+        
+        Graph<String> second = Graph.empty();
+        second.set("c", "d", 2);
+        GraphFile.write(new FrozenGraph<>(second), file);
+        
+        assertEquals(Collections.singletonMap("b", 1), opened.targets("a"));
+        assertEquals(Collections.singletonMap("d", 2), GraphFile.open(file).graph().targets("c"));
+    }
+    
+    @Test
+    public void testOneCharacterFileName() throws IOException {
+        File dir = Files.createTempDirectory("GraphFileTest").toFile();
+        dir.deleteOnExit();
+        File file = new File(dir, "g");
+        file.deleteOnExit();
+        Graph<String> graph = Graph.empty();
+        graph.set("a", "b", 1);
+        
+        GraphFile.write(new FrozenGraph<>(graph), file);
+        
+        assertEquals(Collections.singletonMap("b", 1), GraphFile.open(file).graph().targets("a"));
+        assertEquals(Arrays.asList("g"), Arrays.asList(dir.list()));
+    }
+    
+    @Test(expected=IOException.class)
+    public void testOpenNotAGraphFile() throws IOException {
+        File file = tempFile();
+        try(OutputStream out = new FileOutputStream(file)){
+            out.write("not a graph file at all".getBytes("UTF-8"));
+        }
+        
+        GraphFile.open(file);
+    }
+    
+    @Test(expected=IOException.class)
+    public void testOpenTruncatedFile() throws IOException {
+        Graph<String> graph = Graph.empty();
+        graph.set("a", "b", 1);
+        File file = tempFile();
+        GraphFile.write(new FrozenGraph<>(graph), file);
+        
+        try(RandomAccessFile raf = new RandomAccessFile(file, "rw")){
+            raf.setLength(raf.length() - 1);
+        }
+        
+        GraphFile.open(file);
+    }
+}
@@ -0,0 +1,83 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package graph;
+
+import static org.junit.Assert.*;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+
+import org.junit.Test;
+
+/**
+ * Tests for IntSegments.
+ */
+public class IntSegmentsTest {
+    
+    // Testing strategy
+    //   allocate(): heap, direct; length 0, less than a segment, exactly whole segments, a partial
+    //     last segment
+    //   wrap(): heap buffer, direct buffer
+    //   get(), put(): first and last index, indices on both sides of a segment boundary
+    
+    @Test
+    public void testEmpty(){
+        assertEquals(0, IntSegments.allocate(0, false).length());
+        assertEquals(0, IntSegments.allocate(0, true).length());
+        assertTrue(IntSegments.allocate(0, true).isDirect());
+    }
+    
+    @Test
+    public void testHeap(){
+        IntSegments ints = IntSegments.allocate(10, false);
+        
+        assertFalse(ints.isDirect());
+        assertEquals(10, ints.length());
+        assertEquals(0, ints.get(9));
+        ints.put(0, 5);
+        ints.put(9, -7);
+        assertEquals(5, ints.get(0));
+        assertEquals(-7, ints.get(9));
+    }
+    
+    @Test
+    public void testDirectAcrossSegments(){
+        for(int length : new int[] { 3, 16, 37 }){
+            IntSegments ints = IntSegments.allocate(length, true, 2);
+            
+            assertTrue(ints.isDirect());
+            assertEquals(length, ints.length());
+            for(int i = 0; i < length; i++){
+                assertEquals(0, ints.get(i));
+                ints.put(i, 1000 * length + i);
+            }
+            for(int i = 0; i < length; i++){
+                assertEquals(1000 * length + i, ints.get(i));
+            }
+        }
+    }
+    
+    @Test
+    public void testDefaultSegments(){
+        IntSegments ints = IntSegments.allocate(100, true);
+        
+        ints.put(99, 42);
+        assertEquals(42, ints.get(99));
+        assertEquals(0, ints.get(98));
+    }
+    
+    @Test
+    public void testWrap(){
+        IntBuffer heap = IntBuffer.wrap(new int[] { 1, 2, 3 });
+        IntSegments ints = IntSegments.wrap(heap);
+        
+        assertFalse(ints.isDirect());
+        assertEquals(3, ints.length());
+        assertEquals(3, ints.get(2));
+        
+        IntSegments direct = IntSegments.wrap(ByteBuffer.allocateDirect(8).asIntBuffer());
+        assertTrue(direct.isDirect());
+        assertEquals(2, direct.length());
+    }
+}
@@ -0,0 +1,90 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package graph;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+/**
+ * Tests for LabelTable.
+ */
+public class LabelTableTest {
+    
+    // Testing strategy
+    //   intern():
+    //     label already in table, label not in table
+    //     labels with equal hashCode() but not equal
+    //     table grows past its initial capacity
+    //   idOf():
+    //     label in table, label not in table, null
+    //   label():
+    //     id in range, id < 0, id >= size()
+    //   size(): 0, 1, >1
+    
+    @Test
+    public void testEmptyTable(){
+        LabelTable<String> table = new LabelTable<>();
+        
+        assertEquals(0, table.size());
+        assertEquals(-1, table.idOf("a"));
+        assertEquals(-1, table.idOf(null));
+    }
+    
+    @Test
+    public void testInternAssignsDenseIdsInOrder(){
+        LabelTable<String> table = new LabelTable<>();
+        
+        assertEquals(0, table.intern("a"));
+        assertEquals(1, table.intern("b"));
+        assertEquals(0, table.intern("a"));
+        
+        assertEquals(2, table.size());
+        assertEquals(1, table.idOf("b"));
+        assertEquals("a", table.label(0));
+        assertEquals("b", table.label(1));
+    }
+    
+    @Test
+    public void testEqualHashCodesDistinctLabels(){
+        LabelTable<String> table = new LabelTable<>();
+        assertEquals("Aa".hashCode(), "BB".hashCode());
+        
+        assertEquals(0, table.intern("Aa"));
+        assertEquals(1, table.intern("BB"));
+        
+        assertEquals(0, table.idOf("Aa"));
+        assertEquals(1, table.idOf("BB"));
+        assertEquals(-1, table.idOf("C#"));
+    }
+    
+    @Test
+    public void testGrowth(){
+        LabelTable<Integer> table = new LabelTable<>(1);
+        
+        for(int i = 0; i < 10000; i++){
+            assertEquals(i, table.intern(i * 31));
+        }
+        
+        assertEquals(10000, table.size());
+        for(int i = 0; i < 10000; i++){
+            assertEquals(i, table.idOf(i * 31));
+            assertEquals(Integer.valueOf(i * 31), table.label(i));
+        }
+        assertEquals(-1, table.idOf(1));
+    }
+    
+    @Test(expected=IndexOutOfBoundsException.class)
+    public void testLabelNegativeId(){
+        new LabelTable<String>().label(-1);
+    }
+    
+    @Test(expected=IndexOutOfBoundsException.class)
+    public void testLabelIdPastEnd(){
+        LabelTable<String> table = new LabelTable<>();
+        table.intern("a");
+        
+        table.label(1);
+    }
+}
@@ -0,0 +1,141 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package graph;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests for PackedGraph.
+ */
+public class PackedGraphTest {
+    
+    // Testing strategy
+    //   write() then read():
+    //     graph: empty, isolated vertex, reflexive edge, many vertices and edges spanning several blocks
+    //     graph is, is not, an IndexedGraph
+    //     labels: sharing prefixes, non-ASCII, one a prefix of another
+    //     weights and ids: small, needing multi-byte varints
+    //     metadata: none, some
+    //     stream continues after the graph
+    //   read():
+    //     not a packed graph, truncated, varint with bits beyond 32 set
+    
+    //Effects: returns the bytes written by PackedGraph.write(graph, metadata, ...)
+    private static byte[] pack(Graph<String> graph, int... metadata) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(bytes);
+        PackedGraph.write(graph, metadata, out);
+        out.flush();
+        return bytes.toByteArray();
+    }
+    
+    //Effects: reads a packed graph from bytes
+    private static PackedGraph unpack(byte[] bytes) throws IOException {
+        return PackedGraph.read(new DataInputStream(new ByteArrayInputStream(bytes)));
+    }
+    
+    //Effects: asserts that actual has the same vertices and edges as expected
+    private static void assertSameGraph(Graph<String> expected, Graph<String> actual){
+        assertEquals(expected.vertices(), actual.vertices());
+        
+        for(String vertex : expected.vertices()){
+            assertEquals(expected.targets(vertex), actual.targets(vertex));
+            assertEquals(expected.sources(vertex), actual.sources(vertex));
+        }
+    }
+    
+    @Test
+    public void testEmptyGraph() throws IOException {
+        PackedGraph packed = unpack(pack(Graph.<String>empty()));
+        
+        assertEquals(0, packed.graph().vertexCount());
+        assertEquals(0, packed.metadata().length);
+    }
+    
+    @Test
+    public void testRoundTripMutableGraph() throws IOException {
+        Graph<String> graph = Graph.empty();
+        graph.set("poem", "poet", 1);
+        graph.set("poet", "poetry", 200000);
+        graph.set("poetry", "poetry", 3);
+        graph.set("\u00e9t\u00e9", "poem", 4);
+        graph.add("po");
+        
+        PackedGraph packed = unpack(pack(graph, 1, -2, 3));
+        
+        assertSameGraph(graph, packed.graph());
+        assertTrue(Arrays.equals(new int[] { 1, -2, 3 }, packed.metadata()));
+    }
+    
+    @Test
+    public void testRoundTripManyEdges() throws IOException {
+        GraphBuilder<String> builder = new GraphBuilder<>();
+        Random random = new Random(6005);
+        for(int i = 0; i < 100000; i++){
+            builder.add("word" + random.nextInt(20000), "word" + random.nextInt(20000), 1 + random.nextInt(1000));
+        }
+        FrozenGraph<String> graph = builder.build();
+        
+        byte[] bytes = pack(graph);
+        
+        assertSameGraph(graph, unpack(bytes).graph());
+    }
+    
+    @Test
+    public void testReadConsumesOnlyTheGraph() throws IOException {
+        Graph<String> graph = Graph.empty();
+        graph.set("a", "b", 1);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        PackedGraph.write(graph, out);
+        out.writeInt(42);
+        
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        PackedGraph.read(in);
+        
+        assertEquals(42, in.readInt());
+    }
+    
+    @Test(expected=IOException.class)
+    public void testReadNotAPackedGraph() throws IOException {
+        unpack(new byte[] { 1, 2, 3, 4, 5, 6, 7, 8 });
+    }
+    
+    @Test(expected=IOException.class)
+    public void testReadVarintTooWide() throws IOException {
+        Graph<String> graph = Graph.empty();
+        graph.add("a");
+        byte[] bytes = pack(graph);
+        // the block of label "a" is the varints 0 and 1, the byte 'a', then degree 0; write 0 as
+        // a five-byte varint whose last byte sets bit 32, which an int cannot hold
+        byte[] block = { (byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, 0x10, 1, 'a', 0 };
+        ByteArrayOutputStream corrupt = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(corrupt);
+        out.write(bytes, 0, bytes.length - 8);
+        out.writeInt(block.length);
+        out.write(block);
+        out.flush();
+        
+        unpack(corrupt.toByteArray());
+    }
+    
+    @Test(expected=IOException.class)
+    public void testReadTruncated() throws IOException {
+        Graph<String> graph = Graph.empty();
+        graph.set("a", "b", 1);
+        byte[] bytes = pack(graph);
+        
+        unpack(Arrays.copyOf(bytes, bytes.length - 1));
+    }
+}
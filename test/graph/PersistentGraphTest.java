@@ -0,0 +1,218 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package graph;
+
+import static org.junit.Assert.*;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+/**
+ * Tests for PersistentGraph.
+ *
+ * This class runs the GraphInstanceTest tests against PersistentGraph, as
+ * well as tests for snapshots and for the PersistentMap it is built on.
+ *
+ * Tests against the Graph spec should be in GraphInstanceTest.
+ */
+public class PersistentGraphTest extends GraphInstanceTest {
+    
+    /*
+     * Provide a PersistentGraph for tests in GraphInstanceTest.
+     */
+    @Override public Graph<String> emptyInstance() {
+        return new PersistentGraph<String>();
+    }
+    
+    @Test
+    public void testToStringTwoVerticesOneEdge(){
+        Graph<String> graph = emptyInstance();
+        
+        graph.set("a", "b", 1);
+        
+        assertTrue(graph.toString().equals("({a, b}, {(a, b, 1)})") ||
+                graph.toString().equals("({b, a}, {(a, b, 1)})"));
+    }
+    
+    // Testing strategy for snapshot()
+    //   graph: empty, nonempty
+    //   change after snapshot: to the graph, to the snapshot
+    //   kind of change: add, set (new, changed, removed edge), increment, remove
+    //   a reader takes snapshots while a writer mutates the graph
+    
+    @Test
+    public void testSnapshotEmpty(){
+        PersistentGraph<String> graph = new PersistentGraph<>();
+        PersistentGraph<String> snapshot = graph.snapshot();
+        
+        graph.add("a");
+        
+        assertEquals(Collections.emptySet(), snapshot.vertices());
+        assertEquals(Collections.singleton("a"), graph.vertices());
+    }
+    
+    @Test
+    public void testSnapshotUnaffectedByGraphChanges(){
+        PersistentGraph<String> graph = new PersistentGraph<>();
+        graph.set("a", "b", 1);
+        graph.set("b", "c", 2);
+        graph.set("c", "a", 3);
+        PersistentGraph<String> snapshot = graph.snapshot();
+        String before = snapshot.toString();
+        
+        graph.add("d");
+        graph.set("a", "b", 5);
+        graph.set("b", "c", 0);
+        graph.increment("c", "a", 1);
+        graph.remove("a");
+        
+        assertEquals(before, snapshot.toString());
+        assertEquals(Collections.singletonMap("b", 1), snapshot.targets("a"));
+        assertEquals(Collections.singletonMap("b", 2), snapshot.sources("c"));
+        assertEquals(Collections.singletonMap("c", 3), snapshot.sources("a"));
+        assertFalse(graph.vertices().contains("a"));
+        assertEquals(Collections.emptyMap(), graph.targets("b"));
+    }
+    
+    @Test
+    public void testGraphUnaffectedBySnapshotChanges(){
+        PersistentGraph<String> graph = new PersistentGraph<>();
+        graph.set("a", "b", 1);
+        PersistentGraph<String> snapshot = graph.snapshot();
+        
+        snapshot.set("a", "c", 2);
+        snapshot.remove("b");
+        
+        assertEquals(Collections.singletonMap("b", 1), graph.targets("a"));
+        assertFalse(graph.vertices().contains("c"));
+        assertEquals(Collections.singletonMap("c", 2), snapshot.targets("a"));
+    }
+    
+    @Test
+    public void testSnapshotOfSnapshot(){
+        PersistentGraph<String> graph = new PersistentGraph<>();
+        graph.set("a", "b", 1);
+        PersistentGraph<String> first = graph.snapshot();
+        first.set("b", "a", 2);
+        PersistentGraph<String> second = first.snapshot();
+        
+        first.remove("a");
+        
+        assertEquals(Collections.singletonMap("b", 1), second.targets("a"));
+        assertEquals(Collections.singletonMap("a", 2), second.targets("b"));
+        assertEquals(Collections.emptyMap(), graph.targets("b"));
+    }
+    
+    @Test
+    public void testSnapshotsWhileWriting() throws Exception {
+        final PersistentGraph<String> graph = new PersistentGraph<>();
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        
+        Thread writer = new Thread(() -> {
+            Random random = new Random(1);
+            for(int i = 0; i < 20000; i++){
+                String source = "v" + random.nextInt(50);
+                String target = "v" + random.nextInt(50);
+                if(random.nextInt(10) == 0){
+                    graph.remove(source);
+                }else{
+                    graph.increment(source, target, 1);
+                }
+            }
+        });
+        writer.start();
+        
+        while(writer.isAlive() && failure.get() == null){
+            // every snapshot must be a consistent graph: in-edges mirror out-edges
+            PersistentGraph<String> snapshot = graph.snapshot();
+            for(String vertex : snapshot.vertices()){
+                for(Map.Entry<String, Integer> e : snapshot.targets(vertex).entrySet()){
+                    if(!e.getValue().equals(snapshot.sources(e.getKey()).get(vertex))){
+                        failure.set(new AssertionError("inconsistent snapshot: " + snapshot));
+                    }
+                }
+            }
+        }
+        writer.join();
+        
+        if(failure.get() != null) throw new AssertionError(failure.get());
+    }
+    
+    // Testing strategy for PersistentMap
+    //   size: 0, 1, many (forcing several trie levels)
+    //   keys: distinct hashes, equal hashes (collision nodes)
+    //   with: new key, existing key with new value, existing key with same value
+    //   without: present key, absent key, last key
+    //   old versions are unchanged by with and without
+    
+    @Test
+    public void testPersistentMapEmpty(){
+        PersistentMap<String, Integer> map = PersistentMap.empty();
+        
+        assertEquals(0, map.size());
+        assertNull(map.get("a"));
+        assertSame(map, map.without("a"));
+    }
+    
+    @Test
+    public void testPersistentMapManyKeys(){
+        Map<Integer, Integer> expected = new HashMap<>();
+        PersistentMap<Integer, Integer> map = PersistentMap.empty();
+        Random random = new Random(2);
+        
+        for(int i = 0; i < 5000; i++){
+            int key = random.nextInt(2000);
+            if(random.nextInt(3) == 0){
+                expected.remove(key);
+                map = map.without(key);
+            }else{
+                expected.put(key, i);
+                map = map.with(key, i);
+            }
+            assertEquals(expected.size(), map.size());
+        }
+        
+        Map<Integer, Integer> actual = new HashMap<>();
+        map.forEach(actual::put);
+        assertEquals(expected, actual);
+    }
+    
+    @Test
+    public void testPersistentMapCollisions(){
+        // "Aa" and "BB" have the same hashCode, as do "AaAa", "AaBB", "BBAa" and "BBBB"
+        PersistentMap<String, Integer> map = PersistentMap.<String, Integer>empty()
+                .with("Aa", 1).with("BB", 2).with("AaAa", 3).with("AaBB", 4).with("c", 5);
+        PersistentMap<String, Integer> smaller = map.without("BB");
+        
+        assertEquals(5, map.size());
+        assertEquals(Integer.valueOf(2), map.get("BB"));
+        assertEquals(Integer.valueOf(4), map.get("AaBB"));
+        assertNull(map.get("BBBB"));
+        
+        assertEquals(4, smaller.size());
+        assertNull(smaller.get("BB"));
+        assertEquals(Integer.valueOf(1), smaller.get("Aa"));
+        assertEquals(0, smaller.without("Aa").without("AaAa").without("AaBB").without("c").size());
+    }
+    
+    @Test
+    public void testPersistentMapOldVersionsUnchanged(){
+        Integer one = 1;
+        PersistentMap<String, Integer> first = PersistentMap.<String, Integer>empty().with("a", one);
+        PersistentMap<String, Integer> second = first.with("a", 2).with("b", 3);
+        
+        assertSame(first, first.with("a", one));
+        assertEquals(1, first.size());
+        assertEquals(one, first.get("a"));
+        assertEquals(Integer.valueOf(2), second.get("a"));
+        assertEquals(2, second.size());
+        assertEquals(1, second.without("a").size());
+        assertEquals(Integer.valueOf(2), second.get("a"));
+    }
+}
@@ -0,0 +1,199 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package poet;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BinaryOperator;
+
+import org.junit.Test;
+
+/**
+ * Tests for BridgeCache.
+ */
+public class BridgeCacheTest {
+    
+    // Testing strategy
+    //   capacity: 0, 1, small, large enough for several segments; negative
+    //   policy: LRU, TINY_LFU
+    //   lookup: miss, hit, pair with no bridge word, same pair for another graph
+    //   workload: recency (LRU order), frequent pairs mixed with a scan of one-off pairs,
+    //     random, concurrent
+    
+    private static final Object GRAPH = new Object();
+    
+    /*
+     * A bridge word function that counts its calls.
+     */
+    private static class Counting implements BinaryOperator<String> {
+        private final AtomicInteger calls = new AtomicInteger();
+        
+        @Override public String apply(String w1, String w2) {
+            calls.incrementAndGet();
+            return w1.equals(w2) ? "" : w1 + "-" + w2;
+        }
+    }
+    
+    @Test(expected=IllegalArgumentException.class)
+    public void testNegativeCapacity(){
+        new BridgeCache(-1, BridgeCache.Policy.LRU);
+    }
+    
+    @Test
+    public void testCapacityZero(){
+        BridgeCache cache = new BridgeCache(0, BridgeCache.Policy.TINY_LFU);
+        Counting compute = new Counting();
+        
+        assertEquals("a-b", cache.bridge(GRAPH, "a", "b", compute));
+        assertEquals("a-b", cache.bridge(GRAPH, "a", "b", compute));
+        
+        assertEquals(2, compute.calls.get());
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.hitCount());
+        assertEquals(2, cache.missCount());
+        assertEquals(0, cache.hitRate(), 0);
+    }
+    
+    @Test
+    public void testHitMissAndNoBridge(){
+        for(BridgeCache.Policy policy : BridgeCache.Policy.values()){
+            BridgeCache cache = new BridgeCache(10, policy);
+            Counting compute = new Counting();
+            
+            assertEquals("a-b", cache.bridge(GRAPH, "a", "b", compute));
+            assertEquals("", cache.bridge(GRAPH, "a", "a", compute));
+            assertEquals("a-b", cache.bridge(GRAPH, "a", "b", compute));
+            assertEquals("", cache.bridge(GRAPH, "a", "a", compute));
+            
+            assertEquals(2, compute.calls.get());
+            assertEquals(2, cache.size());
+            assertEquals(2, cache.hitCount());
+            assertEquals(2, cache.missCount());
+            assertEquals(0.5, cache.hitRate(), 0);
+            assertEquals(policy, cache.policy());
+            assertEquals(10, cache.capacity());
+        }
+    }
+    
+    @Test
+    public void testOtherGraphInvalidates(){
+        BridgeCache cache = new BridgeCache(10, BridgeCache.Policy.LRU);
+        Counting compute = new Counting();
+        
+        cache.bridge(GRAPH, "a", "b", compute);
+        cache.bridge(new Object(), "a", "b", compute);
+        cache.bridge(GRAPH, "a", "b", compute);
+        
+        assertEquals(3, compute.calls.get());
+        assertEquals(0, cache.hitCount());
+    }
+    
+    @Test
+    public void testLruEvictsLeastRecentlyUsed(){
+        BridgeCache cache = new BridgeCache(2, BridgeCache.Policy.LRU);
+        Counting compute = new Counting();
+        
+        cache.bridge(GRAPH, "a", "b", compute);
+        cache.bridge(GRAPH, "b", "c", compute);
+        cache.bridge(GRAPH, "a", "b", compute);
+        cache.bridge(GRAPH, "c", "d", compute);
+        
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.evictionCount());
+        assertEquals(3, compute.calls.get());
+        
+        cache.bridge(GRAPH, "a", "b", compute);
+        assertEquals(3, compute.calls.get());
+        cache.bridge(GRAPH, "b", "c", compute);
+        assertEquals(4, compute.calls.get());
+    }
+    
+    @Test
+    public void testCapacityOne(){
+        for(BridgeCache.Policy policy : BridgeCache.Policy.values()){
+            BridgeCache cache = new BridgeCache(1, policy);
+            Counting compute = new Counting();
+            
+            cache.bridge(GRAPH, "a", "b", compute);
+            cache.bridge(GRAPH, "b", "c", compute);
+            cache.bridge(GRAPH, "b", "c", compute);
+            
+            assertEquals(1, cache.size());
+            assertEquals(1, cache.hitCount());
+            assertEquals(1, cache.evictionCount());
+        }
+    }
+    
+    //Effects: requests 20 frequent pairs 50 times each, interleaved with 2000 pairs requested once,
+    //         then the frequent pairs once more; returns the hits among those last requests
+    private static long frequentAfterScan(BridgeCache.Policy policy){
+        BridgeCache cache = new BridgeCache(100, policy);
+        Counting compute = new Counting();
+        
+        for(int i = 0; i < 2000; i++){
+            cache.bridge(GRAPH, "hot", "w" + (i % 20), compute);
+            cache.bridge(GRAPH, "cold", "w" + i, compute);
+        }
+        final long hits = cache.hitCount();
+        for(int i = 0; i < 20; i++){
+            cache.bridge(GRAPH, "hot", "w" + i, compute);
+        }
+        return cache.hitCount() - hits;
+    }
+    
+    @Test
+    public void testTinyLfuKeepsFrequentPairs(){
+        assertEquals(20, frequentAfterScan(BridgeCache.Policy.TINY_LFU));
+    }
+    
+    @Test
+    public void testRandomWorkloadStaysBounded(){
+        for(BridgeCache.Policy policy : BridgeCache.Policy.values()){
+            BridgeCache cache = new BridgeCache(1000, policy);
+            Counting compute = new Counting();
+            Random random = new Random(6005);
+            
+            for(int i = 0; i < 50000; i++){
+                final int a = (int) Math.abs(random.nextGaussian() * 300);
+                final int b = random.nextInt(20);
+                assertEquals("w" + a + "-v" + b, cache.bridge(GRAPH, "w" + a, "v" + b, compute));
+            }
+            
+            assertTrue(cache.size() <= 1000);
+            assertEquals(50000, cache.hitCount() + cache.missCount());
+            assertEquals(cache.missCount(), compute.calls.get());
+            assertEquals(cache.missCount() - cache.size(), cache.evictionCount());
+        }
+    }
+    
+    @Test
+    public void testConcurrentLookups() throws InterruptedException{
+        final BridgeCache cache = new BridgeCache(500, BridgeCache.Policy.TINY_LFU);
+        final Counting compute = new Counting();
+        final AtomicInteger wrong = new AtomicInteger();
+        final List<Thread> threads = new ArrayList<>();
+        
+        for(int t = 0; t < 4; t++){
+            final Random random = new Random(t);
+            threads.add(new Thread(() -> {
+                for(int i = 0; i < 20000; i++){
+                    final String w1 = "w" + random.nextInt(100);
+                    final String w2 = "w" + random.nextInt(30);
+                    final String expected = w1.equals(w2) ? "" : w1 + "-" + w2;
+                    if(!expected.equals(cache.bridge(GRAPH, w1, w2, compute))) wrong.incrementAndGet();
+                }
+            }));
+        }
+        for(Thread thread : threads) thread.start();
+        for(Thread thread : threads) thread.join();
+        
+        assertEquals(0, wrong.get());
+        assertEquals(80000, cache.hitCount() + cache.missCount());
+        assertTrue(cache.size() <= 500);
+    }
+}
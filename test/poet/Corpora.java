@@ -0,0 +1,75 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package poet;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.Scanner;
+
+/**
+ * Corpus files and reference graphs shared by the tests of the ingestion paths.
+ */
+class Corpora {
+    
+    /**
+     * Adds the words of a corpus to a CorpusBuilder, as an ingestion path under test does.
+     */
+    interface Ingestion {
+        
+        /**
+         * @param builder the builder to add the words to
+         * @throws IOException if the corpus cannot be read
+         */
+        void into(CorpusBuilder builder) throws IOException;
+    }
+    
+    private Corpora(){
+        throw new AssertionError("not instantiable");
+    }
+    
+    //Effects: returns a new temporary file holding text in charset, deleted when the JVM exits
+    static File write(String text, Charset charset) throws IOException {
+        return write(text.getBytes(charset), ".txt");
+    }
+    
+    //Effects: returns a new temporary file named *suffix holding bytes, deleted when the JVM exits
+    static File write(byte[] bytes, String suffix) throws IOException {
+        final File file = File.createTempFile("corpus", suffix);
+        file.deleteOnExit();
+        Files.write(file.toPath(), bytes);
+        return file;
+    }
+    
+    //Effects: returns the graph of corpus read in one pass by a Scanner, as a string
+    static String sequential(File corpus, Charset charset) throws IOException {
+        return sequential(new FileInputStream(corpus), charset);
+    }
+    
+    //Effects: returns the graph of the text of in read in one pass by a Scanner, as a string;
+    //         closes in
+    static String sequential(InputStream in, Charset charset) throws IOException {
+        final CorpusBuilder builder = new CorpusBuilder();
+        try(Scanner sc = new Scanner(in, charset.name())){
+            while(sc.hasNext()){
+                builder.follow(builder.addVertex(sc.next().toLowerCase()));
+            }
+        }
+        return builder.build().toString();
+    }
+    
+    //Effects: returns the graph read by ingestion into a new CorpusBuilder, as a string; checks
+    //         that the summary of the builder certifies its graph
+    static String ingested(Ingestion ingestion) throws IOException {
+        final CorpusBuilder builder = new CorpusBuilder();
+        ingestion.into(builder);
+        assertTrue(builder.summary().certifies(builder.build()));
+        return builder.build().toString();
+    }
+}
@@ -0,0 +1,157 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package poet;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Scanner;
+
+import org.junit.Test;
+
+/**
+ * Tests for CorpusTokenizer.
+ */
+public class CorpusTokenizerTest {
+    
+    // Testing strategy
+    //   text: empty, white space only, ASCII words, upper and mixed case, non-ASCII words in
+    //     different cases, ASCII and non-ASCII white space, words longer than the scratch buffer,
+    //     more distinct words than the initial table
+    //   charset: UTF-8, ISO-8859-1; supports(): those two, an unsupported charset
+    //   part of a file: whole, from white space to the end
+    //   buffers: a word or a character spanning two buffers; characterBoundary() before ASCII,
+    //     inside and after sequences of 2, 3 and 4 bytes
+    
+    //Effects: returns the lower case words of file[from..to-1] read by a CorpusTokenizer in charset;
+    //         checks that equal words have equal ids and new words are numbered densely
+    private static List<String> tokenize(File file, Charset charset, long from, long to) throws IOException {
+        final Map<String, Integer> ids = new HashMap<>();
+        final List<String> labels = new ArrayList<>();
+        final List<String> words = new ArrayList<>();
+        
+        try(FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)){
+            new CorpusTokenizer(charset, label -> {
+                if(!ids.containsKey(label)){
+                    ids.put(label, labels.size());
+                    labels.add(label);
+                }
+                return ids.get(label);
+            }, id -> words.add(labels.get(id))).tokenize(channel, from, to);
+        }
+        return words;
+    }
+    
+    //Effects: returns the lower case words of text read by a Scanner
+    private static List<String> scan(String text){
+        final List<String> words = new ArrayList<>();
+        try(Scanner sc = new Scanner(text)){
+            while(sc.hasNext()) words.add(sc.next().toLowerCase());
+        }
+        return words;
+    }
+    
+    @Test
+    public void testSupports(){
+        assertTrue(CorpusTokenizer.supports(StandardCharsets.UTF_8));
+        assertTrue(CorpusTokenizer.supports(StandardCharsets.ISO_8859_1));
+        assertFalse(CorpusTokenizer.supports(StandardCharsets.UTF_16));
+    }
+    
+    @Test
+    public void testEmptyAndWhitespace() throws IOException {
+        for(String text : new String[] { "", " ", "\n\t\r\u000b\u000c\u001c \u3000\u2028" }){
+            assertEquals(new ArrayList<String>(), tokenize(Corpora.write(text, StandardCharsets.UTF_8), StandardCharsets.UTF_8,
+                    0, text.getBytes(StandardCharsets.UTF_8).length));
+        }
+    }
+    
+    @Test
+    public void testAsciiWords() throws IOException {
+        final String text = "Hello, HELLO, hello, goodbye!\nA  b\ta";
+        final File file = Corpora.write(text, StandardCharsets.UTF_8);
+        
+        assertEquals(scan(text), tokenize(file, StandardCharsets.UTF_8, 0, text.length()));
+        assertEquals(scan(text.substring(6)), tokenize(file, StandardCharsets.UTF_8, 6, text.length()));
+    }
+    
+    @Test
+    public void testNonAsciiWordsAndWhitespace() throws IOException {
+        final String text = "\u00c9t\u00e9 \u00e9T\u00c9\u3000caf\u00e9\u2003CAF\u00c9 \u65e5\u672c\u2029x\ud83d\ude00 \u00a0nbsp";
+        final byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        
+        assertEquals(scan(text), tokenize(Corpora.write(text, StandardCharsets.UTF_8), StandardCharsets.UTF_8, 0, bytes.length));
+    }
+    
+    @Test
+    public void testIsoLatin1() throws IOException {
+        final String text = "\u00c9t\u00e9 \u00e9T\u00c9 \u00c0 \u00e0\u00a0b";
+        
+        assertEquals(scan(text), tokenize(Corpora.write(text, StandardCharsets.ISO_8859_1), StandardCharsets.ISO_8859_1,
+                0, text.length()));
+    }
+    
+    @Test
+    public void testCharacterBoundary(){
+        final byte[] bytes = "ab\u00e9\u65e5\ud83d\ude00".getBytes(StandardCharsets.UTF_8);
+        final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        final int[] expected = { 0, 1, 2, 2, 4, 4, 4, 7, 7, 7, 7, 11 };
+        
+        for(int length = 0; length <= bytes.length; length++){
+            assertEquals("length " + length, expected[length], CorpusTokenizer.characterBoundary(buffer, length));
+        }
+    }
+    
+    @Test
+    public void testBuffers() throws IOException {
+        final String text = "Et\u00e9\u3000\u00c9T\u00c9 x  y\u2003z";
+        final byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        final List<String> words = new ArrayList<>();
+        final List<String> labels = new ArrayList<>();
+        final CorpusTokenizer tokenizer = new CorpusTokenizer(StandardCharsets.UTF_8, label -> {
+            labels.add(label);
+            return labels.size() - 1;
+        }, id -> words.add(labels.get(id)));
+        
+        int from = 0;
+        while(from < bytes.length){
+            final ByteBuffer block = ByteBuffer.wrap(Arrays.copyOfRange(bytes, from, Math.min(bytes.length, from + 4)));
+            final int end = from + block.limit() < bytes.length ? CorpusTokenizer.characterBoundary(block, block.limit()) : block.limit();
+            block.limit(end);
+            tokenizer.tokenize(block);
+            assertEquals(end, block.position());
+            from += end;
+        }
+        tokenizer.finish();
+        assertEquals(scan(text), words);
+    }
+    
+    @Test
+    public void testLongAndManyWords() throws IOException {
+        final StringBuilder text = new StringBuilder();
+        final Random random = new Random(6005);
+        for(int i = 0; i < 5000; i++){
+            text.append(Integer.toString(random.nextInt(3000), 36)).append(i % 7 == 0 ? "\n" : " ");
+        }
+        for(int i = 0; i < 500; i++){
+            text.append(i % 2 == 0 ? 'X' : '\u00e9');
+        }
+        final byte[] bytes = text.toString().getBytes(StandardCharsets.UTF_8);
+        
+        assertEquals(scan(text.toString()), tokenize(Corpora.write(text.toString(), StandardCharsets.UTF_8),
+                StandardCharsets.UTF_8, 0, bytes.length));
+    }
+}
@@ -5,11 +5,31 @@ package poet;
 
 import static org.junit.Assert.*;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.junit.Test;
 
+import graph.FrozenGraph;
+import graph.Graph;
+import graph.GraphFile;
+import graph.PackedGraph;
+
 /**
  * Tests for GraphPoet.
  */
@@ -308,4 +328,327 @@ public class GraphPoetTest {
         assertEquals("a b b a", poet.poem("a  b  a"));
         
     }
+    
+    // Testing strategy for writeGraphFile(), openGraphFile()
+    //   graph file written by writeGraphFile(), by GraphFile.write() without metadata, with
+    //     metadata that writeGraphFile() does not write
+    //   graph in file is, is not, the affinity graph of some corpus
+    
+    //Effects: returns a new temporary file that is deleted when the JVM exits
+    private static File tempFile() throws IOException {
+        final File file = File.createTempFile("GraphPoetTest", ".graph");
+        file.deleteOnExit();
+        return file;
+    }
+    
+    @Test
+    public void testWriteAndOpenGraphFile() throws IOException{
+        //Corpus: ",a ,a b ,a"
+        GraphPoet poet = new GraphPoet(new File("test/poet/RepeatedWordInputWithTiesForMaximumPath.txt"));
+        File graphFile = tempFile();
+        
+        poet.writeGraphFile(graphFile);
+        GraphPoet opened = GraphPoet.openGraphFile(graphFile);
+        
+        assertEquals(poet.toString(), opened.toString());
+        assertEquals(poet.poem(",A b ,a"), opened.poem(",A b ,a"));
+        assertEquals(poet.poem("b ,a b"), opened.poem("b ,a b"));
+    }
+    
+    @Test
+    public void testOpenGraphFileWithoutMetadata() throws IOException{
+        Graph<String> graph = Graph.empty();
+        graph.set("a", "b", 1);
+        graph.set("b", "c", 1);
+        File graphFile = tempFile();
+        GraphFile.write(new FrozenGraph<>(graph), graphFile);
+        
+        GraphPoet poet = GraphPoet.openGraphFile(graphFile);
+        
+        assertEquals("a b c", poet.poem("a c"));
+    }
+    
+    @Test(expected=IOException.class)
+    public void testOpenGraphFileWithForeignMetadata() throws IOException{
+        Graph<String> graph = Graph.empty();
+        graph.set("a", "b", 1);
+        graph.set("b", "c", 1);
+        File graphFile = tempFile();
+        GraphFile.write(new FrozenGraph<>(graph), new int[] { 3, 7 }, graphFile);
+        
+        GraphPoet.openGraphFile(graphFile);
+    }
+    
+    @Test(expected=IOException.class)
+    public void testOpenGraphFileNotFromCorpus() throws IOException{
+        Graph<String> graph = Graph.empty();
+        graph.set("a", "b", 1);
+        graph.set("c", "d", 1);
+        File graphFile = tempFile();
+        GraphFile.write(new FrozenGraph<>(graph), graphFile);
+        
+        GraphPoet.openGraphFile(graphFile);
+    }
+    
+    // Testing strategy for save(), load()
+    //   corpus: empty, with repeated words
+    //   stream holds a poet, holds a graph that is not the affinity graph of a corpus
+    
+    @Test
+    public void testSaveAndLoad() throws IOException{
+        //Corpus: ",a ,a b ,a"
+        GraphPoet poet = new GraphPoet(new File("test/poet/RepeatedWordInputWithTiesForMaximumPath.txt"));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        
+        poet.save(out);
+        GraphPoet loaded = GraphPoet.load(new ByteArrayInputStream(out.toByteArray()));
+        
+        assertEquals(poet.toString(), loaded.toString());
+        assertEquals(poet.poem(",A b ,a"), loaded.poem(",A b ,a"));
+    }
+    
+    @Test
+    public void testSaveAndLoadEmptyCorpus() throws IOException{
+        GraphPoet poet = new GraphPoet(new File("test/poet/empty.txt"));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        
+        poet.save(out);
+        
+        assertEquals("({}, {})", GraphPoet.load(new ByteArrayInputStream(out.toByteArray())).toString());
+    }
+    
+    @Test(expected=IOException.class)
+    public void testLoadNotFromCorpus() throws IOException{
+        Graph<String> graph = Graph.empty();
+        graph.set("a", "b", 2);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        PackedGraph.write(graph, new DataOutputStream(out));
+        
+        GraphPoet.load(new ByteArrayInputStream(out.toByteArray()));
+    }
+    
+    // Testing strategy for withBridgeIndex(), bridgeIndex()
+    //   maxBytes: 0, enough for the whole graph
+    //   poems: same as without the index
+    
+    @Test
+    public void testWithBridgeIndex() throws IOException{
+        //Corpus: ",a ,a b ,a"
+        GraphPoet poet = new GraphPoet(new File("test/poet/RepeatedWordInputWithTiesForMaximumPath.txt"));
+        GraphPoet indexed = poet.withBridgeIndex(Long.MAX_VALUE);
+        
+        assertEquals(0, poet.bridgeIndex().indexedSourceCount());
+        assertTrue(indexed.bridgeIndex().isComplete());
+        assertEquals(poet.toString(), indexed.toString());
+        assertEquals(poet.poem(",A b ,a"), indexed.poem(",A b ,a"));
+        assertEquals(poet.poem("b ,a b c"), indexed.poem("b ,a b c"));
+    }
+    
+    @Test
+    public void testWithEmptyBridgeIndex() throws IOException{
+        //Corpus: "This is a test of the Mugar Omni Theater sound system."
+        GraphPoet poet = new GraphPoet(new File("src/poet/mugar-omni-theater.txt")).withBridgeIndex(0);
+        
+        assertEquals(0, poet.bridgeIndex().bytes());
+        assertEquals("Test of the system.", poet.poem("Test the system."));
+    }
+    
+    // Testing strategy for withBridgeCache(), bridgeCache()
+    //   capacity: 0, positive; policy: LRU, TINY_LFU
+    //   poems: same as without the cache; repeated pairs hit
+    
+    @Test
+    public void testWithBridgeCache() throws IOException{
+        //Corpus: "This is a test of the Mugar Omni Theater sound system."
+        GraphPoet poet = new GraphPoet(new File("src/poet/mugar-omni-theater.txt"));
+        
+        for(BridgeCache.Policy policy : BridgeCache.Policy.values()){
+            GraphPoet cached = poet.withBridgeCache(100, policy).withBridgeIndex(Long.MAX_VALUE);
+            
+            assertEquals("Test of the system.", cached.poem("Test the system."));
+            assertEquals("Test of the system.", cached.poem("Test the system."));
+            assertEquals(2, cached.bridgeCache().missCount());
+            assertEquals(2, cached.bridgeCache().hitCount());
+        }
+        assertEquals(0, poet.bridgeCache().capacity());
+    }
+    
+    // Testing strategy for append(Path), append(Reader), append(Stream)
+    //   this corpus: empty, nonempty; made by the constructor, by append(), by load(), by openGraphFile()
+    //   appended text: empty, words already in the corpus, new words, mixed case
+    //   appended twice to the same poet; appended repeatedly in a chain
+    //   stream word: valid, empty, contains white space
+    //   result: same graph as the concatenated corpus; this poet unchanged; no bridge index, cache
+    //     with the same capacity and policy
+    
+    //Effects: returns a new temporary file holding text, deleted when the JVM exits
+    private static File write(String text) throws IOException {
+        final File file = File.createTempFile("GraphPoetTest", ".txt");
+        file.deleteOnExit();
+        Files.write(file.toPath(), text.getBytes());
+        return file;
+    }
+    
+    @Test
+    public void testAppendPath() throws IOException{
+        GraphPoet poet = new GraphPoet(write("This is a test"));
+        String before = poet.toString();
+        GraphPoet appended = poet.append(write("of the Mugar Omni\nTheater sound system.").toPath());
+        
+        assertEquals(new GraphPoet(new File("src/poet/mugar-omni-theater.txt")).toString(), appended.toString());
+        assertEquals("Test of the system.", appended.poem("Test the system."));
+        assertEquals(before, poet.toString());
+    }
+    
+    @Test
+    public void testAppendReaderChain() throws IOException{
+        GraphPoet poet = new GraphPoet(new File("test/poet/empty.txt"));
+        
+        poet = poet.append(new StringReader("  "));
+        assertEquals("({}, {})", poet.toString());
+        poet = poet.append(new StringReader("a B"));
+        poet = poet.append(new StringReader("A\tb\n"));
+        poet = poet.append(new StringReader("c a"));
+        
+        assertEquals(new GraphPoet(write("a B A b c a")).toString(), poet.toString());
+    }
+    
+    @Test
+    public void testAppendStream() throws IOException{
+        GraphPoet poet = new GraphPoet(write("a b"));
+        
+        assertEquals(poet.toString(), poet.append(Stream.empty()).toString());
+        assertEquals(new GraphPoet(write("a b C a")).toString(), poet.append(Stream.of("C", "a")).toString());
+    }
+    
+    @Test
+    public void testAppendTwiceToSamePoet() throws IOException{
+        GraphPoet poet = new GraphPoet(write("a b"));
+        GraphPoet first = poet.append(Stream.of("c"));
+        GraphPoet second = poet.append(Stream.of("b", "d"));
+        GraphPoet third = first.append(Stream.of("a"));
+        
+        assertEquals(new GraphPoet(write("a b c")).toString(), first.toString());
+        assertEquals(new GraphPoet(write("a b b d")).toString(), second.toString());
+        assertEquals(new GraphPoet(write("a b c a")).toString(), third.toString());
+        assertEquals(new GraphPoet(write("a b c a b")).toString(), third.append(Stream.of("b")).toString());
+    }
+    
+    @Test
+    public void testAppendToLoadedPoet() throws IOException{
+        //Corpus: ",a ,a b ,a"
+        GraphPoet poet = new GraphPoet(new File("test/poet/RepeatedWordInputWithTiesForMaximumPath.txt"));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        poet.save(out);
+        GraphPoet loaded = GraphPoet.load(new ByteArrayInputStream(out.toByteArray()));
+        
+        GraphPoet appended = loaded.append(Stream.of("x", ",a"));
+        
+        assertEquals("x ,a b", appended.poem("x b"));
+        assertEquals("b ,a x", appended.poem("b x"));
+    }
+    
+    @Test
+    public void testAppendToOpenedPoet() throws IOException{
+        //Corpus: "This is a test of the Mugar Omni Theater sound system."
+        GraphPoet poet = new GraphPoet(new File("src/poet/mugar-omni-theater.txt"));
+        File graphFile = File.createTempFile("GraphPoetTest", ".graph");
+        graphFile.deleteOnExit();
+        poet.writeGraphFile(graphFile);
+        
+        GraphPoet appended = GraphPoet.openGraphFile(graphFile).append(Stream.of("This", "is"));
+        
+        assertEquals(poet.append(Stream.of("This", "is")).toString(), appended.toString());
+        assertEquals("system. this is", appended.poem("system. is"));
+    }
+    
+    @Test
+    public void testAppendKeepsCacheDropsIndex() throws IOException{
+        GraphPoet poet = new GraphPoet(write("a b a")).withBridgeCache(10, BridgeCache.Policy.TINY_LFU)
+                .withBridgeIndex(Long.MAX_VALUE);
+        GraphPoet appended = poet.append(Stream.of("c"));
+        
+        assertEquals(10, appended.bridgeCache().capacity());
+        assertEquals(BridgeCache.Policy.TINY_LFU, appended.bridgeCache().policy());
+        assertEquals(0, appended.bridgeCache().size());
+        assertEquals(0, appended.bridgeIndex().indexedSourceCount());
+        assertEquals("a b a c", appended.poem("a a c"));
+    }
+    
+    @Test(expected=IllegalArgumentException.class)
+    public void testAppendEmptyWord() throws IOException{
+        new GraphPoet(write("a b")).append(Stream.of("c", ""));
+    }
+    
+    @Test(expected=IllegalArgumentException.class)
+    public void testAppendWordWithWhitespace() throws IOException{
+        new GraphPoet(write("a b")).append(Stream.of("c d"));
+    }
+    
+    // Testing strategy for poems(List), poems(List, Executor), poems(Stream, Executor)
+    //   inputs: none, one, more than a slice, more than a block of a stream; with repeated pairs
+    //   executor: common pool, fixed thread pool, the calling thread
+    //   poet: with, without a bridge cache
+    //   an input is null
+    
+    //Effects: returns count inputs, drawn in a fixed pseudo-random order from a few
+    private static List<String> inputs(int count){
+        final String[] choices = { "Test the system.", "is test", "This a of", "sound", "", "Omni SOUND the" };
+        final Random random = new Random(6005);
+        final List<String> inputs = new ArrayList<>();
+        for(int i = 0; i < count; i++){
+            inputs.add(choices[random.nextInt(choices.length)]);
+        }
+        return inputs;
+    }
+    
+    @Test
+    public void testPoemsInOrder() throws IOException{
+        //Corpus: "This is a test of the Mugar Omni Theater sound system."
+        GraphPoet poet = new GraphPoet(new File("src/poet/mugar-omni-theater.txt"));
+        ExecutorService threads = Executors.newFixedThreadPool(4);
+        
+        try{
+            for(int count : new int[] { 0, 1, 1000 }){
+                List<String> inputs = inputs(count);
+                List<String> expected = new ArrayList<>();
+                for(String input : inputs){
+                    expected.add(poet.poem(input));
+                }
+                
+                assertEquals(expected, poet.poems(inputs));
+                assertEquals(expected, poet.poems(inputs, threads));
+                assertEquals(expected, poet.poems(inputs, Runnable::run));
+            }
+        }finally{
+            threads.shutdown();
+        }
+    }
+    
+    @Test
+    public void testPoemsOfStream() throws IOException{
+        GraphPoet poet = new GraphPoet(new File("src/poet/mugar-omni-theater.txt"));
+        List<String> inputs = inputs(40000);
+        
+        try(Stream<String> poems = poet.poems(inputs.stream(), ForkJoinPool.commonPool())){
+            assertEquals(poet.poems(inputs, Runnable::run), poems.collect(Collectors.toList()));
+        }
+        assertEquals(0, poet.poems(Stream.<String>empty(), ForkJoinPool.commonPool()).count());
+    }
+    
+    @Test
+    public void testPoemsShareBridgeCache() throws IOException{
+        GraphPoet poet = new GraphPoet(new File("src/poet/mugar-omni-theater.txt"))
+                .withBridgeCache(100, BridgeCache.Policy.LRU);
+        List<String> inputs = Collections.nCopies(100, "Test the system.");
+        
+        assertEquals(Collections.nCopies(100, "Test of the system."), poet.poems(inputs, Runnable::run));
+        assertEquals(2, poet.bridgeCache().missCount());
+        assertEquals(198, poet.bridgeCache().hitCount());
+    }
+    
+    @Test(expected=NullPointerException.class)
+    public void testPoemsNullInput() throws IOException{
+        new GraphPoet(new File("src/poet/mugar-omni-theater.txt")).poems(Arrays.asList("a b", null));
+    }
 }
@@ -0,0 +1,239 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package poet;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.Test;
+
+/**
+ * Tests for GzipIngestion, GraphPoet.fromGzip(), and gzip-compressed files in GraphPoet.fromFiles().
+ */
+public class GzipIngestionTest {
+    
+    // Testing strategy
+    //   members: one, several; empty, without white space; split inside a word, inside the encoding
+    //     of a character, inside the encoding of a white space character, at white space
+    //   header: with no optional fields, with each of FEXTRA, FNAME, FCOMMENT and FHCRC
+    //   compressed data: containing the bytes of another member, which is not a member of the file
+    //   after the last member: nothing, zeros, other bytes
+    //   file: empty, not gzip, with a corrupt CRC-32, truncated
+    //   charset: UTF-8, ISO-8859-1
+    //   pool parallelism: 1, 4
+    
+    private static final ForkJoinPool POOL = new ForkJoinPool(4);
+    
+    private static final int FHCRC = 2;
+    private static final int FEXTRA = 4;
+    private static final int FNAME = 8;
+    private static final int FCOMMENT = 16;
+    
+    //Effects: returns the graph of gzip-compressed corpus read in one pass by a Scanner, as a string
+    private static String sequential(File corpus, Charset charset) throws IOException {
+        return Corpora.sequential(new GZIPInputStream(new FileInputStream(corpus)), charset);
+    }
+    
+    //Effects: returns the graph of gzip-compressed corpus read by members on pool, as a string
+    private static String parallel(File corpus, Charset charset, ForkJoinPool pool) throws IOException {
+        return Corpora.ingested(builder -> GzipIngestion.ingest(corpus, charset, pool, builder));
+    }
+    
+    //Effects: returns a new temporary file named *.gz holding bytes, deleted when the JVM exits
+    private static File write(byte[] bytes) throws IOException {
+        return Corpora.write(bytes, ".gz");
+    }
+    
+    //Effects: returns data compressed as one gzip member by GZIPOutputStream
+    private static byte[] gzip(byte[] data) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try(GZIPOutputStream gzip = new GZIPOutputStream(out)){
+            gzip.write(data);
+        }
+        return out.toByteArray();
+    }
+    
+    //Effects: returns data compressed at level as one gzip member whose header has the optional
+    //         fields in flags
+    private static byte[] member(byte[] data, int flags, int level){
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(new byte[] { 0x1f, (byte) 0x8b, 8, (byte) flags, 1, 2, 3, 4, 0, 3 }, 0, 10);
+        if((flags & FEXTRA) != 0) out.write(new byte[] { 4, 0, 'A', 'B', 0, 0 }, 0, 6);
+        if((flags & FNAME) != 0) out.write(new byte[] { 'n', '.', 't', 'x', 't', 0 }, 0, 6);
+        if((flags & FCOMMENT) != 0) out.write(new byte[] { 'h', 'i', 0 }, 0, 3);
+        if((flags & FHCRC) != 0){
+            final CRC32 headerCrc = new CRC32();
+            headerCrc.update(out.toByteArray());
+            out.write((int) headerCrc.getValue());
+            out.write((int) headerCrc.getValue() >>> 8);
+        }
+        
+        final Deflater deflater = new Deflater(level, true);
+        deflater.setInput(data);
+        deflater.finish();
+        final byte[] buffer = new byte[1 << 12];
+        while(!deflater.finished()){
+            out.write(buffer, 0, deflater.deflate(buffer));
+        }
+        deflater.end();
+        
+        final CRC32 crc = new CRC32();
+        crc.update(data);
+        for(long value : new long[] { crc.getValue(), data.length }){
+            for(int shift = 0; shift < 32; shift += 8){
+                out.write((int) (value >>> shift));
+            }
+        }
+        return out.toByteArray();
+    }
+    
+    //Effects: returns the concatenation of parts
+    private static byte[] concat(byte[]... parts){
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for(byte[] part : parts){
+            out.write(part, 0, part.length);
+        }
+        return out.toByteArray();
+    }
+    
+    @Test
+    public void testOneMember() throws IOException {
+        final String[] texts = { "", " \n\t ", "word", "a b", " Hello, HELLO, hello, goodbye! ",
+                "This is a test of the Mugar Omni Theater sound system." };
+        for(String text : texts){
+            final File file = write(gzip(text.getBytes(StandardCharsets.UTF_8)));
+            assertEquals(text, sequential(file, StandardCharsets.UTF_8), parallel(file, StandardCharsets.UTF_8, POOL));
+        }
+    }
+    
+    @Test
+    public void testHeaderFields() throws IOException {
+        final byte[] text = "a b a c".getBytes(StandardCharsets.UTF_8);
+        for(int flags : new int[] { 0, FEXTRA, FNAME, FCOMMENT, FHCRC, FEXTRA | FNAME | FCOMMENT | FHCRC }){
+            final File file = write(concat(member(text, flags, 6), member(text, flags, 1)));
+            assertEquals("flags " + flags, sequential(file, StandardCharsets.UTF_8),
+                    parallel(file, StandardCharsets.UTF_8, POOL));
+        }
+    }
+    
+    @Test
+    public void testMembersSplitAnywhere() throws IOException {
+        final String[] words = { "a", "B", "c,", "\u00e9t\u00e9", "\u65e5\u672c", "x\ud83d\ude00" };
+        final String[] spaces = { " ", "\n", "\u3000", " \u2003 " };
+        final Random random = new Random(6005);
+        
+        for(int trial = 0; trial < 30; trial++){
+            final StringBuilder text = new StringBuilder();
+            for(int i = random.nextInt(100); i > 0; i--){
+                text.append(words[random.nextInt(words.length)]);
+                if(random.nextInt(4) > 0) text.append(spaces[random.nextInt(spaces.length)]);
+            }
+            final byte[] bytes = text.toString().getBytes(StandardCharsets.UTF_8);
+            
+            final int[] cuts = new int[random.nextInt(12)];
+            for(int i = 0; i < cuts.length; i++){
+                cuts[i] = random.nextInt(bytes.length + 1);
+            }
+            Arrays.sort(cuts);
+            final ByteArrayOutputStream file = new ByteArrayOutputStream();
+            int from = 0;
+            for(int i = 0; i <= cuts.length; i++){
+                final int to = i < cuts.length ? cuts[i] : bytes.length;
+                final byte[] part = member(Arrays.copyOfRange(bytes, from, to), random.nextInt(32) & ~1, 1 + random.nextInt(9));
+                file.write(part, 0, part.length);
+                from = to;
+            }
+            
+            final File corpus = write(file.toByteArray());
+            final String expected = sequential(corpus, StandardCharsets.UTF_8);
+            assertEquals(expected, parallel(corpus, StandardCharsets.UTF_8, POOL));
+            assertEquals(expected, parallel(corpus, StandardCharsets.UTF_8, new ForkJoinPool(1)));
+        }
+    }
+    
+    @Test
+    public void testMemberInsideCompressedData() throws IOException {
+        final byte[] inner = gzip("x y".getBytes(StandardCharsets.ISO_8859_1));
+        final byte[] text = concat("a b ".getBytes(StandardCharsets.ISO_8859_1), inner,
+                " c".getBytes(StandardCharsets.ISO_8859_1));
+        final File file = write(concat(member(text, 0, Deflater.NO_COMPRESSION), gzip(" d".getBytes(StandardCharsets.ISO_8859_1))));
+        
+        final String expected = sequential(file, StandardCharsets.ISO_8859_1);
+        assertEquals(expected, parallel(file, StandardCharsets.ISO_8859_1, POOL));
+        assertFalse(expected, expected.contains("(x, y, 1)"));
+    }
+    
+    @Test
+    public void testAfterLastMember() throws IOException {
+        final byte[] member = gzip("a b".getBytes(StandardCharsets.UTF_8));
+        final String expected = parallel(write(member), StandardCharsets.UTF_8, POOL);
+        
+        assertEquals(expected, parallel(write(concat(member, new byte[100])), StandardCharsets.UTF_8, POOL));
+        assertEquals(expected, parallel(write(concat(member, "garbage".getBytes(StandardCharsets.UTF_8))),
+                StandardCharsets.UTF_8, POOL));
+    }
+    
+    @Test(expected=IOException.class)
+    public void testEmptyFile() throws IOException {
+        parallel(write(new byte[0]), StandardCharsets.UTF_8, POOL);
+    }
+    
+    @Test(expected=IOException.class)
+    public void testNotGzip() throws IOException {
+        parallel(write("a b c".getBytes(StandardCharsets.UTF_8)), StandardCharsets.UTF_8, POOL);
+    }
+    
+    @Test(expected=IOException.class)
+    public void testCorruptCrc() throws IOException {
+        final byte[] member = gzip("a b c".getBytes(StandardCharsets.UTF_8));
+        member[member.length - 8] ^= 1;
+        parallel(write(member), StandardCharsets.UTF_8, POOL);
+    }
+    
+    @Test(expected=IOException.class)
+    public void testTruncated() throws IOException {
+        final byte[] member = gzip("a b c".getBytes(StandardCharsets.UTF_8));
+        parallel(write(Arrays.copyOf(member, member.length - 4)), StandardCharsets.UTF_8, POOL);
+    }
+    
+    @Test
+    public void testGraphPoetFromGzip() throws IOException {
+        final File plain = new File("src/poet/mugar-omni-theater.txt");
+        final byte[] bytes = Files.readAllBytes(plain.toPath());
+        final int middle = bytes.length / 2;
+        final File file = write(concat(gzip(Arrays.copyOf(bytes, middle)), gzip(Arrays.copyOfRange(bytes, middle, bytes.length))));
+        final GraphPoet poet = GraphPoet.fromGzip(file, POOL);
+        
+        assertEquals(new GraphPoet(plain).toString(), poet.toString());
+        assertEquals("Test of the system.", poet.poem("Test the system."));
+        assertEquals(poet.toString(), GraphPoet.fromGzip(file).toString());
+    }
+    
+    @Test
+    public void testGraphPoetFromFilesWithGzip() throws IOException {
+        final byte[] first = "This is a te".getBytes(StandardCharsets.UTF_8);
+        final byte[] second = "st of the Mugar Omni Theater sound system.".getBytes(StandardCharsets.UTF_8);
+        final List<Path> corpora = Arrays.asList(write(concat(gzip("This is a".getBytes(StandardCharsets.UTF_8)))).toPath(),
+                write(concat(gzip(Arrays.copyOfRange(first, 9, first.length)), gzip(second))).toPath());
+        
+        final GraphPoet poet = GraphPoet.fromFiles(corpora, GraphPoet.FileLinking.CHAINED, POOL);
+        assertEquals(new GraphPoet(new File("src/poet/mugar-omni-theater.txt")).toString(), poet.toString());
+    }
+}
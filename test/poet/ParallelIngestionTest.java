@@ -0,0 +1,263 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package poet;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.Scanner;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+
+import org.junit.Test;
+
+/**
+ * Tests for ParallelIngestion, and GraphPoet.parallel(), offHeap(), fromFiles() and fromDirectory().
+ */
+public class ParallelIngestionTest {
+    
+    // Testing strategy
+    //   corpus: empty, white space only, one word, the test corpora of GraphPoetTest, random text
+    //     with ASCII and non-ASCII white space, non-ASCII words, runs of white space
+    //   chunkBytes: 1 (a chunk per word), small, larger than the file
+    //   charset: UTF-8, ISO-8859-1
+    //   pool parallelism: 1, 4
+    //   several corpora: none, one, more than the window of files read ahead; some empty or white
+    //     space only, first or last empty; linking CHAINED, SEPARATE; list of paths, directory with
+    //     subdirectories; poet saved and loaded, written and opened, appended to
+    
+    private static final ForkJoinPool POOL = new ForkJoinPool(4);
+    
+    //Effects: returns the graph of corpus read in chunks of chunkBytes on pool, as a string
+    private static String parallel(File corpus, Charset charset, ForkJoinPool pool, long chunkBytes) throws IOException {
+        return Corpora.ingested(builder -> ParallelIngestion.ingest(corpus, charset, pool, chunkBytes, builder));
+    }
+    
+    @Test
+    public void testSmallCorpora() throws IOException {
+        final String[] texts = { "", " \n\t ", "word", "a b", " Hello, HELLO, hello, goodbye! ",
+                "This is a test of the Mugar Omni Theater sound system." };
+        for(String text : texts){
+            final File file = Corpora.write(text, StandardCharsets.UTF_8);
+            for(long chunkBytes : new long[] { 1, 3, 1 << 20 }){
+                assertEquals(text, Corpora.sequential(file, StandardCharsets.UTF_8),
+                        parallel(file, StandardCharsets.UTF_8, POOL, chunkBytes));
+            }
+        }
+    }
+    
+    @Test
+    public void testTestCorpora() throws IOException {
+        for(File file : new File("test/poet").listFiles()){
+            if(!file.getName().endsWith(".txt")) continue;
+            for(long chunkBytes : new long[] { 1, 2, 5 }){
+                assertEquals(file.getName(), Corpora.sequential(file, StandardCharsets.UTF_8),
+                        parallel(file, StandardCharsets.UTF_8, POOL, chunkBytes));
+            }
+        }
+    }
+    
+    @Test
+    public void testRandomText() throws IOException {
+        final String[] words = { "a", "B", "c,", "\u00e9t\u00e9", "\u00c9T\u00c9", "\u65e5\u672c", "x\ud83d\ude00" };
+        final String[] spaces = { " ", "  ", "\n", "\r\n", "\t", "\u3000", "\u2028", " \u2003 " };
+        final Random random = new Random(6005);
+        
+        for(int trial = 0; trial < 20; trial++){
+            final StringBuilder text = new StringBuilder();
+            for(int i = random.nextInt(300); i > 0; i--){
+                text.append(words[random.nextInt(words.length)]);
+                text.append(spaces[random.nextInt(spaces.length)]);
+            }
+            
+            for(Charset charset : new Charset[] { StandardCharsets.UTF_8, StandardCharsets.ISO_8859_1 }){
+                final File file = Corpora.write(text.toString(), charset);
+                final String expected = Corpora.sequential(file, charset);
+                for(long chunkBytes : new long[] { 1, 1 + random.nextInt(40), 1 << 20 }){
+                    assertEquals(expected, parallel(file, charset, POOL, chunkBytes));
+                    assertEquals(expected, parallel(file, charset, new ForkJoinPool(1), chunkBytes));
+                }
+            }
+        }
+    }
+    
+    @Test
+    public void testGraphPoetParallel() throws IOException {
+        final File file = new File("src/poet/mugar-omni-theater.txt");
+        final GraphPoet poet = GraphPoet.parallel(file, POOL);
+        
+        assertEquals(new GraphPoet(file).toString(), poet.toString());
+        assertEquals("Test of the system.", poet.poem("Test the system."));
+        assertEquals(new GraphPoet(file).toString(), GraphPoet.parallel(file).toString());
+    }
+    
+    @Test(expected=IOException.class)
+    public void testGraphPoetParallelFileDoesNotExist() throws IOException {
+        GraphPoet.parallel(new File("test/poet/doesNotExists.txt"));
+    }
+    
+    @Test
+    public void testGraphPoetOffHeap() throws IOException {
+        final File file = new File("src/poet/mugar-omni-theater.txt");
+        final GraphPoet poet = GraphPoet.offHeap(file, POOL);
+        
+        assertEquals(new GraphPoet(file).toString(), poet.toString());
+        assertEquals("Test of the system.", poet.poem("Test the system."));
+        assertEquals(poet.toString(), GraphPoet.offHeap(file).toString());
+        assertEquals(new GraphPoet(file).append(new StringReader("theater test")).toString(), poet.append(new StringReader("theater test")).toString());
+    }
+    
+    //Effects: returns the graph of texts read in one pass by Scanners, each text a document of its
+    //         own if separate, as a string
+    private static String sequential(List<String> texts, boolean separate){
+        final CorpusBuilder builder = new CorpusBuilder();
+        for(String text : texts){
+            if(separate) builder.endDocument();
+            try(Scanner sc = new Scanner(text)){
+                while(sc.hasNext()){
+                    builder.follow(builder.addVertex(sc.next().toLowerCase()));
+                }
+            }
+        }
+        assertTrue(builder.summary().certifies(builder.build()));
+        return builder.build().toString();
+    }
+    
+    //Effects: returns the graph of the files holding texts read with one task per file on pool, as a string
+    private static String parallel(List<String> texts, boolean separate, ForkJoinPool pool) throws IOException {
+        final List<File> files = new ArrayList<>();
+        for(String text : texts){
+            files.add(Corpora.write(text, StandardCharsets.UTF_8));
+        }
+        return Corpora.ingested(builder -> ParallelIngestion.ingest(files, separate, StandardCharsets.UTF_8, pool, builder));
+    }
+    
+    @Test
+    public void testSeveralCorporaSmall() throws IOException {
+        final List<List<String>> cases = Arrays.asList(
+                Collections.<String>emptyList(),
+                Arrays.asList("a b"),
+                Arrays.asList("a b", "c d"),
+                Arrays.asList("", "a b", " \n ", "b a", ""),
+                Arrays.asList("x", "x", "y x"));
+        for(List<String> texts : cases){
+            for(boolean separate : new boolean[] { false, true }){
+                assertEquals(texts + " " + separate, sequential(texts, separate), parallel(texts, separate, POOL));
+            }
+        }
+    }
+    
+    @Test
+    public void testSeveralCorporaSeparateHasNoCrossFileBigrams() throws IOException {
+        final String graph = parallel(Arrays.asList("a b", "c d"), true, POOL);
+        
+        assertTrue(graph, graph.contains("(a, b, 1)"));
+        assertTrue(graph, graph.contains("(c, d, 1)"));
+        assertFalse(graph, graph.contains("(b, c, 1)"));
+        assertTrue(graph, parallel(Arrays.asList("a b", "c d"), false, POOL).contains("(b, c, 1)"));
+    }
+    
+    @Test
+    public void testSeveralCorporaRandom() throws IOException {
+        final String[] words = { "a", "B", "c,", "\u00e9t\u00e9", "d" };
+        final Random random = new Random(6005);
+        
+        for(int trial = 0; trial < 5; trial++){
+            final List<String> texts = new ArrayList<>();
+            for(int file = random.nextInt(30); file > 0; file--){
+                final StringBuilder text = new StringBuilder();
+                for(int i = random.nextInt(20); i > 0; i--){
+                    text.append(words[random.nextInt(words.length)]).append(' ');
+                }
+                texts.add(text.toString());
+            }
+            for(boolean separate : new boolean[] { false, true }){
+                final String expected = sequential(texts, separate);
+                assertEquals(expected, parallel(texts, separate, POOL));
+                assertEquals(expected, parallel(texts, separate, new ForkJoinPool(1)));
+            }
+        }
+    }
+    
+    @Test
+    public void testGraphPoetFromFilesChained() throws IOException {
+        final List<Path> corpora = Arrays.asList(Corpora.write("This is a test", StandardCharsets.UTF_8).toPath(),
+                Corpora.write("", StandardCharsets.UTF_8).toPath(),
+                Corpora.write("of the Mugar Omni Theater sound system.", StandardCharsets.UTF_8).toPath());
+        final GraphPoet poet = GraphPoet.fromFiles(corpora, GraphPoet.FileLinking.CHAINED, POOL);
+        
+        assertEquals(new GraphPoet(new File("src/poet/mugar-omni-theater.txt")).toString(), poet.toString());
+        assertEquals("Test of the system.", poet.poem("Test the system."));
+        assertEquals(poet.toString(), GraphPoet.fromFiles(corpora, GraphPoet.FileLinking.CHAINED).toString());
+    }
+    
+    @Test
+    public void testGraphPoetFromDirectory() throws IOException {
+        final Path directory = Files.createTempDirectory("ParallelIngestionTest");
+        final Path nested = Files.createDirectory(directory.resolve("b"));
+        final List<Path> corpora = Arrays.asList(directory.resolve("a.txt"), nested.resolve("a.txt"),
+                nested.resolve("b.txt"), directory.resolve("c.txt"));
+        for(int i = corpora.size() - 1; i >= 0; i--){
+            Files.write(corpora.get(i), ("w" + i + " x").getBytes(StandardCharsets.UTF_8));
+        }
+        try{
+            for(GraphPoet.FileLinking linking : GraphPoet.FileLinking.values()){
+                final String expected = GraphPoet.fromFiles(corpora, linking, POOL).toString();
+                assertEquals(expected, GraphPoet.fromDirectory(directory, linking, POOL).toString());
+                assertEquals(expected, GraphPoet.fromDirectory(directory, linking, new ForkJoinPool(1)).toString());
+            }
+            assertEquals("w0 x w3",
+                    GraphPoet.fromDirectory(directory, GraphPoet.FileLinking.CHAINED, POOL).poem("w0 w3"));
+            assertEquals("w0 w3",
+                    GraphPoet.fromDirectory(directory, GraphPoet.FileLinking.SEPARATE, POOL).poem("w0 w3"));
+        }finally{
+            try(Stream<Path> paths = Files.walk(directory)){
+                paths.sorted(Collections.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+    
+    @Test
+    public void testGraphPoetFromFilesSeparateRoundTrip() throws IOException {
+        final List<Path> corpora = Arrays.asList(Corpora.write("a b c", StandardCharsets.UTF_8).toPath(),
+                Corpora.write("d e", StandardCharsets.UTF_8).toPath(), Corpora.write(" ", StandardCharsets.UTF_8).toPath());
+        final GraphPoet poet = GraphPoet.fromFiles(corpora, GraphPoet.FileLinking.SEPARATE, POOL);
+        
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        poet.save(out);
+        final GraphPoet loaded = GraphPoet.load(new ByteArrayInputStream(out.toByteArray()));
+        assertEquals(poet.toString(), loaded.toString());
+        
+        final File graphFile = File.createTempFile("ParallelIngestionTest", ".graph");
+        graphFile.deleteOnExit();
+        poet.writeGraphFile(graphFile);
+        final GraphPoet opened = GraphPoet.openGraphFile(graphFile);
+        assertEquals(poet.toString(), opened.toString());
+        
+        assertEquals("d e f", poet.append(Stream.of("f")).poem("d f"));
+        for(GraphPoet appendTo : new GraphPoet[] { loaded, opened }){
+            final String appended = appendTo.append(Stream.of("f")).toString();
+            assertTrue(appended, appended.contains("(c, f, 1)") || appended.contains("(e, f, 1)"));
+        }
+    }
+    
+    @Test(expected=IOException.class)
+    public void testGraphPoetFromFilesFileDoesNotExist() throws IOException {
+        GraphPoet.fromFiles(Arrays.asList(new File("test/poet/doesNotExists.txt").toPath()),
+                GraphPoet.FileLinking.SEPARATE, POOL);
+    }
+}
@@ -0,0 +1,157 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package poet;
+
+import static org.junit.Assert.*;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.Scanner;
+
+import org.junit.Test;
+
+import poet.IngestionStats.Stage;
+
+/**
+ * Tests for PipelinedIngestion, IngestionStats, and GraphPoet.pipelined().
+ */
+public class PipelinedIngestionTest {
+    
+    // Testing strategy
+    //   corpus: empty, white space only, one word, the test corpora of GraphPoetTest, random text
+    //     with ASCII and non-ASCII white space, non-ASCII words, runs of white space; missing file;
+    //     file that gets shorter while it is read
+    //   blockBytes: 4 (most words and characters span blocks), small, larger than the file
+    //   queueBlocks: 1, several
+    //   charset: UTF-8, ISO-8859-1
+    //   stats: counters of each stage, throughput, bottleneck, toString
+    
+    //Effects: returns the graph of corpus read by a pipeline, as a string
+    private static String pipelined(File corpus, Charset charset, int blockBytes, int queueBlocks, IngestionStats stats)
+            throws IOException {
+        return Corpora.ingested(builder -> PipelinedIngestion.ingest(corpus, charset, blockBytes, queueBlocks, builder, stats));
+    }
+    
+    @Test
+    public void testSmallCorpora() throws IOException {
+        final String[] texts = { "", " \n\t ", "word", "a b", " Hello, HELLO, hello, goodbye! ",
+                "This is a test of the Mugar Omni Theater sound system." };
+        for(String text : texts){
+            final File file = Corpora.write(text, StandardCharsets.UTF_8);
+            for(int blockBytes : new int[] { 4, 7, 1 << 20 }){
+                assertEquals(text, Corpora.sequential(file, StandardCharsets.UTF_8),
+                        pipelined(file, StandardCharsets.UTF_8, blockBytes, 1, new IngestionStats()));
+            }
+        }
+    }
+    
+    @Test
+    public void testTestCorpora() throws IOException {
+        for(File file : new File("test/poet").listFiles()){
+            if(!file.getName().endsWith(".txt")) continue;
+            for(int queueBlocks : new int[] { 1, 3 }){
+                assertEquals(file.getName(), Corpora.sequential(file, StandardCharsets.UTF_8),
+                        pipelined(file, StandardCharsets.UTF_8, 5, queueBlocks, new IngestionStats()));
+            }
+        }
+    }
+    
+    @Test
+    public void testRandomText() throws IOException {
+        final String[] words = { "a", "B", "c,", "\u00e9t\u00e9", "\u00c9T\u00c9", "\u65e5\u672c", "x\ud83d\ude00" };
+        final String[] spaces = { " ", "  ", "\n", "\r\n", "\t", "\u3000", "\u2028", " \u2003 " };
+        final Random random = new Random(6005);
+        
+        for(int trial = 0; trial < 20; trial++){
+            final StringBuilder text = new StringBuilder();
+            for(int i = random.nextInt(300); i > 0; i--){
+                text.append(words[random.nextInt(words.length)]);
+                text.append(spaces[random.nextInt(spaces.length)]);
+            }
+            
+            for(Charset charset : new Charset[] { StandardCharsets.UTF_8, StandardCharsets.ISO_8859_1 }){
+                final File file = Corpora.write(text.toString(), charset);
+                final String expected = Corpora.sequential(file, charset);
+                for(int blockBytes : new int[] { 4, 4 + random.nextInt(40), 1 << 20 }){
+                    assertEquals(expected, pipelined(file, charset, blockBytes, 1 + random.nextInt(4), new IngestionStats()));
+                }
+            }
+        }
+    }
+    
+    @Test
+    public void testStats() throws IOException {
+        final File file = new File("src/poet/mugar-omni-theater.txt");
+        final IngestionStats stats = new IngestionStats();
+        pipelined(file, StandardCharsets.UTF_8, 16, 2, stats);
+        
+        int words = 0;
+        try(Scanner sc = new Scanner(file, "UTF-8")){
+            for(; sc.hasNext(); sc.next()) words++;
+        }
+        assertEquals(file.length(), stats.items(Stage.READ));
+        assertEquals(words, stats.items(Stage.TOKENIZE));
+        assertEquals(words, stats.items(Stage.WRITE));
+        for(Stage stage : Stage.values()){
+            assertTrue(stats.busyNanos(stage) > 0);
+            assertTrue(stats.blockedNanos(stage) >= 0);
+            assertEquals(stats.items(stage) * 1e9 / stats.busyNanos(stage), stats.throughput(stage), 1e-6);
+            assertTrue(stats.busyNanos(stats.bottleneck()) >= stats.busyNanos(stage));
+            assertTrue(stats.toString().contains(stage.toString()));
+        }
+    }
+    
+    @Test
+    public void testEmptyStats(){
+        final IngestionStats stats = new IngestionStats();
+        for(Stage stage : Stage.values()){
+            assertEquals(0, stats.items(stage));
+            assertEquals(0, stats.busyNanos(stage));
+            assertEquals(0, stats.blockedNanos(stage));
+            assertEquals(0, stats.throughput(stage), 0);
+        }
+        assertEquals(Stage.READ, stats.bottleneck());
+    }
+    
+    @Test(expected=IOException.class)
+    public void testMissingFile() throws IOException {
+        GraphPoet.pipelined(new File("test/poet/no-such-corpus.txt"));
+    }
+    
+    @Test(expected=EOFException.class, timeout=10000)
+    public void testFileShrinksWhileRead() throws IOException {
+        final File file = Corpora.write("the quick brown fox jumps over the lazy dog", StandardCharsets.UTF_8);
+        final IngestionStats truncating = new IngestionStats(){
+            @Override void record(Stage stage, long items, long busyNanos, long blockedNanos){
+                super.record(stage, items, busyNanos, blockedNanos);
+                if(stage != Stage.READ) return;
+                try(RandomAccessFile open = new RandomAccessFile(file, "rw")){
+                    open.setLength(0);
+                }catch(IOException e){
+                    throw new UncheckedIOException(e);
+                }
+            }
+        };
+        
+        pipelined(file, StandardCharsets.UTF_8, 4, 1, truncating);
+    }
+    
+    @Test
+    public void testGraphPoetPipelined() throws IOException {
+        final File file = new File("src/poet/mugar-omni-theater.txt");
+        final IngestionStats stats = new IngestionStats();
+        final GraphPoet expected = new GraphPoet(file);
+        final GraphPoet poet = GraphPoet.pipelined(file, stats);
+        
+        assertEquals(expected.toString(), poet.toString());
+        assertEquals(expected.poem("Test the system."), poet.poem("Test the system."));
+        assertEquals(expected.toString(), GraphPoet.pipelined(file).toString());
+    }
+}